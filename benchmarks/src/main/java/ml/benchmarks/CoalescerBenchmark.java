@@ -0,0 +1,104 @@
+package ml.benchmarks;
+
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.Instance;
+import ml.classifier.decisiontree.purityfunction.Entropy;
+import ml.classifier.decisiontree.serving.RequestCoalescer;
+import ml.classifier.decisiontree.tree.ID3;
+import ml.classifier.decisiontree.tree.Tree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the scoring of single-row requests sent by many concurrent clients
+ * Every operation scores one row, either directly with Tree.evaluate (on the thread of the client) or through a RequestCoalescer
+ * (submitted, then waited for), so the throughput of the coalescer can be compared with the throughput of direct scoring
+ * The number of batcher threads of the coalescer is the scoringThreads parameter; the rows are taken in turn by every client
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class CoalescerBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    @Param({"10"})
+    private int attributes;
+
+    @Param({"4", "64"})
+    private int cardinality;
+
+    @Param({"1", "4"})
+    private int scoringThreads;
+
+    @Param({"100"})
+    private long maximumDelayMicros;
+
+    private List<Instance> observations;
+    private Tree tree;
+    private RequestCoalescer coalescer;
+
+    /**
+     * This class models the next row of a client
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        private int nextRow;
+
+        /**
+         * Take the next row
+         * @param rows the number of rows
+         * @return the index of the row
+         */
+        int takeRow(int rows) {
+            int row = nextRow;
+            nextRow = (nextRow + 1) % rows;
+            return row;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset dataset = SyntheticData.createCategorical(SyntheticData.create(rows, attributes, cardinality, 42));
+        observations = dataset.getObservations();
+        tree = new ID3(dataset, SyntheticData.OUTCOME_ATTRIBUTE_NAME, new Entropy());
+        coalescer = new RequestCoalescer(tree, RequestCoalescer.DEFAULT_MAXIMUM_BATCH_SIZE, maximumDelayMicros, TimeUnit.MICROSECONDS, scoringThreads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        coalescer.close();
+    }
+
+    @Benchmark
+    public String evaluate(Client client) {
+        return tree.evaluate(observations.get(client.takeRow(rows)));
+    }
+
+    @Benchmark
+    public String coalesced(Client client) throws InterruptedException, ExecutionException {
+        return coalescer.submit(observations.get(client.takeRow(rows))).get();
+    }
+}
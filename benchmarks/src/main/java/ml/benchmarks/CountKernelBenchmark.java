@@ -0,0 +1,96 @@
+package ml.benchmarks;
+
+import ml.classifier.decisiontree.kernel.CountKernel;
+import ml.classifier.decisiontree.kernel.CountKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the scalar and the SIMD CountKernels: the class histogram of an encoded column (of all its rows, and of every other row,
+ * as the rows of a node) and the entropy and Gini impurity of a count vector
+ * The SIMD kernel is used only if the JVM has the jdk.incubator.vector module (the jmh task adds it); otherwise both kernels are scalar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountKernelBenchmark {
+
+    @Param({"100000"})
+    private int rows;
+
+    @Param({"2", "64"})
+    private int cardinality;
+
+    @Param({"scalar", "default"})
+    private String kernelName;
+
+    @Param({"64"})
+    private int vectorLength;
+
+    private CountKernel kernel;
+    private int[] column;
+    private int[] outcomes;
+    private int[] weights;
+    private int[] nodeRows;
+    private int[] countVector;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kernel = "scalar".equals(kernelName) ? CountKernels.scalar() : CountKernels.get();
+        Random random = new Random(42);
+        column = new int[rows];
+        outcomes = new int[rows];
+        weights = new int[rows];
+        for (int row = 0; row < rows; ++row) {
+            column[row] = random.nextInt(cardinality);
+            outcomes[row] = random.nextInt(SyntheticData.CLASSES_COUNT);
+            weights[row] = 1;
+        }
+        nodeRows = new int[rows / 2];
+        for (int index = 0; index < nodeRows.length; ++index)
+            nodeRows[index] = 2 * index;
+        countVector = new int[vectorLength];
+        for (int index = 0; index < vectorLength; ++index)
+            countVector[index] = random.nextInt(1000);
+    }
+
+    @Benchmark
+    public int[][] countClassesAllRows() {
+        int[][] counts = new int[cardinality][SyntheticData.CLASSES_COUNT];
+        kernel.countClasses(column, outcomes, weights, null, counts);
+        return counts;
+    }
+
+    @Benchmark
+    public int[][] countClassesNodeRows() {
+        int[][] counts = new int[cardinality][SyntheticData.CLASSES_COUNT];
+        kernel.countClasses(column, outcomes, weights, nodeRows, counts);
+        return counts;
+    }
+
+    @Benchmark
+    public double entropy() {
+        return kernel.entropy(countVector);
+    }
+
+    @Benchmark
+    public double gini() {
+        return kernel.gini(countVector);
+    }
+}
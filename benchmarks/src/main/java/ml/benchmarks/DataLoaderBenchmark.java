@@ -0,0 +1,104 @@
+package ml.benchmarks;
+
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.utils.CsvRecord;
+import ml.utils.DataLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Benchmarks the loading of a csv file with DataLoader.loadDatasetFromCsv
+ * loadProjectedAndFiltered loads only Elevation and A0 (plus the outcome) of the rows with an Elevation above 3000
+ * loadGzipPipelined and loadGzipSequential load the gzipped copy of the file, with and without the decompression pipeline
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataLoaderBenchmark {
+
+    @Param({"1000", "10000"})
+    private int rows;
+
+    @Param({"10"})
+    private int attributes;
+
+    @Param({"4"})
+    private int cardinality;
+
+    private File csvFile;
+    private File gzipFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csvFile = File.createTempFile("ml-benchmark", ".csv");
+        SyntheticData.writeCsv(SyntheticData.create(rows, attributes, cardinality, 42), csvFile, ",");
+
+        gzipFile = File.createTempFile("ml-benchmark", ".csv.gz");
+        try (InputStream inputStream = new FileInputStream(csvFile);
+             OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(gzipFile))) {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = inputStream.read(buffer)) > 0)
+                outputStream.write(buffer, 0, read);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        csvFile.delete();
+        gzipFile.delete();
+    }
+
+    @Benchmark
+    public Dataset loadDatasetFromCsv() {
+        return new DataLoader().loadDatasetFromCsv(csvFile.getPath(), ",", SyntheticData.OUTCOME_ATTRIBUTE_NAME);
+    }
+
+    @Benchmark
+    public Dataset loadProjectedAndFiltered() {
+        return new DataLoader().loadDatasetFromCsv(csvFile.getPath(), ",", SyntheticData.OUTCOME_ATTRIBUTE_NAME,
+                Arrays.asList(SyntheticData.CONTINUOUS_ATTRIBUTE_NAME, "A0"), new Predicate<CsvRecord>() {
+                    @Override
+                    public boolean test(CsvRecord record) {
+                        return record.getDouble(SyntheticData.CONTINUOUS_ATTRIBUTE_NAME) > 3000;
+                    }
+                });
+    }
+
+    @Benchmark
+    public Dataset loadGzipPipelined() {
+        return new DataLoader().loadDatasetFromCsv(gzipFile.getPath(), ",", SyntheticData.OUTCOME_ATTRIBUTE_NAME);
+    }
+
+    @Benchmark
+    public Dataset loadGzipSequential() {
+        DataLoader dataLoader = new DataLoader();
+        dataLoader.setPipelined(false);
+        return dataLoader.loadDatasetFromCsv(gzipFile.getPath(), ",", SyntheticData.OUTCOME_ATTRIBUTE_NAME);
+    }
+}
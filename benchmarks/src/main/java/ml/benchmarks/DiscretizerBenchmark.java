@@ -0,0 +1,97 @@
+package ml.benchmarks;
+
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.Discretizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the discretization of the continuous attribute with Discretizer.discretize:
+ * the single split point of the output classes and the multi-interval MDL method over the 7 classes
+ * discretizeMdlSketch uses the split candidates of a QuantileSketch (1% rank error) instead of sorting the values
+ * discretizeMdlAllAttributes treats every attribute as continuous, to measure how the attributes scale on a pool of the given parallelism
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscretizerBenchmark {
+
+    @Param({"1000", "10000"})
+    private int rows;
+
+    @Param({"10"})
+    private int attributes;
+
+    @Param({"4"})
+    private int cardinality;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private Dataset dataset;
+    private List<String> outputClasses;
+    private List<String> allAttributes;
+    private ForkJoinPool forkJoinPool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticData.create(rows, attributes, cardinality, 42);
+        outputClasses = SyntheticData.getOutputClasses();
+
+        allAttributes = new ArrayList<>();
+        allAttributes.add(SyntheticData.CONTINUOUS_ATTRIBUTE_NAME);
+        for (int attribute = 0; attribute < attributes; ++attribute)
+            allAttributes.add("A" + attribute);
+
+        forkJoinPool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        forkJoinPool.shutdown();
+    }
+
+    @Benchmark
+    public Dataset discretize() {
+        Discretizer discretizer = new Discretizer(dataset, dataset.getContinuousValuedAttributes());
+        return discretizer.discretize(outputClasses);
+    }
+
+    @Benchmark
+    public Dataset discretizeMdl() {
+        Discretizer discretizer = new Discretizer(dataset, dataset.getContinuousValuedAttributes());
+        return discretizer.discretize();
+    }
+
+    @Benchmark
+    public Dataset discretizeMdlSketch() {
+        Discretizer discretizer = new Discretizer(dataset, dataset.getContinuousValuedAttributes());
+        return discretizer.discretizeApproximately(0.01);
+    }
+
+    @Benchmark
+    public Dataset discretizeMdlAllAttributes() {
+        Discretizer discretizer = new Discretizer(dataset, allAttributes);
+        discretizer.setForkJoinPool(forkJoinPool);
+        return discretizer.discretize();
+    }
+}
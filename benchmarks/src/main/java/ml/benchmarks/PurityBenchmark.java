@@ -0,0 +1,85 @@
+package ml.benchmarks;
+
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.purityfunction.Entropy;
+import ml.classifier.decisiontree.purityfunction.GainRatio;
+import ml.classifier.decisiontree.purityfunction.Gini;
+import ml.classifier.decisiontree.tree.ConfusionMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the two steps of scoring an attribute: building its ConfusionMatrix and calculating its Entropy
+ * The purity functions are also measured on the primitive counts of the matrix, as the encoded tree builders give them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PurityBenchmark {
+
+    @Param({"1000", "10000"})
+    private int rows;
+
+    @Param({"10"})
+    private int attributes;
+
+    @Param({"4", "64"})
+    private int cardinality;
+
+    private Dataset dataset;
+    private ConfusionMatrix confusionMatrix;
+    private int[][] counts;
+    private Entropy entropy;
+    private Gini gini;
+    private GainRatio gainRatio;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticData.create(rows, attributes, cardinality, 42);
+        confusionMatrix = new ConfusionMatrix(dataset, "A0", SyntheticData.OUTCOME_ATTRIBUTE_NAME);
+        counts = confusionMatrix.toCounts();
+        entropy = new Entropy();
+        gini = new Gini();
+        gainRatio = new GainRatio();
+    }
+
+    @Benchmark
+    public ConfusionMatrix confusionMatrixConstruction() {
+        return new ConfusionMatrix(dataset, "A0", SyntheticData.OUTCOME_ATTRIBUTE_NAME);
+    }
+
+    @Benchmark
+    public double entropyCalculate() {
+        return entropy.calculate(confusionMatrix);
+    }
+
+    @Benchmark
+    public double entropyCalculateCounts() {
+        return entropy.calculate(counts);
+    }
+
+    @Benchmark
+    public double giniCalculateCounts() {
+        return gini.calculate(counts);
+    }
+
+    @Benchmark
+    public double gainRatioCalculateCounts() {
+        return gainRatio.calculate(counts);
+    }
+}
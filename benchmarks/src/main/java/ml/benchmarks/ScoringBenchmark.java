@@ -0,0 +1,94 @@
+package ml.benchmarks;
+
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.Instance;
+import ml.classifier.decisiontree.purityfunction.Entropy;
+import ml.classifier.decisiontree.tree.ExtendedID3;
+import ml.classifier.decisiontree.tree.ID3;
+import ml.classifier.decisiontree.tree.Tree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the throughput of Tree.evaluate
+ * Every operation evaluates a single row; the rows are taken in turn from the training dataset
+ * The batch benchmarks evaluate the whole dataset with Tree.evaluateBatch (one operation per batch)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    @Param({"10"})
+    private int attributes;
+
+    @Param({"4"})
+    private int cardinality;
+
+    private List<Instance> observations;
+    private List<Instance> categoricalObservations;
+    private Tree id3;
+    private Tree extendedID3;
+    private Tree extendedID3Mdl;
+    private int nextRow;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset dataset = SyntheticData.create(rows, attributes, cardinality, 42);
+        Dataset categoricalDataset = SyntheticData.createCategorical(dataset);
+        observations = dataset.getObservations();
+        categoricalObservations = categoricalDataset.getObservations();
+
+        id3 = new ID3(categoricalDataset, SyntheticData.OUTCOME_ATTRIBUTE_NAME, new Entropy());
+        extendedID3 = new ExtendedID3(SyntheticData.create(Math.min(rows, 2000), attributes, cardinality, 42),
+                SyntheticData.OUTCOME_ATTRIBUTE_NAME, new Entropy(), SyntheticData.getOutputClasses());
+        extendedID3Mdl = new ExtendedID3(SyntheticData.create(Math.min(rows, 2000), attributes, cardinality, 42),
+                SyntheticData.OUTCOME_ATTRIBUTE_NAME, new Entropy());
+        nextRow = 0;
+    }
+
+    @Benchmark
+    public String id3Evaluate() {
+        String label = id3.evaluate(categoricalObservations.get(nextRow));
+        nextRow = (nextRow + 1) % rows;
+        return label;
+    }
+
+    @Benchmark
+    public String extendedID3Evaluate() {
+        String label = extendedID3.evaluate(observations.get(nextRow));
+        nextRow = (nextRow + 1) % rows;
+        return label;
+    }
+
+    @Benchmark
+    public String extendedID3MdlEvaluate() {
+        String label = extendedID3Mdl.evaluate(observations.get(nextRow));
+        nextRow = (nextRow + 1) % rows;
+        return label;
+    }
+
+    @Benchmark
+    public List<String> extendedID3MdlEvaluateBatch() {
+        return extendedID3Mdl.evaluateBatch(observations);
+    }
+}
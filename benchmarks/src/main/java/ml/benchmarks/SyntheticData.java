@@ -0,0 +1,129 @@
+package ml.benchmarks;
+
+import ml.classifier.decisiontree.instance.Attribute;
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.Instance;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class creates synthetic covtype-like datasets for the benchmarks
+ * A dataset has one continuous attribute (Elevation), a number of categorical attributes (A0, A1, ...) and a 7-class outcome (Cover_Type)
+ * The outcome depends on Elevation and on the first categorical attributes, with 10% of noise, so the trees have some structure to find
+ */
+public class SyntheticData {
+
+    public static final String OUTCOME_ATTRIBUTE_NAME = "Cover_Type";
+    public static final String CONTINUOUS_ATTRIBUTE_NAME = "Elevation";
+    public static final int CLASSES_COUNT = 7;
+
+    /**
+     * Create a synthetic dataset
+     * @param rows the number of observations
+     * @param attributes the number of categorical attributes
+     * @param cardinality the number of distinct values of every categorical attribute
+     * @param seed the seed of the random generator
+     * @return the new dataset, with its outcome and continuous attributes set
+     */
+    public static Dataset create(int rows, int attributes, int cardinality, long seed) {
+        Random random = new Random(seed);
+        Dataset dataset = new Dataset();
+        dataset.setOutcomeAttributeName(OUTCOME_ATTRIBUTE_NAME);
+        dataset.setContinuousValuedAttributes(new ArrayList<>(Collections.singletonList(CONTINUOUS_ATTRIBUTE_NAME)));
+
+        for (int row = 0; row < rows; ++row) {
+            Instance observation = new Instance();
+            int elevation = 1800 + random.nextInt(2000);
+            observation.addAttribute(new Attribute(CONTINUOUS_ATTRIBUTE_NAME, Integer.toString(elevation)));
+
+            int[] values = new int[attributes];
+            for (int attribute = 0; attribute < attributes; ++attribute) {
+                values[attribute] = random.nextInt(cardinality);
+                observation.addAttribute(new Attribute("A" + attribute, Integer.toString(values[attribute])));
+            }
+
+            int outcome;
+            if (random.nextDouble() < 0.1)
+                outcome = random.nextInt(CLASSES_COUNT);
+            else if (elevation > 3000)
+                outcome = 0;
+            else if (elevation > 2500)
+                outcome = 1;
+            else
+                outcome = 2 + (attributes > 1 ? (values[0] + values[1]) % (CLASSES_COUNT - 2) : values.length > 0 ? values[0] % (CLASSES_COUNT - 2) : 0);
+            observation.addAttribute(new Attribute(OUTCOME_ATTRIBUTE_NAME, Integer.toString(outcome + 1)));
+
+            dataset.addObservation(observation);
+        }
+
+        return dataset;
+    }
+
+    /**
+     * Create a copy of a synthetic dataset without its continuous attribute, to be used by the trees that handle only discrete values
+     * The Instances are new, but their Attributes are shared with the original dataset
+     * @param dataset the synthetic dataset
+     * @return the dataset with categorical attributes only
+     */
+    public static Dataset createCategorical(Dataset dataset) {
+        Dataset categoricalDataset = new Dataset();
+        categoricalDataset.setOutcomeAttributeName(OUTCOME_ATTRIBUTE_NAME);
+
+        for (Instance observation : dataset.getObservations()) {
+            Instance categoricalObservation = new Instance();
+            for (Attribute attribute : observation.getAttributes())
+                if (!attribute.getAttributeName().equals(CONTINUOUS_ATTRIBUTE_NAME))
+                    categoricalObservation.addAttribute(attribute);
+            categoricalDataset.addObservation(categoricalObservation);
+        }
+
+        return categoricalDataset;
+    }
+
+    /**
+     * Write a dataset to a csv file, with a header line
+     * @param dataset the dataset
+     * @param file the file
+     * @param delimiter the delimiter of the values
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCsv(Dataset dataset, File file, String delimiter) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            List<Attribute> header = dataset.getObservations().get(0).getAttributes();
+            for (int i = 0; i < header.size(); ++i) {
+                if (i > 0)
+                    writer.write(delimiter);
+                writer.write(header.get(i).getAttributeName());
+            }
+            writer.newLine();
+
+            for (Instance observation : dataset.getObservations()) {
+                List<Attribute> attributes = observation.getAttributes();
+                for (int i = 0; i < attributes.size(); ++i) {
+                    if (i > 0)
+                        writer.write(delimiter);
+                    writer.write(attributes.get(i).getAttributeValue());
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Get the output classes used to discretize the continuous attribute
+     * @return the list of output classes
+     */
+    public static List<String> getOutputClasses() {
+        List<String> outputClasses = new ArrayList<>();
+        outputClasses.add("0");
+        outputClasses.add("1");
+        return outputClasses;
+    }
+}
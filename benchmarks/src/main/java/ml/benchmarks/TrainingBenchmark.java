@@ -0,0 +1,90 @@
+package ml.benchmarks;
+
+import ml.classifier.decisiontree.instance.BitmapIndex;
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.EncodedDataset;
+import ml.classifier.decisiontree.purityfunction.Entropy;
+import ml.classifier.decisiontree.tree.BitmapID3;
+import ml.classifier.decisiontree.tree.ExtendedID3;
+import ml.classifier.decisiontree.tree.ID3;
+import ml.classifier.decisiontree.tree.LevelWiseID3;
+import ml.classifier.decisiontree.tree.SplitMode;
+import ml.classifier.decisiontree.tree.TrainingMonitor;
+import ml.classifier.decisiontree.tree.Tree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the training of the trees
+ * ID3, LevelWiseID3 and BitmapID3 are trained on the categorical attributes only, ExtendedID3 also uses the continuous one
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainingBenchmark {
+
+    @Param({"1000", "10000"})
+    private int rows;
+
+    @Param({"10"})
+    private int attributes;
+
+    @Param({"4"})
+    private int cardinality;
+
+    private Dataset dataset;
+    private Dataset categoricalDataset;
+    private EncodedDataset encodedDataset;
+    private BitmapIndex bitmapIndex;
+    private List<String> outputClasses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = SyntheticData.create(rows, attributes, cardinality, 42);
+        categoricalDataset = SyntheticData.createCategorical(dataset);
+        encodedDataset = new EncodedDataset(categoricalDataset);
+        bitmapIndex = new BitmapIndex(encodedDataset);
+        outputClasses = SyntheticData.getOutputClasses();
+    }
+
+    @Benchmark
+    public Tree id3() {
+        return new ID3(categoricalDataset, SyntheticData.OUTCOME_ATTRIBUTE_NAME, new Entropy());
+    }
+
+    @Benchmark
+    public Tree levelWiseID3() {
+        return new LevelWiseID3(encodedDataset, encodedDataset.getAllRows(), new Entropy());
+    }
+
+    @Benchmark
+    public Tree bitmapID3() {
+        return new BitmapID3(bitmapIndex, encodedDataset.getAllRows(), new Entropy(), SplitMode.MULTIWAY, new TrainingMonitor());
+    }
+
+    @Benchmark
+    public Tree extendedID3() {
+        return new ExtendedID3(dataset, SyntheticData.OUTCOME_ATTRIBUTE_NAME, new Entropy(), outputClasses);
+    }
+
+    @Benchmark
+    public Tree extendedID3Mdl() {
+        return new ExtendedID3(dataset, SyntheticData.OUTCOME_ATTRIBUTE_NAME, new Entropy());
+    }
+}
@@ -0,0 +1,34 @@
+package ml.utils.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * This class models the Java Flight Recorder event committed when a dataset is loaded
+ */
+@Name("ml.DatasetLoad")
+@Label("Dataset Load")
+@Category({"Machine Learning", "Loading"})
+@Description("A dataset was loaded from a file")
+@StackTrace(false)
+class DatasetLoadEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    String source;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Load Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long loadNanos;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocatedBytes;
+}
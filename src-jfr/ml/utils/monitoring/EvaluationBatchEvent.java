@@ -0,0 +1,32 @@
+package ml.utils.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * This class models the Java Flight Recorder event committed when a batch of rows is evaluated
+ */
+@Name("ml.EvaluationBatch")
+@Label("Evaluation Batch")
+@Category({"Machine Learning", "Scoring"})
+@Description("A batch of rows was evaluated by a tree")
+@StackTrace(false)
+class EvaluationBatchEvent extends jdk.jfr.Event {
+
+    @Label("Tree")
+    String tree;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Correct Predictions")
+    long correct;
+
+    @Label("Evaluate Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long evaluateNanos;
+}
@@ -0,0 +1,33 @@
+package ml.utils.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class models the Java Flight Recorder event committed when an attribute of a dataset is hashed
+ */
+@Name("ml.FeatureHashing")
+@Label("Feature Hashing")
+@Category({"Machine Learning", "Loading"})
+@Description("The values of a high-cardinality attribute were hashed into buckets")
+@StackTrace(false)
+class FeatureHashingEvent extends jdk.jfr.Event {
+
+    @Label("Attribute")
+    String attribute;
+
+    @Label("Buckets")
+    int buckets;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Colliding Buckets")
+    long collidingBuckets;
+
+    @Label("Collided Rows")
+    long collidedRows;
+}
@@ -0,0 +1,70 @@
+package ml.utils.monitoring;
+
+/**
+ * This class commits the events of Metrics to the Java Flight Recorder
+ * It is loaded by Metrics, and only if the JVM has the jdk.jfr module (Java 8u262 and later)
+ */
+class JfrFlightRecorderEvents implements FlightRecorderEvents {
+
+    /**
+     * The JfrFlightRecorderEvents constructor
+     * Registers the event classes now, so a JVM whose jdk.jfr cannot be used is detected when the class is loaded
+     */
+    JfrFlightRecorderEvents() {
+        new NodeCreationEvent().isEnabled();
+    }
+
+    @Override
+    public void commitNode(String builder, int depth, long rows, int attributes, int abandoned, long discretize, long confusionMatrix, long purity, long allocatedBytes) {
+        NodeCreationEvent event = new NodeCreationEvent();
+        if (event.isEnabled()) {
+            event.builder = builder;
+            event.depth = depth;
+            event.rows = rows;
+            event.attributesScored = attributes;
+            event.attributesAbandoned = abandoned;
+            event.discretizeNanos = discretize;
+            event.confusionMatrixNanos = confusionMatrix;
+            event.purityNanos = purity;
+            event.allocatedBytes = allocatedBytes;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void commitLoad(String source, long rows, long nanos, long allocatedBytes) {
+        DatasetLoadEvent event = new DatasetLoadEvent();
+        if (event.isEnabled()) {
+            event.source = source;
+            event.rows = rows;
+            event.loadNanos = nanos;
+            event.allocatedBytes = allocatedBytes;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void commitEvaluationBatch(String tree, long rows, long correct, long nanos) {
+        EvaluationBatchEvent event = new EvaluationBatchEvent();
+        if (event.isEnabled()) {
+            event.tree = tree;
+            event.rows = rows;
+            event.correct = correct;
+            event.evaluateNanos = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void commitFeatureHashing(String attribute, int buckets, long rows, long collidingBuckets, long collidedRows) {
+        FeatureHashingEvent event = new FeatureHashingEvent();
+        if (event.isEnabled()) {
+            event.attribute = attribute;
+            event.buckets = buckets;
+            event.rows = rows;
+            event.collidingBuckets = collidingBuckets;
+            event.collidedRows = collidedRows;
+            event.commit();
+        }
+    }
+}
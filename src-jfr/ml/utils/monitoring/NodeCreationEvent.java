@@ -0,0 +1,52 @@
+package ml.utils.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * This class models the Java Flight Recorder event committed when a node of a tree is created
+ * The times are the node's own work: the time spent in its children is not counted
+ */
+@Name("ml.NodeCreation")
+@Label("Node Creation")
+@Category({"Machine Learning", "Training"})
+@Description("A node of a decision tree was created")
+@StackTrace(false)
+class NodeCreationEvent extends jdk.jfr.Event {
+
+    @Label("Builder")
+    String builder;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Attributes Scored")
+    int attributesScored;
+
+    @Label("Attributes Abandoned")
+    int attributesAbandoned;
+
+    @Label("Discretize Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long discretizeNanos;
+
+    @Label("Confusion Matrix Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long confusionMatrixNanos;
+
+    @Label("Purity Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long purityNanos;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocatedBytes;
+}
@@ -0,0 +1,170 @@
+package ml.classifier.decisiontree.kernel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+import ml.classifier.decisiontree.purityfunction.PurityKernel;
+
+/**
+ * This class models the SIMD CountKernel, built on the jdk.incubator.vector module (the lanes are the widest ones of the CPU,
+ * such as 8 ints with AVX2 and 16 ints with AVX-512)
+ *
+ * A class histogram is computed by blocks of rows: the bucket value * classesCount + class of the rows is computed on whole vectors
+ * (with gathers if the rows are not contiguous), then every bucket is counted with a comparison and a masked sum of the weights,
+ * so there are no scattered increments; as every bucket takes a pass over the block, only the columns with at most half as many buckets
+ * as lanes (such as the binary columns of a problem with few classes) are counted this way, the others are counted by the scalar kernel
+ * The entropy reads n * log2(n) from the table of PurityKernel with gathers, and the Gini impurity sums the squares in double lanes
+ *
+ * It is loaded by CountKernels, and only if the JVM was started with --add-modules jdk.incubator.vector
+ */
+public class VectorCountKernel implements CountKernel {
+
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+    //The ints that are converted to a vector of doubles of the preferred shape (half the lanes of INT_SPECIES)
+    private static final VectorSpecies<Integer> HALF_INT_SPECIES =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLE_SPECIES.vectorBitSize() / 2));
+
+    //The rows whose buckets are computed before they are counted
+    private static final int BLOCK_SIZE = 2048;
+    //The columns with less rows are counted by the scalar kernel
+    private static final int MINIMUM_ROWS = 64;
+
+    private static final double[] N_LOG2_N = new double[PurityKernel.TABLE_SIZE];
+
+    static {
+        for (int n = 0; n < N_LOG2_N.length; ++n)
+            N_LOG2_N[n] = PurityKernel.nLog2N(n);
+    }
+
+    private final CountKernel scalar = new ScalarCountKernel();
+
+    @Override
+    public void countClasses(int[] column, int[] outcomes, int[] weights, int[] rows, int[][] attributeCounts) {
+        int classesCount = attributeCounts.length > 0 ? attributeCounts[0].length : 0;
+        int bucketsCount = attributeCounts.length * classesCount;
+        int rowsCount = rows == null ? column.length : rows.length;
+        if (bucketsCount == 0 || bucketsCount > INT_SPECIES.length() / 2 || rowsCount < MINIMUM_ROWS) {
+            scalar.countClasses(column, outcomes, weights, rows, attributeCounts);
+            return;
+        }
+
+        int lanes = INT_SPECIES.length();
+        int[] buckets = new int[Math.min(BLOCK_SIZE, rowsCount)];
+        int[] blockWeights = new int[buckets.length];
+        int[] bucketCounts = new int[bucketsCount];
+
+        for (int start = 0; start < rowsCount; start += BLOCK_SIZE) {
+            int length = Math.min(BLOCK_SIZE, rowsCount - start);
+            int upperBound = INT_SPECIES.loopBound(length);
+
+            int index = 0;
+            for (; index < upperBound; index += lanes) {
+                IntVector codes;
+                IntVector classes;
+                IntVector rowWeights;
+                if (rows == null) {
+                    codes = IntVector.fromArray(INT_SPECIES, column, start + index);
+                    classes = IntVector.fromArray(INT_SPECIES, outcomes, start + index);
+                    rowWeights = IntVector.fromArray(INT_SPECIES, weights, start + index);
+                }
+                else {
+                    codes = IntVector.fromArray(INT_SPECIES, column, 0, rows, start + index);
+                    classes = IntVector.fromArray(INT_SPECIES, outcomes, 0, rows, start + index);
+                    rowWeights = IntVector.fromArray(INT_SPECIES, weights, 0, rows, start + index);
+                }
+                codes.mul(classesCount).add(classes).intoArray(buckets, index);
+                rowWeights.intoArray(blockWeights, index);
+            }
+            for (; index < length; ++index) {
+                int row = rows == null ? start + index : rows[start + index];
+                buckets[index] = column[row] * classesCount + outcomes[row];
+                blockWeights[index] = weights[row];
+            }
+
+            for (int bucket = 0; bucket < bucketsCount; ++bucket) {
+                IntVector sum = IntVector.zero(INT_SPECIES);
+                index = 0;
+                for (; index < upperBound; index += lanes) {
+                    VectorMask<Integer> inBucket = IntVector.fromArray(INT_SPECIES, buckets, index).eq(bucket);
+                    sum = sum.add(IntVector.fromArray(INT_SPECIES, blockWeights, index), inBucket);
+                }
+                int count = sum.reduceLanes(VectorOperators.ADD);
+                for (; index < length; ++index)
+                    if (buckets[index] == bucket)
+                        count += blockWeights[index];
+                bucketCounts[bucket] += count;
+            }
+        }
+
+        for (int bucket = 0; bucket < bucketsCount; ++bucket)
+            attributeCounts[bucket / classesCount][bucket % classesCount] += bucketCounts[bucket];
+    }
+
+    @Override
+    public double entropy(int[] counts) {
+        int lanes = HALF_INT_SPECIES.length();
+        int upperBound = HALF_INT_SPECIES.loopBound(counts.length);
+        if (upperBound == 0)
+            return scalar.entropy(counts);
+
+        //The table is read with gathers, so all the counts have to be in it
+        long total = 0;
+        IntVector maximum = IntVector.zero(HALF_INT_SPECIES);
+        int index = 0;
+        for (; index < upperBound; index += lanes) {
+            IntVector vector = IntVector.fromArray(HALF_INT_SPECIES, counts, index);
+            maximum = maximum.max(vector);
+            total += vector.reduceLanesToLong(VectorOperators.ADD);
+        }
+        int maximumCount = maximum.reduceLanes(VectorOperators.MAX);
+        for (; index < counts.length; ++index) {
+            total += counts[index];
+            maximumCount = Math.max(maximumCount, counts[index]);
+        }
+        if (maximumCount >= N_LOG2_N.length)
+            return scalar.entropy(counts);
+        if (total == 0)
+            return 0.0;
+
+        DoubleVector sum = DoubleVector.zero(DOUBLE_SPECIES);
+        for (index = 0; index < upperBound; index += lanes)
+            sum = sum.add(DoubleVector.fromArray(DOUBLE_SPECIES, N_LOG2_N, 0, counts, index));
+        double nLog2NSum = sum.reduceLanes(VectorOperators.ADD);
+        for (; index < counts.length; ++index)
+            nLog2NSum += N_LOG2_N[counts[index]];
+        return (PurityKernel.nLog2N(total) - nLog2NSum) / total;
+    }
+
+    @Override
+    public double gini(int[] counts) {
+        int lanes = HALF_INT_SPECIES.length();
+        int upperBound = HALF_INT_SPECIES.loopBound(counts.length);
+        if (upperBound == 0)
+            return scalar.gini(counts);
+
+        long total = 0;
+        DoubleVector squares = DoubleVector.zero(DOUBLE_SPECIES);
+        int index = 0;
+        for (; index < upperBound; index += lanes) {
+            IntVector vector = IntVector.fromArray(HALF_INT_SPECIES, counts, index);
+            total += vector.reduceLanesToLong(VectorOperators.ADD);
+            DoubleVector doubles = (DoubleVector) vector.convertShape(VectorOperators.I2D, DOUBLE_SPECIES, 0);
+            squares = doubles.fma(doubles, squares);
+        }
+        double squaresSum = squares.reduceLanes(VectorOperators.ADD);
+        for (; index < counts.length; ++index) {
+            total += counts[index];
+            squaresSum += (double) counts[index] * counts[index];
+        }
+        return total == 0 ? 0.0 : 1.0 - squaresSum / ((double) total * total);
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+}
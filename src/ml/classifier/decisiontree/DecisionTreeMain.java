@@ -1,5 +1,8 @@
 package ml.classifier.decisiontree;
 
+import ml.classifier.decisiontree.evaluation.EvaluationListener;
+import ml.classifier.decisiontree.evaluation.EvaluationReport;
+import ml.classifier.decisiontree.evaluation.Evaluator;
 import ml.classifier.decisiontree.instance.Dataset;
 import ml.classifier.decisiontree.instance.Discretizer;
 import ml.classifier.decisiontree.instance.Instance;
@@ -68,11 +71,8 @@ public class DecisionTreeMain {
         continuousAttributeNames.add("Elevation");
         dataset.setContinuousValuedAttributes(continuousAttributeNames);
 
-        List<String> outputClasses = new ArrayList<>();
-        outputClasses.add("2");
-        outputClasses.add("1");
-
-        ExtendedID3 extendedID3 = new ExtendedID3(dataset, "Cover_Type", new Entropy(), outputClasses);
+        //All the cover types are used: the continuous attributes are discretized with the MDL method
+        ExtendedID3 extendedID3 = new ExtendedID3(dataset, "Cover_Type", new Entropy());
         extendedID3.showTree();
 
         Dataset testDataset = dataLoader.loadDatasetFromCsv("covtype-test.csv", ",");
@@ -83,23 +83,17 @@ public class DecisionTreeMain {
 
         System.out.println(innerNode.isTerminal() + " " + terminalNode.isTerminal());
 
-        Double hit = .0, count = .0;
-
-        int checked = 0;
-        for( Instance observation: testDataset.getObservations() ) {
-            ++checked;
-            String actualLabel = observation.getAttributeByName( "Cover_Type" ).getAttributeValue();
-            String predictedLabel = extendedID3.evaluate( observation );
-            count = count + 1.0;
-            if( actualLabel.equals( predictedLabel ) )
-                hit = hit + 1.0;
-            System.out.println("Count = " + count + "\nhit = " + hit);
-            if (checked == 100) {
-                System.out.println("Count = " + count + "\nhit = " + hit);
-                checked = 0;
+        Evaluator evaluator = new Evaluator(extendedID3, "Cover_Type");
+        evaluator.setReportInterval(100);
+        evaluator.setEvaluationListener(new EvaluationListener() {
+            @Override
+            public void onReport(EvaluationReport report) {
+                System.out.println(report);
             }
-        }
-        System.out.println(hit / count);
+        });
+        EvaluationReport report = evaluator.evaluate(testDataset);
+        System.out.println(report);
+        System.out.println(report.getAccuracy());
         //*/
     }
 }
@@ -1,5 +1,8 @@
 package ml.classifier.decisiontree;
 
+import ml.classifier.decisiontree.evaluation.EvaluationListener;
+import ml.classifier.decisiontree.evaluation.EvaluationReport;
+import ml.classifier.decisiontree.evaluation.Evaluator;
 import ml.classifier.decisiontree.instance.Dataset;
 import ml.classifier.decisiontree.instance.Instance;
 import ml.classifier.decisiontree.purityfunction.Entropy;
@@ -60,31 +63,25 @@ public class Test {
 
         trainDataset.setContinuousValuedAttributes(continuousAttributeNames);
 
-        List<String> outputClasses = new ArrayList<>();
-        outputClasses.add("2");
-        outputClasses.add("1");
-
-        ExtendedID3 extendedID3 = new ExtendedID3(trainDataset, "Cover_Type", new Entropy(), outputClasses);
+        //All the cover types are used: the continuous attributes are discretized with the MDL method
+        ExtendedID3 extendedID3 = new ExtendedID3(trainDataset, "Cover_Type", new Entropy());
         extendedID3.showTree();
 
         //*
         Dataset testDataset = dataLoader.loadDatasetFromCsv("covtype-test.csv", ",");
         System.out.println("Evaluating...");
 
-        Double hit = .0, count = .0;
-
-        int checked = 0;
-        for( Instance observation: testDataset.getObservations() ) {
-            ++checked;
-            String actualLabel = observation.getAttributeByName( "Cover_Type" ).getAttributeValue();
-            String predictedLabel = extendedID3.evaluate( observation );
-            count = count + 1.0;
-            if( actualLabel.equals( predictedLabel ) )
-                hit = hit + 1.0;
-            System.out.println("Count = " + count + "\nhit = " + hit);
-
-        }
-        System.out.println(hit / count);
+        Evaluator evaluator = new Evaluator(extendedID3, "Cover_Type");
+        evaluator.setReportIntervalMillis(1000);
+        evaluator.setEvaluationListener(new EvaluationListener() {
+            @Override
+            public void onReport(EvaluationReport report) {
+                System.out.println(report);
+            }
+        });
+        EvaluationReport report = evaluator.evaluate(testDataset);
+        System.out.println(report);
+        System.out.println(report.getAccuracy());
         //*/
     }
 
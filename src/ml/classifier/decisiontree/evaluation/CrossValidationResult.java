@@ -0,0 +1,93 @@
+package ml.classifier.decisiontree.evaluation;
+
+import java.util.List;
+
+/**
+ * This class models the result of a k-fold cross-validation of one TreeTrainer
+ * The predictions of all the folds are aggregated in a single PredictionMatrix
+ */
+public class CrossValidationResult {
+
+    private TreeTrainer treeTrainer;
+    private List<FoldResult> foldResults;
+    private PredictionMatrix predictionMatrix;
+
+    /**
+     * The CrossValidationResult constructor
+     * @param treeTrainer the trainer that was validated
+     * @param foldResults the results of the folds, ordered by the fold index
+     * @param classValues the possible classes, indexed by their codes
+     */
+    public CrossValidationResult(TreeTrainer treeTrainer, List<FoldResult> foldResults, List<String> classValues) {
+        this.treeTrainer = treeTrainer;
+        this.foldResults = foldResults;
+        this.predictionMatrix = new PredictionMatrix(classValues);
+        for (FoldResult foldResult : foldResults)
+            this.predictionMatrix.merge(foldResult.getPredictionMatrix());
+    }
+
+    /**
+     * Get the trainer that was validated
+     * @return the trainer
+     */
+    public TreeTrainer getTreeTrainer() {
+        return treeTrainer;
+    }
+
+    /**
+     * Get the results of the folds
+     * @return the results of the folds
+     */
+    public List<FoldResult> getFoldResults() {
+        return foldResults;
+    }
+
+    /**
+     * Get the predictions of all the folds
+     * @return the aggregated prediction matrix
+     */
+    public PredictionMatrix getPredictionMatrix() {
+        return predictionMatrix;
+    }
+
+    /**
+     * Get the accuracy over all the folds
+     * @return the accuracy
+     */
+    public double getAccuracy() {
+        return predictionMatrix.getAccuracy();
+    }
+
+    /**
+     * Get the total time spent training the trees of all the folds
+     * @return the training time, in nanoseconds
+     */
+    public long getTrainingNanos() {
+        long nanos = 0;
+        for (FoldResult foldResult : foldResults)
+            nanos += foldResult.getTrainingNanos();
+        return nanos;
+    }
+
+    /**
+     * Get the total time spent evaluating the test rows of all the folds
+     * @return the evaluation time, in nanoseconds
+     */
+    public long getEvaluationNanos() {
+        long nanos = 0;
+        for (FoldResult foldResult : foldResults)
+            nanos += foldResult.getEvaluationNanos();
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "CrossValidationResult{" +
+                "treeTrainer=" + treeTrainer +
+                ", accuracy=" + getAccuracy() +
+                ", trainingMillis=" + getTrainingNanos() / 1000000 +
+                ", evaluationMillis=" + getEvaluationNanos() / 1000000 +
+                ", foldResults=" + foldResults +
+                '}';
+    }
+}
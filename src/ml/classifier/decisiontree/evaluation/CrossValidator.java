@@ -0,0 +1,210 @@
+package ml.classifier.decisiontree.evaluation;
+
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.EncodedDataset;
+import ml.classifier.decisiontree.instance.Instance;
+import ml.classifier.decisiontree.tree.Tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class models a k-fold CrossValidator
+ * The dataset is encoded only once; the k folds are arrays of row indexes over the encoded dataset
+ * For every fold a tree is trained on the other k-1 folds and evaluated on the fold
+ * The trees of all the folds (and of all the trainers of a grid) are trained concurrently
+ */
+public class CrossValidator {
+
+    private EncodedDataset encodedDataset;
+    private int foldsCount;
+    private int[][] testRows;
+    private int[][] trainingRows;
+    private int threadsCount;
+
+    /**
+     * The CrossValidator constructor
+     * @param dataset the dataset, with its outcome attribute name set
+     * @param foldsCount the number of folds (k)
+     * @param seed the seed used to shuffle the rows before they are assigned to the folds
+     */
+    public CrossValidator(Dataset dataset, int foldsCount, long seed) {
+        this(new EncodedDataset(dataset), foldsCount, seed);
+    }
+
+    /**
+     * The CrossValidator constructor
+     * @param encodedDataset the encoded dataset
+     * @param foldsCount the number of folds (k)
+     * @param seed the seed used to shuffle the rows before they are assigned to the folds
+     */
+    public CrossValidator(EncodedDataset encodedDataset, int foldsCount, long seed) {
+        if (foldsCount < 2 || foldsCount > encodedDataset.getObservationsCount())
+            throw new IllegalArgumentException("The number of folds must be between 2 and the number of observations: " + foldsCount);
+
+        this.encodedDataset = encodedDataset;
+        this.foldsCount = foldsCount;
+        this.threadsCount = Runtime.getRuntime().availableProcessors();
+        createFolds(seed);
+    }
+
+    /**
+     * Shuffle the rows and split them in foldsCount folds of (almost) the same size
+     * @param seed the seed of the shuffle
+     */
+    private void createFolds(long seed) {
+        int[] rows = encodedDataset.getAllRows();
+        Random random = new Random(seed);
+        for (int i = rows.length - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int swap = rows[i];
+            rows[i] = rows[j];
+            rows[j] = swap;
+        }
+
+        testRows = new int[foldsCount][];
+        trainingRows = new int[foldsCount][];
+        for (int foldIndex = 0; foldIndex < foldsCount; ++foldIndex) {
+            int start = (int) ((long) rows.length * foldIndex / foldsCount);
+            int end = (int) ((long) rows.length * (foldIndex + 1) / foldsCount);
+
+            testRows[foldIndex] = Arrays.copyOfRange(rows, start, end);
+            trainingRows[foldIndex] = new int[rows.length - (end - start)];
+            System.arraycopy(rows, 0, trainingRows[foldIndex], 0, start);
+            System.arraycopy(rows, end, trainingRows[foldIndex], start, rows.length - end);
+
+            //Sorted rows are read in the order in which they are stored
+            Arrays.sort(testRows[foldIndex]);
+            Arrays.sort(trainingRows[foldIndex]);
+        }
+    }
+
+    /**
+     * Get the encoded dataset
+     * @return the encoded dataset
+     */
+    public EncodedDataset getEncodedDataset() {
+        return encodedDataset;
+    }
+
+    /**
+     * Get the number of folds
+     * @return the number of folds
+     */
+    public int getFoldsCount() {
+        return foldsCount;
+    }
+
+    /**
+     * Get the test rows of a fold
+     * @param foldIndex the index of the fold
+     * @return the indexes of the test rows
+     */
+    public int[] getTestRows(int foldIndex) {
+        return testRows[foldIndex];
+    }
+
+    /**
+     * Get the training rows of a fold (the rows of all the other folds)
+     * @param foldIndex the index of the fold
+     * @return the indexes of the training rows
+     */
+    public int[] getTrainingRows(int foldIndex) {
+        return trainingRows[foldIndex];
+    }
+
+    /**
+     * Get the number of threads used to train the trees
+     * @return the number of threads
+     */
+    public int getThreadsCount() {
+        return threadsCount;
+    }
+
+    /**
+     * Set the number of threads used to train the trees
+     * @param threadsCount the new number of threads
+     */
+    public void setThreadsCount(int threadsCount) {
+        this.threadsCount = threadsCount;
+    }
+
+    /**
+     * Cross-validate a single trainer
+     * @param treeTrainer the trainer
+     * @return the result of the cross-validation
+     */
+    public CrossValidationResult crossValidate(TreeTrainer treeTrainer) {
+        return crossValidate(Collections.singletonList(treeTrainer)).get(0);
+    }
+
+    /**
+     * Cross-validate a grid of trainers
+     * The folds of all the trainers are trained as a single batch of tasks, sharing the same encoded dataset and folds
+     * @param treeTrainers the trainers
+     * @return the results of the cross-validations, in the order of the trainers
+     */
+    public List<CrossValidationResult> crossValidate(List<TreeTrainer> treeTrainers) {
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, threadsCount));
+        try {
+            List<Future<FoldResult>> futures = new ArrayList<>();
+            for (TreeTrainer treeTrainer : treeTrainers)
+                for (int foldIndex = 0; foldIndex < foldsCount; ++foldIndex)
+                    futures.add(executorService.submit(createFoldTask(treeTrainer, foldIndex)));
+
+            List<CrossValidationResult> results = new ArrayList<>();
+            int futureIndex = 0;
+            for (TreeTrainer treeTrainer : treeTrainers) {
+                List<FoldResult> foldResults = new ArrayList<>();
+                for (int foldIndex = 0; foldIndex < foldsCount; ++foldIndex)
+                    foldResults.add(futures.get(futureIndex++).get());
+                results.add(new CrossValidationResult(treeTrainer, foldResults, encodedDataset.getOutcomeValues()));
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The cross-validation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A fold of the cross-validation failed", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Create the task that trains and evaluates the tree of a fold
+     * @param treeTrainer the trainer
+     * @param foldIndex the index of the fold
+     * @return the task
+     */
+    private Callable<FoldResult> createFoldTask(final TreeTrainer treeTrainer, final int foldIndex) {
+        return new Callable<FoldResult>() {
+            @Override
+            public FoldResult call() {
+                long start = System.nanoTime();
+                Tree tree = treeTrainer.train(encodedDataset, trainingRows[foldIndex]);
+                long trainingNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                PredictionMatrix predictionMatrix = new PredictionMatrix(encodedDataset.getOutcomeValues());
+                List<Instance> observations = encodedDataset.getDataset().getObservations();
+                int[] outcomes = encodedDataset.getOutcomes();
+                for (int row : testRows[foldIndex]) {
+                    String predictedLabel = tree.evaluate(observations.get(row));
+                    predictionMatrix.add(outcomes[row], predictionMatrix.getClassCode(predictedLabel));
+                }
+                long evaluationNanos = System.nanoTime() - start;
+
+                return new FoldResult(foldIndex, predictionMatrix, trainingNanos, evaluationNanos);
+            }
+        };
+    }
+}
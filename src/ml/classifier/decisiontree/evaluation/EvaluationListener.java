@@ -0,0 +1,15 @@
+package ml.classifier.decisiontree.evaluation;
+
+/**
+ * This interface models an EvaluationListener
+ * An EvaluationListener receives the intermediate reports of an Evaluator
+ */
+public interface EvaluationListener {
+
+    /**
+     * Called every time the Evaluator reaches its report interval
+     * @param report the report of the evaluation so far
+     */
+    void onReport(EvaluationReport report);
+
+}
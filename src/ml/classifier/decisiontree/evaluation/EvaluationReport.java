@@ -0,0 +1,95 @@
+package ml.classifier.decisiontree.evaluation;
+
+/**
+ * This class models an EvaluationReport
+ * It is a snapshot of the state of an Evaluator: its predictions, its throughput and the latencies of the single predictions
+ */
+public class EvaluationReport {
+
+    private PredictionMatrix predictionMatrix;
+    private LatencyHistogram latencyHistogram;
+    private long rowsCount;
+    private long elapsedNanos;
+
+    /**
+     * The EvaluationReport constructor
+     * @param predictionMatrix the predictions made so far
+     * @param latencyHistogram the latencies of the predictions made so far
+     * @param rowsCount the number of evaluated rows
+     * @param elapsedNanos the time since the evaluation started, in nanoseconds
+     */
+    public EvaluationReport(PredictionMatrix predictionMatrix, LatencyHistogram latencyHistogram, long rowsCount, long elapsedNanos) {
+        this.predictionMatrix = predictionMatrix;
+        this.latencyHistogram = latencyHistogram;
+        this.rowsCount = rowsCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Get the predictions made so far
+     * @return the prediction matrix
+     */
+    public PredictionMatrix getPredictionMatrix() {
+        return predictionMatrix;
+    }
+
+    /**
+     * Get the latencies of the predictions made so far
+     * @return the latency histogram
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    /**
+     * Get the number of evaluated rows
+     * @return the number of evaluated rows
+     */
+    public long getRowsCount() {
+        return rowsCount;
+    }
+
+    /**
+     * Get the time since the evaluation started
+     * @return the elapsed time, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the accuracy of the predictions made so far
+     * @return the accuracy
+     */
+    public double getAccuracy() {
+        return predictionMatrix.getAccuracy();
+    }
+
+    /**
+     * Get the throughput of the evaluation
+     * @return the number of rows evaluated per second
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowsCount * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder returnString = new StringBuilder("EvaluationReport{");
+        returnString.append("rows=").append(rowsCount)
+                .append(", accuracy=").append(getAccuracy())
+                .append(", rowsPerSecond=").append((long) getRowsPerSecond())
+                .append(", latencyNanos=").append(latencyHistogram);
+
+        returnString.append(", precision/recall={");
+        for (int code = 0; code < predictionMatrix.getClassValues().size(); ++code) {
+            if (code > 0)
+                returnString.append(", ");
+            returnString.append(predictionMatrix.getClassValues().get(code)).append('=')
+                    .append(String.format("%.3f/%.3f", predictionMatrix.getPrecision(code), predictionMatrix.getRecall(code)));
+        }
+        returnString.append("}}");
+
+        return returnString.toString();
+    }
+}
@@ -0,0 +1,199 @@
+package ml.classifier.decisiontree.evaluation;
+
+import ml.classifier.decisiontree.instance.Attribute;
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.Instance;
+import ml.classifier.decisiontree.tree.Tree;
+import ml.utils.monitoring.Metrics;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This class models an Evaluator
+ * An Evaluator scores a Dataset, or a stream of Instances, with a Tree and compares the predictions with the actual outcomes
+ * It keeps the class-by-class PredictionMatrix, the throughput and the latency of every prediction
+ * The observations are scored by chunks of chunkSize rows with Tree.evaluateBatch, and the latency of a row is its share of the time of its chunk
+ * Instead of printing every row, it sends a report to its listener every reportInterval rows and/or reportIntervalMillis milliseconds
+ * When the Metrics are on, every report interval (and the end of the evaluation) is also recorded as an evaluation batch
+ */
+public class Evaluator {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private Tree tree;
+    private String outcomeAttributeName;
+    private int chunkSize;
+
+    private long reportInterval;
+    private long reportIntervalMillis;
+    private EvaluationListener evaluationListener;
+
+    /**
+     * The Evaluator constructor
+     * No intermediate reports are sent until an interval and a listener are set
+     * @param tree the tree used to make the predictions
+     * @param outcomeAttributeName the outcome attribute name (the actual values)
+     */
+    public Evaluator(Tree tree, String outcomeAttributeName) {
+        this.tree = tree;
+        this.outcomeAttributeName = outcomeAttributeName;
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+        this.reportInterval = 0;
+        this.reportIntervalMillis = 0;
+        this.evaluationListener = null;
+    }
+
+    /**
+     * Get the number of rows scored together with Tree.evaluateBatch
+     * @return the chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Set the number of rows scored together with Tree.evaluateBatch
+     * @param chunkSize the new chunk size, 1 to score and time every row alone
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("The chunk size must be positive: " + chunkSize);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Get the number of rows between two reports
+     * @return the report interval, 0 if the reports are not sent by rows
+     */
+    public long getReportInterval() {
+        return reportInterval;
+    }
+
+    /**
+     * Set the number of rows between two reports
+     * @param reportInterval the new report interval, 0 to not send reports by rows
+     */
+    public void setReportInterval(long reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+
+    /**
+     * Get the time between two reports
+     * @return the report interval, in milliseconds, 0 if the reports are not sent by time
+     */
+    public long getReportIntervalMillis() {
+        return reportIntervalMillis;
+    }
+
+    /**
+     * Set the time between two reports
+     * @param reportIntervalMillis the new report interval, in milliseconds, 0 to not send reports by time
+     */
+    public void setReportIntervalMillis(long reportIntervalMillis) {
+        this.reportIntervalMillis = reportIntervalMillis;
+    }
+
+    /**
+     * Get the listener that receives the intermediate reports
+     * @return the listener
+     */
+    public EvaluationListener getEvaluationListener() {
+        return evaluationListener;
+    }
+
+    /**
+     * Set the listener that receives the intermediate reports
+     * @param evaluationListener the new listener
+     */
+    public void setEvaluationListener(EvaluationListener evaluationListener) {
+        this.evaluationListener = evaluationListener;
+    }
+
+    /**
+     * Evaluate all the observations of a dataset
+     * @param dataset the dataset
+     * @return the final report
+     */
+    public EvaluationReport evaluate(Dataset dataset) {
+        return evaluate(dataset.getObservations().iterator());
+    }
+
+    /**
+     * Evaluate a stream of observations
+     * @param observations the observations
+     * @return the final report
+     */
+    public EvaluationReport evaluate(Iterable<Instance> observations) {
+        return evaluate(observations.iterator());
+    }
+
+    /**
+     * Evaluate a stream of observations
+     * @param observations the observations
+     * @return the final report
+     */
+    public EvaluationReport evaluate(Iterator<Instance> observations) {
+        PredictionMatrix predictionMatrix = new PredictionMatrix();
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+        boolean monitored = Metrics.isEnabled();
+        boolean reporting = (evaluationListener != null || monitored) && (reportInterval > 0 || reportIntervalMillis > 0);
+        long reportIntervalNanos = reportIntervalMillis * 1000000;
+        long start = System.nanoTime();
+        long lastReport = start;
+        long rowsCount = 0;
+        long rowsSinceReport = 0;
+        long correctAtReport = 0;
+
+        List<Instance> chunk = new ArrayList<>(chunkSize);
+        while (observations.hasNext()) {
+            chunk.clear();
+            while (chunk.size() < chunkSize && observations.hasNext())
+                chunk.add(observations.next());
+
+            long before = System.nanoTime();
+            List<String> predictedLabels = tree.evaluateBatch(chunk);
+            long after = System.nanoTime();
+            long rowNanos = (after - before) / chunk.size();
+
+            for (int index = 0; index < chunk.size(); ++index) {
+                Attribute actualAttribute = chunk.get(index).getAttributeByName(outcomeAttributeName);
+                latencyHistogram.record(rowNanos);
+                predictionMatrix.add(actualAttribute != null ? actualAttribute.getAttributeValue() : null, predictedLabels.get(index));
+                ++rowsCount;
+                ++rowsSinceReport;
+
+                if (reporting && ((reportInterval > 0 && rowsSinceReport >= reportInterval)
+                        || (reportIntervalNanos > 0 && after - lastReport >= reportIntervalNanos))) {
+                    if (evaluationListener != null)
+                        evaluationListener.onReport(new EvaluationReport(predictionMatrix.copy(), copyOf(latencyHistogram), rowsCount, after - start));
+                    if (monitored) {
+                        Metrics.recordEvaluationBatch(tree.getClass().getSimpleName(), rowsSinceReport, predictionMatrix.getCorrectCount() - correctAtReport, after - lastReport);
+                        correctAtReport = predictionMatrix.getCorrectCount();
+                    }
+                    rowsSinceReport = 0;
+                    lastReport = after;
+                }
+            }
+        }
+
+        long end = System.nanoTime();
+        if (monitored && rowsSinceReport > 0)
+            Metrics.recordEvaluationBatch(tree.getClass().getSimpleName(), rowsSinceReport, predictionMatrix.getCorrectCount() - correctAtReport, end - lastReport);
+
+        return new EvaluationReport(predictionMatrix, latencyHistogram, rowsCount, end - start);
+    }
+
+    /**
+     * Create a copy of a latency histogram, such that a report is not changed by the rest of the evaluation
+     * @param latencyHistogram the histogram
+     * @return the copy
+     */
+    private static LatencyHistogram copyOf(LatencyHistogram latencyHistogram) {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.merge(latencyHistogram);
+        return copy;
+    }
+}
@@ -0,0 +1,69 @@
+package ml.classifier.decisiontree.evaluation;
+
+/**
+ * This class models the result of a single fold of a cross-validation
+ * It holds the predictions made on the test rows of the fold and the time spent training and evaluating
+ */
+public class FoldResult {
+
+    private int foldIndex;
+    private PredictionMatrix predictionMatrix;
+    private long trainingNanos;
+    private long evaluationNanos;
+
+    /**
+     * The FoldResult constructor
+     * @param foldIndex the index of the fold
+     * @param predictionMatrix the predictions made on the test rows of the fold
+     * @param trainingNanos the time spent training the tree, in nanoseconds
+     * @param evaluationNanos the time spent evaluating the test rows, in nanoseconds
+     */
+    public FoldResult(int foldIndex, PredictionMatrix predictionMatrix, long trainingNanos, long evaluationNanos) {
+        this.foldIndex = foldIndex;
+        this.predictionMatrix = predictionMatrix;
+        this.trainingNanos = trainingNanos;
+        this.evaluationNanos = evaluationNanos;
+    }
+
+    /**
+     * Get the index of the fold
+     * @return the index of the fold
+     */
+    public int getFoldIndex() {
+        return foldIndex;
+    }
+
+    /**
+     * Get the predictions made on the test rows of the fold
+     * @return the prediction matrix
+     */
+    public PredictionMatrix getPredictionMatrix() {
+        return predictionMatrix;
+    }
+
+    /**
+     * Get the time spent training the tree
+     * @return the training time, in nanoseconds
+     */
+    public long getTrainingNanos() {
+        return trainingNanos;
+    }
+
+    /**
+     * Get the time spent evaluating the test rows
+     * @return the evaluation time, in nanoseconds
+     */
+    public long getEvaluationNanos() {
+        return evaluationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "FoldResult{" +
+                "foldIndex=" + foldIndex +
+                ", accuracy=" + predictionMatrix.getAccuracy() +
+                ", trainingMillis=" + trainingNanos / 1000000 +
+                ", evaluationMillis=" + evaluationNanos / 1000000 +
+                '}';
+    }
+}
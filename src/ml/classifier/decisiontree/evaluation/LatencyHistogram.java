@@ -0,0 +1,125 @@
+package ml.classifier.decisiontree.evaluation;
+
+/**
+ * This class models a LatencyHistogram
+ * It counts latencies (in nanoseconds) in a fixed array of buckets, so recording a latency does not allocate
+ * Values below 16 have their own bucket; above, every power of two is divided in 16 buckets,
+ * so a percentile is known with a relative error of at most 1/16
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private long[] counts;
+    private long totalCount;
+    private long maximum;
+
+    /**
+     * The LatencyHistogram default constructor
+     */
+    public LatencyHistogram() {
+        this.counts = new long[BUCKETS];
+        this.totalCount = 0;
+        this.maximum = 0;
+    }
+
+    /**
+     * Record a latency
+     * @param nanos the latency, in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        ++counts[bucketOf(nanos)];
+        ++totalCount;
+        if (nanos > maximum)
+            maximum = nanos;
+    }
+
+    /**
+     * Add the counts of another histogram to this one
+     * @param other the other histogram
+     */
+    public void merge(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; ++bucket)
+            counts[bucket] += other.counts[bucket];
+        totalCount += other.totalCount;
+        maximum = Math.max(maximum, other.maximum);
+    }
+
+    /**
+     * Get the number of recorded latencies
+     * @return the number of recorded latencies
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the biggest recorded latency
+     * @return the maximum latency, in nanoseconds
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Get a percentile of the recorded latencies
+     * @param percentile the percentile, between 0 and 100
+     * @return the lower bound of the bucket that holds the percentile, in nanoseconds (0 if nothing was recorded)
+     */
+    public long getPercentile(double percentile) {
+        if (totalCount == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+        rank = Math.max(1, Math.min(totalCount, rank));
+
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+            seen += counts[bucket];
+            if (seen >= rank)
+                return Math.min(lowerBoundOf(bucket), maximum);
+        }
+        return maximum;
+    }
+
+    /**
+     * Get the bucket of a value
+     * @param value the value
+     * @return the index of the bucket
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Get the smallest value of a bucket
+     * @param bucket the index of the bucket
+     * @return the smallest value that falls in the bucket
+     */
+    private static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket)) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "count=" + totalCount +
+                ", p50=" + getPercentile(50) +
+                ", p90=" + getPercentile(90) +
+                ", p99=" + getPercentile(99) +
+                ", max=" + maximum +
+                '}';
+    }
+}
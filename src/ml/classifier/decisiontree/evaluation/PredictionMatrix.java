@@ -0,0 +1,217 @@
+package ml.classifier.decisiontree.evaluation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class models a PredictionMatrix
+ * A PredictionMatrix counts, for every pair of classes (actual, predicted), how many observations of the actual class were predicted as the other one
+ * Unlike the ConfusionMatrix used to grow the trees, the counts are kept in a primitive array indexed by class codes
+ * The classes are either known from the start (the outcome values of the dataset) or added as they are seen in a stream
+ * Predictions that are not a class (a null prediction) are counted apart
+ */
+public class PredictionMatrix {
+
+    private List<String> classValues;
+    private Map<String, Integer> classCodes;
+    private long[][] counts;
+    private long unknownPredictions;
+
+    /**
+     * The PredictionMatrix default constructor
+     * The classes are added as they are seen
+     */
+    public PredictionMatrix() {
+        this(new ArrayList<String>());
+    }
+
+    /**
+     * The PredictionMatrix constructor
+     * @param classValues the possible classes, indexed by their codes
+     */
+    public PredictionMatrix(List<String> classValues) {
+        this.classValues = new ArrayList<>(classValues);
+        this.classCodes = new HashMap<>();
+        for (int code = 0; code < classValues.size(); ++code)
+            classCodes.put(classValues.get(code), code);
+        this.counts = new long[classValues.size()][classValues.size()];
+        this.unknownPredictions = 0;
+    }
+
+    /**
+     * Get the code of a class
+     * @param classValue the class
+     * @return the code of the class, -1 if the class is not known
+     */
+    public int getClassCode(String classValue) {
+        Integer code = classCodes.get(classValue);
+        return code != null ? code : -1;
+    }
+
+    /**
+     * Get the code of a class, adding the class if it is not known yet
+     * @param classValue the class
+     * @return the code of the class, -1 if the class is null
+     */
+    public int getOrAddClassCode(String classValue) {
+        if (classValue == null)
+            return -1;
+
+        Integer code = classCodes.get(classValue);
+        if (code == null) {
+            code = classValues.size();
+            classValues.add(classValue);
+            classCodes.put(classValue, code);
+
+            long[][] newCounts = new long[code + 1][code + 1];
+            for (int actual = 0; actual < code; ++actual)
+                System.arraycopy(counts[actual], 0, newCounts[actual], 0, code);
+            counts = newCounts;
+        }
+        return code;
+    }
+
+    /**
+     * Count a prediction
+     * A class that is not known yet is added to the matrix
+     * @param actualValue the actual class
+     * @param predictedValue the predicted class, null if there is no prediction
+     */
+    public void add(String actualValue, String predictedValue) {
+        add(getOrAddClassCode(actualValue), getOrAddClassCode(predictedValue));
+    }
+
+    /**
+     * Count a prediction
+     * @param actualCode the code of the actual class
+     * @param predictedCode the code of the predicted class, -1 if the prediction is not a known class
+     */
+    public void add(int actualCode, int predictedCode) {
+        if (actualCode < 0 || predictedCode < 0)
+            ++unknownPredictions;
+        else
+            ++counts[actualCode][predictedCode];
+    }
+
+    /**
+     * Add the counts of another matrix to this one
+     * The classes of the other matrix that are not known yet are added to this one
+     * @param other the other matrix
+     */
+    public void merge(PredictionMatrix other) {
+        int[] codes = new int[other.classValues.size()];
+        for (int otherCode = 0; otherCode < codes.length; ++otherCode)
+            codes[otherCode] = getOrAddClassCode(other.classValues.get(otherCode));
+
+        for (int actual = 0; actual < codes.length; ++actual)
+            for (int predicted = 0; predicted < codes.length; ++predicted)
+                counts[codes[actual]][codes[predicted]] += other.counts[actual][predicted];
+        unknownPredictions += other.unknownPredictions;
+    }
+
+    /**
+     * Create a copy of this matrix
+     * @return the copy
+     */
+    public PredictionMatrix copy() {
+        PredictionMatrix copy = new PredictionMatrix(classValues);
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * Get the classes of the matrix, indexed by their codes
+     * @return the classes
+     */
+    public List<String> getClassValues() {
+        return classValues;
+    }
+
+    /**
+     * Get the count of observations of the actual class predicted as the predicted class
+     * @param actualCode the code of the actual class
+     * @param predictedCode the code of the predicted class
+     * @return the count
+     */
+    public long getCount(int actualCode, int predictedCode) {
+        return counts[actualCode][predictedCode];
+    }
+
+    /**
+     * Get the number of predictions whose actual or predicted value is not a known class
+     * @return the number of unknown predictions
+     */
+    public long getUnknownPredictions() {
+        return unknownPredictions;
+    }
+
+    /**
+     * Get the total number of counted predictions
+     * @return the total count
+     */
+    public long getTotalCount() {
+        long total = unknownPredictions;
+        for (long[] row : counts)
+            for (long count : row)
+                total += count;
+        return total;
+    }
+
+    /**
+     * Get the number of correct predictions
+     * @return the number of correct predictions
+     */
+    public long getCorrectCount() {
+        long correct = 0;
+        for (int code = 0; code < counts.length; ++code)
+            correct += counts[code][code];
+        return correct;
+    }
+
+    /**
+     * Get the accuracy (the fraction of correct predictions)
+     * @return the accuracy, 0 if nothing was counted
+     */
+    public double getAccuracy() {
+        long total = getTotalCount();
+        return total == 0 ? 0.0 : (getCorrectCount() + 0.0) / total;
+    }
+
+    /**
+     * Get the precision of a class (the fraction of the predictions of the class that were correct)
+     * @param code the code of the class
+     * @return the precision, 0 if the class was never predicted
+     */
+    public double getPrecision(int code) {
+        long predicted = 0;
+        for (int actual = 0; actual < counts.length; ++actual)
+            predicted += counts[actual][code];
+        return predicted == 0 ? 0.0 : (counts[code][code] + 0.0) / predicted;
+    }
+
+    /**
+     * Get the recall of a class (the fraction of the observations of the class that were predicted correctly)
+     * @param code the code of the class
+     * @return the recall, 0 if the class never appeared
+     */
+    public double getRecall(int code) {
+        long actual = 0;
+        for (int predicted = 0; predicted < counts.length; ++predicted)
+            actual += counts[code][predicted];
+        return actual == 0 ? 0.0 : (counts[code][code] + 0.0) / actual;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder returnString = new StringBuilder("PredictionMatrix{classValues=" + classValues + ", matrix=");
+        for (long[] row : counts) {
+            for (long count : row)
+                returnString.append(count).append(" ");
+            returnString.append(", ");
+        }
+        returnString.append("unknownPredictions=").append(unknownPredictions).append(", accuracy=").append(getAccuracy()).append('}');
+        return returnString.toString();
+    }
+}
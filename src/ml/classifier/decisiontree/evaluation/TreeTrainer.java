@@ -0,0 +1,22 @@
+package ml.classifier.decisiontree.evaluation;
+
+import ml.classifier.decisiontree.instance.EncodedDataset;
+import ml.classifier.decisiontree.tree.Tree;
+
+/**
+ * This interface models a TreeTrainer
+ * A TreeTrainer creates a Tree from some rows of an EncodedDataset
+ * It holds the hyperparameters of the tree, so a list of trainers describes a hyperparameter grid
+ */
+public interface TreeTrainer {
+
+    /**
+     * Create a tree from the given rows
+     * The trainer may be called from several threads at the same time
+     * @param encodedDataset the encoded dataset
+     * @param rows the indexes of the training rows
+     * @return the new tree
+     */
+    Tree train(EncodedDataset encodedDataset, int[] rows);
+
+}
@@ -0,0 +1,200 @@
+package ml.classifier.decisiontree.evaluation;
+
+import ml.classifier.decisiontree.instance.BitmapIndex;
+import ml.classifier.decisiontree.instance.EncodedDataset;
+import ml.classifier.decisiontree.purityfunction.PurityFunction;
+import ml.classifier.decisiontree.tree.BestFirstID3;
+import ml.classifier.decisiontree.tree.BitmapID3;
+import ml.classifier.decisiontree.tree.ExtendedID3;
+import ml.classifier.decisiontree.tree.GrowthBudget;
+import ml.classifier.decisiontree.tree.ID3;
+import ml.classifier.decisiontree.tree.LevelWiseID3;
+import ml.classifier.decisiontree.tree.SplitMode;
+import ml.classifier.decisiontree.tree.TrainingMonitor;
+import ml.classifier.decisiontree.tree.Tree;
+
+import java.util.List;
+
+/**
+ * This class gives TreeTrainers for the trees of the project
+ * The ID3 and ExtendedID3 trainers create a Dataset that refers to the training rows (no Instance is copied),
+ * the other ones work directly on the EncodedDataset
+ */
+public class TreeTrainers {
+
+    /**
+     * Get a trainer for ID3 trees
+     * @param purityFunction the purity function used to separate the values
+     * @return the trainer
+     */
+    public static TreeTrainer id3(final PurityFunction purityFunction) {
+        return new TreeTrainer() {
+            @Override
+            public Tree train(EncodedDataset encodedDataset, int[] rows) {
+                return new ID3(encodedDataset.createDataset(rows), encodedDataset.getOutcomeAttributeName(), purityFunction);
+            }
+
+            @Override
+            public String toString() {
+                return "ID3";
+            }
+        };
+    }
+
+    /**
+     * Get a trainer for ID3 trees
+     * @param purityFunction the purity function used to separate the values
+     * @param splitMode the way the nodes split their attribute
+     * @return the trainer
+     */
+    public static TreeTrainer id3(final PurityFunction purityFunction, final SplitMode splitMode) {
+        return new TreeTrainer() {
+            @Override
+            public Tree train(EncodedDataset encodedDataset, int[] rows) {
+                return new ID3(encodedDataset.createDataset(rows), encodedDataset.getOutcomeAttributeName(), purityFunction, splitMode);
+            }
+
+            @Override
+            public String toString() {
+                return "ID3(" + splitMode + ")";
+            }
+        };
+    }
+
+    /**
+     * Get a trainer for ExtendedID3 trees that discretize the continuous valued attributes with the MDL method
+     * @param purityFunction the purity function used to separate the values
+     * @return the trainer
+     */
+    public static TreeTrainer extendedID3(final PurityFunction purityFunction) {
+        return new TreeTrainer() {
+            @Override
+            public Tree train(EncodedDataset encodedDataset, int[] rows) {
+                return new ExtendedID3(encodedDataset.createDataset(rows), encodedDataset.getOutcomeAttributeName(), purityFunction);
+            }
+
+            @Override
+            public String toString() {
+                return "ExtendedID3(MDL)";
+            }
+        };
+    }
+
+    /**
+     * Get a trainer for ExtendedID3 trees
+     * @param purityFunction the purity function used to separate the values
+     * @param outputClasses the output classes of the discretized attributes
+     * @return the trainer
+     */
+    public static TreeTrainer extendedID3(final PurityFunction purityFunction, final List<String> outputClasses) {
+        return new TreeTrainer() {
+            @Override
+            public Tree train(EncodedDataset encodedDataset, int[] rows) {
+                return new ExtendedID3(encodedDataset.createDataset(rows), encodedDataset.getOutcomeAttributeName(), purityFunction, outputClasses);
+            }
+
+            @Override
+            public String toString() {
+                return "ExtendedID3";
+            }
+        };
+    }
+
+    /**
+     * Get a trainer for LevelWiseID3 trees
+     * @param purityFunction the purity function used to separate the values
+     * @return the trainer
+     */
+    public static TreeTrainer levelWiseID3(final PurityFunction purityFunction) {
+        return new TreeTrainer() {
+            @Override
+            public Tree train(EncodedDataset encodedDataset, int[] rows) {
+                return new LevelWiseID3(encodedDataset, rows, purityFunction);
+            }
+
+            @Override
+            public String toString() {
+                return "LevelWiseID3";
+            }
+        };
+    }
+
+    /**
+     * Get a trainer for LevelWiseID3 trees
+     * @param purityFunction the purity function used to separate the values
+     * @param splitMode the way the nodes split their attribute
+     * @return the trainer
+     */
+    public static TreeTrainer levelWiseID3(final PurityFunction purityFunction, final SplitMode splitMode) {
+        return new TreeTrainer() {
+            @Override
+            public Tree train(EncodedDataset encodedDataset, int[] rows) {
+                return new LevelWiseID3(encodedDataset, rows, purityFunction, splitMode, new TrainingMonitor());
+            }
+
+            @Override
+            public String toString() {
+                return "LevelWiseID3(" + splitMode + ")";
+            }
+        };
+    }
+
+    /**
+     * Get a trainer for BitmapID3 trees
+     * The BitmapIndex is built once per EncodedDataset (the last one trained on) and shared by the trees of all the folds,
+     * which only pass their training rows; the folds may train concurrently, so the index is created under the lock of the trainer
+     * @param purityFunction the purity function used to separate the values
+     * @param splitMode the way the nodes split their attribute
+     * @return the trainer
+     */
+    public static TreeTrainer bitmapID3(final PurityFunction purityFunction, final SplitMode splitMode) {
+        return new TreeTrainer() {
+
+            private EncodedDataset indexedDataset;
+            private BitmapIndex bitmapIndex;
+
+            @Override
+            public Tree train(EncodedDataset encodedDataset, int[] rows) {
+                return new BitmapID3(getBitmapIndex(encodedDataset), rows, purityFunction, splitMode, new TrainingMonitor());
+            }
+
+            /**
+             * Get the bitmap index of an encoded dataset, building it only if the dataset is not the one indexed last
+             * @param encodedDataset the encoded dataset
+             * @return the bitmap index of the dataset
+             */
+            private synchronized BitmapIndex getBitmapIndex(EncodedDataset encodedDataset) {
+                if (indexedDataset != encodedDataset) {
+                    bitmapIndex = new BitmapIndex(encodedDataset);
+                    indexedDataset = encodedDataset;
+                }
+                return bitmapIndex;
+            }
+
+            @Override
+            public String toString() {
+                return "BitmapID3(" + splitMode + ")";
+            }
+        };
+    }
+
+    /**
+     * Get a trainer for BestFirstID3 trees
+     * @param purityFunction the purity function used to separate the values
+     * @param growthBudget the limits of the trees
+     * @return the trainer
+     */
+    public static TreeTrainer bestFirstID3(final PurityFunction purityFunction, final GrowthBudget growthBudget) {
+        return new TreeTrainer() {
+            @Override
+            public Tree train(EncodedDataset encodedDataset, int[] rows) {
+                return new BestFirstID3(encodedDataset, rows, purityFunction, growthBudget);
+            }
+
+            @Override
+            public String toString() {
+                return "BestFirstID3" + growthBudget;
+            }
+        };
+    }
+}
@@ -1,18 +1,28 @@
 package ml.classifier.decisiontree.instance;
 
+import java.io.Serializable;
+
 /**
  * This class models an Attribute
  * An Attribute is part of an Instance of the dataset
  * An Attribute has an attributeName and an attributeValue
+ * The numeric value of an attribute is parsed only once: at load time for the NUMERIC columns of the schema,
+ * or the first time it is asked for (by any thread); it is forgotten when the value changes
  * Created by virgil on 29.10.2015.
  */
-public class Attribute {
+public class Attribute implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String attributeName;
     private String attributeValue;
 
     private boolean isContinuous;
 
+    //The parsed value is published through a single volatile reference (null while not parsed),
+    //so the threads that share the Attribute (cross-validation folds, the discretizer) never see a half-written cache
+    private volatile Double parsedValue;
+
     /**
      * The Attribute default constructor
      */
@@ -35,6 +45,19 @@ public class Attribute {
         this.isContinuous = false;
     }
 
+    /**
+     * The Attribute constructor
+     * Used when the numeric value is already known (for example, parsed by the DataLoader)
+     * @param attributeName the attribute name
+     * @param attributeValue the attribute value
+     * @param numericValue the attribute value, as a number
+     */
+    public Attribute(String attributeName, String attributeValue, double numericValue) {
+        this(attributeName, attributeValue);
+
+        this.parsedValue = numericValue;
+    }
+
     /**
      * Get the name of the attribute
      * @return the name of the attribute
@@ -65,6 +88,33 @@ public class Attribute {
      */
     public void setAttributeValue(String attributeValue) {
         this.attributeValue = attributeValue;
+        this.parsedValue = null;
+    }
+
+    /**
+     * Get the value of the attribute as a number
+     * The value is parsed the first time, then it is cached
+     * @return the numeric value, NaN if the value is not a number
+     */
+    public double getNumericValue() {
+        Double value = parsedValue;
+        if (value == null) {
+            try {
+                value = Double.parseDouble(attributeValue);
+            } catch (NumberFormatException e) {
+                value = Double.NaN;
+            }
+            parsedValue = value;
+        }
+        return value;
+    }
+
+    /**
+     * Check if the numeric value of the attribute is already known
+     * @return true if the numeric value is cached
+     */
+    public boolean hasNumericValue() {
+        return parsedValue != null;
     }
 
     /**
@@ -96,6 +146,16 @@ public class Attribute {
         return true;
     }
 
+    /**
+     * Check if an Attribute of an observation is matched by this decision
+     * The decisions of the tree route the observations with this method, so a subclass (such as AttributeSubset) may match more than one value
+     * @param other the attribute of the observation, null if the observation does not have the attribute
+     * @return true if the other attribute has the same name and the same value
+     */
+    public boolean matches(Attribute other) {
+        return other != null && attributeName.equals(other.getAttributeName()) && attributeValue.equals(other.getAttributeValue());
+    }
+
     /**
      * Check if an Attribute's value is smaller than another one's value
      * @param other the other attribute
@@ -104,7 +164,7 @@ public class Attribute {
     public boolean lessThan(Attribute other) {
         if (attributeName.equals(other.getAttributeName()) == false)
             return false;
-        if ((Double.parseDouble(attributeValue)) >= Double.parseDouble(other.attributeValue))
+        if (getNumericValue() >= other.getNumericValue())
             return false;
         return true;
     }
@@ -117,7 +177,7 @@ public class Attribute {
     public boolean greaterThan(Attribute other) {
         if (attributeName.equals(other.getAttributeName()) == false)
             return false;
-        if ((Double.parseDouble(attributeValue)) < Double.parseDouble(other.attributeValue))
+        if (getNumericValue() < other.getNumericValue())
             return false;
         return true;
     }
@@ -0,0 +1,95 @@
+package ml.classifier.decisiontree.instance;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class models an AttributeSubset
+ * An AttributeSubset is the decision of a binary split of a categorical attribute: it matches the Attributes whose value is in a set of values
+ * (or, for the complement, whose value is not in the set, so a value not seen in training still has a branch)
+ * Its value is a readable label of the set, such as "{2, 5}" or "not {2, 5}"
+ */
+public class AttributeSubset extends Attribute {
+
+    private static final long serialVersionUID = 1L;
+
+    private Set<String> values;
+    private boolean complement;
+
+    /**
+     * The AttributeSubset constructor
+     * @param attributeName the name of the attribute
+     * @param values the values of the set
+     * @param complement false to match the values of the set, true to match all the other values
+     */
+    public AttributeSubset(String attributeName, Collection<String> values, boolean complement) {
+        super(attributeName, createLabel(values, complement));
+        this.values = new HashSet<>(values);
+        this.complement = complement;
+    }
+
+    /**
+     * Create the label of a set of values
+     * @param values the values of the set
+     * @param complement true if the set is complemented
+     * @return the label, with the values sorted
+     */
+    private static String createLabel(Collection<String> values, boolean complement) {
+        List<String> sortedValues = new ArrayList<>(values);
+        Collections.sort(sortedValues);
+        StringBuilder label = new StringBuilder(complement ? "not {" : "{");
+        for (int valueIndex = 0; valueIndex < sortedValues.size(); ++valueIndex) {
+            if (valueIndex > 0)
+                label.append(", ");
+            label.append(sortedValues.get(valueIndex));
+        }
+        return label.append('}').toString();
+    }
+
+    /**
+     * Get the values of the set
+     * @return the values of the set (not complemented)
+     */
+    public Set<String> getValues() {
+        return values;
+    }
+
+    /**
+     * Check if the set is complemented
+     * @return true if the subset matches the values that are not in the set
+     */
+    public boolean isComplement() {
+        return complement;
+    }
+
+    /**
+     * Check if a value is matched by the subset
+     * @param value the value
+     * @return true if the value is in the set (or not in it, for the complement)
+     */
+    public boolean contains(String value) {
+        return values.contains(value) != complement;
+    }
+
+    /**
+     * Check if an Attribute of an observation is matched by the subset
+     * @param other the attribute of the observation, null if the observation does not have the attribute
+     * @return true if the other attribute has the same name and its value is matched by the subset
+     */
+    @Override
+    public boolean matches(Attribute other) {
+        return other != null && getAttributeName().equals(other.getAttributeName()) && contains(other.getAttributeValue());
+    }
+
+    @Override
+    public String toString() {
+        return "AttributeSubset{" +
+                "attributeName='" + getAttributeName() + '\'' +
+                ", values='" + getAttributeValue() + '\'' +
+                '}';
+    }
+}
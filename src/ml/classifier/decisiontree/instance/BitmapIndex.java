@@ -0,0 +1,147 @@
+package ml.classifier.decisiontree.instance;
+
+/**
+ * This class models a BitmapIndex
+ * A BitmapIndex holds, for an EncodedDataset, one RowBitmap for every value of every attribute and one RowBitmap for every class
+ * The rows of a node that have a value are then the intersection of the bitmap of the node and the bitmap of the value,
+ * and the class counts of a set of rows are the popcounts of its intersections with the class bitmaps
+ *
+ * The counts are numbers of rows; if the rows of the EncodedDataset have weights other than 1, getCount adds up the weights instead
+ */
+public class BitmapIndex {
+
+    private EncodedDataset encodedDataset;
+    private RowBitmap[][] valueBitmaps;
+    private RowBitmap[] classBitmaps;
+    private boolean unitWeights;
+
+    /**
+     * The BitmapIndex constructor
+     * Builds the bitmaps of all the values and classes, with one pass over every column
+     * @param encodedDataset the encoded dataset
+     */
+    public BitmapIndex(EncodedDataset encodedDataset) {
+        this.encodedDataset = encodedDataset;
+        int attributesCount = encodedDataset.getAttributesCount();
+
+        this.valueBitmaps = new RowBitmap[attributesCount][];
+        for (int attributeIndex = 0; attributeIndex < attributesCount; ++attributeIndex)
+            valueBitmaps[attributeIndex] = createBitmaps(encodedDataset.getColumn(attributeIndex), encodedDataset.getCardinality(attributeIndex));
+        this.classBitmaps = createBitmaps(encodedDataset.getOutcomes(), encodedDataset.getClassesCount());
+
+        this.unitWeights = true;
+        for (int weight : encodedDataset.getWeights()) {
+            if (weight != 1) {
+                unitWeights = false;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Create the bitmaps of the values of a column
+     * @param column the codes of the column
+     * @param cardinality the number of values of the column
+     * @return the bitmap of every value
+     */
+    private static RowBitmap[] createBitmaps(int[] column, int cardinality) {
+        int[] valueCounts = new int[cardinality];
+        for (int code : column)
+            ++valueCounts[code];
+
+        int[][] valueRows = new int[cardinality][];
+        for (int value = 0; value < cardinality; ++value)
+            valueRows[value] = new int[valueCounts[value]];
+        int[] filled = new int[cardinality];
+        //The rows are visited in increasing order, so the rows of every value are sorted
+        for (int row = 0; row < column.length; ++row)
+            valueRows[column[row]][filled[column[row]]++] = row;
+
+        RowBitmap[] bitmaps = new RowBitmap[cardinality];
+        for (int value = 0; value < cardinality; ++value)
+            bitmaps[value] = RowBitmap.of(valueRows[value]);
+        return bitmaps;
+    }
+
+    /**
+     * Get the encoded dataset
+     * @return the encoded dataset
+     */
+    public EncodedDataset getEncodedDataset() {
+        return encodedDataset;
+    }
+
+    /**
+     * Get the bitmap of a value of an attribute
+     * @param attributeIndex the index of the attribute
+     * @param value the code of the value
+     * @return the rows that have the value
+     */
+    public RowBitmap getValueBitmap(int attributeIndex, int value) {
+        return valueBitmaps[attributeIndex][value];
+    }
+
+    /**
+     * Get the bitmap of a class
+     * @param outcome the code of the class
+     * @return the rows of the class
+     */
+    public RowBitmap getClassBitmap(int outcome) {
+        return classBitmaps[outcome];
+    }
+
+    /**
+     * Check if all the rows have the weight 1, so the counts are plain popcounts
+     * @return true if all the weights are 1
+     */
+    public boolean hasUnitWeights() {
+        return unitWeights;
+    }
+
+    /**
+     * Get the (weighted) number of rows that are in two bitmaps
+     * @param rows a set of rows
+     * @param other another set of rows
+     * @return the number of rows of the intersection, or its total weight if the rows are weighted
+     */
+    public long getCount(RowBitmap rows, RowBitmap other) {
+        if (unitWeights)
+            return rows.andCardinality(other);
+        return rows.and(other).getWeightedCardinality(encodedDataset.getWeights());
+    }
+
+    /**
+     * Get the (weighted) number of rows of a bitmap
+     * @param rows a set of rows
+     * @return the number of rows, or their total weight if the rows are weighted
+     */
+    public long getCount(RowBitmap rows) {
+        if (unitWeights)
+            return rows.getCardinality();
+        return rows.getWeightedCardinality(encodedDataset.getWeights());
+    }
+
+    /**
+     * Get the approximate memory used by the bitmaps
+     * @return the size of the bitmaps, in bytes
+     */
+    public long getSizeInBytes() {
+        long bytes = 0;
+        for (RowBitmap[] attributeBitmaps : valueBitmaps)
+            for (RowBitmap bitmap : attributeBitmaps)
+                bytes += bitmap.getSizeInBytes();
+        for (RowBitmap bitmap : classBitmaps)
+            bytes += bitmap.getSizeInBytes();
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "BitmapIndex{" +
+                "rows=" + encodedDataset.getObservationsCount() +
+                ", attributes=" + encodedDataset.getAttributesCount() +
+                ", classes=" + encodedDataset.getClassesCount() +
+                ", sizeInBytes=" + getSizeInBytes() +
+                '}';
+    }
+}
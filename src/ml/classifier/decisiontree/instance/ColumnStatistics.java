@@ -0,0 +1,231 @@
+package ml.classifier.decisiontree.instance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class models the ColumnStatistics of an attribute of a Dataset
+ * The statistics are the distinct values (in the order of their first appearance), their weighted counts,
+ * the majority value, the minimum and maximum of the numeric values and whether the column is constant
+ * They are computed with a single scan of the observations and cached by the Dataset (see Dataset.getColumnStatistics);
+ * the datasets created by Dataset.splitDatasetByAttribute inherit the statistics of the split attribute with restrict(), without a scan
+ * A ColumnStatistics is not changed once it is created
+ */
+public class ColumnStatistics {
+
+    private String attributeName;
+    private int observationsCount;
+    private long totalWeight;
+    private Map<String, Long> valueCounts;
+    private Map<String, Double> numericValues;
+    private String majorityValue;
+    private double minimum;
+    private double maximum;
+
+    /**
+     * The ColumnStatistics constructor
+     * Scans the observations once
+     * @param observations the observations
+     * @param attributeName the name of the attribute
+     */
+    public ColumnStatistics(List<Instance> observations, String attributeName) {
+        this.attributeName = attributeName;
+        this.observationsCount = observations.size();
+        this.totalWeight = 0;
+        this.valueCounts = new LinkedHashMap<>();
+        this.numericValues = new HashMap<>();
+
+        for (Instance observation : observations) {
+            Attribute attribute = observation.getAttributeByName(attributeName);
+            if (attribute == null)
+                continue;
+            String attributeValue = attribute.getAttributeValue();
+            Long count = valueCounts.get(attributeValue);
+            if (count == null) {
+                count = 0L;
+                if (attribute.hasNumericValue())
+                    numericValues.put(attributeValue, attribute.getNumericValue());
+            }
+            valueCounts.put(attributeValue, count + observation.getWeight());
+            totalWeight += observation.getWeight();
+        }
+        this.majorityValue = findMajorityValue();
+        findRange();
+    }
+
+    /**
+     * The ColumnStatistics constructor
+     * Creates the statistics of a part of the values of another column, without a scan
+     * @param statistics the statistics of the whole column
+     * @param decision the attribute that selects the observations (an Attribute or an AttributeSubset)
+     * @param observationsCount the number of selected observations
+     */
+    private ColumnStatistics(ColumnStatistics statistics, Attribute decision, int observationsCount) {
+        this.attributeName = statistics.attributeName;
+        this.observationsCount = observationsCount;
+        this.totalWeight = 0;
+        this.valueCounts = new LinkedHashMap<>();
+        this.numericValues = new HashMap<>();
+
+        //A plain Attribute selects a single value, an AttributeSubset any number of them
+        Iterable<String> values = decision instanceof AttributeSubset
+                ? statistics.valueCounts.keySet() : Collections.singletonList(decision.getAttributeValue());
+        for (String attributeValue : values) {
+            Long count = statistics.valueCounts.get(attributeValue);
+            if (count == null || !decision.matches(new Attribute(attributeName, attributeValue)))
+                continue;
+            valueCounts.put(attributeValue, count);
+            totalWeight += count;
+            Double numericValue = statistics.numericValues.get(attributeValue);
+            if (numericValue != null)
+                numericValues.put(attributeValue, numericValue);
+        }
+        this.majorityValue = findMajorityValue();
+        findRange();
+    }
+
+    /**
+     * Find the value with the biggest count
+     * The values are visited in the order of a HashMap filled in the order of their first appearance,
+     * so the ties are broken as in the scan that Dataset.getMajorityValueForAttribute used to do, and the leaf labels do not change
+     * (the copy holds one entry per distinct value, and is made once per cached statistics)
+     * @return the majority value, "" if the column has no value
+     */
+    private String findMajorityValue() {
+        Map<String, Long> hashedCounts = new HashMap<>();
+        for (Map.Entry<String, Long> entry : valueCounts.entrySet())
+            hashedCounts.put(entry.getKey(), entry.getValue());
+
+        String result = "";
+        long maxCount = -1;
+        for (Map.Entry<String, Long> entry : hashedCounts.entrySet()) {
+            if (entry.getValue() > maxCount) {
+                maxCount = entry.getValue();
+                result = entry.getKey();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the minimum and the maximum of the numeric values
+     */
+    private void findRange() {
+        minimum = Double.NaN;
+        maximum = Double.NaN;
+        for (double numericValue : numericValues.values()) {
+            if (Double.isNaN(minimum) || numericValue < minimum)
+                minimum = numericValue;
+            if (Double.isNaN(maximum) || numericValue > maximum)
+                maximum = numericValue;
+        }
+    }
+
+    /**
+     * Create the statistics of the observations selected by a decision on this column, without a scan
+     * @param decision the attribute that selects the observations (an Attribute or an AttributeSubset)
+     * @param observationsCount the number of selected observations
+     * @return the statistics of the selected observations
+     */
+    public ColumnStatistics restrict(Attribute decision, int observationsCount) {
+        return new ColumnStatistics(this, decision, observationsCount);
+    }
+
+    /**
+     * Get the name of the attribute
+     * @return the attribute name
+     */
+    public String getAttributeName() {
+        return attributeName;
+    }
+
+    /**
+     * Get the number of observations of the dataset when the statistics were computed
+     * @return the number of observations
+     */
+    public int getObservationsCount() {
+        return observationsCount;
+    }
+
+    /**
+     * Get the total weight of the observations that have the attribute
+     * @return the weighted number of values
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Get the distinct values of the column
+     * @return a new list of the distinct values, in the order of their first appearance
+     */
+    public List<String> getDistinctValues() {
+        return new ArrayList<>(valueCounts.keySet());
+    }
+
+    /**
+     * Get the number of distinct values of the column
+     * @return the number of distinct values
+     */
+    public int getDistinctCount() {
+        return valueCounts.size();
+    }
+
+    /**
+     * Get the weighted count of a value
+     * @param attributeValue the value
+     * @return the total weight of the observations with the value, 0 if there is none
+     */
+    public long getCount(String attributeValue) {
+        Long count = valueCounts.get(attributeValue);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Get the value with the biggest count
+     * @return the majority value, "" if the column has no value
+     */
+    public String getMajorityValue() {
+        return majorityValue;
+    }
+
+    /**
+     * Check if the column has at most one value, so it cannot split the observations
+     * @return true if the column is constant
+     */
+    public boolean isConstant() {
+        return valueCounts.size() <= 1;
+    }
+
+    /**
+     * Get the smallest numeric value of the column
+     * @return the minimum, NaN if the column has no numeric value
+     */
+    public double getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * Get the biggest numeric value of the column
+     * @return the maximum, NaN if the column has no numeric value
+     */
+    public double getMaximum() {
+        return maximum;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnStatistics{" +
+                "attributeName='" + attributeName + '\'' +
+                ", observationsCount=" + observationsCount +
+                ", distinctCount=" + valueCounts.size() +
+                ", majorityValue='" + majorityValue + '\'' +
+                ", minimum=" + minimum +
+                ", maximum=" + maximum +
+                '}';
+    }
+}
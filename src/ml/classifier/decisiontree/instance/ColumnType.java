@@ -0,0 +1,12 @@
+package ml.classifier.decisiontree.instance;
+
+/**
+ * This enum models the type of a column of a dataset
+ * A NUMERIC column holds continuous values: they are parsed once, at load time, and discretized by the trees
+ * A CATEGORICAL column holds discrete values, used as they are (even if they look like numbers, such as codes)
+ */
+public enum ColumnType {
+
+    NUMERIC,
+    CATEGORICAL
+}
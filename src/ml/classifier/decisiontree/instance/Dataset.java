@@ -1,14 +1,21 @@
 package ml.classifier.decisiontree.instance;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class models a Dataset
  * A Dataset consists of a list of instances called observations
  * A Dataset has to know what is its outcome attribute
+ * Every observation counts as many times as its weight (see Instance.getWeight)
+ * The continuous valued attributes are either listed by hand or taken from the Schema of the dataset (its NUMERIC columns)
+ * The ColumnStatistics of the attributes (distinct values, counts, majority value) are computed once and cached;
+ * the cache is cleared when the observations are changed through the Dataset, and a cached entry is not used if the number of observations changed
+ * A value or a weight changed in place (Attribute.setAttributeValue, Instance.setWeight) is not seen by the cache: build new Attributes
+ * and Instances instead, or call clearColumnStatistics() after the change
  * Created by virgil on 29.10.2015.
  */
 public class Dataset {
@@ -16,8 +23,10 @@ public class Dataset {
     private List<Instance> observations;
     private String outcomeAttributeName;
 
-    //TODO: Do something in order to not need this list of continuousValuedAttributes
     private List<String> continuousValuedAttributes;
+    private Schema schema;
+
+    private Map<String, ColumnStatistics> columnStatistics = new ConcurrentHashMap<>();
 
     /**
      * The Dataset default constructor
@@ -48,12 +57,15 @@ public class Dataset {
         for (Instance observation : datasetToCopy.getObservations()) {
             List<Attribute> attributes = new ArrayList<>();
             for (Attribute attribute : observation.getAttributes()) {
-                attributes.add(new Attribute(new String(attribute.getAttributeName()), new String(attribute.getAttributeValue())));
+                attributes.add(attribute.hasNumericValue()
+                        ? new Attribute(new String(attribute.getAttributeName()), new String(attribute.getAttributeValue()), attribute.getNumericValue())
+                        : new Attribute(new String(attribute.getAttributeName()), new String(attribute.getAttributeValue())));
             }
-            this.observations.add(new Instance(attributes));
+            this.observations.add(new Instance(attributes, observation.getWeight()));
         }
 
         this.outcomeAttributeName = new String(datasetToCopy.getOutcomeAttributeName());
+        //The statistics are not copied: the Attributes of the copy are its own, and they may be changed in place
     }
 
     /**
@@ -70,6 +82,7 @@ public class Dataset {
      */
     public void setObservations(List<Instance> observations) {
         this.observations = observations;
+        columnStatistics.clear();
     }
 
     /**
@@ -94,6 +107,8 @@ public class Dataset {
      */
     public void addObservation(Instance observation) {
         this.observations.add(observation);
+        if (!columnStatistics.isEmpty())
+            columnStatistics.clear();
     }
 
     /**
@@ -105,60 +120,98 @@ public class Dataset {
     }
 
     /**
-     * Get the value that has the biggest count from all values of the attribute named attributeName
-     * @param attributeName the name of the attribute for which the search is done
-     * @return the value that appears most times
+     * Get the total weight of the observations
+     * @return the number of rows the observations stand for
      */
-    public String getMajorityValueForAttribute(String attributeName) {
-        String result = "";
-
-        //Build a map to hold pairs value - count foreach value of the attribute
-        Map<String, Integer> valueCounts = new HashMap<>();
+    public long getTotalWeight() {
+        long totalWeight = 0;
+        for (Instance observation : observations)
+            totalWeight += observation.getWeight();
+        return totalWeight;
+    }
 
-        for (Instance observation : this.observations) {
-            Attribute attribute = observation.getAttributeByName(attributeName);
+    /**
+     * Create a copy of the dataset in which the identical observations are collapsed into a single weighted observation
+     * Two observations are identical if they have the same attributes, with the same values, in the same order
+     * The weight of a collapsed observation is the sum of the weights of the observations it replaces,
+     * so the counts (and every tree built from them) do not change, but there are fewer rows to scan
+     * The collapsed observations are new Instances that share their Attributes with the first of the identical observations
+     * @return the collapsed dataset, with its observations in the order of their first appearance
+     */
+    public Dataset collapseDuplicates() {
+        Map<List<String>, Instance> distinctObservations = new LinkedHashMap<>();
 
-            if (attribute != null) {
-                String attributeValue = attribute.getAttributeValue();
-                Integer count = valueCounts.get(attributeValue);
-                count = (count != null ? count : 0);
-                ++count;
-                valueCounts.put(attributeValue, count);
+        for (Instance observation : observations) {
+            List<String> key = new ArrayList<>(2 * observation.getAttributes().size());
+            for (Attribute attribute : observation.getAttributes()) {
+                key.add(attribute.getAttributeName());
+                key.add(attribute.getAttributeValue());
             }
-        }
 
-        int maxCount = -1;
-        //Go through the new map and find its maximum count
-        for (String attributeValue : valueCounts.keySet()) {
-            if (valueCounts.get(attributeValue) > maxCount) {
-                maxCount = valueCounts.get(attributeValue);
-                result = attributeValue;
-            }
+            Instance distinctObservation = distinctObservations.get(key);
+            if (distinctObservation == null)
+                distinctObservations.put(key, new Instance(observation.getAttributes(), observation.getWeight()));
+            else
+                distinctObservation.setWeight(distinctObservation.getWeight() + observation.getWeight());
         }
 
-        return result;
+        Dataset collapsedDataset = new Dataset(new ArrayList<>(distinctObservations.values()), outcomeAttributeName);
+        collapsedDataset.setContinuousValuedAttributes(continuousValuedAttributes);
+        collapsedDataset.setSchema(schema);
+        return collapsedDataset;
     }
 
     /**
-     * Get the list of all distinct values for the attribute named attributeName
-     * @param attributeName the name of the attribute for which the list is done
-     * @return the list of all values
+     * Get the statistics of an attribute, computing them with a scan of the observations the first time
+     * @param attributeName the name of the attribute
+     * @return the statistics of the attribute
      */
-    public List<String> getAllDistinctValuesForAttribute(String attributeName) {
-        List<String> result = new ArrayList<>();
+    public ColumnStatistics getColumnStatistics(String attributeName) {
+        ColumnStatistics statistics = getCachedColumnStatistics(attributeName);
+        if (statistics == null) {
+            statistics = new ColumnStatistics(observations, attributeName);
+            columnStatistics.put(attributeName, statistics);
+        }
+        return statistics;
+    }
 
-        for (Instance observation : observations) {
-            Attribute attribute = observation.getAttributeByName(attributeName);
+    /**
+     * Get the statistics of an attribute only if they are already known
+     * @param attributeName the name of the attribute
+     * @return the cached statistics of the attribute, null if they were not computed (or the observations changed since)
+     */
+    public ColumnStatistics getCachedColumnStatistics(String attributeName) {
+        ColumnStatistics statistics = columnStatistics.get(attributeName);
+        if (statistics == null || statistics.getObservationsCount() != observations.size())
+            return null;
+        return statistics;
+    }
 
-            if (attribute != null) {
-                String attributeValue = attribute.getAttributeValue();
+    /**
+     * Forget the statistics of all the attributes
+     * Needed after a value or a weight of an observation was changed in place
+     */
+    public void clearColumnStatistics() {
+        columnStatistics.clear();
+    }
 
-                if (!result.contains(attributeValue))
-                    result.add(attributeValue);
-            }
-        }
+    /**
+     * Get the value that has the biggest count from all values of the attribute named attributeName
+     * Every observation is counted with its weight
+     * @param attributeName the name of the attribute for which the search is done
+     * @return the value that appears most times
+     */
+    public String getMajorityValueForAttribute(String attributeName) {
+        return getColumnStatistics(attributeName).getMajorityValue();
+    }
 
-        return result;
+    /**
+     * Get the list of all distinct values for the attribute named attributeName
+     * @param attributeName the name of the attribute for which the list is done
+     * @return the list of all values, in the order of their first appearance
+     */
+    public List<String> getAllDistinctValuesForAttribute(String attributeName) {
+        return getColumnStatistics(attributeName).getDistinctValues();
     }
 
     /**
@@ -192,6 +245,9 @@ public class Dataset {
     /**
      * Split the dataset by an attribute
      * Choose from the given dataset only the instances that contain the given attribute value
+     * The split attribute matches the attributes of the observations (see Attribute.matches), so an AttributeSubset selects all the values of its set
+     * The statistics of the split attribute are computed (or taken from the cache) for the dataset, and the new dataset inherits
+     * the statistics of its values, without a scan; so the datasets split by the same attribute share a single scan of their parent
      * @param dataset the dataset to be split
      * @param attribute the split attribute
      * @return the new dataset, containing only the instances that have the wanted attribute value
@@ -201,10 +257,13 @@ public class Dataset {
 
         for (Instance observation : dataset.getObservations()) {
             for (Attribute observationAttribute : observation.getAttributes())
-                if (observationAttribute.equals(attribute))
+                if (attribute.matches(observationAttribute))
                     resultDataset.addObservation(observation);
         }
 
+        ColumnStatistics statistics = dataset.getColumnStatistics(attribute.getAttributeName());
+        resultDataset.columnStatistics.put(attribute.getAttributeName(), statistics.restrict(attribute, resultDataset.getObservationsCount()));
+
         return resultDataset;
     }
 
@@ -223,11 +282,12 @@ public class Dataset {
             Instance observationDiscrete = discretizedDataset.getObservations().get(instanceIndex);
             Instance observationContinuous = dataset.getObservations().get(instanceIndex);
             for (Attribute observationAttribute : observationDiscrete.getAttributes())
-                if (observationAttribute.equals(attribute))
+                if (attribute.matches(observationAttribute))
                     resultDataset.addObservation(observationContinuous);
         }
 
         resultDataset.setContinuousValuedAttributes(dataset.getContinuousValuedAttributes());
+        resultDataset.setSchema(dataset.getSchema());
         resultDataset.setOutcomeAttributeName(dataset.getOutcomeAttributeName());
 
         return resultDataset;
@@ -235,9 +295,15 @@ public class Dataset {
 
     /**
      * Get the list of continuous valued attributes (just the name of the attributes)
-     * @return the list of continuous valued attributes (their names)
+     * If the list was not set by hand, it is made of the NUMERIC columns of the schema, without the outcome attribute
+     * @return the list of continuous valued attributes (their names), null if there is neither a list nor a schema
      */
     public List<String> getContinuousValuedAttributes() {
+        if (continuousValuedAttributes == null && schema != null) {
+            List<String> numericColumns = schema.getNumericColumns();
+            numericColumns.remove(outcomeAttributeName);
+            return numericColumns;
+        }
         return continuousValuedAttributes;
     }
 
@@ -249,6 +315,22 @@ public class Dataset {
         this.continuousValuedAttributes = continuousValuedAttributes;
     }
 
+    /**
+     * Get the schema of the dataset
+     * @return the schema, null if the dataset was not loaded with schema inference
+     */
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Set the schema of the dataset
+     * @param schema the new schema
+     */
+    public void setSchema(Schema schema) {
+        this.schema = schema;
+    }
+
     @Override
     public String toString() {
         String returnString = "Dataset{observations=\n";
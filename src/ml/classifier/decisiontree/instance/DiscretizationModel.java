@@ -0,0 +1,284 @@
+package ml.classifier.decisiontree.instance;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class models a DiscretizationModel
+ * A DiscretizationModel holds the sorted cut points of every discretized attribute
+ * The cut points split the real axis in bins: bin 0 holds the values smaller than cutPoints[0],
+ * bin i holds the values between cutPoints[i - 1] (included) and cutPoints[i] (excluded)
+ * It is computed once (at training time) and then transforms rows, or whole columns, with a binary search per value
+ */
+public class DiscretizationModel implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<String> attributeNames;
+    private List<double[]> cutPoints;
+    private Map<String, Integer> attributeIndexes;
+
+    /**
+     * The DiscretizationModel default constructor
+     * Creates a model without attributes
+     */
+    public DiscretizationModel() {
+        this.attributeNames = new ArrayList<>();
+        this.cutPoints = new ArrayList<>();
+        this.attributeIndexes = new HashMap<>();
+    }
+
+    /**
+     * Create the model of the MDL discretization of a dataset
+     * @param dataset the dataset
+     * @param attributeNames the names of the continuous attributes
+     * @return the model
+     */
+    public static DiscretizationModel fit(Dataset dataset, List<String> attributeNames) {
+        Discretizer discretizer = new Discretizer(dataset, attributeNames);
+        discretizer.discretize();
+        return discretizer.getDiscretizationModel();
+    }
+
+    /**
+     * Add an attribute to the model, or replace its cut points
+     * @param attributeName the name of the attribute
+     * @param attributeCutPoints the cut points of the attribute (they are copied and sorted)
+     */
+    public void addAttribute(String attributeName, double[] attributeCutPoints) {
+        double[] sortedCutPoints = attributeCutPoints.clone();
+        Arrays.sort(sortedCutPoints);
+
+        Integer attributeIndex = attributeIndexes.get(attributeName);
+        if (attributeIndex != null) {
+            cutPoints.set(attributeIndex, sortedCutPoints);
+        }
+        else {
+            attributeIndexes.put(attributeName, attributeNames.size());
+            attributeNames.add(attributeName);
+            cutPoints.add(sortedCutPoints);
+        }
+    }
+
+    /**
+     * Get the names of the attributes of the model
+     * @return the names of the attributes, in the order of their indexes
+     */
+    public List<String> getAttributeNames() {
+        return attributeNames;
+    }
+
+    /**
+     * Get the number of attributes of the model
+     * @return the number of attributes
+     */
+    public int getAttributesCount() {
+        return attributeNames.size();
+    }
+
+    /**
+     * Get the index of an attribute
+     * @param attributeName the name of the attribute
+     * @return the index of the attribute, -1 if the attribute is not discretized by the model
+     */
+    public int getAttributeIndex(String attributeName) {
+        Integer attributeIndex = attributeIndexes.get(attributeName);
+        return attributeIndex != null ? attributeIndex : -1;
+    }
+
+    /**
+     * Check if an attribute is discretized by the model
+     * @param attributeName the name of the attribute
+     * @return true if the model has cut points for the attribute
+     */
+    public boolean contains(String attributeName) {
+        return attributeIndexes.containsKey(attributeName);
+    }
+
+    /**
+     * Get the cut points of an attribute
+     * @param attributeIndex the index of the attribute
+     * @return the sorted cut points
+     */
+    public double[] getCutPoints(int attributeIndex) {
+        return cutPoints.get(attributeIndex);
+    }
+
+    /**
+     * Get the cut points of an attribute
+     * @param attributeName the name of the attribute
+     * @return the sorted cut points, null if the attribute is not discretized by the model
+     */
+    public double[] getCutPoints(String attributeName) {
+        int attributeIndex = getAttributeIndex(attributeName);
+        return attributeIndex >= 0 ? cutPoints.get(attributeIndex) : null;
+    }
+
+    /**
+     * Get the number of bins of an attribute
+     * @param attributeIndex the index of the attribute
+     * @return the number of bins (the number of cut points + 1)
+     */
+    public int getBinsCount(int attributeIndex) {
+        return cutPoints.get(attributeIndex).length + 1;
+    }
+
+    /**
+     * Get the bin of a value
+     * @param attributeIndex the index of the attribute
+     * @param value the value
+     * @return the bin of the value
+     */
+    public int getBin(int attributeIndex, double value) {
+        return Discretizer.getInterval(cutPoints.get(attributeIndex), value);
+    }
+
+    /**
+     * Get the label of a bin, such as "[2500.5, 3000.5)"
+     * @param attributeIndex the index of the attribute
+     * @param bin the bin
+     * @return the label of the bin
+     */
+    public String getBinLabel(int attributeIndex, int bin) {
+        return Discretizer.getIntervalLabel(cutPoints.get(attributeIndex), bin);
+    }
+
+    /**
+     * Get the bins of a whole column of values
+     * @param attributeIndex the index of the attribute
+     * @param values the values of the column
+     * @return the bins, in the order of the values
+     */
+    public int[] transformColumn(int attributeIndex, double[] values) {
+        double[] attributeCutPoints = cutPoints.get(attributeIndex);
+        int[] bins = new int[values.length];
+        for (int row = 0; row < values.length; ++row)
+            bins[row] = Discretizer.getInterval(attributeCutPoints, values[row]);
+        return bins;
+    }
+
+    /**
+     * Get the bins of an attribute for a batch of observations
+     * An observation without the attribute, or with a value that is not a number, gets the bin -1
+     * @param attributeIndex the index of the attribute
+     * @param observations the observations
+     * @return the bins, in the order of the observations
+     */
+    public int[] transformColumn(int attributeIndex, List<Instance> observations) {
+        String attributeName = attributeNames.get(attributeIndex);
+        double[] attributeCutPoints = cutPoints.get(attributeIndex);
+        int[] bins = new int[observations.size()];
+        for (int row = 0; row < bins.length; ++row) {
+            Attribute attribute = observations.get(row).getAttributeByName(attributeName);
+            bins[row] = attribute != null ? binOf(attributeCutPoints, attribute) : -1;
+        }
+        return bins;
+    }
+
+    /**
+     * Get the bins of all the attributes of the model for a batch of observations
+     * @param observations the observations
+     * @return the bins, as bins[attribute][row]
+     */
+    public int[][] transformColumns(List<Instance> observations) {
+        int[][] bins = new int[attributeNames.size()][];
+        for (int attributeIndex = 0; attributeIndex < bins.length; ++attributeIndex)
+            bins[attributeIndex] = transformColumn(attributeIndex, observations);
+        return bins;
+    }
+
+    /**
+     * Get the bins of all the attributes of the model for an observation
+     * @param observation the observation
+     * @return the bins, in the order of the attributes of the model (-1 for a missing or non numeric value)
+     */
+    public int[] transformRow(Instance observation) {
+        int[] bins = new int[attributeNames.size()];
+        for (int attributeIndex = 0; attributeIndex < bins.length; ++attributeIndex) {
+            Attribute attribute = observation.getAttributeByName(attributeNames.get(attributeIndex));
+            bins[attributeIndex] = attribute != null ? binOf(cutPoints.get(attributeIndex), attribute) : -1;
+        }
+        return bins;
+    }
+
+    /**
+     * Create the discretized copy of an observation: the values of the attributes of the model are replaced by the labels of their bins
+     * The other Attributes are shared with the observation
+     * @param observation the observation
+     * @return the discretized observation
+     */
+    public Instance transform(Instance observation) {
+        List<Attribute> attributes = new ArrayList<>();
+        for (Attribute attribute : observation.getAttributes()) {
+            int attributeIndex = getAttributeIndex(attribute.getAttributeName());
+            if (attributeIndex < 0) {
+                attributes.add(attribute);
+                continue;
+            }
+            int bin = binOf(cutPoints.get(attributeIndex), attribute);
+            attributes.add(new Attribute(attribute.getAttributeName(), bin >= 0 ? getBinLabel(attributeIndex, bin) : attribute.getAttributeValue()));
+        }
+        return new Instance(attributes, observation.getWeight());
+    }
+
+    /**
+     * Create the discretized copy of a dataset
+     * Every attribute of the model is transformed as a whole column, and every bin label is created only once
+     * @param dataset the dataset
+     * @return the discretized dataset, with its observations in the same order
+     */
+    public Dataset transform(Dataset dataset) {
+        List<Instance> observations = dataset.getObservations();
+        int[][] bins = transformColumns(observations);
+
+        String[][] binLabels = new String[attributeNames.size()][];
+        for (int attributeIndex = 0; attributeIndex < binLabels.length; ++attributeIndex) {
+            binLabels[attributeIndex] = new String[getBinsCount(attributeIndex)];
+            for (int bin = 0; bin < binLabels[attributeIndex].length; ++bin)
+                binLabels[attributeIndex][bin] = getBinLabel(attributeIndex, bin);
+        }
+
+        Dataset discretizedDataset = new Dataset(new ArrayList<Instance>(observations.size()), dataset.getOutcomeAttributeName());
+        discretizedDataset.setContinuousValuedAttributes(dataset.getContinuousValuedAttributes());
+        for (int row = 0; row < observations.size(); ++row) {
+            List<Attribute> attributes = new ArrayList<>();
+            for (Attribute attribute : observations.get(row).getAttributes()) {
+                int attributeIndex = getAttributeIndex(attribute.getAttributeName());
+                if (attributeIndex < 0 || bins[attributeIndex][row] < 0)
+                    attributes.add(attribute);
+                else
+                    attributes.add(new Attribute(attribute.getAttributeName(), binLabels[attributeIndex][bins[attributeIndex][row]]));
+            }
+            discretizedDataset.addObservation(new Instance(attributes, observations.get(row).getWeight()));
+        }
+
+        return discretizedDataset;
+    }
+
+    /**
+     * Get the bin of the value of an Attribute
+     * The numeric value of the Attribute is parsed at most once (see Attribute.getNumericValue)
+     * @param attributeCutPoints the cut points of the attribute
+     * @param attribute the Attribute
+     * @return the bin of the value, -1 if the value is not a number
+     */
+    private static int binOf(double[] attributeCutPoints, Attribute attribute) {
+        double value = attribute.getNumericValue();
+        return Double.isNaN(value) ? -1 : Discretizer.getInterval(attributeCutPoints, value);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder returnString = new StringBuilder("DiscretizationModel{");
+        for (int attributeIndex = 0; attributeIndex < attributeNames.size(); ++attributeIndex) {
+            if (attributeIndex > 0)
+                returnString.append(", ");
+            returnString.append(attributeNames.get(attributeIndex)).append('=').append(Arrays.toString(cutPoints.get(attributeIndex)));
+        }
+        return returnString.append('}').toString();
+    }
+}
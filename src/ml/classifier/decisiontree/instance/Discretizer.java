@@ -3,20 +3,46 @@ package ml.classifier.decisiontree.instance;
 import ml.utils.Pair;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * This class is used to discretise continuous values for a given attribute
  * It contains the dataset in which the continuous values are found and the name of the attribute to discretise
+ *
+ * discretize(outputClasses) chooses a single split point that maps the values to the given output classes
+ * discretize() uses the Fayyad-Irani MDL method: the sorted values are split recursively at the point that minimizes the class entropy,
+ * for as long as the information gain pays for the cost of describing the split (the MDL criterion)
+ * It works for any number of classes and gives any number of intervals, in O(n log n) for an attribute with n values
+ *
+ * The attributes are independent, so they are discretized concurrently on a fork-join pool (the common pool by default)
+ * The outcome column is read once and shared by all the attributes; every attribute column is parsed only once
+ * Small datasets (less than MINIMUM_PARALLEL_ROWS rows) are discretized on the calling thread
+ *
+ * For datasets too large to sort every attribute, discretizeApproximately() never holds a column: the rows of an attribute are split
+ * in ranges of PARTITION_ROWS rows, read straight from the Attributes into a QuantileSketch per range (in parallel), and the sketches are merged;
+ * the classes are counted the same way in the buckets between the candidate thresholds of the merged sketch,
+ * and the same MDL search runs over the buckets
  * Created by virgil on 04.11.2015.
  */
 public class Discretizer {
 
+    //Below this number of rows, forking the attributes costs more than it saves
+    public static final int MINIMUM_PARALLEL_ROWS = 4096;
+    //The rows of a partition of discretizeApproximately, read into their own QuantileSketch
+    public static final int PARTITION_ROWS = 8192;
+
     private Dataset dataset;
     private List<String> attributeNames;
 
     private List<Double> bestSplit;
 
     private Map<String, List<Pair<Double, String>>> mapContinuousToDiscrete;
+    private Map<String, double[]> splitPoints;
+
+    private ForkJoinPool forkJoinPool;
 
     /**
      * The Discretiser constructor
@@ -27,6 +53,8 @@ public class Discretizer {
         this.dataset = dataset;
         this.attributeNames = attributeNames;
         this.mapContinuousToDiscrete = new HashMap<>();
+        this.splitPoints = new HashMap<>();
+        this.forkJoinPool = ForkJoinPool.commonPool();
     }
 
     /**
@@ -61,6 +89,22 @@ public class Discretizer {
         this.dataset = dataset;
     }
 
+    /**
+     * Get the pool on which the attributes are discretized
+     * @return the fork-join pool
+     */
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    /**
+     * Set the pool on which the attributes are discretized
+     * @param forkJoinPool the new fork-join pool (a pool with parallelism 1 discretizes the attributes one at a time)
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
     /**
      * Get the mapping between the continuous values and the discrete ones for every continuous attribute
      * @return the mapping between the continuous and discrete values for every continuous attribute
@@ -77,6 +121,605 @@ public class Discretizer {
         return bestSplit;
     }
 
+    /**
+     * Get the split points chosen by discretize() for an attribute
+     * The values smaller than splitPoints[0] are in the interval 0, the values between splitPoints[i - 1] and splitPoints[i] are in the interval i
+     * @param attributeName the name of the attribute
+     * @return the sorted split points, null if the attribute was not discretized by discretize()
+     */
+    public double[] getSplitPoints(String attributeName) {
+        return splitPoints.get(attributeName);
+    }
+
+    /**
+     * Get the model of the discretization done by discretize(), to be applied to other datasets or rows
+     * @return the model, with the split points of every discretized attribute
+     */
+    public DiscretizationModel getDiscretizationModel() {
+        DiscretizationModel discretizationModel = new DiscretizationModel();
+        for (String attributeName : attributeNames) {
+            double[] attributeSplitPoints = splitPoints.get(attributeName);
+            if (attributeSplitPoints != null)
+                discretizationModel.addAttribute(attributeName, attributeSplitPoints);
+        }
+        return discretizationModel;
+    }
+
+    /**
+     * Discretize all the attributes using the Fayyad-Irani MDL method (any number of classes, any number of intervals)
+     * The value of a continuous attribute is replaced by the label of its interval (see getIntervalLabel)
+     * The new dataset has new Instances, in the same order as the original ones; only the discretized Attributes are new,
+     * the other ones are shared with the original dataset
+     * mapContinuousToDiscrete is only filled by discretize(outputClasses)
+     * The class counts of the MDL search are weighted by the weights of the observations
+     *
+     * @return the new dataset, with discretized values for the given attributes
+     */
+    public Dataset discretize() {
+        return discretizeMdl(0);
+    }
+
+    /**
+     * Discretize all the attributes using the Fayyad-Irani MDL method over approximate split candidates
+     * Instead of sorting the values of an attribute, they are read once into QuantileSketches, one per range of PARTITION_ROWS rows,
+     * that are merged; the quantiles of the merged sketch are the candidate thresholds, and the MDL search only considers splits at these thresholds
+     * No column is copied out of the Attributes, so the memory of an attribute is bounded by its sketches, whatever the number of rows
+     * (only the outcome codes and the weights of the rows are kept, once for all the attributes)
+     * The partitions are fixed by the number of rows, so the split points do not depend on the number of threads
+     * The values are replaced by the labels of their intervals, as in discretize()
+     *
+     * @param rankError the rank error of the sketch, between 0 and 1; the values are split in about 1 / rankError buckets
+     * @return the new dataset, with discretized values for the given attributes
+     */
+    public Dataset discretizeApproximately(double rankError) {
+        if (!(rankError > 0 && rankError < 1))
+            throw new IllegalArgumentException("The rank error must be between 0 and 1, not " + rankError);
+        return discretizeMdl(rankError);
+    }
+
+    /**
+     * Discretize all the attributes using the Fayyad-Irani MDL method
+     * @param rankError the rank error of the split candidates, 0 to consider all the distinct values
+     * @return the new dataset, with discretized values for the given attributes
+     */
+    private Dataset discretizeMdl(final double rankError) {
+        List<Instance> observations = dataset.getObservations();
+        int rowsCount = observations.size();
+
+        //Encode the outcomes (and read the weights) once, for all the attributes
+        int[] outcomes = new int[rowsCount];
+        int[] weights = new int[rowsCount];
+        Map<String, Integer> outcomeCodes = new HashMap<>();
+        for (int row = 0; row < rowsCount; ++row) {
+            String outcome = observations.get(row).getAttributeByName(dataset.getOutcomeAttributeName()).getAttributeValue();
+            Integer code = outcomeCodes.get(outcome);
+            if (code == null) {
+                code = outcomeCodes.size();
+                outcomeCodes.put(outcome, code);
+            }
+            outcomes[row] = code;
+            weights[row] = observations.get(row).getWeight();
+        }
+
+        final int[] sharedOutcomes = outcomes;
+        final int[] sharedWeights = weights;
+        final int classesCount = outcomeCodes.size();
+        List<Pair<double[], String[]>> results;
+        if (rankError > 0) {
+            //The attributes are discretized one after the other, each one by partitions of rows in parallel; the labels are set below
+            results = new ArrayList<>();
+            for (String attributeName : attributeNames) {
+                double[] attributeSplitPoints = findApproximateSplitPoints(attributeName, sharedOutcomes, sharedWeights, classesCount, rankError);
+                results.add(new Pair<double[], String[]>(attributeSplitPoints, null));
+            }
+        }
+        else {
+            //Discretize the attributes concurrently; every task parses its column once and shares the outcome codes and the weights
+            List<Callable<Pair<double[], String[]>>> tasks = new ArrayList<>();
+            for (final String attributeName : attributeNames) {
+                tasks.add(new Callable<Pair<double[], String[]>>() {
+                    @Override
+                    public Pair<double[], String[]> call() {
+                        double[] values = parseColumn(attributeName);
+                        double[] attributeSplitPoints = findSplitPoints(values, sharedOutcomes, sharedWeights, classesCount);
+
+                        String[] intervalLabels = getIntervalLabels(attributeSplitPoints);
+                        String[] rowLabels = new String[values.length];
+                        for (int row = 0; row < values.length; ++row)
+                            rowLabels[row] = intervalLabels[getInterval(attributeSplitPoints, values[row])];
+                        return new Pair<>(attributeSplitPoints, rowLabels);
+                    }
+                });
+            }
+            results = invokeAll(tasks, rowsCount);
+        }
+
+        Map<String, String[]> labelsOfRows = new HashMap<>();
+        Map<String, String[]> labelsOfIntervals = new HashMap<>();
+        for (int attributeIndex = 0; attributeIndex < attributeNames.size(); ++attributeIndex) {
+            double[] attributeSplitPoints = results.get(attributeIndex).getFirst();
+            splitPoints.put(attributeNames.get(attributeIndex), attributeSplitPoints);
+            if (results.get(attributeIndex).getSecond() != null)
+                labelsOfRows.put(attributeNames.get(attributeIndex), results.get(attributeIndex).getSecond());
+            else
+                labelsOfIntervals.put(attributeNames.get(attributeIndex), getIntervalLabels(attributeSplitPoints));
+
+            bestSplit = new ArrayList<>();
+            for (double splitPoint : attributeSplitPoints)
+                bestSplit.add(splitPoint);
+        }
+
+        Dataset discretizedDataset = new Dataset(new ArrayList<Instance>(rowsCount), dataset.getOutcomeAttributeName());
+        discretizedDataset.setContinuousValuedAttributes(dataset.getContinuousValuedAttributes());
+        for (int row = 0; row < rowsCount; ++row) {
+            List<Attribute> attributes = new ArrayList<>();
+            for (Attribute attribute : observations.get(row).getAttributes()) {
+                String[] rowLabels = labelsOfRows.get(attribute.getAttributeName());
+                String[] intervalLabels = labelsOfIntervals.get(attribute.getAttributeName());
+                if (rowLabels != null)
+                    attributes.add(new Attribute(attribute.getAttributeName(), rowLabels[row]));
+                else if (intervalLabels != null) {
+                    int interval = getInterval(splitPoints.get(attribute.getAttributeName()), readValue(attribute, attribute.getAttributeName()));
+                    attributes.add(new Attribute(attribute.getAttributeName(), intervalLabels[interval]));
+                }
+                else
+                    attributes.add(attribute);
+            }
+            discretizedDataset.addObservation(new Instance(attributes, observations.get(row).getWeight()));
+        }
+
+        return discretizedDataset;
+    }
+
+    /**
+     * Get the interval of a value
+     * @param splitPoints the sorted split points
+     * @param value the value
+     * @return the interval of the value, between 0 and splitPoints.length
+     */
+    public static int getInterval(double[] splitPoints, double value) {
+        //Binary search for the number of split points smaller than or equal to the value
+        int low = 0;
+        int high = splitPoints.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (splitPoints[middle] <= value)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Get the label of an interval, such as "[2500.5, 3000.5)"
+     * @param splitPoints the sorted split points
+     * @param interval the interval, between 0 and splitPoints.length
+     * @return the label of the interval
+     */
+    public static String getIntervalLabel(double[] splitPoints, int interval) {
+        String lowerBound = interval == 0 ? "(-inf" : "[" + splitPoints[interval - 1];
+        String upperBound = interval == splitPoints.length ? "+inf)" : splitPoints[interval] + ")";
+        return lowerBound + ", " + upperBound;
+    }
+
+    /**
+     * Get the labels of all the intervals of some split points
+     * @param splitPoints the sorted split points
+     * @return the labels, by interval
+     */
+    private static String[] getIntervalLabels(double[] splitPoints) {
+        String[] intervalLabels = new String[splitPoints.length + 1];
+        for (int interval = 0; interval < intervalLabels.length; ++interval)
+            intervalLabels[interval] = getIntervalLabel(splitPoints, interval);
+        return intervalLabels;
+    }
+
+    /**
+     * Find the MDL split points of an attribute
+     * The values are sorted once; equal values are grouped, and the class counts of the groups are kept as prefix sums,
+     * so the class counts of any range of groups are known in O(classes)
+     * @param values the values of the attribute
+     * @param outcomes the outcome codes of the rows
+     * @param weights the weights of the rows
+     * @param classesCount the number of outcome codes
+     * @return the sorted split points
+     */
+    static double[] findSplitPoints(double[] values, int[] outcomes, int[] weights, int classesCount) {
+        int rowsCount = values.length;
+        if (rowsCount < 2)
+            return new double[0];
+        int[] order = sortedOrder(values);
+
+        //Group the equal values; prefixCounts[g * classesCount + c] is the count of class c in the groups before g
+        double[] groupValues = new double[rowsCount];
+        int[] prefixCounts = new int[(rowsCount + 1) * classesCount];
+        int groupsCount = 0;
+        for (int index = 0; index < rowsCount; ++index) {
+            int row = order[index];
+            if (groupsCount == 0 || values[row] != groupValues[groupsCount - 1]) {
+                System.arraycopy(prefixCounts, groupsCount * classesCount, prefixCounts, (groupsCount + 1) * classesCount, classesCount);
+                groupValues[groupsCount++] = values[row];
+            }
+            prefixCounts[groupsCount * classesCount + outcomes[row]] += weights[row];
+        }
+
+        //A split between two groups is at the middle of their values
+        double[] cutValues = new double[groupsCount];
+        for (int group = 1; group < groupsCount; ++group)
+            cutValues[group] = (groupValues[group - 1] + groupValues[group]) / 2;
+
+        return findSplitPoints(cutValues, prefixCounts, classesCount, groupsCount);
+    }
+
+    /**
+     * Find the approximate MDL split points of an attribute
+     * The values are read once into the QuantileSketches of the partitions, that are merged, then once more to count the classes
+     * of the buckets between the candidate thresholds of the merged sketch; the partitions are counted on the fork-join pool
+     * The sketch sees every row once, whatever its weight; the class counts of the buckets are weighted
+     * @param attributeName the name of the attribute
+     * @param outcomes the outcome codes of the rows
+     * @param weights the weights of the rows
+     * @param classesCount the number of outcome codes
+     * @param rankError the rank error of the sketch
+     * @return the sorted split points, a subset of the candidate thresholds
+     */
+    private double[] findApproximateSplitPoints(String attributeName, int[] outcomes, int[] weights, int classesCount, double rankError) {
+        List<Instance> observations = dataset.getObservations();
+        boolean parallel = observations.size() >= MINIMUM_PARALLEL_ROWS && forkJoinPool.getParallelism() > 1;
+
+        QuantileSketch sketch = invoke(new SketchTask(observations, attributeName, rankError, 0, observations.size(), parallel), parallel);
+        double[] thresholds = sketch.getCandidateThresholds((int) Math.ceil(1 / rankError));
+
+        int[] bucketCounts = invoke(new BucketCountTask(observations, attributeName, thresholds, outcomes, weights, classesCount,
+                0, observations.size(), parallel), parallel);
+        return findSplitPointsInBuckets(thresholds, bucketCounts, classesCount);
+    }
+
+    /**
+     * Run a task over the partitions of the rows
+     * @param task the task
+     * @param parallel true to run it on the fork-join pool, false to run it on the calling thread
+     * @param <T> the type of the result
+     * @return the result of the task
+     */
+    private <T> T invoke(RecursiveTask<T> task, boolean parallel) {
+        return parallel ? forkJoinPool.invoke(task) : task.invoke();
+    }
+
+    /**
+     * This class models the task that reads a range of rows of an attribute into a QuantileSketch
+     * A range of more than PARTITION_ROWS rows is split in two halves, whose sketches are merged; the halves are forked if the task is parallel
+     * The ranges depend only on the number of rows, and the seed of a sketch is the first row of its range,
+     * so the merged sketch is the same whatever the number of threads
+     */
+    private static class SketchTask extends RecursiveTask<QuantileSketch> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Instance> observations;
+        private final String attributeName;
+        private final double rankError;
+        private final int from;
+        private final int to;
+        private final boolean parallel;
+
+        /**
+         * The SketchTask constructor
+         * @param observations the observations of the dataset
+         * @param attributeName the name of the attribute
+         * @param rankError the rank error of the sketches
+         * @param from the first row of the range
+         * @param to the row after the last row of the range
+         * @param parallel true to fork the halves
+         */
+        SketchTask(List<Instance> observations, String attributeName, double rankError, int from, int to, boolean parallel) {
+            this.observations = observations;
+            this.attributeName = attributeName;
+            this.rankError = rankError;
+            this.from = from;
+            this.to = to;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected QuantileSketch compute() {
+            if (to - from <= PARTITION_ROWS) {
+                QuantileSketch sketch = QuantileSketch.forRankError(rankError, from);
+                for (int row = from; row < to; ++row)
+                    sketch.update(readValue(observations.get(row).getAttributeByName(attributeName), attributeName));
+                return sketch;
+            }
+
+            int middle = (from + to) >>> 1;
+            SketchTask left = new SketchTask(observations, attributeName, rankError, from, middle, parallel);
+            SketchTask right = new SketchTask(observations, attributeName, rankError, middle, to, parallel);
+            QuantileSketch rightSketch;
+            QuantileSketch leftSketch;
+            if (parallel) {
+                left.fork();
+                rightSketch = right.compute();
+                leftSketch = left.join();
+            }
+            else {
+                leftSketch = left.compute();
+                rightSketch = right.compute();
+            }
+            leftSketch.merge(rightSketch);
+            return leftSketch;
+        }
+    }
+
+    /**
+     * This class models the task that counts the classes of a range of rows of an attribute in the buckets between some thresholds
+     * A range of more than PARTITION_ROWS rows is split in two halves, whose counts are added; the halves are forked if the task is parallel
+     */
+    private static class BucketCountTask extends RecursiveTask<int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Instance> observations;
+        private final String attributeName;
+        private final double[] thresholds;
+        private final int[] outcomes;
+        private final int[] weights;
+        private final int classesCount;
+        private final int from;
+        private final int to;
+        private final boolean parallel;
+
+        /**
+         * The BucketCountTask constructor
+         * @param observations the observations of the dataset
+         * @param attributeName the name of the attribute
+         * @param thresholds the sorted thresholds of the buckets
+         * @param outcomes the outcome codes of the rows
+         * @param weights the weights of the rows
+         * @param classesCount the number of outcome codes
+         * @param from the first row of the range
+         * @param to the row after the last row of the range
+         * @param parallel true to fork the halves
+         */
+        BucketCountTask(List<Instance> observations, String attributeName, double[] thresholds, int[] outcomes, int[] weights, int classesCount,
+                        int from, int to, boolean parallel) {
+            this.observations = observations;
+            this.attributeName = attributeName;
+            this.thresholds = thresholds;
+            this.outcomes = outcomes;
+            this.weights = weights;
+            this.classesCount = classesCount;
+            this.from = from;
+            this.to = to;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= PARTITION_ROWS) {
+                int[] bucketCounts = new int[(thresholds.length + 1) * classesCount];
+                for (int row = from; row < to; ++row) {
+                    double value = readValue(observations.get(row).getAttributeByName(attributeName), attributeName);
+                    bucketCounts[getInterval(thresholds, value) * classesCount + outcomes[row]] += weights[row];
+                }
+                return bucketCounts;
+            }
+
+            int middle = (from + to) >>> 1;
+            BucketCountTask left = new BucketCountTask(observations, attributeName, thresholds, outcomes, weights, classesCount, from, middle, parallel);
+            BucketCountTask right = new BucketCountTask(observations, attributeName, thresholds, outcomes, weights, classesCount, middle, to, parallel);
+            int[] rightCounts;
+            int[] leftCounts;
+            if (parallel) {
+                left.fork();
+                rightCounts = right.compute();
+                leftCounts = left.join();
+            }
+            else {
+                leftCounts = left.compute();
+                rightCounts = right.compute();
+            }
+            for (int index = 0; index < leftCounts.length; ++index)
+                leftCounts[index] += rightCounts[index];
+            return leftCounts;
+        }
+    }
+
+    /**
+     * Find the MDL split points of an attribute from the class counts of its buckets
+     * Bucket b holds the values between thresholds[b - 1] (included) and thresholds[b] (excluded), as in getInterval
+     * The class counts of buckets built on different partitions of the data are simply added before calling this method
+     * @param thresholds the sorted candidate thresholds (for example QuantileSketch.getCandidateThresholds)
+     * @param bucketCounts the class counts of the buckets; bucketCounts[b * classesCount + c] is the count of class c in bucket b
+     * @param classesCount the number of classes
+     * @return the sorted split points, a subset of the thresholds
+     */
+    public static double[] findSplitPointsInBuckets(double[] thresholds, int[] bucketCounts, int classesCount) {
+        int bucketsCount = thresholds.length + 1;
+
+        //Skip the empty buckets; a split before a bucket is at its lower threshold
+        double[] cutValues = new double[bucketsCount];
+        int[] prefixCounts = new int[(bucketsCount + 1) * classesCount];
+        int groupsCount = 0;
+        for (int bucket = 0; bucket < bucketsCount; ++bucket) {
+            int bucketTotal = 0;
+            for (int c = 0; c < classesCount; ++c)
+                bucketTotal += bucketCounts[bucket * classesCount + c];
+            if (bucketTotal == 0)
+                continue;
+
+            cutValues[groupsCount] = bucket > 0 ? thresholds[bucket - 1] : Double.NEGATIVE_INFINITY;
+            for (int c = 0; c < classesCount; ++c)
+                prefixCounts[(groupsCount + 1) * classesCount + c] = prefixCounts[groupsCount * classesCount + c] + bucketCounts[bucket * classesCount + c];
+            ++groupsCount;
+        }
+
+        return findSplitPoints(cutValues, prefixCounts, classesCount, groupsCount);
+    }
+
+    /**
+     * Find the MDL split points of sorted groups of values
+     * @param cutValues the split point between the groups g - 1 and g is cutValues[g]
+     * @param prefixCounts the prefix class counts of the groups
+     * @param classesCount the number of classes
+     * @param groupsCount the number of groups
+     * @return the sorted split points
+     */
+    private static double[] findSplitPoints(double[] cutValues, int[] prefixCounts, int classesCount, int groupsCount) {
+        List<Double> splitPoints = new ArrayList<>();
+        splitRecursively(cutValues, prefixCounts, classesCount, 0, groupsCount, splitPoints);
+
+        double[] result = new double[splitPoints.size()];
+        for (int index = 0; index < result.length; ++index)
+            result[index] = splitPoints.get(index);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Split the groups in [from, to) at their best boundary, if the MDL criterion accepts it, then split the two halves
+     * @param cutValues the split points between the groups
+     * @param prefixCounts the prefix class counts of the groups
+     * @param classesCount the number of classes
+     * @param from the first group
+     * @param to the group after the last one
+     * @param splitPoints the list that receives the accepted split points
+     */
+    private static void splitRecursively(double[] cutValues, int[] prefixCounts, int classesCount, int from, int to, List<Double> splitPoints) {
+        if (to - from < 2)
+            return;
+
+        int[] totalCounts = new int[classesCount];
+        for (int c = 0; c < classesCount; ++c)
+            totalCounts[c] = prefixCounts[to * classesCount + c] - prefixCounts[from * classesCount + c];
+        int total = sum(totalCounts);
+        int classes = countClasses(totalCounts);
+        if (classes < 2)
+            return;
+
+        //Find the boundary with the smallest weighted entropy
+        int[] leftCounts = new int[classesCount];
+        int[] rightCounts = new int[classesCount];
+        double bestEntropy = Double.MAX_VALUE;
+        int bestBoundary = -1;
+        for (int boundary = from + 1; boundary < to; ++boundary) {
+            for (int c = 0; c < classesCount; ++c) {
+                leftCounts[c] = prefixCounts[boundary * classesCount + c] - prefixCounts[from * classesCount + c];
+                rightCounts[c] = totalCounts[c] - leftCounts[c];
+            }
+            int left = sum(leftCounts);
+            double entropy = (left * entropy(leftCounts, left) + (total - left) * entropy(rightCounts, total - left)) / total;
+            if (entropy < bestEntropy) {
+                bestEntropy = entropy;
+                bestBoundary = boundary;
+            }
+        }
+
+        for (int c = 0; c < classesCount; ++c) {
+            leftCounts[c] = prefixCounts[bestBoundary * classesCount + c] - prefixCounts[from * classesCount + c];
+            rightCounts[c] = totalCounts[c] - leftCounts[c];
+        }
+        int left = sum(leftCounts);
+        double totalEntropy = entropy(totalCounts, total);
+        double leftEntropy = entropy(leftCounts, left);
+        double rightEntropy = entropy(rightCounts, total - left);
+
+        //The MDL criterion: the gain has to be bigger than the cost of the split
+        double gain = totalEntropy - bestEntropy;
+        double delta = log2(Math.pow(3, classes) - 2)
+                - (classes * totalEntropy - countClasses(leftCounts) * leftEntropy - countClasses(rightCounts) * rightEntropy);
+        if (gain <= (log2(total - 1) + delta) / total)
+            return;
+
+        splitPoints.add(cutValues[bestBoundary]);
+        splitRecursively(cutValues, prefixCounts, classesCount, from, bestBoundary, splitPoints);
+        splitRecursively(cutValues, prefixCounts, classesCount, bestBoundary, to, splitPoints);
+    }
+
+    /**
+     * Calculate the entropy of class counts
+     * @param counts the class counts
+     * @param total the sum of the counts
+     * @return the entropy
+     */
+    private static double entropy(int[] counts, int total) {
+        if (total == 0)
+            return 0.0;
+        double entropy = 0.0;
+        for (int count : counts) {
+            if (count > 0) {
+                double probability = (count + 0.0) / total;
+                entropy -= probability * log2(probability);
+            }
+        }
+        return entropy;
+    }
+
+    /**
+     * Count the classes that appear in the class counts
+     * @param counts the class counts
+     * @return the number of non zero counts
+     */
+    private static int countClasses(int[] counts) {
+        int classes = 0;
+        for (int count : counts)
+            if (count > 0)
+                ++classes;
+        return classes;
+    }
+
+    /**
+     * Sum the class counts
+     * @param counts the class counts
+     * @return the sum of the counts
+     */
+    private static int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts)
+            sum += count;
+        return sum;
+    }
+
+    /**
+     * Calculate the base 2 logarithm
+     * @param value the value
+     * @return log2(value)
+     */
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+
+    /**
+     * Get the rows in the increasing order of their values, without boxing them
+     * @param values the values
+     * @return the indexes of the rows, sorted by value (a stable merge sort)
+     */
+    private static int[] sortedOrder(double[] values) {
+        int[] order = new int[values.length];
+        for (int index = 0; index < order.length; ++index)
+            order[index] = index;
+        int[] buffer = new int[values.length];
+
+        for (int width = 1; width < order.length; width *= 2) {
+            for (int from = 0; from < order.length; from += 2 * width) {
+                int middle = Math.min(from + width, order.length);
+                int to = Math.min(from + 2 * width, order.length);
+                int left = from;
+                int right = middle;
+                for (int index = from; index < to; ++index) {
+                    if (left < middle && (right >= to || values[order[left]] <= values[order[right]]))
+                        buffer[index] = order[left++];
+                    else
+                        buffer[index] = order[right++];
+                }
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+
+        return order;
+    }
+
     /**
      * Get all the values for the attributes, transform them in numeric values and then sort
      * (We also need to store their outcomes and be careful to match them also after the sort)
@@ -99,65 +742,153 @@ public class Discretizer {
      * Get all the values for the attributes, transform them in numeric values and then sort
      * (We also need to store their outcomes and be careful to match them also after the sort)
      *
+     * The misclassified values are counted row by row and the new values follow the order of the rows, so the weights of the rows are not supported:
+     * a dataset with collapsed duplicates (see Dataset.collapseDuplicates) would not give the same split
+     *
      * @param outputClasses the list of possible output classes
      * @return the new dataset, with discretized values for the given attribute
+     * @throws IllegalArgumentException if there are continuous attributes and a row of the dataset has a weight other than 1
      */
     public Dataset discretize(List<String> outputClasses) {
-        Dataset discretizedDataset = new Dataset(this.dataset);
+        if (!attributeNames.isEmpty() && dataset.getTotalWeight() != dataset.getObservations().size())
+            throw new IllegalArgumentException("The split by output classes does not support weighted rows (see Dataset.collapseDuplicates), use discretize() (ExtendedID3 without output classes) instead");
 
-        int noOfOutputClasses = outputClasses.size();
+        final int noOfOutputClasses = outputClasses.size();
+        final List<String> sharedOutputClasses = outputClasses;
 
-        for (String attributeName : attributeNames) {
-
-            //Obtain the String values for the given attribute
-            List<String> attributeValuesAsStrings = dataset.getAllValuesForAttribute(attributeName);
-
-            //Obtain the outcomes for the values
-            List<String> outcomeValues = dataset.getOutcomeValues();
-
-            //Obtain the double values in order to sort them
-            List<Double> attributeValues = transformStringsListToDoublesList(attributeValuesAsStrings);
+        //Obtain the outcomes once, for all the attributes
+        final List<String> outcomeValues = dataset.getOutcomeValues();
 
-            //BE CAREFUL
-            //Map each attributeValue to an outcomeValue
-            List<Pair<Double, String>> attributeOutcomeMap = mapAttributeValuesToOutcomes(attributeValues, outcomeValues);
-
-            //Sort the values (in increasing order, "place them on the real numbers axis")
-            Collections.sort(attributeValues);
-
-            //Sort
-            attributeOutcomeMap.sort(new Comparator<Pair<Double, String>>() {
+        //Find the best split of every attribute concurrently
+        List<Callable<Pair<List<Double>, List<Pair<Double, String>>>>> tasks = new ArrayList<>();
+        for (final String attributeName : attributeNames) {
+            tasks.add(new Callable<Pair<List<Double>, List<Pair<Double, String>>>>() {
                 @Override
-                public int compare(Pair<Double, String> o1, Pair<Double, String> o2) {
-                    return o1.getFirst().compareTo(o2.getFirst());
+                public Pair<List<Double>, List<Pair<Double, String>>> call() {
+                    return findBestSplit(attributeName, outcomeValues, noOfOutputClasses, sharedOutputClasses);
                 }
             });
+        }
+        List<Pair<List<Double>, List<Pair<Double, String>>>> results = invokeAll(tasks, outcomeValues.size());
 
-            //Find the split points
-            List<Double> splitPoints = getSplitPoints(attributeValues, attributeOutcomeMap);
+        Map<String, List<Pair<Double, String>>> classesOfAttributes = new HashMap<>();
+        for (int attributeIndex = 0; attributeIndex < attributeNames.size(); ++attributeIndex) {
+            bestSplit = results.get(attributeIndex).getFirst();
+            mapContinuousToDiscrete.put(attributeNames.get(attributeIndex), results.get(attributeIndex).getSecond());
+            classesOfAttributes.put(attributeNames.get(attributeIndex), results.get(attributeIndex).getSecond());
+        }
 
-            //Get the best split for the current attribute values
-            bestSplit = new ArrayList<>();
-            bestSplit = testAllSplits(noOfOutputClasses, attributeValues, attributeOutcomeMap, splitPoints, outputClasses);
-
-            //Edit the continuous attribute in the dataset to have values according to the decision surface
-            List<Pair<Double, String>> attributeClasses = getAttributeClasses(attributeOutcomeMap, bestSplit, outputClasses);
-            mapContinuousToDiscrete.put(attributeName, attributeClasses);
-
-            //Go through the dataset and modify the value of the attribute
-            for (int instanceIndex = 0; instanceIndex < discretizedDataset.getObservations().size(); ++instanceIndex) {
-                Instance observation = discretizedDataset.getObservations().get(instanceIndex);
-                for (Attribute attribute : observation.getAttributes()) {
-                    if (attribute.getAttributeName().equals(attributeName)) {
-                        attribute.setAttributeValue(attributeClasses.get(instanceIndex).getSecond());
-                    }
-                }
+        //The discretized values are new Attributes, so no Attribute of the original dataset (or of a cached statistic) is changed
+        List<Instance> observations = dataset.getObservations();
+        Dataset discretizedDataset = new Dataset(new ArrayList<Instance>(observations.size()), dataset.getOutcomeAttributeName());
+        for (int instanceIndex = 0; instanceIndex < observations.size(); ++instanceIndex) {
+            List<Attribute> attributes = new ArrayList<>();
+            for (Attribute attribute : observations.get(instanceIndex).getAttributes()) {
+                List<Pair<Double, String>> attributeClasses = classesOfAttributes.get(attribute.getAttributeName());
+                attributes.add(attributeClasses != null
+                        ? new Attribute(attribute.getAttributeName(), attributeClasses.get(instanceIndex).getSecond()) : attribute);
             }
+            discretizedDataset.addObservation(new Instance(attributes, observations.get(instanceIndex).getWeight()));
         }
 
         return discretizedDataset;
     }
 
+    /**
+     * Find the best split of an attribute for the given output classes
+     * It only reads the dataset, so it can run concurrently for different attributes
+     * @param attributeName the name of the attribute
+     * @param outcomeValues the outcome values of the rows
+     * @param noOfOutputClasses the number of output classes wanted
+     * @param outputClasses the list of possible output classes
+     * @return the best split and the attribute classes (the decision surface) of the attribute
+     */
+    private Pair<List<Double>, List<Pair<Double, String>>> findBestSplit(String attributeName, List<String> outcomeValues, int noOfOutputClasses, List<String> outputClasses) {
+        //Obtain the double values in order to sort them
+        List<Double> attributeValues = new ArrayList<>();
+        for (double value : parseColumn(attributeName))
+            attributeValues.add(value);
+
+        //BE CAREFUL
+        //Map each attributeValue to an outcomeValue
+        List<Pair<Double, String>> attributeOutcomeMap = mapAttributeValuesToOutcomes(attributeValues, outcomeValues);
+
+        //Sort the values (in increasing order, "place them on the real numbers axis")
+        Collections.sort(attributeValues);
+
+        //Sort
+        attributeOutcomeMap.sort(new Comparator<Pair<Double, String>>() {
+            @Override
+            public int compare(Pair<Double, String> o1, Pair<Double, String> o2) {
+                return o1.getFirst().compareTo(o2.getFirst());
+            }
+        });
+
+        //Find the split points
+        List<Double> splitPoints = getSplitPoints(attributeValues, attributeOutcomeMap);
+
+        //Get the best split for the current attribute values
+        List<Double> attributeBestSplit = testAllSplits(noOfOutputClasses, attributeValues, attributeOutcomeMap, splitPoints, outputClasses);
+
+        //The decision surface gives the new values of the continuous attribute
+        List<Pair<Double, String>> attributeClasses = getAttributeClasses(attributeOutcomeMap, attributeBestSplit, outputClasses);
+
+        return new Pair<>(attributeBestSplit, attributeClasses);
+    }
+
+    /**
+     * Get the numeric values of a continuous attribute
+     * The values come from the numeric cache of the Attributes, so a column loaded as NUMERIC is never parsed again
+     * @param attributeName the name of the attribute
+     * @return the values of the attribute, in the order of the observations
+     * @throws NumberFormatException if a value is not a number
+     */
+    private double[] parseColumn(String attributeName) {
+        List<Instance> observations = dataset.getObservations();
+        double[] values = new double[observations.size()];
+        for (int row = 0; row < values.length; ++row)
+            values[row] = readValue(observations.get(row).getAttributeByName(attributeName), attributeName);
+        return values;
+    }
+
+    /**
+     * Get the numeric value of an Attribute of a continuous attribute
+     * @param attribute the Attribute
+     * @param attributeName the name of the attribute
+     * @return the numeric value
+     * @throws NumberFormatException if the value is not a number
+     */
+    private static double readValue(Attribute attribute, String attributeName) {
+        double value = attribute.getNumericValue();
+        if (Double.isNaN(value))
+            throw new NumberFormatException("The value '" + attribute.getAttributeValue() + "' of the continuous attribute " + attributeName + " is not a number");
+        return value;
+    }
+
+    /**
+     * Run one task per attribute and wait for all of them
+     * The tasks run on the fork-join pool if there are several attributes and enough rows, on the calling thread otherwise
+     * @param tasks the tasks, in the order of the attributes
+     * @param rowsCount the number of rows of the dataset
+     * @param <T> the type of the results
+     * @return the results, in the order of the tasks
+     */
+    private <T> List<T> invokeAll(List<Callable<T>> tasks, int rowsCount) {
+        List<ForkJoinTask<T>> forkJoinTasks = new ArrayList<>();
+        for (Callable<T> task : tasks)
+            forkJoinTasks.add(ForkJoinTask.adapt(task));
+
+        boolean parallel = forkJoinTasks.size() > 1 && rowsCount >= MINIMUM_PARALLEL_ROWS && forkJoinPool.getParallelism() > 1;
+        if (parallel)
+            for (ForkJoinTask<T> forkJoinTask : forkJoinTasks)
+                forkJoinPool.execute(forkJoinTask);
+
+        List<T> results = new ArrayList<>();
+        for (ForkJoinTask<T> forkJoinTask : forkJoinTasks)
+            results.add(parallel ? forkJoinTask.join() : forkJoinTask.invoke());
+        return results;
+    }
+
     /**
      * Test all possible splits and calculate the impurity function, choosing the best split
      * @param noOfOutputClasses the number of output classes wanted (that is, the number of split points chosen)
@@ -275,21 +1006,6 @@ public class Discretizer {
         return decisionSurface;
     }
 
-    /**
-     * Transform the list of String values to a list of Double values
-     * @param attributeValuesAsStrings the list of String values
-     * @return the list of Double values
-     */
-    private List<Double> transformStringsListToDoublesList(List<String> attributeValuesAsStrings) {
-        List<Double> attributeValues = new ArrayList<>();
-
-        for (String attributeValueAsString : attributeValuesAsStrings) {
-            attributeValues.add(Double.parseDouble(attributeValueAsString));
-        }
-
-        return attributeValues;
-    }
-
     /**
      * Map the attributeValues to their outcomeValues
      * Each attributeValue was part of an Instance, and, being a training data instance, it was labeled
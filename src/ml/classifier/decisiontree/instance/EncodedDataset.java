@@ -0,0 +1,469 @@
+package ml.classifier.decisiontree.instance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class models an EncodedDataset
+ * An EncodedDataset is a column oriented copy of a Dataset in which every attribute value is replaced by an integer code
+ * The codes of an attribute are indexes in the list of distinct values of that attribute (its dictionary)
+ * The outcome attribute is encoded in the same way and kept apart from the other attributes
+ *
+ * The dataset is encoded only once and the tree builders work on arrays of row indexes over it,
+ * so no Instance has to be copied when the data is split
+ *
+ * Every row has the weight of its Instance; collapseDuplicates() merges the identical encoded rows into one weighted row,
+ * so the cost of counting depends on the number of distinct rows, not on the number of raw rows
+ *
+ * toSparse(maximumDensity) stores the columns in which one value holds most of the rows (such as one-hot columns) as SparseColumns,
+ * which keep only the rows of the other values; the tree builders count these columns by their non-default rows
+ */
+public class EncodedDataset {
+
+    //A column is stored sparse by default if at most this fraction of its rows have another value than the most frequent one
+    public static final double DEFAULT_MAXIMUM_DENSITY = 0.1;
+
+    private Dataset dataset;
+    private String outcomeAttributeName;
+
+    private List<String> attributeNames;
+    private List<List<String>> attributeValues;
+    private List<String> outcomeValues;
+
+    private int[][] columns;
+    //sparseColumns[attribute] is null for the columns that are stored dense
+    private SparseColumn[] sparseColumns;
+    private int[] outcomes;
+    private int[] weights;
+
+    /**
+     * This class models an encoded row used as a key when the duplicates are collapsed
+     */
+    private static class RowKey {
+
+        private int[] codes;
+        private int hashCode;
+
+        /**
+         * The RowKey constructor
+         * @param codes the codes of the row (the attributes, then the outcome)
+         */
+        RowKey(int[] codes) {
+            this.codes = codes;
+            this.hashCode = Arrays.hashCode(codes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RowKey && Arrays.equals(codes, ((RowKey) o).codes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The EncodedDataset constructor
+     * Encodes all the attributes of the dataset, except the outcome attribute
+     * The list of attributes is taken from the first observation of the dataset
+     * @param dataset the dataset to be encoded
+     */
+    public EncodedDataset(Dataset dataset) {
+        this.dataset = dataset;
+        this.outcomeAttributeName = dataset.getOutcomeAttributeName();
+        this.attributeNames = new ArrayList<>();
+        this.attributeValues = new ArrayList<>();
+
+        if (dataset.getObservationsCount() > 0) {
+            for (Attribute attribute : dataset.getObservations().get(0).getAttributes()) {
+                if (!attribute.getAttributeName().equals(outcomeAttributeName))
+                    attributeNames.add(attribute.getAttributeName());
+            }
+        }
+
+        int observationsCount = dataset.getObservationsCount();
+        this.columns = new int[attributeNames.size()][];
+        this.sparseColumns = new SparseColumn[attributeNames.size()];
+        for (int attributeIndex = 0; attributeIndex < attributeNames.size(); ++attributeIndex) {
+            List<String> values = new ArrayList<>();
+            this.columns[attributeIndex] = encodeColumn(attributeNames.get(attributeIndex), values);
+            this.attributeValues.add(values);
+        }
+
+        this.outcomeValues = new ArrayList<>();
+        this.outcomes = observationsCount > 0 ? encodeColumn(outcomeAttributeName, outcomeValues) : new int[0];
+
+        this.weights = new int[observationsCount];
+        for (int row = 0; row < observationsCount; ++row)
+            this.weights[row] = dataset.getObservations().get(row).getWeight();
+    }
+
+    /**
+     * The EncodedDataset constructor
+     * Creates an encoding with the same dictionaries as another one, but with other rows
+     * @param encodedDataset the encoding whose attributes and dictionaries are shared
+     * @param dataset the dataset of the new rows
+     * @param columns the codes of the attributes of the new rows
+     * @param outcomes the codes of the outcomes of the new rows
+     * @param weights the weights of the new rows
+     */
+    private EncodedDataset(EncodedDataset encodedDataset, Dataset dataset, int[][] columns, int[] outcomes, int[] weights) {
+        this(encodedDataset, dataset, columns, new SparseColumn[columns.length], outcomes, weights);
+    }
+
+    /**
+     * The EncodedDataset constructor
+     * Creates an encoding with the same dictionaries as another one, but with other rows, some of the columns being stored sparse
+     * @param encodedDataset the encoding whose attributes and dictionaries are shared
+     * @param dataset the dataset of the new rows
+     * @param columns the codes of the dense attributes of the new rows (null for the sparse attributes)
+     * @param sparseColumns the sparse attributes of the new rows (null for the dense attributes)
+     * @param outcomes the codes of the outcomes of the new rows
+     * @param weights the weights of the new rows
+     */
+    private EncodedDataset(EncodedDataset encodedDataset, Dataset dataset, int[][] columns, SparseColumn[] sparseColumns, int[] outcomes, int[] weights) {
+        this.dataset = dataset;
+        this.outcomeAttributeName = encodedDataset.outcomeAttributeName;
+        this.attributeNames = encodedDataset.attributeNames;
+        this.attributeValues = encodedDataset.attributeValues;
+        this.outcomeValues = encodedDataset.outcomeValues;
+        this.columns = columns;
+        this.sparseColumns = sparseColumns;
+        this.outcomes = outcomes;
+        this.weights = weights;
+    }
+
+    /**
+     * Encode the values of an attribute
+     * The codes are given in the order in which the values first appear in the dataset
+     * @param attributeName the name of the attribute to be encoded
+     * @param values the list that is filled with the distinct values of the attribute (the dictionary)
+     * @return the codes of the attribute, one for every observation
+     */
+    private int[] encodeColumn(String attributeName, List<String> values) {
+        List<Instance> observations = dataset.getObservations();
+        int[] column = new int[observations.size()];
+        Map<String, Integer> codes = new HashMap<>();
+
+        for (int row = 0; row < observations.size(); ++row) {
+            String value = observations.get(row).getAttributeByName(attributeName).getAttributeValue();
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            column[row] = code;
+        }
+
+        return column;
+    }
+
+    /**
+     * Get the dataset from which this encoding was created
+     * @return the original dataset
+     */
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Get the outcome attribute name
+     * @return the outcome attribute name
+     */
+    public String getOutcomeAttributeName() {
+        return outcomeAttributeName;
+    }
+
+    /**
+     * Get the number of observations
+     * @return the number of observations
+     */
+    public int getObservationsCount() {
+        return outcomes.length;
+    }
+
+    /**
+     * Get the number of encoded attributes (the outcome attribute is not counted)
+     * @return the number of attributes
+     */
+    public int getAttributesCount() {
+        return attributeNames.size();
+    }
+
+    /**
+     * Get the names of the encoded attributes, in the order of their indexes
+     * @return the names of the attributes
+     */
+    public List<String> getAttributeNames() {
+        return attributeNames;
+    }
+
+    /**
+     * Get the name of an attribute
+     * @param attributeIndex the index of the attribute
+     * @return the name of the attribute
+     */
+    public String getAttributeName(int attributeIndex) {
+        return attributeNames.get(attributeIndex);
+    }
+
+    /**
+     * Get the distinct values of an attribute, indexed by their codes
+     * @param attributeIndex the index of the attribute
+     * @return the dictionary of the attribute
+     */
+    public List<String> getAttributeValues(int attributeIndex) {
+        return attributeValues.get(attributeIndex);
+    }
+
+    /**
+     * Get the number of distinct values of an attribute
+     * @param attributeIndex the index of the attribute
+     * @return the number of distinct values
+     */
+    public int getCardinality(int attributeIndex) {
+        return attributeValues.get(attributeIndex).size();
+    }
+
+    /**
+     * Get the codes of an attribute, one for every observation
+     * A sparse column is expanded into a new array at every call, so the tree builders read it with getSparseColumn
+     * @param attributeIndex the index of the attribute
+     * @return the encoded column
+     */
+    public int[] getColumn(int attributeIndex) {
+        if (sparseColumns[attributeIndex] != null)
+            return sparseColumns[attributeIndex].toDense();
+        return columns[attributeIndex];
+    }
+
+    /**
+     * Get the codes of an attribute for some rows
+     * @param attributeIndex the index of the attribute
+     * @param rows the indexes of the rows
+     * @return the codes of the rows, in the order of rows
+     */
+    public int[] getCodes(int attributeIndex, int[] rows) {
+        int[] codes = new int[rows.length];
+        SparseColumn sparseColumn = sparseColumns[attributeIndex];
+        if (sparseColumn != null) {
+            for (int index = 0; index < rows.length; ++index)
+                codes[index] = sparseColumn.getCode(rows[index]);
+        }
+        else {
+            int[] column = columns[attributeIndex];
+            for (int index = 0; index < rows.length; ++index)
+                codes[index] = column[rows[index]];
+        }
+        return codes;
+    }
+
+    /**
+     * Check if an attribute is stored sparse
+     * @param attributeIndex the index of the attribute
+     * @return true if the attribute is a SparseColumn
+     */
+    public boolean isSparse(int attributeIndex) {
+        return sparseColumns[attributeIndex] != null;
+    }
+
+    /**
+     * Get the sparse column of an attribute
+     * @param attributeIndex the index of the attribute
+     * @return the sparse column, null if the attribute is stored dense
+     */
+    public SparseColumn getSparseColumn(int attributeIndex) {
+        return sparseColumns[attributeIndex];
+    }
+
+    /**
+     * Get the approximate memory used by the encoded attributes
+     * @return the size of the dense and sparse columns, in bytes
+     */
+    public long getColumnsSizeInBytes() {
+        long bytes = 0;
+        for (int attributeIndex = 0; attributeIndex < columns.length; ++attributeIndex)
+            bytes += sparseColumns[attributeIndex] != null ? sparseColumns[attributeIndex].getSizeInBytes() : 4L * columns[attributeIndex].length;
+        return bytes;
+    }
+
+    /**
+     * Create an encoding in which the mostly-default columns are stored sparse
+     * A column is stored sparse if at most maximumDensity of its rows have another value than its most frequent value
+     * The dictionaries, the dense columns, the outcomes and the weights are shared
+     * @param maximumDensity the maximum fraction of non-default rows of a sparse column
+     * @return the new encoding, or this encoding if no column is sparse enough
+     */
+    public EncodedDataset toSparse(double maximumDensity) {
+        int observationsCount = getObservationsCount();
+        int[][] newColumns = columns.clone();
+        SparseColumn[] newSparseColumns = sparseColumns.clone();
+        boolean changed = false;
+
+        for (int attributeIndex = 0; attributeIndex < columns.length; ++attributeIndex) {
+            if (sparseColumns[attributeIndex] != null)
+                continue;
+            int[] column = columns[attributeIndex];
+            int defaultCode = SparseColumn.mostFrequentCode(column, getCardinality(attributeIndex));
+            int nonDefaultCount = 0;
+            for (int code : column)
+                if (code != defaultCode)
+                    ++nonDefaultCount;
+            if (nonDefaultCount > maximumDensity * observationsCount)
+                continue;
+
+            newSparseColumns[attributeIndex] = new SparseColumn(column, defaultCode);
+            newColumns[attributeIndex] = null;
+            changed = true;
+        }
+
+        if (!changed)
+            return this;
+        return new EncodedDataset(this, dataset, newColumns, newSparseColumns, outcomes, weights);
+    }
+
+    /**
+     * Get the distinct values of the outcome attribute, indexed by their codes
+     * @return the dictionary of the outcome attribute
+     */
+    public List<String> getOutcomeValues() {
+        return outcomeValues;
+    }
+
+    /**
+     * Get the number of distinct outcome values (classes)
+     * @return the number of classes
+     */
+    public int getClassesCount() {
+        return outcomeValues.size();
+    }
+
+    /**
+     * Get the codes of the outcome attribute, one for every observation
+     * @return the encoded outcome column
+     */
+    public int[] getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * Get the weights of the rows, one for every observation
+     * @return the weights
+     */
+    public int[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Get the total weight of the rows
+     * @return the number of raw rows the encoded rows stand for
+     */
+    public long getTotalWeight() {
+        long totalWeight = 0;
+        for (int weight : weights)
+            totalWeight += weight;
+        return totalWeight;
+    }
+
+    /**
+     * Create an encoding in which the identical rows (same codes for all the attributes and the outcome) are collapsed into a single weighted row
+     * The dictionaries are shared, and the rows keep the order of their first appearance
+     * The dataset of the new encoding holds one new Instance for every distinct row, with the weight of the row,
+     * sharing its Attributes with the first of the identical observations
+     * @return the collapsed encoding, or this encoding if it has no duplicates
+     */
+    public EncodedDataset collapseDuplicates() {
+        int observationsCount = getObservationsCount();
+        int attributesCount = getAttributesCount();
+        Map<RowKey, Integer> distinctRows = new LinkedHashMap<>();
+        int[] distinctIndexOfRow = new int[observationsCount];
+        int[][] denseColumns = new int[attributesCount][];
+        for (int attributeIndex = 0; attributeIndex < attributesCount; ++attributeIndex)
+            denseColumns[attributeIndex] = getColumn(attributeIndex);
+
+        for (int row = 0; row < observationsCount; ++row) {
+            int[] codes = new int[attributesCount + 1];
+            for (int attributeIndex = 0; attributeIndex < attributesCount; ++attributeIndex)
+                codes[attributeIndex] = denseColumns[attributeIndex][row];
+            codes[attributesCount] = outcomes[row];
+
+            RowKey key = new RowKey(codes);
+            Integer distinctIndex = distinctRows.get(key);
+            if (distinctIndex == null) {
+                distinctIndex = distinctRows.size();
+                distinctRows.put(key, distinctIndex);
+            }
+            distinctIndexOfRow[row] = distinctIndex;
+        }
+
+        int distinctCount = distinctRows.size();
+        if (distinctCount == observationsCount)
+            return this;
+
+        int[][] distinctColumns = new int[attributesCount][distinctCount];
+        int[] distinctOutcomes = new int[distinctCount];
+        int[] distinctWeights = new int[distinctCount];
+        Instance[] distinctObservations = new Instance[distinctCount];
+        for (int row = 0; row < observationsCount; ++row) {
+            int distinctIndex = distinctIndexOfRow[row];
+            if (distinctObservations[distinctIndex] == null) {
+                for (int attributeIndex = 0; attributeIndex < attributesCount; ++attributeIndex)
+                    distinctColumns[attributeIndex][distinctIndex] = denseColumns[attributeIndex][row];
+                distinctOutcomes[distinctIndex] = outcomes[row];
+                distinctObservations[distinctIndex] = new Instance(dataset.getObservations().get(row).getAttributes());
+            }
+            distinctWeights[distinctIndex] += weights[row];
+        }
+        for (int distinctIndex = 0; distinctIndex < distinctCount; ++distinctIndex)
+            distinctObservations[distinctIndex].setWeight(distinctWeights[distinctIndex]);
+
+        Dataset distinctDataset = new Dataset(new ArrayList<>(Arrays.asList(distinctObservations)), outcomeAttributeName);
+        distinctDataset.setContinuousValuedAttributes(dataset.getContinuousValuedAttributes());
+        return new EncodedDataset(this, distinctDataset, distinctColumns, distinctOutcomes, distinctWeights);
+    }
+
+    /**
+     * Get the indexes of all the rows of the dataset
+     * @return the array 0, 1, ..., n-1
+     */
+    public int[] getAllRows() {
+        int[] rows = new int[getObservationsCount()];
+        for (int row = 0; row < rows.length; ++row)
+            rows[row] = row;
+        return rows;
+    }
+
+    /**
+     * Create a Dataset with the given rows of the original dataset
+     * The observations are not copied, the new dataset refers to the same Instances
+     * @param rows the indexes of the rows
+     * @return the new dataset
+     */
+    public Dataset createDataset(int[] rows) {
+        List<Instance> observations = new ArrayList<>(rows.length);
+        for (int row : rows)
+            observations.add(dataset.getObservations().get(row));
+
+        Dataset result = new Dataset(observations, outcomeAttributeName);
+        result.setContinuousValuedAttributes(dataset.getContinuousValuedAttributes());
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedDataset{" +
+                "observations=" + getObservationsCount() +
+                ", totalWeight=" + getTotalWeight() +
+                ", attributeNames=" + attributeNames +
+                ", outcomeAttributeName='" + outcomeAttributeName + '\'' +
+                ", outcomeValues=" + outcomeValues +
+                '}';
+    }
+}
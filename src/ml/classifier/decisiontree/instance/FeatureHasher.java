@@ -0,0 +1,385 @@
+package ml.classifier.decisiontree.instance;
+
+import ml.utils.monitoring.Metrics;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class models a FeatureHasher
+ * A FeatureHasher replaces the values of high-cardinality categorical attributes (an id, a zip code) by the label of a bucket,
+ * chosen by a hash of the value, so such an attribute has at most bucketsCount distinct values:
+ * the ConfusionMatrix of the attribute and the fan-out of its nodes stay bounded, whatever the number of values in the data
+ *
+ * The attributes are hashed if they are added by hand (addAttribute, with their own number of buckets), or, if maximumCardinality is positive,
+ * if they are CATEGORICAL and have more than maximumCardinality distinct values (selectAttributes); the outcome attribute is never hashed
+ * The bucket of a value depends only on the value and on the name of its attribute, so the same FeatureHasher must transform the rows to be scored
+ *
+ * Two values in the same bucket collide: while a dataset is hashed, the FeatureHasher counts, for every attribute, the buckets that received
+ * more than one value and the rows whose value is not the first one seen in its bucket; these counts are reported to Metrics
+ */
+public class FeatureHasher implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_BUCKETS_COUNT = 1024;
+    public static final String BUCKET_LABEL_PREFIX = "#";
+
+    private int maximumCardinality;
+    private int defaultBucketsCount;
+
+    private List<String> attributeNames;
+    private List<Integer> bucketsCounts;
+    private Map<String, Integer> attributeIndexes;
+
+    //The collisions of the last hashed dataset; they are not saved with the FeatureHasher
+    private transient List<String[]> firstBucketValues;
+    private transient List<boolean[]> collidingBuckets;
+    private transient long[] hashedRowsCounts;
+    private transient long[] collidedRowsCounts;
+    private transient int[] collidingBucketsCounts;
+
+    /**
+     * The FeatureHasher default constructor
+     * Creates a FeatureHasher that only hashes the attributes added by hand
+     */
+    public FeatureHasher() {
+        this(0, DEFAULT_BUCKETS_COUNT);
+    }
+
+    /**
+     * The FeatureHasher constructor
+     * @param maximumCardinality a CATEGORICAL attribute with more distinct values is hashed; 0 to hash only the attributes added by hand
+     * @param defaultBucketsCount the number of buckets of an attribute selected by its cardinality
+     */
+    public FeatureHasher(int maximumCardinality, int defaultBucketsCount) {
+        if (defaultBucketsCount < 1)
+            throw new IllegalArgumentException("The number of buckets must be positive, not " + defaultBucketsCount);
+        this.maximumCardinality = maximumCardinality;
+        this.defaultBucketsCount = defaultBucketsCount;
+        this.attributeNames = new ArrayList<>();
+        this.bucketsCounts = new ArrayList<>();
+        this.attributeIndexes = new HashMap<>();
+    }
+
+    /**
+     * Get the cardinality above which a CATEGORICAL attribute is hashed
+     * @return the maximum cardinality, 0 if only the attributes added by hand are hashed
+     */
+    public int getMaximumCardinality() {
+        return maximumCardinality;
+    }
+
+    /**
+     * Set the cardinality above which a CATEGORICAL attribute is hashed
+     * @param maximumCardinality the new maximum cardinality, 0 to hash only the attributes added by hand
+     */
+    public void setMaximumCardinality(int maximumCardinality) {
+        this.maximumCardinality = maximumCardinality;
+    }
+
+    /**
+     * Get the number of buckets of an attribute selected by its cardinality
+     * @return the default number of buckets
+     */
+    public int getDefaultBucketsCount() {
+        return defaultBucketsCount;
+    }
+
+    /**
+     * Set the number of buckets of an attribute selected by its cardinality
+     * @param defaultBucketsCount the new default number of buckets
+     */
+    public void setDefaultBucketsCount(int defaultBucketsCount) {
+        this.defaultBucketsCount = defaultBucketsCount;
+    }
+
+    /**
+     * Hash an attribute, or change its number of buckets
+     * @param attributeName the name of the attribute
+     * @param bucketsCount the number of buckets of the attribute (the cap on its number of distinct values)
+     */
+    public void addAttribute(String attributeName, int bucketsCount) {
+        if (bucketsCount < 1)
+            throw new IllegalArgumentException("The number of buckets must be positive, not " + bucketsCount);
+        Integer attributeIndex = attributeIndexes.get(attributeName);
+        if (attributeIndex != null) {
+            bucketsCounts.set(attributeIndex, bucketsCount);
+        }
+        else {
+            attributeIndexes.put(attributeName, attributeNames.size());
+            attributeNames.add(attributeName);
+            bucketsCounts.add(bucketsCount);
+        }
+    }
+
+    /**
+     * Hash the CATEGORICAL columns of a schema that have more than maximumCardinality distinct values (in the sample of the schema)
+     * Nothing is selected if maximumCardinality is not positive
+     * @param schema the schema
+     * @param outcomeAttributeName the name of the outcome attribute, which is never hashed (null if it is not known)
+     */
+    public void selectAttributes(Schema schema, String outcomeAttributeName) {
+        if (maximumCardinality <= 0)
+            return;
+        for (String columnName : schema.getColumnNames())
+            if (!columnName.equals(outcomeAttributeName) && !contains(columnName)
+                    && !schema.isNumeric(columnName) && schema.getCardinality(columnName) > maximumCardinality)
+                addAttribute(columnName, defaultBucketsCount);
+    }
+
+    /**
+     * Hash the attributes of a dataset that have more than maximumCardinality distinct values
+     * The outcome attribute and the continuous valued attributes are never selected
+     * Nothing is selected if maximumCardinality is not positive
+     * @param dataset the dataset
+     */
+    public void selectAttributes(Dataset dataset) {
+        if (maximumCardinality <= 0 || dataset.getObservations().isEmpty())
+            return;
+        List<String> continuousValuedAttributes = dataset.getContinuousValuedAttributes();
+
+        for (Attribute attribute : dataset.getObservations().get(0).getAttributes()) {
+            String attributeName = attribute.getAttributeName();
+            if (attributeName.equals(dataset.getOutcomeAttributeName()) || contains(attributeName)
+                    || (continuousValuedAttributes != null && continuousValuedAttributes.contains(attributeName)))
+                continue;
+
+            //Stop counting as soon as the attribute is known to be above the limit
+            Set<String> distinctValues = new HashSet<>();
+            for (Instance observation : dataset.getObservations()) {
+                Attribute observationAttribute = observation.getAttributeByName(attributeName);
+                if (observationAttribute != null && distinctValues.add(observationAttribute.getAttributeValue())
+                        && distinctValues.size() > maximumCardinality)
+                    break;
+            }
+            if (distinctValues.size() > maximumCardinality)
+                addAttribute(attributeName, defaultBucketsCount);
+        }
+    }
+
+    /**
+     * Get the names of the hashed attributes
+     * @return the names of the hashed attributes, in the order of their indexes
+     */
+    public List<String> getAttributeNames() {
+        return attributeNames;
+    }
+
+    /**
+     * Get the number of hashed attributes
+     * @return the number of hashed attributes
+     */
+    public int getAttributesCount() {
+        return attributeNames.size();
+    }
+
+    /**
+     * Get the index of a hashed attribute
+     * @param attributeName the name of the attribute
+     * @return the index of the attribute, -1 if the attribute is not hashed
+     */
+    public int getAttributeIndex(String attributeName) {
+        Integer attributeIndex = attributeIndexes.get(attributeName);
+        return attributeIndex != null ? attributeIndex : -1;
+    }
+
+    /**
+     * Check if an attribute is hashed
+     * @param attributeName the name of the attribute
+     * @return true if the attribute is hashed
+     */
+    public boolean contains(String attributeName) {
+        return attributeIndexes.containsKey(attributeName);
+    }
+
+    /**
+     * Get the number of buckets of a hashed attribute
+     * @param attributeIndex the index of the attribute
+     * @return the number of buckets
+     */
+    public int getBucketsCount(int attributeIndex) {
+        return bucketsCounts.get(attributeIndex);
+    }
+
+    /**
+     * Get the bucket of a value
+     * The hash of the value (String.hashCode, which is the same on every JVM) is mixed with the hash of the attribute name,
+     * so two attributes do not put the same values in the same buckets
+     * @param attributeIndex the index of the attribute
+     * @param value the value
+     * @return the bucket of the value, between 0 and the number of buckets of the attribute - 1
+     */
+    public int getBucket(int attributeIndex, String value) {
+        int hash = value.hashCode() * 0x9E3779B9 + attributeNames.get(attributeIndex).hashCode();
+        //The finalizer of MurmurHash3, so close values do not fall in close buckets
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, bucketsCounts.get(attributeIndex));
+    }
+
+    /**
+     * Get the label of a bucket, such as "#17"
+     * @param bucket the bucket
+     * @return the label of the bucket
+     */
+    public static String getBucketLabel(int bucket) {
+        return BUCKET_LABEL_PREFIX + bucket;
+    }
+
+    /**
+     * Create the hashed copy of an observation, to be scored: the values of the hashed attributes are replaced by the labels of their buckets
+     * The collisions are not counted
+     * @param observation the observation
+     * @return the hashed observation; the other Attributes are shared with the observation
+     */
+    public Instance transform(Instance observation) {
+        List<Attribute> attributes = new ArrayList<>(observation.getAttributes().size());
+        for (Attribute attribute : observation.getAttributes()) {
+            int attributeIndex = getAttributeIndex(attribute.getAttributeName());
+            if (attributeIndex < 0)
+                attributes.add(attribute);
+            else
+                attributes.add(new Attribute(attribute.getAttributeName(), getBucketLabel(getBucket(attributeIndex, attribute.getAttributeValue()))));
+        }
+        return new Instance(attributes, observation.getWeight());
+    }
+
+    /**
+     * Create the hashed copy of a dataset, counting the collisions (and reporting them to Metrics, if it is on)
+     * The attributes with too many distinct values are selected first (see selectAttributes)
+     * @param dataset the dataset
+     * @return the hashed dataset, with its observations in the same order
+     */
+    public Dataset transform(Dataset dataset) {
+        selectAttributes(dataset);
+        startCounting();
+
+        String[][] bucketLabels = new String[attributeNames.size()][];
+        for (int attributeIndex = 0; attributeIndex < bucketLabels.length; ++attributeIndex)
+            bucketLabels[attributeIndex] = new String[bucketsCounts.get(attributeIndex)];
+
+        Dataset hashedDataset = new Dataset(new ArrayList<Instance>(dataset.getObservations().size()), dataset.getOutcomeAttributeName());
+        hashedDataset.setContinuousValuedAttributes(dataset.getContinuousValuedAttributes());
+        hashedDataset.setSchema(dataset.getSchema());
+        for (Instance observation : dataset.getObservations()) {
+            List<Attribute> attributes = new ArrayList<>(observation.getAttributes().size());
+            for (Attribute attribute : observation.getAttributes()) {
+                int attributeIndex = getAttributeIndex(attribute.getAttributeName());
+                if (attributeIndex < 0 || attribute.getAttributeName().equals(dataset.getOutcomeAttributeName())) {
+                    attributes.add(attribute);
+                    continue;
+                }
+                int bucket = hash(attributeIndex, attribute.getAttributeValue());
+                if (bucketLabels[attributeIndex][bucket] == null)
+                    bucketLabels[attributeIndex][bucket] = getBucketLabel(bucket);
+                attributes.add(new Attribute(attribute.getAttributeName(), bucketLabels[attributeIndex][bucket]));
+            }
+            hashedDataset.addObservation(new Instance(attributes, observation.getWeight()));
+        }
+
+        reportCollisions();
+        return hashedDataset;
+    }
+
+    /**
+     * Start counting the collisions of a new dataset
+     * The counters use one slot per bucket, whatever the number of distinct values
+     */
+    public void startCounting() {
+        firstBucketValues = new ArrayList<>();
+        collidingBuckets = new ArrayList<>();
+        for (int bucketsCount : bucketsCounts) {
+            firstBucketValues.add(new String[bucketsCount]);
+            collidingBuckets.add(new boolean[bucketsCount]);
+        }
+        hashedRowsCounts = new long[attributeNames.size()];
+        collidedRowsCounts = new long[attributeNames.size()];
+        collidingBucketsCounts = new int[attributeNames.size()];
+    }
+
+    /**
+     * Get the bucket of a value of the dataset being hashed, and count the collision if the bucket already holds another value
+     * @param attributeIndex the index of the attribute
+     * @param value the value
+     * @return the bucket of the value
+     */
+    public int hash(int attributeIndex, String value) {
+        int bucket = getBucket(attributeIndex, value);
+        if (hashedRowsCounts == null)
+            startCounting();
+
+        ++hashedRowsCounts[attributeIndex];
+        String[] firstValues = firstBucketValues.get(attributeIndex);
+        if (firstValues[bucket] == null) {
+            firstValues[bucket] = value;
+        }
+        else if (!firstValues[bucket].equals(value)) {
+            ++collidedRowsCounts[attributeIndex];
+            boolean[] colliding = collidingBuckets.get(attributeIndex);
+            if (!colliding[bucket]) {
+                colliding[bucket] = true;
+                ++collidingBucketsCounts[attributeIndex];
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * Get the number of hashed values of an attribute, in the last hashed dataset
+     * @param attributeIndex the index of the attribute
+     * @return the number of hashed rows
+     */
+    public long getHashedRowsCount(int attributeIndex) {
+        return hashedRowsCounts != null && attributeIndex < hashedRowsCounts.length ? hashedRowsCounts[attributeIndex] : 0;
+    }
+
+    /**
+     * Get the number of rows whose value shares its bucket with another value (that was seen first), in the last hashed dataset
+     * @param attributeIndex the index of the attribute
+     * @return the number of collided rows
+     */
+    public long getCollidedRowsCount(int attributeIndex) {
+        return collidedRowsCounts != null && attributeIndex < collidedRowsCounts.length ? collidedRowsCounts[attributeIndex] : 0;
+    }
+
+    /**
+     * Get the number of buckets that received more than one value, in the last hashed dataset
+     * @param attributeIndex the index of the attribute
+     * @return the number of colliding buckets
+     */
+    public int getCollidingBucketsCount(int attributeIndex) {
+        return collidingBucketsCounts != null && attributeIndex < collidingBucketsCounts.length ? collidingBucketsCounts[attributeIndex] : 0;
+    }
+
+    /**
+     * Report the collisions of the last hashed dataset to Metrics, if it is on
+     */
+    public void reportCollisions() {
+        if (!Metrics.isEnabled() || hashedRowsCounts == null)
+            return;
+        for (int attributeIndex = 0; attributeIndex < hashedRowsCounts.length; ++attributeIndex)
+            Metrics.recordFeatureHashing(attributeNames.get(attributeIndex), bucketsCounts.get(attributeIndex),
+                    hashedRowsCounts[attributeIndex], collidingBucketsCounts[attributeIndex], collidedRowsCounts[attributeIndex]);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder returnString = new StringBuilder("FeatureHasher{");
+        for (int attributeIndex = 0; attributeIndex < attributeNames.size(); ++attributeIndex) {
+            if (attributeIndex > 0)
+                returnString.append(", ");
+            returnString.append(attributeNames.get(attributeIndex)).append('=').append(bucketsCounts.get(attributeIndex))
+                    .append(" buckets (").append(getCollidingBucketsCount(attributeIndex)).append(" colliding)");
+        }
+        return returnString.append('}').toString();
+    }
+}
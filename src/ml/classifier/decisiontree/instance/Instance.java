@@ -9,11 +9,13 @@ import java.util.List;
  * This class models an Instance of data
  * An instance of data represents a row in the dataset
  * A row in the dataset is actually an array of (attribute name, attribute value)
+ * An instance has a weight: the number of identical rows it stands for (1 for a plain row, more after Dataset.collapseDuplicates)
  * Created by virgil on 29.10.2015.
  */
 public class Instance {
 
     private List<Attribute> attributes;
+    private int weight;
 
     /**
      * The Instance default constructor
@@ -21,6 +23,7 @@ public class Instance {
      */
     public Instance() {
         attributes = new ArrayList<>();
+        weight = 1;
     }
 
     /**
@@ -28,7 +31,17 @@ public class Instance {
      * @param attributes the list of attributes that give the current Instance
      */
     public Instance(List<Attribute> attributes) {
+        this(attributes, 1);
+    }
+
+    /**
+     * The Instance constructor
+     * @param attributes the list of attributes that give the current Instance
+     * @param weight the number of identical rows the Instance stands for
+     */
+    public Instance(List<Attribute> attributes, int weight) {
         this.attributes = attributes;
+        this.weight = weight;
     }
 
     /**
@@ -47,6 +60,22 @@ public class Instance {
         this.attributes = attributes;
     }
 
+    /**
+     * Get the weight of this Instance
+     * @return the number of identical rows the Instance stands for
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Set the weight of this Instance
+     * @param weight the new weight
+     */
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
     /**
      * Add a new Attribute to the list of attributes
      * @param attribute the new attribute to add
@@ -80,6 +109,8 @@ public class Instance {
         for (Attribute attribute : attributes) {
             returnString += attribute.toString() + " ";
         }
+        if (weight != 1)
+            returnString += "weight=" + weight + " ";
         returnString += "}";
 
         return returnString;
@@ -0,0 +1,387 @@
+package ml.classifier.decisiontree.instance;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class models a QuantileSketch
+ * A QuantileSketch is a KLL sketch (Karnin, Lang, Liberty, 2016): it reads a stream of values once and answers quantile queries
+ * with an approximate rank, using a bounded memory (about 3 * k values, plus one value per level) whatever the number of values
+ *
+ * The values are kept in a hierarchy of compactors; the values of level h stand for 2^h values of the stream
+ * When a compactor is full, it is sorted and every other value (starting at a random offset) moves to the next level
+ * Sketches built on different parts of a stream (partitions, threads) are merged with merge(), level by level
+ *
+ * The random offsets come from a seeded generator, so the same stream (and the same merges) always give the same sketch
+ */
+public class QuantileSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_K = 200;
+
+    //The capacity of a level shrinks by this factor for every level below the top one
+    private static final double CAPACITY_FACTOR = 2.0 / 3.0;
+    private static final int MINIMUM_CAPACITY = 2;
+
+    private int k;
+    private List<double[]> compactors;
+    private List<Integer> compactorSizes;
+    private int retainedCount;
+    private int maximumRetainedCount;
+    private long count;
+    private double minimum;
+    private double maximum;
+    private Random random;
+
+    /**
+     * The QuantileSketch default constructor
+     * Creates a sketch with k = DEFAULT_K (a rank error of about 1%)
+     */
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * The QuantileSketch constructor
+     * @param k the capacity of the top compactor; the rank error is about 2 / k
+     */
+    public QuantileSketch(int k) {
+        this(k, 42);
+    }
+
+    /**
+     * The QuantileSketch constructor
+     * @param k the capacity of the top compactor; the rank error is about 2 / k
+     * @param seed the seed of the random offsets of the compactions
+     */
+    public QuantileSketch(int k, long seed) {
+        if (k < MINIMUM_CAPACITY)
+            throw new IllegalArgumentException("k must be at least " + MINIMUM_CAPACITY + ", not " + k);
+        this.k = k;
+        this.compactors = new ArrayList<>();
+        this.compactorSizes = new ArrayList<>();
+        this.retainedCount = 0;
+        this.maximumRetainedCount = 0;
+        this.count = 0;
+        this.minimum = Double.NaN;
+        this.maximum = Double.NaN;
+        this.random = new Random(seed);
+        grow();
+    }
+
+    /**
+     * Create a sketch for a given rank error
+     * @param rankError the wanted rank error, between 0 and 1 (0.01 means that a quantile is off by about 1% of the values)
+     * @return the new sketch
+     */
+    public static QuantileSketch forRankError(double rankError) {
+        return forRankError(rankError, 42);
+    }
+
+    /**
+     * Create a sketch for a given rank error
+     * The sketches of different partitions of a stream should have different seeds
+     * @param rankError the wanted rank error, between 0 and 1 (0.01 means that a quantile is off by about 1% of the values)
+     * @param seed the seed of the random offsets of the compactions
+     * @return the new sketch
+     */
+    public static QuantileSketch forRankError(double rankError, long seed) {
+        if (!(rankError > 0 && rankError < 1))
+            throw new IllegalArgumentException("The rank error must be between 0 and 1, not " + rankError);
+        return new QuantileSketch(Math.max(MINIMUM_CAPACITY, (int) Math.ceil(2 / rankError)), seed);
+    }
+
+    /**
+     * Get the capacity of the top compactor
+     * @return k
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Get the number of values read by the sketch (including the values of the merged sketches)
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the number of values kept by the sketch
+     * @return the number of retained values
+     */
+    public int getRetainedCount() {
+        return retainedCount;
+    }
+
+    /**
+     * Get the smallest value read by the sketch
+     * @return the minimum, NaN if the sketch is empty
+     */
+    public double getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * Get the biggest value read by the sketch
+     * @return the maximum, NaN if the sketch is empty
+     */
+    public double getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Check if the sketch has not read any value
+     * @return true if the sketch is empty
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Read a value
+     * NaN values are ignored
+     * @param value the value
+     */
+    public void update(double value) {
+        if (Double.isNaN(value))
+            return;
+        if (count == 0 || value < minimum)
+            minimum = value;
+        if (count == 0 || value > maximum)
+            maximum = value;
+        ++count;
+
+        add(0, value);
+        if (retainedCount >= maximumRetainedCount)
+            compress();
+    }
+
+    /**
+     * Add the values of another sketch to this one
+     * The other sketch is not changed
+     * @param other the other sketch
+     */
+    public void merge(QuantileSketch other) {
+        if (other.isEmpty())
+            return;
+        while (compactors.size() < other.compactors.size())
+            grow();
+
+        for (int level = 0; level < other.compactors.size(); ++level) {
+            double[] otherCompactor = other.compactors.get(level);
+            for (int index = 0; index < other.compactorSizes.get(level); ++index)
+                add(level, otherCompactor[index]);
+        }
+
+        minimum = count == 0 ? other.minimum : Math.min(minimum, other.minimum);
+        maximum = count == 0 ? other.maximum : Math.max(maximum, other.maximum);
+        count += other.count;
+
+        while (retainedCount >= maximumRetainedCount)
+            compress();
+    }
+
+    /**
+     * Get the approximate rank of a value
+     * @param value the value
+     * @return the approximate fraction of the values that are smaller than the value
+     */
+    public double getRank(double value) {
+        if (count == 0)
+            return Double.NaN;
+        long smallerWeight = 0;
+        for (int level = 0; level < compactors.size(); ++level) {
+            double[] compactor = compactors.get(level);
+            for (int index = 0; index < compactorSizes.get(level); ++index)
+                if (compactor[index] < value)
+                    smallerWeight += 1L << level;
+        }
+        return (smallerWeight + 0.0) / count;
+    }
+
+    /**
+     * Get the approximate quantile of a rank
+     * @param rank the rank, between 0 and 1 (0.5 is the median)
+     * @return the smallest retained value whose rank is at least the given one, NaN if the sketch is empty
+     */
+    public double getQuantile(double rank) {
+        return getQuantiles(new double[] { rank })[0];
+    }
+
+    /**
+     * Get the approximate quantiles of some ranks
+     * The retained values are sorted only once for all the ranks
+     * @param ranks the ranks, between 0 and 1
+     * @return the quantiles, in the order of the ranks
+     */
+    public double[] getQuantiles(double[] ranks) {
+        double[] quantiles = new double[ranks.length];
+        if (count == 0) {
+            Arrays.fill(quantiles, Double.NaN);
+            return quantiles;
+        }
+
+        //Sort the retained values together with their weights
+        int retained = retainedCount;
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        sortRetainedValues(values, weights);
+
+        long[] cumulativeWeights = new long[retained];
+        long cumulativeWeight = 0;
+        for (int index = 0; index < retained; ++index) {
+            cumulativeWeight += weights[index];
+            cumulativeWeights[index] = cumulativeWeight;
+        }
+
+        for (int query = 0; query < ranks.length; ++query) {
+            double rank = ranks[query];
+            if (rank <= 0) {
+                quantiles[query] = minimum;
+            }
+            else if (rank >= 1) {
+                quantiles[query] = maximum;
+            }
+            else {
+                long wantedWeight = (long) Math.ceil(rank * cumulativeWeight);
+                int index = Arrays.binarySearch(cumulativeWeights, wantedWeight);
+                quantiles[query] = values[index >= 0 ? index : Math.min(-index - 1, retained - 1)];
+            }
+        }
+        return quantiles;
+    }
+
+    /**
+     * Get candidate thresholds that split the values in buckets of (about) the same size
+     * The thresholds are the quantiles of the ranks 1 / (bucketsCount), 2 / (bucketsCount), ..., without duplicates and without the minimum,
+     * so no bucket is empty by construction; a bucket holds the values between two thresholds (see Discretizer.getInterval)
+     * @param bucketsCount the wanted number of buckets
+     * @return the sorted, distinct thresholds (at most bucketsCount - 1)
+     */
+    public double[] getCandidateThresholds(int bucketsCount) {
+        if (count == 0 || bucketsCount < 2)
+            return new double[0];
+
+        double[] ranks = new double[bucketsCount - 1];
+        for (int bucket = 1; bucket < bucketsCount; ++bucket)
+            ranks[bucket - 1] = (bucket + 0.0) / bucketsCount;
+        double[] quantiles = getQuantiles(ranks);
+
+        double[] thresholds = new double[quantiles.length];
+        int thresholdsCount = 0;
+        for (double quantile : quantiles)
+            if (quantile > minimum && (thresholdsCount == 0 || quantile > thresholds[thresholdsCount - 1]))
+                thresholds[thresholdsCount++] = quantile;
+        return Arrays.copyOf(thresholds, thresholdsCount);
+    }
+
+    /**
+     * Add a new level on top of the compactors
+     */
+    private void grow() {
+        compactors.add(new double[capacity(compactors.size(), compactors.size() + 1) + 1]);
+        compactorSizes.add(0);
+
+        maximumRetainedCount = 0;
+        for (int level = 0; level < compactors.size(); ++level)
+            maximumRetainedCount += capacity(level, compactors.size());
+    }
+
+    /**
+     * Get the capacity of a level
+     * @param level the level
+     * @param levelsCount the number of levels
+     * @return the capacity of the level
+     */
+    private int capacity(int level, int levelsCount) {
+        int depth = levelsCount - level - 1;
+        return Math.max(MINIMUM_CAPACITY, (int) Math.ceil(Math.pow(CAPACITY_FACTOR, depth) * k));
+    }
+
+    /**
+     * Add a value to a compactor, growing its array if needed
+     * @param level the level of the compactor
+     * @param value the value
+     */
+    private void add(int level, double value) {
+        double[] compactor = compactors.get(level);
+        int size = compactorSizes.get(level);
+        if (size == compactor.length) {
+            compactor = Arrays.copyOf(compactor, Math.max(MINIMUM_CAPACITY, compactor.length * 2));
+            compactors.set(level, compactor);
+        }
+        compactor[size] = value;
+        compactorSizes.set(level, size + 1);
+        ++retainedCount;
+    }
+
+    /**
+     * Compact the lowest full compactor: half of its values move to the next level, with a doubled weight
+     */
+    private void compress() {
+        for (int level = 0; level < compactors.size(); ++level) {
+            int size = compactorSizes.get(level);
+            if (size < capacity(level, compactors.size()))
+                continue;
+            if (level + 1 == compactors.size())
+                grow();
+
+            double[] compactor = compactors.get(level);
+            Arrays.sort(compactor, 0, size);
+
+            //An odd value stays at its level, so the total weight does not change
+            int compactedCount = size - size % 2;
+            int offset = random.nextBoolean() ? 1 : 0;
+            for (int index = offset; index < compactedCount; index += 2)
+                add(level + 1, compactor[index]);
+            if (compactedCount < size)
+                compactor[0] = compactor[size - 1];
+            compactorSizes.set(level, size - compactedCount);
+            retainedCount -= compactedCount;
+            return;
+        }
+    }
+
+    /**
+     * Get the retained values sorted by value, with their weights
+     * The values of a level have the same weight, so every level is sorted on its own and the sorted levels are merged
+     * (on equal values, the lower level comes first)
+     * @param values the array that receives the sorted values (retainedCount values)
+     * @param weights the array that receives the weights of the sorted values
+     */
+    private void sortRetainedValues(double[] values, long[] weights) {
+        int levelsCount = compactors.size();
+        double[][] sortedLevels = new double[levelsCount][];
+        int[] positions = new int[levelsCount];
+        for (int level = 0; level < levelsCount; ++level) {
+            sortedLevels[level] = Arrays.copyOf(compactors.get(level), compactorSizes.get(level));
+            Arrays.sort(sortedLevels[level]);
+        }
+
+        for (int index = 0; index < retainedCount; ++index) {
+            int smallestLevel = -1;
+            for (int level = 0; level < levelsCount; ++level)
+                if (positions[level] < sortedLevels[level].length && (smallestLevel < 0
+                        || sortedLevels[level][positions[level]] < sortedLevels[smallestLevel][positions[smallestLevel]]))
+                    smallestLevel = level;
+            values[index] = sortedLevels[smallestLevel][positions[smallestLevel]++];
+            weights[index] = 1L << smallestLevel;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileSketch{" +
+                "k=" + k +
+                ", count=" + count +
+                ", retainedCount=" + retainedCount +
+                ", levels=" + compactors.size() +
+                '}';
+    }
+}
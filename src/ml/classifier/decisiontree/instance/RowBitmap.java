@@ -0,0 +1,576 @@
+package ml.classifier.decisiontree.instance;
+
+import java.util.Arrays;
+
+/**
+ * This class models a RowBitmap
+ * A RowBitmap is a compressed set of row indexes, in the manner of a Roaring bitmap (Chambi, Lemire et al., 2016):
+ * the rows are grouped by their 16 high bits, and every group of 65536 rows is stored in a container that fits its density:
+ * a sorted array of the 16 low bits if the group has at most 4096 rows, or a bitmap of 1024 words otherwise
+ *
+ * The set operations work container by container: two bitmaps are combined with word-parallel operations,
+ * and the counts of an intersection (andCardinality) are popcounts that do not create the intersection
+ * A RowBitmap is immutable; the operations create new RowBitmaps
+ */
+public class RowBitmap {
+
+    //A container with more rows than this is a bitmap
+    private static final int MAXIMUM_ARRAY_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys;
+    //Every container is either a char[] (sorted low bits) or a long[] of BITMAP_WORDS words
+    private Object[] containers;
+    private int[] cardinalities;
+    private int size;
+    private int cardinality;
+
+    /**
+     * The RowBitmap constructor
+     * Creates an empty bitmap with room for some containers
+     * @param capacity the number of containers that can be added without growing the arrays
+     */
+    private RowBitmap(int capacity) {
+        this.keys = new char[Math.max(1, capacity)];
+        this.containers = new Object[Math.max(1, capacity)];
+        this.cardinalities = new int[Math.max(1, capacity)];
+        this.size = 0;
+        this.cardinality = 0;
+    }
+
+    /**
+     * Create an empty bitmap
+     * @return the empty bitmap
+     */
+    public static RowBitmap empty() {
+        return new RowBitmap(1);
+    }
+
+    /**
+     * Create the bitmap of the rows 0, 1, ..., rowsCount - 1
+     * @param rowsCount the number of rows
+     * @return the bitmap of all the rows
+     */
+    public static RowBitmap range(int rowsCount) {
+        RowBitmap bitmap = new RowBitmap((rowsCount >>> 16) + 1);
+        for (int start = 0; start < rowsCount; start += 1 << 16) {
+            int groupSize = Math.min(1 << 16, rowsCount - start);
+            if (groupSize > MAXIMUM_ARRAY_SIZE) {
+                long[] words = new long[BITMAP_WORDS];
+                Arrays.fill(words, 0, groupSize >>> 6, -1L);
+                if ((groupSize & 63) != 0)
+                    words[groupSize >>> 6] = (1L << (groupSize & 63)) - 1;
+                bitmap.append((char) (start >>> 16), words, groupSize);
+            }
+            else {
+                char[] values = new char[groupSize];
+                for (int low = 0; low < groupSize; ++low)
+                    values[low] = (char) low;
+                bitmap.append((char) (start >>> 16), values, groupSize);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Create the bitmap of some rows
+     * @param sortedRows the rows, sorted in increasing order, without duplicates
+     * @param rowsCount the number of rows to be read from sortedRows
+     * @return the bitmap of the rows
+     */
+    public static RowBitmap of(int[] sortedRows, int rowsCount) {
+        RowBitmap bitmap = new RowBitmap(4);
+        int start = 0;
+        while (start < rowsCount) {
+            int high = sortedRows[start] >>> 16;
+            int end = start;
+            while (end < rowsCount && (sortedRows[end] >>> 16) == high)
+                ++end;
+
+            int groupSize = end - start;
+            if (groupSize > MAXIMUM_ARRAY_SIZE) {
+                long[] words = new long[BITMAP_WORDS];
+                for (int index = start; index < end; ++index)
+                    words[(sortedRows[index] & 0xFFFF) >>> 6] |= 1L << sortedRows[index];
+                bitmap.append((char) high, words, groupSize);
+            }
+            else {
+                char[] values = new char[groupSize];
+                for (int index = start; index < end; ++index)
+                    values[index - start] = (char) sortedRows[index];
+                bitmap.append((char) high, values, groupSize);
+            }
+            start = end;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Create the bitmap of some rows
+     * @param sortedRows the rows, sorted in increasing order, without duplicates
+     * @return the bitmap of the rows
+     */
+    public static RowBitmap of(int[] sortedRows) {
+        return of(sortedRows, sortedRows.length);
+    }
+
+    /**
+     * Get the number of rows of the bitmap
+     * @return the number of rows
+     */
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Check if the bitmap has no row
+     * @return true if the bitmap is empty
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Check if the bitmap has a row
+     * @param row the row
+     * @return true if the row is in the bitmap
+     */
+    public boolean contains(int row) {
+        int containerIndex = findKey((char) (row >>> 16));
+        if (containerIndex < 0)
+            return false;
+        Object container = containers[containerIndex];
+        if (container instanceof long[])
+            return (((long[]) container)[(row & 0xFFFF) >>> 6] & (1L << row)) != 0;
+        return Arrays.binarySearch((char[]) container, (char) row) >= 0;
+    }
+
+    /**
+     * Get the approximate memory used by the containers
+     * @return the size of the containers, in bytes
+     */
+    public long getSizeInBytes() {
+        long bytes = 0;
+        for (int containerIndex = 0; containerIndex < size; ++containerIndex) {
+            Object container = containers[containerIndex];
+            bytes += container instanceof long[] ? 8L * BITMAP_WORDS : 2L * ((char[]) container).length;
+        }
+        return bytes + 8L * size;
+    }
+
+    /**
+     * Get the rows of the bitmap
+     * @return the rows, in increasing order
+     */
+    public int[] toArray() {
+        int[] rows = new int[cardinality];
+        int rowsCount = 0;
+        for (int containerIndex = 0; containerIndex < size; ++containerIndex) {
+            int high = keys[containerIndex] << 16;
+            Object container = containers[containerIndex];
+            if (container instanceof long[]) {
+                long[] words = (long[]) container;
+                for (int wordIndex = 0; wordIndex < BITMAP_WORDS; ++wordIndex) {
+                    long word = words[wordIndex];
+                    while (word != 0) {
+                        rows[rowsCount++] = high | (wordIndex << 6) | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            }
+            else {
+                for (char low : (char[]) container)
+                    rows[rowsCount++] = high | low;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Get the sum of the weights of the rows of the bitmap
+     * @param weights the weights of all the rows
+     * @return the total weight of the rows of the bitmap
+     */
+    public long getWeightedCardinality(int[] weights) {
+        long weight = 0;
+        for (int row : toArray())
+            weight += weights[row];
+        return weight;
+    }
+
+    /**
+     * Get the intersection of this bitmap and another one
+     * @param other the other bitmap
+     * @return the rows that are in both bitmaps
+     */
+    public RowBitmap and(RowBitmap other) {
+        RowBitmap result = new RowBitmap(Math.min(size, other.size));
+        int index = 0;
+        int otherIndex = 0;
+        while (index < size && otherIndex < other.size) {
+            if (keys[index] < other.keys[otherIndex]) {
+                ++index;
+            }
+            else if (keys[index] > other.keys[otherIndex]) {
+                ++otherIndex;
+            }
+            else {
+                result.appendNonEmpty(keys[index], and(containers[index], other.containers[otherIndex]));
+                ++index;
+                ++otherIndex;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of rows of the intersection of this bitmap and another one, without creating the intersection
+     * @param other the other bitmap
+     * @return the number of rows that are in both bitmaps
+     */
+    public int andCardinality(RowBitmap other) {
+        int count = 0;
+        int index = 0;
+        int otherIndex = 0;
+        while (index < size && otherIndex < other.size) {
+            if (keys[index] < other.keys[otherIndex]) {
+                ++index;
+            }
+            else if (keys[index] > other.keys[otherIndex]) {
+                ++otherIndex;
+            }
+            else {
+                count += andCardinality(containers[index], other.containers[otherIndex]);
+                ++index;
+                ++otherIndex;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the union of this bitmap and another one
+     * @param other the other bitmap
+     * @return the rows that are in one of the bitmaps
+     */
+    public RowBitmap or(RowBitmap other) {
+        RowBitmap result = new RowBitmap(size + other.size);
+        int index = 0;
+        int otherIndex = 0;
+        while (index < size || otherIndex < other.size) {
+            if (otherIndex == other.size || (index < size && keys[index] < other.keys[otherIndex])) {
+                result.append(keys[index], containers[index], cardinalities[index]);
+                ++index;
+            }
+            else if (index == size || keys[index] > other.keys[otherIndex]) {
+                result.append(other.keys[otherIndex], other.containers[otherIndex], other.cardinalities[otherIndex]);
+                ++otherIndex;
+            }
+            else {
+                result.appendNonEmpty(keys[index], or(containers[index], other.containers[otherIndex]));
+                ++index;
+                ++otherIndex;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the difference of this bitmap and another one
+     * @param other the other bitmap
+     * @return the rows of this bitmap that are not in the other one
+     */
+    public RowBitmap andNot(RowBitmap other) {
+        RowBitmap result = new RowBitmap(size);
+        int otherIndex = 0;
+        for (int index = 0; index < size; ++index) {
+            while (otherIndex < other.size && other.keys[otherIndex] < keys[index])
+                ++otherIndex;
+            if (otherIndex < other.size && other.keys[otherIndex] == keys[index])
+                result.appendNonEmpty(keys[index], andNot(containers[index], other.containers[otherIndex]));
+            else
+                result.append(keys[index], containers[index], cardinalities[index]);
+        }
+        return result;
+    }
+
+    /**
+     * Find the container of a key
+     * @param key the 16 high bits of a row
+     * @return the index of the container, negative if there is no container for the key
+     */
+    private int findKey(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * Add a container after the last one
+     * The containers are shared between bitmaps, as they are never changed
+     * @param key the key of the container, bigger than the last key
+     * @param container the container
+     * @param containerCardinality the number of rows of the container
+     */
+    private void append(char key, Object container, int containerCardinality) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+            cardinalities = Arrays.copyOf(cardinalities, size * 2);
+        }
+        keys[size] = key;
+        containers[size] = container;
+        cardinalities[size] = containerCardinality;
+        ++size;
+        cardinality += containerCardinality;
+    }
+
+    /**
+     * Add a container after the last one, unless it is empty
+     * A bitmap container with few rows is turned into an array container
+     * @param key the key of the container, bigger than the last key
+     * @param container the container
+     */
+    private void appendNonEmpty(char key, Object container) {
+        if (container instanceof long[]) {
+            long[] words = (long[]) container;
+            int containerCardinality = 0;
+            for (long word : words)
+                containerCardinality += Long.bitCount(word);
+            if (containerCardinality == 0)
+                return;
+            if (containerCardinality <= MAXIMUM_ARRAY_SIZE)
+                append(key, toArrayContainer(words, containerCardinality), containerCardinality);
+            else
+                append(key, words, containerCardinality);
+        }
+        else {
+            char[] values = (char[]) container;
+            if (values.length > 0)
+                append(key, values, values.length);
+        }
+    }
+
+    /**
+     * Turn a bitmap container into an array container
+     * @param words the words of the bitmap
+     * @param containerCardinality the number of set bits
+     * @return the sorted low bits
+     */
+    private static char[] toArrayContainer(long[] words, int containerCardinality) {
+        char[] values = new char[containerCardinality];
+        int valuesCount = 0;
+        for (int wordIndex = 0; wordIndex < BITMAP_WORDS; ++wordIndex) {
+            long word = words[wordIndex];
+            while (word != 0) {
+                values[valuesCount++] = (char) ((wordIndex << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Intersect two containers
+     * @param container a container
+     * @param otherContainer another container
+     * @return the intersection (a bitmap container only if both are bitmaps)
+     */
+    private static Object and(Object container, Object otherContainer) {
+        if (container instanceof long[] && otherContainer instanceof long[]) {
+            long[] words = (long[]) container;
+            long[] otherWords = (long[]) otherContainer;
+            long[] result = new long[BITMAP_WORDS];
+            for (int wordIndex = 0; wordIndex < BITMAP_WORDS; ++wordIndex)
+                result[wordIndex] = words[wordIndex] & otherWords[wordIndex];
+            return result;
+        }
+        if (container instanceof long[])
+            return and(otherContainer, container);
+
+        char[] values = (char[]) container;
+        char[] result = new char[values.length];
+        int resultCount = 0;
+        if (otherContainer instanceof long[]) {
+            long[] otherWords = (long[]) otherContainer;
+            for (char value : values)
+                if ((otherWords[value >>> 6] & (1L << value)) != 0)
+                    result[resultCount++] = value;
+        }
+        else {
+            char[] otherValues = (char[]) otherContainer;
+            int index = 0;
+            int otherIndex = 0;
+            while (index < values.length && otherIndex < otherValues.length) {
+                if (values[index] < otherValues[otherIndex]) {
+                    ++index;
+                }
+                else if (values[index] > otherValues[otherIndex]) {
+                    ++otherIndex;
+                }
+                else {
+                    result[resultCount++] = values[index];
+                    ++index;
+                    ++otherIndex;
+                }
+            }
+        }
+        return resultCount == result.length ? result : Arrays.copyOf(result, resultCount);
+    }
+
+    /**
+     * Count the rows of the intersection of two containers
+     * @param container a container
+     * @param otherContainer another container
+     * @return the number of rows in both containers
+     */
+    private static int andCardinality(Object container, Object otherContainer) {
+        if (container instanceof long[] && otherContainer instanceof long[]) {
+            long[] words = (long[]) container;
+            long[] otherWords = (long[]) otherContainer;
+            int count = 0;
+            for (int wordIndex = 0; wordIndex < BITMAP_WORDS; ++wordIndex)
+                count += Long.bitCount(words[wordIndex] & otherWords[wordIndex]);
+            return count;
+        }
+        if (container instanceof long[])
+            return andCardinality(otherContainer, container);
+
+        char[] values = (char[]) container;
+        int count = 0;
+        if (otherContainer instanceof long[]) {
+            long[] otherWords = (long[]) otherContainer;
+            for (char value : values)
+                if ((otherWords[value >>> 6] & (1L << value)) != 0)
+                    ++count;
+        }
+        else {
+            char[] otherValues = (char[]) otherContainer;
+            int index = 0;
+            int otherIndex = 0;
+            while (index < values.length && otherIndex < otherValues.length) {
+                if (values[index] < otherValues[otherIndex]) {
+                    ++index;
+                }
+                else if (values[index] > otherValues[otherIndex]) {
+                    ++otherIndex;
+                }
+                else {
+                    ++count;
+                    ++index;
+                    ++otherIndex;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Unite two containers
+     * @param container a container
+     * @param otherContainer another container
+     * @return the union (a bitmap container, turned into an array by appendNonEmpty if it is small)
+     */
+    private static Object or(Object container, Object otherContainer) {
+        if (container instanceof char[] && otherContainer instanceof char[]) {
+            char[] values = (char[]) container;
+            char[] otherValues = (char[]) otherContainer;
+            if (values.length + otherValues.length <= MAXIMUM_ARRAY_SIZE) {
+                char[] result = new char[values.length + otherValues.length];
+                int resultCount = 0;
+                int index = 0;
+                int otherIndex = 0;
+                while (index < values.length || otherIndex < otherValues.length) {
+                    if (otherIndex == otherValues.length || (index < values.length && values[index] < otherValues[otherIndex])) {
+                        result[resultCount++] = values[index++];
+                    }
+                    else if (index == values.length || values[index] > otherValues[otherIndex]) {
+                        result[resultCount++] = otherValues[otherIndex++];
+                    }
+                    else {
+                        result[resultCount++] = values[index];
+                        ++index;
+                        ++otherIndex;
+                    }
+                }
+                return resultCount == result.length ? result : Arrays.copyOf(result, resultCount);
+            }
+        }
+
+        long[] result = toBitmapContainer(container);
+        if (otherContainer instanceof long[]) {
+            long[] otherWords = (long[]) otherContainer;
+            for (int wordIndex = 0; wordIndex < BITMAP_WORDS; ++wordIndex)
+                result[wordIndex] |= otherWords[wordIndex];
+        }
+        else {
+            for (char value : (char[]) otherContainer)
+                result[value >>> 6] |= 1L << value;
+        }
+        return result;
+    }
+
+    /**
+     * Subtract a container from another one
+     * @param container the container
+     * @param otherContainer the container whose rows are removed
+     * @return the rows of the container that are not in the other one
+     */
+    private static Object andNot(Object container, Object otherContainer) {
+        if (container instanceof long[]) {
+            long[] result = ((long[]) container).clone();
+            if (otherContainer instanceof long[]) {
+                long[] otherWords = (long[]) otherContainer;
+                for (int wordIndex = 0; wordIndex < BITMAP_WORDS; ++wordIndex)
+                    result[wordIndex] &= ~otherWords[wordIndex];
+            }
+            else {
+                for (char value : (char[]) otherContainer)
+                    result[value >>> 6] &= ~(1L << value);
+            }
+            return result;
+        }
+
+        char[] values = (char[]) container;
+        char[] result = new char[values.length];
+        int resultCount = 0;
+        if (otherContainer instanceof long[]) {
+            long[] otherWords = (long[]) otherContainer;
+            for (char value : values)
+                if ((otherWords[value >>> 6] & (1L << value)) == 0)
+                    result[resultCount++] = value;
+        }
+        else {
+            char[] otherValues = (char[]) otherContainer;
+            int otherIndex = 0;
+            for (char value : values) {
+                while (otherIndex < otherValues.length && otherValues[otherIndex] < value)
+                    ++otherIndex;
+                if (otherIndex == otherValues.length || otherValues[otherIndex] != value)
+                    result[resultCount++] = value;
+            }
+        }
+        return resultCount == result.length ? result : Arrays.copyOf(result, resultCount);
+    }
+
+    /**
+     * Copy a container into a new bitmap container
+     * @param container the container
+     * @return the words of the bitmap
+     */
+    private static long[] toBitmapContainer(Object container) {
+        if (container instanceof long[])
+            return ((long[]) container).clone();
+        long[] words = new long[BITMAP_WORDS];
+        for (char value : (char[]) container)
+            words[value >>> 6] |= 1L << value;
+        return words;
+    }
+
+    @Override
+    public String toString() {
+        return "RowBitmap{" +
+                "cardinality=" + cardinality +
+                ", containers=" + size +
+                ", sizeInBytes=" + getSizeInBytes() +
+                '}';
+    }
+}
@@ -0,0 +1,193 @@
+package ml.classifier.decisiontree.instance;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class models a Schema
+ * A Schema knows the columns of a dataset: their names, their types (NUMERIC or CATEGORICAL) and their cardinalities
+ * It is inferred from a sample of the rows: a column is NUMERIC if all its sampled values are numbers
+ * and it has more distinct values than maximumCategoricalCardinality; otherwise it is CATEGORICAL (so small integer codes stay categorical)
+ * The inferred type of a column can be overridden with setColumnType
+ */
+public class Schema implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_SAMPLE_SIZE = 1000;
+    public static final int DEFAULT_MAXIMUM_CATEGORICAL_CARDINALITY = 32;
+
+    private List<String> columnNames;
+    private List<ColumnType> columnTypes;
+    private List<Integer> cardinalities;
+    private Map<String, Integer> columnIndexes;
+    private int sampledRows;
+
+    /**
+     * The Schema constructor
+     * Creates a schema in which all the columns are CATEGORICAL, with an unknown cardinality
+     * @param columnNames the names of the columns
+     */
+    public Schema(List<String> columnNames) {
+        this.columnNames = new ArrayList<>(columnNames);
+        this.columnTypes = new ArrayList<>();
+        this.cardinalities = new ArrayList<>();
+        this.columnIndexes = new HashMap<>();
+        for (int columnIndex = 0; columnIndex < columnNames.size(); ++columnIndex) {
+            this.columnTypes.add(ColumnType.CATEGORICAL);
+            this.cardinalities.add(-1);
+            this.columnIndexes.put(columnNames.get(columnIndex), columnIndex);
+        }
+        this.sampledRows = 0;
+    }
+
+    /**
+     * Infer the schema of a sample of rows
+     * Empty values are ignored (they are seen as missing values)
+     * @param columnNames the names of the columns
+     * @param sample the sampled rows; sample.get(row)[column] is a value
+     * @param maximumCategoricalCardinality a column of numbers with at most this many distinct values is CATEGORICAL
+     * @return the inferred schema
+     */
+    public static Schema infer(List<String> columnNames, List<String[]> sample, int maximumCategoricalCardinality) {
+        Schema schema = new Schema(columnNames);
+        schema.sampledRows = sample.size();
+
+        for (int columnIndex = 0; columnIndex < columnNames.size(); ++columnIndex) {
+            Set<String> distinctValues = new HashSet<>();
+            boolean numeric = true;
+            for (String[] row : sample) {
+                String value = row[columnIndex];
+                if (value.isEmpty())
+                    continue;
+                distinctValues.add(value);
+                if (numeric && !isNumber(value))
+                    numeric = false;
+            }
+
+            schema.cardinalities.set(columnIndex, distinctValues.size());
+            if (numeric && distinctValues.size() > maximumCategoricalCardinality)
+                schema.columnTypes.set(columnIndex, ColumnType.NUMERIC);
+        }
+
+        return schema;
+    }
+
+    /**
+     * Check if a value is a number
+     * @param value the value
+     * @return true if the value can be parsed as a double
+     */
+    public static boolean isNumber(String value) {
+        try {
+            Double.parseDouble(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the names of the columns
+     * @return the names of the columns, in the order of the file
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Get the number of columns
+     * @return the number of columns
+     */
+    public int getColumnsCount() {
+        return columnNames.size();
+    }
+
+    /**
+     * Check if the schema has a column
+     * @param columnName the name of the column
+     * @return true if the schema has the column
+     */
+    public boolean contains(String columnName) {
+        return columnIndexes.containsKey(columnName);
+    }
+
+    /**
+     * Get the type of a column
+     * @param columnName the name of the column
+     * @return the type of the column, null if the schema has no such column
+     */
+    public ColumnType getColumnType(String columnName) {
+        Integer columnIndex = columnIndexes.get(columnName);
+        return columnIndex != null ? columnTypes.get(columnIndex) : null;
+    }
+
+    /**
+     * Override the type of a column
+     * @param columnName the name of the column
+     * @param columnType the new type of the column
+     * @throws IllegalArgumentException if the schema has no such column
+     */
+    public void setColumnType(String columnName, ColumnType columnType) {
+        Integer columnIndex = columnIndexes.get(columnName);
+        if (columnIndex == null)
+            throw new IllegalArgumentException("The schema has no column " + columnName + ", its columns are " + columnNames);
+        columnTypes.set(columnIndex, columnType);
+    }
+
+    /**
+     * Check if a column is NUMERIC
+     * @param columnName the name of the column
+     * @return true if the column is NUMERIC
+     */
+    public boolean isNumeric(String columnName) {
+        return getColumnType(columnName) == ColumnType.NUMERIC;
+    }
+
+    /**
+     * Get the number of distinct values of a column in the sample
+     * @param columnName the name of the column
+     * @return the cardinality of the column in the sample, -1 if it is unknown
+     */
+    public int getCardinality(String columnName) {
+        Integer columnIndex = columnIndexes.get(columnName);
+        return columnIndex != null ? cardinalities.get(columnIndex) : -1;
+    }
+
+    /**
+     * Get the number of rows from which the schema was inferred
+     * @return the number of sampled rows
+     */
+    public int getSampledRows() {
+        return sampledRows;
+    }
+
+    /**
+     * Get the names of the NUMERIC columns
+     * @return the names of the NUMERIC columns, in the order of the file
+     */
+    public List<String> getNumericColumns() {
+        List<String> numericColumns = new ArrayList<>();
+        for (int columnIndex = 0; columnIndex < columnNames.size(); ++columnIndex)
+            if (columnTypes.get(columnIndex) == ColumnType.NUMERIC)
+                numericColumns.add(columnNames.get(columnIndex));
+        return numericColumns;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder returnString = new StringBuilder("Schema{");
+        for (int columnIndex = 0; columnIndex < columnNames.size(); ++columnIndex) {
+            if (columnIndex > 0)
+                returnString.append(", ");
+            returnString.append(columnNames.get(columnIndex)).append('=').append(columnTypes.get(columnIndex))
+                    .append('(').append(cardinalities.get(columnIndex)).append(')');
+        }
+        return returnString.append(", sampledRows=").append(sampledRows).append('}').toString();
+    }
+}
@@ -0,0 +1,139 @@
+package ml.classifier.decisiontree.instance;
+
+import java.util.Arrays;
+
+/**
+ * This class models a SparseColumn
+ * A SparseColumn is an encoded column in which one value (the default value, such as the "0" of a one-hot column) holds most of the rows
+ * Only the rows that have another value are stored, with their codes, so the memory and the scans of the column depend on the non-default rows
+ * The counts of the default value are not scanned: they are what remains of the counts of a node once the other values are counted
+ */
+public class SparseColumn {
+
+    private int defaultCode;
+    private int rowsCount;
+    private int[] rows;
+    private int[] codes;
+
+    /**
+     * The SparseColumn constructor
+     * @param column the codes of the column, one for every row
+     * @param defaultCode the code that is not stored
+     */
+    public SparseColumn(int[] column, int defaultCode) {
+        this.defaultCode = defaultCode;
+        this.rowsCount = column.length;
+
+        int nonDefaultCount = 0;
+        for (int code : column)
+            if (code != defaultCode)
+                ++nonDefaultCount;
+        this.rows = new int[nonDefaultCount];
+        this.codes = new int[nonDefaultCount];
+        int index = 0;
+        for (int row = 0; row < column.length; ++row) {
+            if (column[row] != defaultCode) {
+                rows[index] = row;
+                codes[index] = column[row];
+                ++index;
+            }
+        }
+    }
+
+    /**
+     * Find the most frequent code of a column
+     * @param column the codes of the column
+     * @param cardinality the number of distinct codes
+     * @return the most frequent code (the smallest one on ties)
+     */
+    public static int mostFrequentCode(int[] column, int cardinality) {
+        int[] codeCounts = new int[Math.max(1, cardinality)];
+        for (int code : column)
+            ++codeCounts[code];
+        int mostFrequent = 0;
+        for (int code = 1; code < codeCounts.length; ++code)
+            if (codeCounts[code] > codeCounts[mostFrequent])
+                mostFrequent = code;
+        return mostFrequent;
+    }
+
+    /**
+     * Get the code that is not stored
+     * @return the default code
+     */
+    public int getDefaultCode() {
+        return defaultCode;
+    }
+
+    /**
+     * Get the number of rows of the column, stored or not
+     * @return the number of rows
+     */
+    public int getRowsCount() {
+        return rowsCount;
+    }
+
+    /**
+     * Get the number of rows whose code is not the default one
+     * @return the number of stored rows
+     */
+    public int getNonDefaultCount() {
+        return rows.length;
+    }
+
+    /**
+     * Get the rows whose code is not the default one
+     * @return the stored rows, in increasing order
+     */
+    public int[] getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the codes of the stored rows
+     * @return the codes, in the order of getRows()
+     */
+    public int[] getCodes() {
+        return codes;
+    }
+
+    /**
+     * Get the code of a row
+     * @param row the row
+     * @return the code of the row
+     */
+    public int getCode(int row) {
+        int index = Arrays.binarySearch(rows, row);
+        return index >= 0 ? codes[index] : defaultCode;
+    }
+
+    /**
+     * Create the dense copy of the column
+     * @return the codes of all the rows
+     */
+    public int[] toDense() {
+        int[] column = new int[rowsCount];
+        if (defaultCode != 0)
+            Arrays.fill(column, defaultCode);
+        for (int index = 0; index < rows.length; ++index)
+            column[rows[index]] = codes[index];
+        return column;
+    }
+
+    /**
+     * Get the approximate memory used by the column
+     * @return the size of the stored rows and codes, in bytes
+     */
+    public long getSizeInBytes() {
+        return 8L * rows.length;
+    }
+
+    @Override
+    public String toString() {
+        return "SparseColumn{" +
+                "defaultCode=" + defaultCode +
+                ", rowsCount=" + rowsCount +
+                ", nonDefaultCount=" + rows.length +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+package ml.classifier.decisiontree.kernel;
+
+/**
+ * This interface models a CountKernel
+ * A CountKernel holds the innermost loops of the tree builders: the class histograms of the encoded columns
+ * and the purity of the count vectors
+ * There is a scalar kernel, and a SIMD kernel built on the jdk.incubator.vector module; CountKernels chooses the one to use
+ * Both kernels give the same counts; the purity values may only differ by rounding errors
+ */
+public interface CountKernel {
+
+    /**
+     * Count the values of an encoded column by class
+     * attributeCounts[column[row]][outcomes[row]] is increased by weights[row] for every row
+     * @param column the codes of the column
+     * @param outcomes the codes of the outcomes
+     * @param weights the weights of the rows
+     * @param rows the indexes of the rows to count, null to count all the rows
+     * @param attributeCounts the counts to be filled, as attributeCounts[value][class]
+     */
+    void countClasses(int[] column, int[] outcomes, int[] weights, int[] rows, int[][] attributeCounts);
+
+    /**
+     * Calculate the entropy of a count vector: (total * log2(total) - Sum_i count_i * log2(count_i)) / total
+     * @param counts the counts, such as the class counts of a node
+     * @return the entropy, in bits, 0 if all the counts are 0
+     */
+    double entropy(int[] counts);
+
+    /**
+     * Calculate the Gini impurity of a count vector: 1 - Sum_i (count_i / total)^2
+     * @param counts the counts, such as the class counts of a node
+     * @return the Gini impurity, 0 if all the counts are 0
+     */
+    double gini(int[] counts);
+
+    /**
+     * Check if the kernel uses SIMD instructions
+     * @return true for the SIMD kernel, false for the scalar one
+     */
+    boolean isVectorized();
+}
@@ -0,0 +1,54 @@
+package ml.classifier.decisiontree.kernel;
+
+/**
+ * This class chooses the CountKernel of the process
+ * The SIMD kernel (VectorCountKernel) is compiled separately, for Java 17, against the jdk.incubator.vector module (see build.gradle),
+ * and it is loaded by reflection, so this class runs on Java 8 too
+ * It is used only if the JVM was started with --add-modules jdk.incubator.vector; otherwise, or if it is turned off
+ * with the system property ml.vectorKernel=false, the scalar kernel is used
+ */
+public class CountKernels {
+
+    private static final String VECTOR_KERNEL_CLASS = "ml.classifier.decisiontree.kernel.VectorCountKernel";
+
+    private static final CountKernel SCALAR = new ScalarCountKernel();
+    private static final CountKernel DEFAULT = loadDefault();
+
+    /**
+     * The CountKernels constructor
+     * The class only has static methods
+     */
+    private CountKernels() {
+    }
+
+    /**
+     * Get the kernel of the process
+     * @return the SIMD kernel if it can be used, the scalar kernel otherwise
+     */
+    public static CountKernel get() {
+        return DEFAULT;
+    }
+
+    /**
+     * Get the scalar kernel
+     * @return the scalar kernel
+     */
+    public static CountKernel scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Load the SIMD kernel
+     * @return the SIMD kernel, the scalar kernel if it is turned off, missing or the jdk.incubator.vector module is absent
+     */
+    private static CountKernel loadDefault() {
+        if ("false".equals(System.getProperty("ml.vectorKernel")))
+            return SCALAR;
+        try {
+            return (CountKernel) Class.forName(VECTOR_KERNEL_CLASS).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            //The class is missing, was compiled for a newer JVM, or jdk.incubator.vector is not in the module graph
+            return SCALAR;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ml.classifier.decisiontree.kernel;
+
+import ml.classifier.decisiontree.purityfunction.PurityKernel;
+
+/**
+ * This class models the scalar CountKernel
+ * It runs on every JVM, and it is the fallback of the SIMD kernel (for the inputs that the SIMD kernel does not vectorize)
+ */
+public class ScalarCountKernel implements CountKernel {
+
+    @Override
+    public void countClasses(int[] column, int[] outcomes, int[] weights, int[] rows, int[][] attributeCounts) {
+        if (rows == null) {
+            for (int row = 0; row < column.length; ++row)
+                attributeCounts[column[row]][outcomes[row]] += weights[row];
+        }
+        else {
+            for (int row : rows)
+                attributeCounts[column[row]][outcomes[row]] += weights[row];
+        }
+    }
+
+    @Override
+    public double entropy(int[] counts) {
+        long total = 0;
+        double sum = 0.0;
+        for (int count : counts) {
+            total += count;
+            sum -= PurityKernel.nLog2N(count);
+        }
+        return total == 0 ? 0.0 : (sum + PurityKernel.nLog2N(total)) / total;
+    }
+
+    @Override
+    public double gini(int[] counts) {
+        long total = 0;
+        double squares = 0.0;
+        for (int count : counts) {
+            total += count;
+            squares += (double) count * count;
+        }
+        return total == 0 ? 0.0 : 1.0 - squares / ((double) total * total);
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return false;
+    }
+}
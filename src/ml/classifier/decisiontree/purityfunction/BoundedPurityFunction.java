@@ -0,0 +1,21 @@
+package ml.classifier.decisiontree.purityfunction;
+
+import ml.classifier.decisiontree.tree.ConfusionMatrix;
+
+/**
+ * This interface models a purity function that can be bounded from below before all the rows of a node are counted
+ * The lower bound is computed from the ConfusionMatrix of a part of the rows, and no way of counting the remaining rows
+ * can give a smaller value of the function, so an attribute whose bound is bigger than the best value found so far cannot be chosen
+ * (see ID3.isCandidatePruning)
+ */
+public interface BoundedPurityFunction extends PurityFunction {
+
+    /**
+     * Calculate a lower bound of the purity function for all the rows, knowing the counts of a part of them
+     * @param partialConfusionMatrix the confusion matrix of the rows counted so far
+     * @param totalCount the (weighted) number of all the rows
+     * @return a value that is not bigger than the value of the purity function for all the rows
+     */
+    double lowerBound(ConfusionMatrix partialConfusionMatrix, long totalCount);
+
+}
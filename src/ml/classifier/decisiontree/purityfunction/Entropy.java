@@ -5,36 +5,46 @@ import ml.classifier.decisiontree.tree.ConfusionMatrix;
 /**
  * This class models the Entropy function
  * It calculates the conditional entropy of two variables
+ * It is a BoundedPurityFunction: the conditional entropy of a part of the rows, scaled to all the rows, is a lower bound of the final value
  * Created by virgil on 29.10.2015.
  */
-public class Entropy implements PurityFunction {
+public class Entropy implements BoundedPurityFunction {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * This function calculates the value of the purity function for the given variables
-     * It is implemented in the classes that extend this class, as only they know how to calculate each function
-     * It doesn't need the attributes as the confusionMatrix is saved for the exact two attributes used
+     * The conditional entropy is computed by PurityKernel, from the counts of the matrix
      * @param confusionMatrix the confusion matrix
      * @return the value of the purity function for the variables
      */
     @Override
     public double calculate(ConfusionMatrix confusionMatrix) {
-        //H(Y|A) = Sum((totalRow_i/total) * H(Y|A=val_i))
-        //for each row in the confusion matrix we calculate H(Y|A=val_i) = getConditionalCount(val_i, j)/rowTotal, j in the list of all columns
+        return calculate(confusionMatrix.toCounts());
+    }
 
-        double entropy = 0.0;
+    /**
+     * This function calculates the conditional entropy H(Y|A) from the counts of the two variables
+     * @param counts the counts, as counts[value][class]
+     * @return the conditional entropy
+     */
+    @Override
+    public double calculate(int[][] counts) {
+        return PurityKernel.entropy(counts);
+    }
 
-        for (String row : confusionMatrix.getRowValues()) {
-            double rowEntropy = 0.0;
-            for (String column : confusionMatrix.getColumnValues()) {
-                if (confusionMatrix.getCountAt(row, column) != 0) {
-                    rowEntropy += (confusionMatrix.getCountAt(row, column) + 0.0) / (confusionMatrix.getRowTotal(row) + 0.0) * (Math.log((confusionMatrix.getRowTotal(row) + 0.0) / (confusionMatrix.getCountAt(row, column) + 0.0)) / Math.log(2));
-                }
-                else
-                    rowEntropy += 0;
-            }
-            entropy += rowEntropy * (confusionMatrix.getRowTotal(row) + 0.0) / (confusionMatrix.getTotalCount() + 0.0);
-        }
-        return entropy;
+    /**
+     * Calculate a lower bound of the conditional entropy for all the rows, knowing the counts of a part of them
+     * Every row of the matrix contributes rowTotal * H(Y|A=val_i), a concave function of its counts that grows linearly with them,
+     * so adding rows to a row of the matrix never decreases its contribution; the bound is the sum of the current contributions
+     * divided by the total count of all the rows
+     * @param partialConfusionMatrix the confusion matrix of the rows counted so far
+     * @param totalCount the (weighted) number of all the rows
+     * @return a value that is not bigger than the conditional entropy of all the rows
+     */
+    @Override
+    public double lowerBound(ConfusionMatrix partialConfusionMatrix, long totalCount) {
+        return PurityKernel.entropyContributions(partialConfusionMatrix.toCounts()) / totalCount;
     }
 
 }
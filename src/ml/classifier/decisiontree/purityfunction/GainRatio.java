@@ -0,0 +1,36 @@
+package ml.classifier.decisiontree.purityfunction;
+
+import ml.classifier.decisiontree.tree.ConfusionMatrix;
+
+/**
+ * This class models the GainRatio function (C4.5)
+ * The gain ratio is the information gain of the attribute divided by its split information: (H(Y) - H(Y|A)) / SplitInformation(A),
+ * so the attributes with many small values are not favored as they are by the Entropy
+ * The tree builders choose the smallest value of a purity function, so the value of this function is the opposite of the gain ratio
+ */
+public class GainRatio implements PurityFunction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * This function calculates the value of the purity function for the given variables
+     * The gain ratio is computed by PurityKernel, from the counts of the matrix
+     * @param confusionMatrix the confusion matrix
+     * @return the opposite of the gain ratio
+     */
+    @Override
+    public double calculate(ConfusionMatrix confusionMatrix) {
+        return calculate(confusionMatrix.toCounts());
+    }
+
+    /**
+     * This function calculates the opposite of the gain ratio from the counts of the two variables
+     * @param counts the counts, as counts[value][class]
+     * @return the opposite of the gain ratio, 0 if the attribute has a single value
+     */
+    @Override
+    public double calculate(int[][] counts) {
+        return -PurityKernel.gainRatio(counts);
+    }
+
+}
@@ -0,0 +1,48 @@
+package ml.classifier.decisiontree.purityfunction;
+
+import ml.classifier.decisiontree.tree.ConfusionMatrix;
+
+/**
+ * This class models the Gini function
+ * It calculates the Gini impurity of the outcome knowing the attribute: Sum_i (rowTotal_i / total) * (1 - Sum_j (count_ij / rowTotal_i)^2)
+ * It is a BoundedPurityFunction: as for the Entropy, the contribution of a row of the matrix never decreases when rows are added to it
+ */
+public class Gini implements BoundedPurityFunction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * This function calculates the value of the purity function for the given variables
+     * The Gini impurity is computed by PurityKernel, from the counts of the matrix
+     * @param confusionMatrix the confusion matrix
+     * @return the value of the purity function for the variables
+     */
+    @Override
+    public double calculate(ConfusionMatrix confusionMatrix) {
+        return calculate(confusionMatrix.toCounts());
+    }
+
+    /**
+     * This function calculates the Gini impurity from the counts of the two variables
+     * @param counts the counts, as counts[value][class]
+     * @return the Gini impurity
+     */
+    @Override
+    public double calculate(int[][] counts) {
+        return PurityKernel.gini(counts);
+    }
+
+    /**
+     * Calculate a lower bound of the Gini impurity for all the rows, knowing the counts of a part of them
+     * Every row of the matrix contributes rowTotal * Gini(Y|A=val_i), a concave function of its counts that grows linearly with them,
+     * so the bound is the sum of the current contributions divided by the total count of all the rows
+     * @param partialConfusionMatrix the confusion matrix of the rows counted so far
+     * @param totalCount the (weighted) number of all the rows
+     * @return a value that is not bigger than the Gini impurity of all the rows
+     */
+    @Override
+    public double lowerBound(ConfusionMatrix partialConfusionMatrix, long totalCount) {
+        return PurityKernel.giniContributions(partialConfusionMatrix.toCounts()) / totalCount;
+    }
+
+}
@@ -2,12 +2,18 @@ package ml.classifier.decisiontree.purityfunction;
 
 import ml.classifier.decisiontree.tree.ConfusionMatrix;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * This interface models a purity function
  * A purity function is a function that selects data (Entropy, InformationGain, GiniIndex)
+ * A purity function is Serializable, as it is saved with its tree
+ * A smaller value is a better split: the tree builders choose the attribute with the smallest value
  * Created by virgil on 29.10.2015.
  */
-public interface PurityFunction {
+public interface PurityFunction extends Serializable {
 
     /**
      * This function calculates the value of the purity function for the given variables
@@ -18,4 +24,22 @@ public interface PurityFunction {
      */
     double calculate(ConfusionMatrix confusionMatrix);
 
+    /**
+     * This function calculates the value of the purity function from the counts of the two variables
+     * counts[i][j] is the (weighted) number of rows with the i-th value of the attribute and the j-th value of the outcome;
+     * the rows of zeros are ignored, as the values that do not appear in a ConfusionMatrix
+     * The default implementation creates a ConfusionMatrix; the functions of this package compute the value directly (see PurityKernel)
+     * @param counts the counts, as counts[value][class]
+     * @return the value of the purity function for the variables
+     */
+    default double calculate(int[][] counts) {
+        List<String> rowValues = new ArrayList<>();
+        for (int row = 0; row < counts.length; ++row)
+            rowValues.add(String.valueOf(row));
+        List<String> columnValues = new ArrayList<>();
+        for (int column = 0; column < (counts.length > 0 ? counts[0].length : 0); ++column)
+            columnValues.add(String.valueOf(column));
+        return calculate(new ConfusionMatrix("", "", rowValues, columnValues, counts));
+    }
+
 }
@@ -0,0 +1,167 @@
+package ml.classifier.decisiontree.purityfunction;
+
+/**
+ * This class contains the purity kernels: the purity functions computed directly from primitive count arrays
+ * The counts are given as counts[value][class], the (weighted) number of rows with a value of the attribute and a class
+ *
+ * The entropies are written with n * log2(n) terms only:
+ * H(Y|A) = (Sum_i rowTotal_i * log2(rowTotal_i) - Sum_ij count_ij * log2(count_ij)) / total
+ * and n * log2(n) is read from a table for the small counts (most of the counts of a tree), so the entropy of a count matrix
+ * is a few additions and table loads; the bigger counts take a single Math.log
+ */
+public final class PurityKernel {
+
+    //The counts below this size have their n * log2(n) in the table
+    public static final int TABLE_SIZE = 1 << 14;
+    private static final double INVERSE_LN_2 = 1.0 / Math.log(2);
+    private static final double[] N_LOG2_N = new double[TABLE_SIZE];
+
+    static {
+        for (int n = 1; n < TABLE_SIZE; ++n)
+            N_LOG2_N[n] = n * (Math.log(n) * INVERSE_LN_2);
+    }
+
+    /**
+     * The PurityKernel constructor
+     * The class only has static methods
+     */
+    private PurityKernel() {
+    }
+
+    /**
+     * Calculate n * log2(n)
+     * @param n the count
+     * @return n * log2(n), 0 for n = 0
+     */
+    public static double nLog2N(long n) {
+        if (n < TABLE_SIZE)
+            return N_LOG2_N[(int) n];
+        return n * (Math.log(n) * INVERSE_LN_2);
+    }
+
+    /**
+     * Get the total count of a count matrix
+     * @param counts the counts, as counts[value][class]
+     * @return the sum of all the counts
+     */
+    public static long total(int[][] counts) {
+        long total = 0;
+        for (int[] valueCounts : counts)
+            for (int count : valueCounts)
+                total += count;
+        return total;
+    }
+
+    /**
+     * Calculate the contributions of the values to the conditional entropy: Sum_i rowTotal_i * H(Y|A=val_i)
+     * Adding rows to a value never decreases its contribution
+     * @param counts the counts, as counts[value][class]
+     * @return the sum of the contributions, in bits times rows
+     */
+    public static double entropyContributions(int[][] counts) {
+        double contributions = 0.0;
+        for (int[] valueCounts : counts) {
+            long rowTotal = 0;
+            for (int count : valueCounts) {
+                rowTotal += count;
+                contributions -= nLog2N(count);
+            }
+            contributions += nLog2N(rowTotal);
+        }
+        return contributions;
+    }
+
+    /**
+     * Calculate the conditional entropy H(Y|A) of the class Y knowing the attribute A
+     * @param counts the counts, as counts[value][class]
+     * @return the conditional entropy, 0 if there is no row
+     */
+    public static double entropy(int[][] counts) {
+        long total = total(counts);
+        return total == 0 ? 0.0 : entropyContributions(counts) / total;
+    }
+
+    /**
+     * Calculate the entropy H(Y) of the class, ignoring the attribute
+     * @param counts the counts, as counts[value][class]
+     * @return the entropy of the class totals, 0 if there is no row
+     */
+    public static double classEntropy(int[][] counts) {
+        int classesCount = 0;
+        for (int[] valueCounts : counts)
+            classesCount = Math.max(classesCount, valueCounts.length);
+
+        long total = 0;
+        double sum = 0.0;
+        for (int classIndex = 0; classIndex < classesCount; ++classIndex) {
+            long classTotal = 0;
+            for (int[] valueCounts : counts)
+                if (classIndex < valueCounts.length)
+                    classTotal += valueCounts[classIndex];
+            total += classTotal;
+            sum -= nLog2N(classTotal);
+        }
+        return total == 0 ? 0.0 : (sum + nLog2N(total)) / total;
+    }
+
+    /**
+     * Calculate the split information of the attribute: the entropy of its value totals
+     * @param counts the counts, as counts[value][class]
+     * @return the split information, 0 if there is no row
+     */
+    public static double splitInformation(int[][] counts) {
+        long total = 0;
+        double sum = 0.0;
+        for (int[] valueCounts : counts) {
+            long rowTotal = 0;
+            for (int count : valueCounts)
+                rowTotal += count;
+            total += rowTotal;
+            sum -= nLog2N(rowTotal);
+        }
+        return total == 0 ? 0.0 : (sum + nLog2N(total)) / total;
+    }
+
+    /**
+     * Calculate the gain ratio of the attribute: (H(Y) - H(Y|A)) / SplitInformation(A)
+     * @param counts the counts, as counts[value][class]
+     * @return the gain ratio, 0 if the attribute has a single value
+     */
+    public static double gainRatio(int[][] counts) {
+        double splitInformation = splitInformation(counts);
+        if (splitInformation <= 0.0)
+            return 0.0;
+        return (classEntropy(counts) - entropy(counts)) / splitInformation;
+    }
+
+    /**
+     * Calculate the contributions of the values to the Gini impurity: Sum_i rowTotal_i * Gini(Y|A=val_i)
+     * Adding rows to a value never decreases its contribution
+     * @param counts the counts, as counts[value][class]
+     * @return the sum of the contributions, in rows
+     */
+    public static double giniContributions(int[][] counts) {
+        double contributions = 0.0;
+        for (int[] valueCounts : counts) {
+            long rowTotal = 0;
+            double squares = 0.0;
+            for (int count : valueCounts) {
+                rowTotal += count;
+                squares += (double) count * count;
+            }
+            if (rowTotal > 0)
+                contributions += rowTotal - squares / rowTotal;
+        }
+        return contributions;
+    }
+
+    /**
+     * Calculate the Gini impurity of the class knowing the attribute: Sum_i (rowTotal_i / total) * (1 - Sum_j (count_ij / rowTotal_i)^2)
+     * @param counts the counts, as counts[value][class]
+     * @return the Gini impurity, 0 if there is no row
+     */
+    public static double gini(int[][] counts) {
+        long total = total(counts);
+        return total == 0 ? 0.0 : giniContributions(counts) / total;
+    }
+}
@@ -0,0 +1,284 @@
+package ml.classifier.decisiontree.serving;
+
+import ml.classifier.decisiontree.instance.Instance;
+import ml.classifier.decisiontree.tree.Tree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class models a RequestCoalescer
+ * A RequestCoalescer scores the rows of many concurrent requests as batches: every submitted row is queued, and a batcher thread
+ * takes the queued rows, waits for more of them for at most maximumDelay after the first one (or until maximumBatchSize rows are there),
+ * scores them with a single Tree.evaluateBatch and completes the future of every row
+ * So a row waits at most maximumDelay (plus the scoring of its batch), and under load the rows are scored hundreds at a time, instead of once per request
+ * There are scoringThreads batcher threads (1 by default) taking their batches from the same queue: while a thread scores its batch,
+ * the others collect and score the next ones, so a single thread does not bound the throughput on a machine with many cores
+ *
+ * If a batch cannot be scored, its rows are scored one by one, so only the futures of the wrong rows fail
+ */
+public class RequestCoalescer implements AutoCloseable {
+
+    public static final int DEFAULT_MAXIMUM_BATCH_SIZE = 256;
+    public static final long DEFAULT_MAXIMUM_DELAY_MICROS = 500;
+    //The batcher checks if the coalescer was closed this often when there is no row
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    /**
+     * This class models a row that waits for its batch
+     */
+    private static class PendingRow {
+
+        private Instance observation;
+        private CompletableFuture<String> prediction;
+
+        /**
+         * The PendingRow constructor
+         * @param observation the row
+         * @param prediction the future of its prediction
+         */
+        PendingRow(Instance observation, CompletableFuture<String> prediction) {
+            this.observation = observation;
+            this.prediction = prediction;
+        }
+    }
+
+    private Tree tree;
+    private int maximumBatchSize;
+    private long maximumDelayNanos;
+
+    private final BlockingQueue<PendingRow> queue = new LinkedBlockingQueue<>();
+    private final Thread[] batcherThreads;
+    private volatile boolean closed;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder coalescedRows = new LongAdder();
+
+    /**
+     * The RequestCoalescer constructor
+     * Uses the default limits: batches of at most 256 rows, waiting at most 500 microseconds
+     * @param tree the tree that scores the rows
+     */
+    public RequestCoalescer(Tree tree) {
+        this(tree, DEFAULT_MAXIMUM_BATCH_SIZE, DEFAULT_MAXIMUM_DELAY_MICROS, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * The RequestCoalescer constructor
+     * Starts a single batcher thread
+     * @param tree the tree that scores the rows
+     * @param maximumBatchSize the maximum number of rows of a batch
+     * @param maximumDelay the maximum time a batch waits for more rows after its first one (0 to score only the rows already queued)
+     * @param unit the unit of maximumDelay
+     */
+    public RequestCoalescer(Tree tree, int maximumBatchSize, long maximumDelay, TimeUnit unit) {
+        this(tree, maximumBatchSize, maximumDelay, unit, 1);
+    }
+
+    /**
+     * The RequestCoalescer constructor
+     * Starts the batcher threads
+     * @param tree the tree that scores the rows
+     * @param maximumBatchSize the maximum number of rows of a batch
+     * @param maximumDelay the maximum time a batch waits for more rows after its first one (0 to score only the rows already queued)
+     * @param unit the unit of maximumDelay
+     * @param scoringThreads the number of batcher threads, which collect and score their batches concurrently
+     */
+    public RequestCoalescer(Tree tree, int maximumBatchSize, long maximumDelay, TimeUnit unit, int scoringThreads) {
+        if (maximumBatchSize < 1)
+            throw new IllegalArgumentException("The maximum batch size must be at least 1, not " + maximumBatchSize);
+        if (maximumDelay < 0)
+            throw new IllegalArgumentException("The maximum delay cannot be negative");
+        if (scoringThreads < 1)
+            throw new IllegalArgumentException("The number of scoring threads must be at least 1, not " + scoringThreads);
+        this.tree = tree;
+        this.maximumBatchSize = maximumBatchSize;
+        this.maximumDelayNanos = unit.toNanos(maximumDelay);
+
+        this.batcherThreads = new Thread[scoringThreads];
+        for (int index = 0; index < scoringThreads; ++index) {
+            batcherThreads[index] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runBatches();
+                }
+            }, scoringThreads == 1 ? "ml-request-coalescer" : "ml-request-coalescer-" + index);
+            batcherThreads[index].setDaemon(true);
+            batcherThreads[index].start();
+        }
+    }
+
+    /**
+     * Submit a row to be scored in the next batch
+     * @param observation the row
+     * @return the future of the prediction; it fails if the row cannot be scored or the coalescer is closed
+     */
+    public CompletableFuture<String> submit(Instance observation) {
+        CompletableFuture<String> prediction = new CompletableFuture<>();
+        if (closed) {
+            prediction.completeExceptionally(new IllegalStateException("The coalescer is closed"));
+            return prediction;
+        }
+        queue.add(new PendingRow(observation, prediction));
+        //The coalescer may have been closed (and its queue emptied) while the row was added
+        if (closed)
+            failPendingRows();
+        return prediction;
+    }
+
+    /**
+     * Collect and score the batches, until the coalescer is closed and its queue is empty
+     */
+    private void runBatches() {
+        List<PendingRow> batch = new ArrayList<>(maximumBatchSize);
+        while (true) {
+            PendingRow first;
+            try {
+                first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = queue.poll();
+            }
+            if (first == null) {
+                if (closed)
+                    return;
+                continue;
+            }
+
+            batch.add(first);
+            long deadline = System.nanoTime() + maximumDelayNanos;
+            while (batch.size() < maximumBatchSize) {
+                //The rows that are already queued are taken without waiting
+                if (queue.drainTo(batch, maximumBatchSize - batch.size()) > 0)
+                    continue;
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0 || closed)
+                    break;
+                PendingRow next;
+                try {
+                    next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (next == null)
+                    break;
+                batch.add(next);
+            }
+
+            score(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Score a batch and complete the futures of its rows
+     * @param batch the rows of the batch
+     */
+    private void score(List<PendingRow> batch) {
+        batches.increment();
+        coalescedRows.add(batch.size());
+
+        List<Instance> observations = new ArrayList<>(batch.size());
+        for (PendingRow pendingRow : batch)
+            observations.add(pendingRow.observation);
+
+        List<String> predictions;
+        try {
+            predictions = tree.evaluateBatch(observations);
+        } catch (RuntimeException e) {
+            //A wrong row fails only its own future
+            for (PendingRow pendingRow : batch) {
+                try {
+                    pendingRow.prediction.complete(tree.evaluate(pendingRow.observation));
+                } catch (RuntimeException rowException) {
+                    pendingRow.prediction.completeExceptionally(rowException);
+                }
+            }
+            return;
+        }
+        for (int index = 0; index < batch.size(); ++index)
+            batch.get(index).prediction.complete(predictions.get(index));
+    }
+
+    /**
+     * Fail the rows that are still queued
+     */
+    private void failPendingRows() {
+        PendingRow pendingRow;
+        while ((pendingRow = queue.poll()) != null)
+            pendingRow.prediction.completeExceptionally(new IllegalStateException("The coalescer is closed"));
+    }
+
+    /**
+     * Close the coalescer
+     * The rows submitted before are still scored; the rows submitted after fail
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread batcherThread : batcherThreads)
+            batcherThread.interrupt();
+        for (Thread batcherThread : batcherThreads) {
+            try {
+                batcherThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        failPendingRows();
+    }
+
+    /**
+     * Get the tree that scores the rows
+     * @return the tree
+     */
+    public Tree getTree() {
+        return tree;
+    }
+
+    /**
+     * Get the maximum number of rows of a batch
+     * @return the maximum batch size
+     */
+    public int getMaximumBatchSize() {
+        return maximumBatchSize;
+    }
+
+    /**
+     * Get the maximum time a batch waits for more rows after its first one
+     * @param unit the unit of the result
+     * @return the maximum delay
+     */
+    public long getMaximumDelay(TimeUnit unit) {
+        return unit.convert(maximumDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the number of batcher threads
+     * @return the number of threads that collect and score the batches
+     */
+    public int getScoringThreads() {
+        return batcherThreads.length;
+    }
+
+    /**
+     * Get the number of scored batches
+     * @return the number of batches
+     */
+    public long getBatchesCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Get the number of rows scored in batches
+     * @return the number of rows
+     */
+    public long getCoalescedRowsCount() {
+        return coalescedRows.sum();
+    }
+}
@@ -0,0 +1,277 @@
+package ml.classifier.decisiontree.serving;
+
+import ml.classifier.decisiontree.instance.Attribute;
+import ml.classifier.decisiontree.instance.Instance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class reads the rows to be scored from the body of a request
+ * The rows are read as Instances whose attributes are all Strings; the numeric value of an attribute is parsed when a tree asks for it
+ * (see Attribute.getNumericValue), so the same rows can be scored by an ID3 and by an ExtendedID3
+ *
+ * A CSV body has a header line with the attribute names and one row per line (a single row is a body of two lines)
+ * A JSON body is either an object, for a single row ({"Elevation": 2596, "Soil_Type": "29"}), or an array of such objects, for a batch;
+ * the values can be strings, numbers or booleans, and a null value leaves the attribute out of the row
+ */
+public class RowReader {
+
+    /**
+     * The RowReader constructor
+     * The class only has static methods
+     */
+    private RowReader() {
+    }
+
+    /**
+     * Read the rows of a CSV body
+     * The empty lines are skipped, and every row must have as many values as the header
+     * @param body the body, with a header line
+     * @param delimiter the delimiter of the values (a single character)
+     * @return the rows, in the order of the lines
+     * @throws IllegalArgumentException if the body has no header or a row has a wrong number of values
+     */
+    public static List<Instance> readCsv(String body, char delimiter) {
+        String[] lines = body.split("\r?\n");
+        int lineIndex = 0;
+        while (lineIndex < lines.length && lines[lineIndex].trim().isEmpty())
+            ++lineIndex;
+        if (lineIndex == lines.length)
+            throw new IllegalArgumentException("The CSV body has no header");
+        String[] header = split(lines[lineIndex], delimiter);
+
+        List<Instance> rows = new ArrayList<>();
+        for (++lineIndex; lineIndex < lines.length; ++lineIndex) {
+            if (lines[lineIndex].trim().isEmpty())
+                continue;
+            String[] values = split(lines[lineIndex], delimiter);
+            if (values.length != header.length)
+                throw new IllegalArgumentException("Line " + (lineIndex + 1) + " has " + values.length + " values instead of " + header.length);
+            List<Attribute> attributes = new ArrayList<>(header.length);
+            for (int column = 0; column < header.length; ++column)
+                attributes.add(new Attribute(header[column], values[column]));
+            rows.add(new Instance(attributes));
+        }
+        return rows;
+    }
+
+    /**
+     * Split a CSV line, trimming the values
+     * @param line the line
+     * @param delimiter the delimiter of the values
+     * @return the values
+     */
+    private static String[] split(String line, char delimiter) {
+        List<String> values = new ArrayList<>();
+        int start = 0;
+        for (int index = 0; index <= line.length(); ++index) {
+            if (index == line.length() || line.charAt(index) == delimiter) {
+                values.add(line.substring(start, index).trim());
+                start = index + 1;
+            }
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Read the rows of a JSON body
+     * @param body the body: an object or an array of objects
+     * @return the rows, in the order of the objects
+     * @throws IllegalArgumentException if the body is not an object or an array of flat objects
+     */
+    public static List<Instance> readJson(String body) {
+        JsonCursor cursor = new JsonCursor(body);
+        List<Instance> rows = new ArrayList<>();
+        cursor.skipWhitespace();
+        if (cursor.peek() == '[') {
+            cursor.expect('[');
+            cursor.skipWhitespace();
+            if (cursor.peek() == ']')
+                cursor.expect(']');
+            else {
+                do {
+                    rows.add(cursor.readRow());
+                    cursor.skipWhitespace();
+                } while (cursor.consume(','));
+                cursor.expect(']');
+            }
+        }
+        else
+            rows.add(cursor.readRow());
+        cursor.skipWhitespace();
+        if (!cursor.isAtEnd())
+            throw cursor.error("Unexpected content after the rows");
+        return rows;
+    }
+
+    /**
+     * Check if a JSON body holds a single row (an object) instead of a batch (an array)
+     * @param body the body
+     * @return true if the first character that is not a whitespace is '{'
+     */
+    public static boolean isSingleJsonRow(String body) {
+        for (int index = 0; index < body.length(); ++index)
+            if (!Character.isWhitespace(body.charAt(index)))
+                return body.charAt(index) == '{';
+        return false;
+    }
+
+    /**
+     * This class models the position of the JSON reader in the body
+     * It reads only what a row needs: objects whose values are strings, numbers, booleans or null
+     */
+    private static class JsonCursor {
+
+        private String text;
+        private int position;
+
+        /**
+         * The JsonCursor constructor
+         * @param text the JSON text
+         */
+        JsonCursor(String text) {
+            this.text = text;
+            this.position = 0;
+        }
+
+        /**
+         * Read an object as a row
+         * @return the row, with an Attribute for every value that is not null
+         */
+        Instance readRow() {
+            List<Attribute> attributes = new ArrayList<>();
+            skipWhitespace();
+            expect('{');
+            skipWhitespace();
+            if (consume('}'))
+                return new Instance(attributes);
+            do {
+                skipWhitespace();
+                String name = readString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                String value = readValue();
+                if (value != null)
+                    attributes.add(new Attribute(name, value));
+                skipWhitespace();
+            } while (consume(','));
+            expect('}');
+            return new Instance(attributes);
+        }
+
+        /**
+         * Read a value: a string, a number, a boolean or null
+         * @return the value as it is written (the content of a string), null for null
+         */
+        String readValue() {
+            char current = peek();
+            if (current == '"')
+                return readString();
+            int start = position;
+            while (position < text.length() && "{}[],: \t\r\n".indexOf(text.charAt(position)) < 0)
+                ++position;
+            String literal = text.substring(start, position);
+            if (literal.isEmpty())
+                throw error("Expected a string, a number, a boolean or null");
+            if (current == '{' || current == '[')
+                throw error("The values of a row cannot be objects or arrays");
+            return "null".equals(literal) ? null : literal;
+        }
+
+        /**
+         * Read a string, with its escapes
+         * @return the content of the string
+         */
+        String readString() {
+            expect('"');
+            StringBuilder builder = new StringBuilder();
+            while (position < text.length()) {
+                char current = text.charAt(position++);
+                if (current == '"')
+                    return builder.toString();
+                if (current != '\\') {
+                    builder.append(current);
+                    continue;
+                }
+                if (position >= text.length())
+                    break;
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b': builder.append('\b'); break;
+                    case 'f': builder.append('\f'); break;
+                    case 'n': builder.append('\n'); break;
+                    case 'r': builder.append('\r'); break;
+                    case 't': builder.append('\t'); break;
+                    case 'u':
+                        if (position + 4 > text.length())
+                            throw error("Incomplete unicode escape");
+                        try {
+                            builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Wrong unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default: builder.append(escaped);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        /**
+         * Skip the whitespaces
+         */
+        void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+                ++position;
+        }
+
+        /**
+         * Get the current character, without moving
+         * @return the current character, 0 at the end of the text
+         */
+        char peek() {
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+
+        /**
+         * Move over the current character if it is the expected one
+         * @param expected the expected character
+         * @return true if the character was there
+         */
+        boolean consume(char expected) {
+            if (peek() != expected)
+                return false;
+            ++position;
+            return true;
+        }
+
+        /**
+         * Move over the current character, that has to be the expected one
+         * @param expected the expected character
+         */
+        void expect(char expected) {
+            if (!consume(expected))
+                throw error("Expected '" + expected + "'");
+        }
+
+        /**
+         * Check if the whole text was read
+         * @return true at the end of the text
+         */
+        boolean isAtEnd() {
+            return position >= text.length();
+        }
+
+        /**
+         * Create the exception for a malformed text
+         * @param message the description of the problem
+         * @return the exception, with the position of the problem
+         */
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " of the JSON body");
+        }
+    }
+}
@@ -0,0 +1,518 @@
+package ml.classifier.decisiontree.serving;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import ml.classifier.decisiontree.instance.Instance;
+import ml.classifier.decisiontree.tree.ModelPersistence;
+import ml.classifier.decisiontree.tree.Tree;
+import ml.utils.monitoring.Metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * This class models a ScoringServer
+ * A ScoringServer serves the predictions of a trained tree over HTTP, with the com.sun.net.httpserver server of the JDK
+ *
+ * The endpoints are:
+ *  POST /predict - scores the rows of the body (see RowReader): a CSV body (Content-Type text/csv) is answered with a CSV body
+ *                  with a "prediction" header and one prediction per line; a JSON object is answered with {"prediction": ...}
+ *                  and a JSON array with {"predictions": [...]}, in the order of the rows
+ *  GET /health   - answers {"status": "UP"}, with the class of the tree and the kind of threads of the server
+ *  GET /metrics  - answers the counters of the server and of Metrics, one "name value" per line
+ *
+ * Every request is handled on its own virtual thread when the JVM has them (Java 21 and later): the executor is created by reflection,
+ * so the class still runs on Java 8, where a fixed pool of platform threads is used instead
+ * In both cases the idle connections are kept by the selector of the server, not by a thread
+ * The tree is only read while scoring, so it is shared by all the requests
+ *
+ * With a RequestCoalescer (see setCoalescer), the requests of a single row are scored in batches with the rows of the concurrent requests:
+ * the handler only submits the row, and the answer is sent on the executor when the batch of the row is scored,
+ * so no thread waits for a batch, even on the fixed pool
+ * When the server stops, the coalescer is closed (its queued rows are scored and answered) before the executor is shut down
+ */
+public class ScoringServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    //The bodies over this size are refused
+    public static final int MAXIMUM_BODY_BYTES = 16 << 20;
+    private static final int BACKLOG = 1024;
+
+    private Tree tree;
+    private InetSocketAddress address;
+    private HttpServer server;
+    private ExecutorService executor;
+    private boolean virtualThreads;
+    private RequestCoalescer coalescer;
+    //The answers of the coalesced rows run on the executor, or on the thread that completed the row if the executor no longer accepts tasks
+    private final Executor answerExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException e) {
+                command.run();
+            }
+        }
+    };
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder scoredRows = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder scoreNanos = new LongAdder();
+
+    /**
+     * The ScoringServer constructor
+     * The server listens on all the interfaces
+     * @param tree the tree that scores the rows
+     * @param port the port, 0 to choose a free one
+     */
+    public ScoringServer(Tree tree, int port) {
+        this(tree, new InetSocketAddress(port));
+    }
+
+    /**
+     * The ScoringServer constructor
+     * @param tree the tree that scores the rows
+     * @param address the address to listen on
+     */
+    public ScoringServer(Tree tree, InetSocketAddress address) {
+        this.tree = tree;
+        this.address = address;
+    }
+
+    /**
+     * Create a server for a tree saved with ModelPersistence
+     * @param modelFile the file of the tree
+     * @param port the port, 0 to choose a free one
+     * @return the new server, not started
+     * @throws IOException if the tree cannot be loaded
+     */
+    public static ScoringServer load(File modelFile, int port) throws IOException {
+        return new ScoringServer(ModelPersistence.load(modelFile), port);
+    }
+
+    /**
+     * Start the server
+     * @throws IOException if the address cannot be bound
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(address, BACKLOG);
+        server.createContext("/predict", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handlePredict(exchange);
+            }
+        });
+        server.createContext("/health", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleHealth(exchange);
+            }
+        });
+        server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleMetrics(exchange);
+            }
+        });
+        executor = createExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Stop the server
+     * The requests that are being handled get at most delaySeconds to finish
+     * The coalescer, if any, is closed once no request is accepted: the rows it still holds are scored and answered on the executor,
+     * which is shut down only after that; a restarted server needs a new coalescer
+     * @param delaySeconds the maximum time to wait for the current requests, in seconds
+     */
+    public void stop(int delaySeconds) {
+        if (server == null)
+            return;
+        server.stop(delaySeconds);
+        if (coalescer != null)
+            coalescer.close();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    /**
+     * Create the executor of the requests
+     * @return a virtual-thread-per-task executor if the JVM has virtual threads, a fixed pool of platform threads otherwise
+     */
+    private ExecutorService createExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService virtualThreadExecutor = (ExecutorService) method.invoke(null);
+            virtualThreads = true;
+            return virtualThreadExecutor;
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            //Before Java 21 (or without --enable-preview on Java 19 and 20) there are no virtual threads
+            virtualThreads = false;
+            return Executors.newFixedThreadPool(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+        }
+    }
+
+    /**
+     * Handle a request of /predict
+     * @param exchange the exchange
+     * @throws IOException if the answer cannot be sent
+     */
+    private void handlePredict(final HttpExchange exchange) throws IOException {
+        requests.increment();
+        //The exchange of a coalesced row is closed when its batch is scored
+        boolean answered = true;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                fail(exchange, 405, "Use POST to score rows");
+                return;
+            }
+            byte[] bodyBytes = readBody(exchange.getRequestBody());
+            if (bodyBytes == null) {
+                fail(exchange, 413, "The body is bigger than " + MAXIMUM_BODY_BYTES + " bytes");
+                return;
+            }
+            final String body = new String(bodyBytes, StandardCharsets.UTF_8);
+            final boolean json = isJson(exchange.getRequestHeaders().getFirst("Content-Type"), body);
+
+            List<Instance> rows;
+            try {
+                rows = json ? RowReader.readJson(body) : RowReader.readCsv(body, ',');
+            } catch (IllegalArgumentException e) {
+                fail(exchange, 400, e.getMessage());
+                return;
+            }
+
+            final long start = System.nanoTime();
+            if (coalescer != null && rows.size() == 1) {
+                answered = false;
+                coalescer.submit(rows.get(0)).whenCompleteAsync(new BiConsumer<String, Throwable>() {
+                    @Override
+                    public void accept(String prediction, Throwable throwable) {
+                        //The time of a coalesced row includes its wait for the batch
+                        scoreNanos.add(System.nanoTime() - start);
+                        try {
+                            if (throwable != null) {
+                                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                                        ? throwable.getCause() : throwable;
+                                fail(exchange, 500, "The rows cannot be scored: " + cause);
+                            }
+                            else {
+                                scoredRows.increment();
+                                answer(exchange, json, body, Collections.singletonList(prediction));
+                            }
+                        } catch (IOException e) {
+                            //The client is gone, there is nobody to answer
+                        } finally {
+                            exchange.close();
+                        }
+                    }
+                }, answerExecutor);
+                return;
+            }
+
+            List<String> predictions = score(rows);
+            scoreNanos.add(System.nanoTime() - start);
+            scoredRows.add(rows.size());
+            answer(exchange, json, body, predictions);
+        } catch (RuntimeException e) {
+            fail(exchange, 500, "The rows cannot be scored: " + e);
+        } finally {
+            if (answered)
+                exchange.close();
+        }
+    }
+
+    /**
+     * Answer a request of /predict with its predictions
+     * @param exchange the exchange
+     * @param json true if the body of the request is JSON
+     * @param body the body of the request
+     * @param predictions the predictions, in the order of the rows
+     * @throws IOException if the answer cannot be sent
+     */
+    private void answer(HttpExchange exchange, boolean json, String body, List<String> predictions) throws IOException {
+        if (!json)
+            send(exchange, 200, "text/csv", toCsv(predictions));
+        else if (RowReader.isSingleJsonRow(body))
+            send(exchange, 200, "application/json", "{\"prediction\":" + quote(predictions.get(0)) + "}");
+        else
+            send(exchange, 200, "application/json", "{\"predictions\":" + toJsonArray(predictions) + "}");
+    }
+
+    /**
+     * Score the rows of a request
+     * A single row is evaluated directly, a batch with Tree.evaluateBatch
+     * @param rows the rows
+     * @return the predictions, in the order of the rows
+     */
+    private List<String> score(List<Instance> rows) {
+        if (rows.size() == 1)
+            return Collections.singletonList(tree.evaluate(rows.get(0)));
+        return tree.evaluateBatch(rows);
+    }
+
+    /**
+     * Handle a request of /health
+     * @param exchange the exchange
+     * @throws IOException if the answer cannot be sent
+     */
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try {
+            send(exchange, 200, "application/json", "{\"status\":\"UP\",\"tree\":" + quote(tree.getClass().getSimpleName())
+                    + ",\"virtualThreads\":" + virtualThreads + "}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Handle a request of /metrics
+     * @param exchange the exchange
+     * @throws IOException if the answer cannot be sent
+     */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            StringBuilder builder = new StringBuilder();
+            for (Map.Entry<String, Long> metric : getMetrics().entrySet())
+                builder.append(metric.getKey()).append(' ').append(metric.getValue()).append('\n');
+            send(exchange, 200, "text/plain", builder.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Get the counters of the server, followed by the counters of Metrics
+     * @return the counters, by name
+     */
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("requests", requests.sum());
+        metrics.put("scoredRows", scoredRows.sum());
+        metrics.put("failedRequests", failedRequests.sum());
+        metrics.put("scoreNanos", scoreNanos.sum());
+        if (coalescer != null) {
+            metrics.put("coalescedBatches", coalescer.getBatchesCount());
+            metrics.put("coalescedRows", coalescer.getCoalescedRowsCount());
+        }
+        metrics.putAll(Metrics.snapshot());
+        return metrics;
+    }
+
+    /**
+     * Read the body of a request
+     * @param inputStream the body
+     * @return the bytes of the body, null if it is bigger than MAXIMUM_BODY_BYTES
+     * @throws IOException if the body cannot be read
+     */
+    private static byte[] readBody(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            if (body.size() + read > MAXIMUM_BODY_BYTES)
+                return null;
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Check if a body is JSON
+     * @param contentType the Content-Type of the request, null if it has none
+     * @param body the body
+     * @return true if the Content-Type says JSON, or if there is no Content-Type (or a generic one) and the body starts as JSON
+     */
+    private static boolean isJson(String contentType, String body) {
+        if (contentType != null && contentType.contains("json"))
+            return true;
+        if (contentType != null && contentType.contains("csv"))
+            return false;
+        String trimmed = body.trim();
+        return trimmed.startsWith("{") || trimmed.startsWith("[");
+    }
+
+    /**
+     * Answer a request with an error
+     * @param exchange the exchange
+     * @param status the HTTP status
+     * @param message the description of the error
+     * @throws IOException if the answer cannot be sent
+     */
+    private void fail(HttpExchange exchange, int status, String message) throws IOException {
+        failedRequests.increment();
+        send(exchange, status, "application/json", "{\"error\":" + quote(message) + "}");
+    }
+
+    /**
+     * Send an answer
+     * @param exchange the exchange
+     * @param status the HTTP status
+     * @param contentType the type of the answer
+     * @param body the body of the answer
+     * @throws IOException if the answer cannot be sent
+     */
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * Write the predictions as a CSV body
+     * @param predictions the predictions
+     * @return a "prediction" header and one prediction per line
+     */
+    private static String toCsv(List<String> predictions) {
+        StringBuilder builder = new StringBuilder("prediction\n");
+        for (String prediction : predictions)
+            builder.append(prediction == null ? "" : prediction).append('\n');
+        return builder.toString();
+    }
+
+    /**
+     * Write the predictions as a JSON array
+     * @param predictions the predictions
+     * @return the JSON array
+     */
+    private static String toJsonArray(List<String> predictions) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int index = 0; index < predictions.size(); ++index) {
+            if (index > 0)
+                builder.append(',');
+            builder.append(quote(predictions.get(index)));
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Write a String as a JSON string
+     * @param value the value
+     * @return the quoted and escaped value, null if the value is null
+     */
+    static String quote(String value) {
+        if (value == null)
+            return "null";
+        StringBuilder builder = new StringBuilder("\"");
+        for (int index = 0; index < value.length(); ++index) {
+            char current = value.charAt(index);
+            switch (current) {
+                case '"': builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\t': builder.append("\\t"); break;
+                default:
+                    if (current < 0x20)
+                        builder.append(String.format("\\u%04x", (int) current));
+                    else
+                        builder.append(current);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * Get the tree that scores the rows
+     * @return the tree
+     */
+    public Tree getTree() {
+        return tree;
+    }
+
+    /**
+     * Get the coalescer of the single-row requests
+     * @return the coalescer, null if every request is scored on its own
+     */
+    public RequestCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * Set the coalescer of the single-row requests
+     * It should score with the tree of the server; it is closed when the server stops
+     * @param coalescer the coalescer, null to score every request on its own
+     */
+    public void setCoalescer(RequestCoalescer coalescer) {
+        this.coalescer = coalescer;
+    }
+
+    /**
+     * Get the port of the server
+     * @return the port the server listens on (the chosen one if it was created with port 0), -1 if it is not started
+     */
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    /**
+     * Check if the requests are handled on virtual threads
+     * @return true if the server runs on virtual threads, false if it runs on a pool of platform threads (or is not started)
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Start a server for a saved tree
+     * @param args the file of the tree and, optionally, the port (8080 by default), the maximum batch size, the maximum delay
+     *             in microseconds and the number of scoring threads (the available processors by default) of the coalescer
+     *             of the single-row requests (no coalescer by default)
+     * @throws IOException if the tree cannot be loaded or the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ScoringServer <model file> [port] [maximum batch size] [maximum delay in microseconds] [scoring threads]");
+            System.exit(1);
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        final ScoringServer scoringServer = load(new File(args[0]), port);
+        if (args.length > 2) {
+            long maximumDelay = args.length > 3 ? Long.parseLong(args[3]) : RequestCoalescer.DEFAULT_MAXIMUM_DELAY_MICROS;
+            int scoringThreads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+            scoringServer.setCoalescer(new RequestCoalescer(scoringServer.getTree(), Integer.parseInt(args[2]),
+                    maximumDelay, TimeUnit.MICROSECONDS, scoringThreads));
+        }
+        scoringServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                scoringServer.stop(1);
+            }
+        });
+        System.out.println("Scoring " + scoringServer.getTree().getClass().getSimpleName() + " on port " + scoringServer.getPort()
+                + (scoringServer.isVirtualThreads() ? " (virtual threads)" : " (platform threads)")
+                + (scoringServer.getCoalescer() != null ? ", coalescing up to " + scoringServer.getCoalescer().getMaximumBatchSize() + " rows on "
+                        + scoringServer.getCoalescer().getScoringThreads() + " threads" : ""));
+    }
+}
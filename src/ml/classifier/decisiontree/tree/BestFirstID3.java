@@ -0,0 +1,276 @@
+package ml.classifier.decisiontree.tree;
+
+import ml.classifier.decisiontree.instance.Attribute;
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.EncodedDataset;
+import ml.classifier.decisiontree.purityfunction.PurityFunction;
+import ml.utils.Pair;
+import ml.utils.monitoring.NodeProbe;
+
+import java.util.PriorityQueue;
+
+/**
+ * This class models an ID3 decision tree that is grown best-first (leaf-wise)
+ * The leaves that can still be split are kept in a priority queue, ordered by their purity gain
+ * (the purity function of the leaf minus the purity function of its best split)
+ * At each step the leaf with the biggest gain is split, until the queue is empty or the GrowthBudget is spent
+ * Every leaf is a TerminalNode labeled with its majority value, so the tree can be used at any moment
+ */
+public class BestFirstID3 extends ID3 {
+
+    private static final long serialVersionUID = 1L;
+
+    //Rough size of a node and of its decision, used for the memory budget
+    private static final long NODE_BYTES = 96;
+
+    private transient EncodedDataset encodedDataset;
+    private GrowthBudget growthBudget;
+
+    private int leavesCount;
+    private int depth;
+    private long memoryBytes;
+    private long countsBytes;
+    //The rows of a child keep the order of the rows of its parent, so they are sorted in every leaf if they are sorted in the root
+    private boolean rowsSorted;
+
+    /**
+     * This class models a leaf of the tree that can still be split
+     */
+    private static class Leaf implements Comparable<Leaf> {
+
+        private Pair<Attribute, Node> decision;
+        private int[] rows;
+        private int depth;
+        private int[][][] counts;
+        private SplitSearch.Split split;
+        private double gain;
+        private long order;
+
+        @Override
+        public int compareTo(Leaf other) {
+            //The biggest gain first, then the oldest leaf first
+            int result = Double.compare(other.gain, this.gain);
+            return result != 0 ? result : Long.compare(this.order, other.order);
+        }
+    }
+
+    /**
+     * The BestFirstID3 constructor
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     * @param growthBudget the limits of the tree
+     */
+    public BestFirstID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, GrowthBudget growthBudget) {
+        this(dataset, outcomeAttributeName, purityFunction, growthBudget, new TrainingMonitor());
+    }
+
+    /**
+     * The BestFirstID3 constructor
+     * The maximum build time of the budget stops the growth and keeps the tree; the deadline of the monitor aborts the build
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     * @param growthBudget the limits of the tree
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     */
+    public BestFirstID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, GrowthBudget growthBudget, TrainingMonitor trainingMonitor) {
+        dataset.setOutcomeAttributeName(outcomeAttributeName);
+        setPurityFunction(purityFunction);
+        setTrainingMonitor(trainingMonitor);
+        this.encodedDataset = new EncodedDataset(dataset).collapseDuplicates();
+        this.growthBudget = growthBudget;
+        createTree(encodedDataset.getAllRows());
+    }
+
+    /**
+     * The BestFirstID3 constructor
+     * Creates the tree only from the given rows of an already encoded dataset
+     * @param encodedDataset the encoded dataset
+     * @param rows the indexes of the rows used to create the tree
+     * @param purityFunction the purity function used to separate the values
+     * @param growthBudget the limits of the tree
+     */
+    public BestFirstID3(EncodedDataset encodedDataset, int[] rows, PurityFunction purityFunction, GrowthBudget growthBudget) {
+        this(encodedDataset, rows, purityFunction, growthBudget, new TrainingMonitor());
+    }
+
+    /**
+     * The BestFirstID3 constructor
+     * Creates the tree only from the given rows of an already encoded dataset
+     * @param encodedDataset the encoded dataset
+     * @param rows the indexes of the rows used to create the tree
+     * @param purityFunction the purity function used to separate the values
+     * @param growthBudget the limits of the tree
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     */
+    public BestFirstID3(EncodedDataset encodedDataset, int[] rows, PurityFunction purityFunction, GrowthBudget growthBudget, TrainingMonitor trainingMonitor) {
+        setPurityFunction(purityFunction);
+        setTrainingMonitor(trainingMonitor);
+        this.encodedDataset = encodedDataset;
+        this.growthBudget = growthBudget;
+        createTree(rows);
+    }
+
+    /**
+     * Get the budget used to grow the tree
+     * @return the growth budget
+     */
+    public GrowthBudget getGrowthBudget() {
+        return growthBudget;
+    }
+
+    /**
+     * Get the number of leaves (TerminalNodes) of the tree
+     * @return the number of leaves
+     */
+    public int getLeavesCount() {
+        return leavesCount;
+    }
+
+    /**
+     * Get the depth of the tree (the root is at depth 1)
+     * @return the depth of the tree
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Create the tree by splitting the best leaf until the budget is spent
+     * @param rows the indexes of the rows used to create the tree
+     */
+    private void createTree(int[] rows) {
+        long deadline = growthBudget.getMaximumBuildTimeMillis() == Long.MAX_VALUE ? Long.MAX_VALUE
+                : System.currentTimeMillis() + growthBudget.getMaximumBuildTimeMillis();
+        PriorityQueue<Leaf> queue = new PriorityQueue<>();
+        long order = 0;
+
+        countsBytes = 0;
+        for (int attributeIndex = 0; attributeIndex < encodedDataset.getAttributesCount(); ++attributeIndex)
+            countsBytes += 4L * encodedDataset.getCardinality(attributeIndex) * encodedDataset.getClassesCount();
+
+        rowsSorted = SplitSearch.isSorted(rows);
+        getTrainingMonitor().start(rows.length);
+        Leaf root = createLeaf(null, rows, 1, order++);
+        setRoot(root.decision.getSecond());
+        leavesCount = 1;
+        depth = 1;
+        memoryBytes = NODE_BYTES;
+        offer(queue, root);
+
+        while (!queue.isEmpty()) {
+            if (System.currentTimeMillis() > deadline)
+                break;
+
+            Leaf leaf = queue.poll();
+            memoryBytes -= leafBytes(leaf);
+
+            int attributeIndex = leaf.split.getAttributeIndex();
+            int[][] attributeCounts = leaf.counts[attributeIndex];
+            int childrenCount = SplitSearch.countNonEmpty(attributeCounts);
+
+            if (leavesCount + childrenCount - 1 > growthBudget.getMaximumLeaves())
+                continue;
+            if (memoryBytes + 4L * leaf.rows.length + childrenCount * (NODE_BYTES + countsBytes) > growthBudget.getMaximumMemoryBytes())
+                break;
+
+            //Split the rows of the leaf by the value of the chosen attribute (the counts are weighted, so the rows are counted again)
+            int[] codes = encodedDataset.getCodes(attributeIndex, leaf.rows);
+            int[][] childRows = new int[attributeCounts.length][];
+            int[] childSizes = new int[attributeCounts.length];
+            for (int code : codes)
+                ++childSizes[code];
+            for (int value = 0; value < attributeCounts.length; ++value)
+                childRows[value] = new int[childSizes[value]];
+            int[] filled = new int[attributeCounts.length];
+            for (int index = 0; index < codes.length; ++index)
+                childRows[codes[index]][filled[codes[index]]++] = leaf.rows[index];
+
+            String attributeName = encodedDataset.getAttributeName(attributeIndex);
+            InnerNode node = new InnerNode(attributeName);
+            node.setDefaultLabel(leaf.decision.getSecond().getLabel());
+            node.setPurityFunctionValue(leaf.split.getPurityFunctionValue());
+            leaf.decision.setSecond(node);
+            if (leaf.decision.getFirst() == null)
+                setRoot(node);
+
+            for (int value = 0; value < attributeCounts.length; ++value) {
+                if (childSizes[value] == 0)
+                    continue;
+                Attribute attribute = new Attribute(attributeName, encodedDataset.getAttributeValues(attributeIndex).get(value));
+                Leaf child = createLeaf(attribute, childRows[value], leaf.depth + 1, order++);
+                node.addDecision(child.decision);
+                offer(queue, child);
+            }
+
+            leavesCount += childrenCount - 1;
+            depth = Math.max(depth, leaf.depth + 1);
+            memoryBytes += childrenCount * NODE_BYTES;
+        }
+
+        getTrainingMonitor().finish();
+    }
+
+    /**
+     * Create a new leaf and choose its best split
+     * @param attribute the decision that leads to the leaf, null for the root
+     * @param rows the rows of the leaf
+     * @param depth the depth of the leaf
+     * @param order the creation order of the leaf
+     * @return the new leaf
+     */
+    private Leaf createLeaf(Attribute attribute, int[] rows, int depth, long order) {
+        Leaf leaf = new Leaf();
+        leaf.rows = rows;
+        leaf.depth = depth;
+        leaf.order = order;
+        NodeProbe probe = NodeProbe.start("BestFirstID3", depth);
+        leaf.counts = SplitSearch.newCounts(encodedDataset);
+
+        int[] classCounts = new int[encodedDataset.getClassesCount()];
+        long mark = probe.mark();
+        SplitSearch.count(encodedDataset, rows, rowsSorted, leaf.counts, classCounts);
+        probe.addConfusionMatrixTime(mark);
+        leaf.split = SplitSearch.findBestSplit(encodedDataset, leaf.counts, classCounts, getPurityFunction(), growthBudget.getMinimumSamplesPerLeaf(), probe);
+        probe.finish(rows.length);
+
+        String label = encodedDataset.getOutcomeValues().get(SplitSearch.majorityClass(classCounts));
+        Node node = new TerminalNode(label);
+        node.setPurityFunctionValue(leaf.split.getPurityFunctionValue());
+        leaf.decision = new Pair<>(attribute, node);
+
+        if (!leaf.split.isTerminal())
+            leaf.gain = SplitSearch.nodePurity(encodedDataset, classCounts, getPurityFunction()) - leaf.split.getPurityFunctionValue();
+
+        return leaf;
+    }
+
+    /**
+     * Add a leaf to the queue, if it can be split within the budget, and report it to the training monitor
+     * @param queue the queue of leaves
+     * @param leaf the leaf
+     */
+    private void offer(PriorityQueue<Leaf> queue, Leaf leaf) {
+        //The nodes are reported here, once it is known whether they can still be split
+        if (leaf.split.isTerminal() || leaf.depth >= growthBudget.getMaximumDepth()) {
+            leaf.counts = null;
+            getTrainingMonitor().nodeCreated(leaf.depth, leaf.rows.length, true);
+            return;
+        }
+        getTrainingMonitor().nodeCreated(leaf.depth, leaf.rows.length, false);
+        queue.add(leaf);
+        memoryBytes += leafBytes(leaf);
+    }
+
+    /**
+     * Get the memory held by a leaf while it waits in the queue (its rows and its counts)
+     * @param leaf the leaf
+     * @return the memory held by the leaf, in bytes
+     */
+    private long leafBytes(Leaf leaf) {
+        return 4L * leaf.rows.length + countsBytes;
+    }
+}
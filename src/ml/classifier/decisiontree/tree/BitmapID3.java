@@ -0,0 +1,220 @@
+package ml.classifier.decisiontree.tree;
+
+import ml.classifier.decisiontree.instance.Attribute;
+import ml.classifier.decisiontree.instance.AttributeSubset;
+import ml.classifier.decisiontree.instance.BitmapIndex;
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.EncodedDataset;
+import ml.classifier.decisiontree.instance.RowBitmap;
+import ml.classifier.decisiontree.purityfunction.PurityFunction;
+import ml.utils.monitoring.NodeProbe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class models an ID3 decision tree whose nodes hold their rows as compressed bitmaps (see RowBitmap)
+ * It chooses the same attributes as ID3, but the rows are never copied or scanned one by one:
+ * the rows of a child are the bitmap of its parent AND the bitmap of its value (see BitmapIndex),
+ * and the counts of a node are popcounts of these bitmaps against the bitmaps of the classes
+ * The work of a node depends on the number of 64-row words (or on the rows of the sparse containers), not on the number of rows,
+ * so it pays off on big datasets with low-cardinality attributes
+ * With the BINARY_SUBSET split mode, every node has two children, the best subset of the values of its attribute and the other values
+ */
+public class BitmapID3 extends ID3 {
+
+    private static final long serialVersionUID = 1L;
+
+    //A node with less than one row for every SPARSE_NODE_RATIO rows of the dataset is counted row by row
+    private static final int SPARSE_NODE_RATIO = 64;
+
+    private transient BitmapIndex bitmapIndex;
+    private transient EncodedDataset encodedDataset;
+
+    /**
+     * The BitmapID3 constructor
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     */
+    public BitmapID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction) {
+        this(dataset, outcomeAttributeName, purityFunction, SplitMode.MULTIWAY, new TrainingMonitor());
+    }
+
+    /**
+     * The BitmapID3 constructor
+     * The identical rows are not collapsed, so the counts stay plain popcounts
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     * @param splitMode the way the nodes split their attribute
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     */
+    public BitmapID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, SplitMode splitMode, TrainingMonitor trainingMonitor) {
+        dataset.setOutcomeAttributeName(outcomeAttributeName);
+        setPurityFunction(purityFunction);
+        setTrainingMonitor(trainingMonitor);
+        setSplitMode(splitMode);
+        this.encodedDataset = new EncodedDataset(dataset);
+        this.bitmapIndex = new BitmapIndex(encodedDataset);
+        createTree(RowBitmap.range(encodedDataset.getObservationsCount()));
+    }
+
+    /**
+     * The BitmapID3 constructor
+     * Creates the tree only from the given rows of an already encoded dataset
+     * @param encodedDataset the encoded dataset
+     * @param rows the indexes of the rows used to create the tree
+     * @param purityFunction the purity function used to separate the values
+     */
+    public BitmapID3(EncodedDataset encodedDataset, int[] rows, PurityFunction purityFunction) {
+        this(new BitmapIndex(encodedDataset), rows, purityFunction, SplitMode.MULTIWAY, new TrainingMonitor());
+    }
+
+    /**
+     * The BitmapID3 constructor
+     * Creates the tree only from the given rows of an already indexed dataset, so the index can be shared by many trees
+     * @param bitmapIndex the bitmap index of the encoded dataset
+     * @param rows the indexes of the rows used to create the tree
+     * @param purityFunction the purity function used to separate the values
+     * @param splitMode the way the nodes split their attribute
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     */
+    public BitmapID3(BitmapIndex bitmapIndex, int[] rows, PurityFunction purityFunction, SplitMode splitMode, TrainingMonitor trainingMonitor) {
+        setPurityFunction(purityFunction);
+        setTrainingMonitor(trainingMonitor);
+        setSplitMode(splitMode);
+        this.encodedDataset = bitmapIndex.getEncodedDataset();
+        this.bitmapIndex = bitmapIndex;
+        int[] sortedRows = rows.clone();
+        Arrays.sort(sortedRows);
+        createTree(RowBitmap.of(sortedRows));
+    }
+
+    /**
+     * Create the tree from the root
+     * @param rows the rows used to create the tree
+     */
+    private void createTree(RowBitmap rows) {
+        TrainingMonitor trainingMonitor = getTrainingMonitor();
+        trainingMonitor.start(bitmapIndex.getCount(rows));
+        setRoot(createNode(rows, 1));
+        trainingMonitor.finish();
+    }
+
+    /**
+     * Create the node of a set of rows, and its subtree
+     * @param rows the rows of the node
+     * @param depth the depth of the node (the root is at depth 1)
+     * @return the node
+     */
+    private Node createNode(RowBitmap rows, int depth) {
+        int attributesCount = encodedDataset.getAttributesCount();
+        int classesCount = encodedDataset.getClassesCount();
+        TrainingMonitor trainingMonitor = getTrainingMonitor();
+        trainingMonitor.check();
+
+        NodeProbe probe = NodeProbe.start("BitmapID3", depth);
+        long mark = probe.mark();
+        int[] classCounts = new int[classesCount];
+        for (int outcome = 0; outcome < classesCount; ++outcome)
+            classCounts[outcome] = (int) bitmapIndex.getCount(rows, bitmapIndex.getClassBitmap(outcome));
+        long rowsCount = 0;
+        for (int count : classCounts)
+            rowsCount += count;
+
+        int[][][] counts = SplitSearch.newCounts(encodedDataset);
+        if (isSparse(rows)) {
+            //Less than one row per 64-row word: the words bring nothing, the rows are counted one by one (a bitmap gives them sorted)
+            SplitSearch.count(encodedDataset, rows.toArray(), true, counts, new int[classesCount]);
+        }
+        else {
+            for (int attributeIndex = 0; attributeIndex < attributesCount; ++attributeIndex) {
+                for (int value = 0; value < encodedDataset.getCardinality(attributeIndex); ++value) {
+                    RowBitmap valueBitmap = bitmapIndex.getValueBitmap(attributeIndex, value);
+                    if (rows.andCardinality(valueBitmap) == 0)
+                        continue;
+                    RowBitmap valueRows = rows.and(valueBitmap);
+                    //The classes missing from the node are skipped, and the last class is what remains of the rows of the value
+                    long remaining = bitmapIndex.getCount(valueRows);
+                    int[] valueCounts = counts[attributeIndex][value];
+                    for (int outcome = 0; outcome < classesCount - 1 && remaining > 0; ++outcome) {
+                        if (classCounts[outcome] == 0)
+                            continue;
+                        valueCounts[outcome] = (int) bitmapIndex.getCount(valueRows, bitmapIndex.getClassBitmap(outcome));
+                        remaining -= valueCounts[outcome];
+                    }
+                    valueCounts[classesCount - 1] = (int) remaining;
+                }
+            }
+        }
+        probe.addConfusionMatrixTime(mark);
+
+        SplitSearch.Split split = SplitSearch.findBestSplit(encodedDataset, counts, classCounts, getPurityFunction(), 1, getSplitMode(), probe);
+        probe.finish(rowsCount);
+        trainingMonitor.nodeCreated(depth, rowsCount, split.isTerminal());
+
+        String majorityLabel = encodedDataset.getOutcomeValues().get(SplitSearch.majorityClass(classCounts));
+        Node node;
+        if (split.isTerminal()) {
+            node = new TerminalNode(majorityLabel);
+        }
+        else {
+            int attributeIndex = split.getAttributeIndex();
+            String attributeName = encodedDataset.getAttributeName(attributeIndex);
+            InnerNode innerNode = new InnerNode(attributeName);
+            innerNode.setDefaultLabel(majorityLabel);
+
+            boolean[] subset = split.getSubset();
+            if (subset != null) {
+                //Two children: the rows of the values of the subset, then all the other rows
+                List<String> subsetValues = new ArrayList<>();
+                RowBitmap subsetRows = RowBitmap.empty();
+                for (int value = 0; value < subset.length; ++value) {
+                    if (subset[value]) {
+                        subsetValues.add(encodedDataset.getAttributeValues(attributeIndex).get(value));
+                        subsetRows = subsetRows.or(bitmapIndex.getValueBitmap(attributeIndex, value));
+                    }
+                }
+                innerNode.addDecision(new AttributeSubset(attributeName, subsetValues, false), createNode(rows.and(subsetRows), depth + 1));
+                innerNode.addDecision(new AttributeSubset(attributeName, subsetValues, true), createNode(rows.andNot(subsetRows), depth + 1));
+            }
+            else {
+                int[][] attributeCounts = counts[attributeIndex];
+                for (int value = 0; value < attributeCounts.length; ++value) {
+                    if (sum(attributeCounts[value]) == 0)
+                        continue;
+                    Attribute decision = new Attribute(attributeName, encodedDataset.getAttributeValues(attributeIndex).get(value));
+                    innerNode.addDecision(decision, createNode(rows.and(bitmapIndex.getValueBitmap(attributeIndex, value)), depth + 1));
+                }
+            }
+            node = innerNode;
+        }
+        node.setPurityFunctionValue(split.getPurityFunctionValue());
+        return node;
+    }
+
+    /**
+     * Check if a node has so few rows that counting them one by one is cheaper than intersecting bitmaps
+     * @param rows the rows of the node
+     * @return true if the node has less than one row for every 64 rows of the dataset
+     */
+    private boolean isSparse(RowBitmap rows) {
+        return (long) rows.getCardinality() * SPARSE_NODE_RATIO < encodedDataset.getObservationsCount();
+    }
+
+    /**
+     * Get the number of rows of a value from its class counts
+     * @param classCounts the class counts of the value
+     * @return the number of rows
+     */
+    private static long sum(int[] classCounts) {
+        long sum = 0;
+        for (int count : classCounts)
+            sum += count;
+        return sum;
+    }
+}
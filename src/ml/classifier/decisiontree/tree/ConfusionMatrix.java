@@ -5,6 +5,7 @@ import ml.classifier.decisiontree.instance.Instance;
 import ml.utils.Pair;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,7 @@ import java.util.Map;
  * The matrix is stored as a map of pairs: ((A1, 0), nA1), ((A1, 1), pA1), ...
  * The totals are stored in additional maps, each row/column name with its total
  * The total count of instances is stored in a variable
+ * Every instance is counted with its weight, so a collapsed dataset gives the same matrix as the original one
  * The labels for the row/column are stored in two strings
  * Created by virgil on 29.10.2015.
  */
@@ -69,22 +71,58 @@ public class ConfusionMatrix {
         this.setDataset(dataset);
     }
 
+    /**
+     * The ConfusionMatrix constructor
+     * Creates the matrix from already computed counts, where counts[i][j] is the count for (rowValues[i], columnValues[j])
+     * Only the non zero counts are stored, as it happens when the matrix is created from a dataset
+     * @param rowLabel the row label
+     * @param columnLabel the column label
+     * @param rowValues the row values, indexed as the first dimension of counts
+     * @param columnValues the column values, indexed as the second dimension of counts
+     * @param counts the counts
+     */
+    public ConfusionMatrix(String rowLabel, String columnLabel, List<String> rowValues, List<String> columnValues, int[][] counts) {
+        this(rowLabel, columnLabel);
+
+        for (int row = 0; row < counts.length; ++row) {
+            for (int column = 0; column < counts[row].length; ++column) {
+                int count = counts[row][column];
+                if (count != 0) {
+                    this.addValueToMatrix(rowValues.get(row), columnValues.get(column), count);
+                    this.addValueToRowTotal(rowValues.get(row), count);
+                    this.addValueToColumnTotal(columnValues.get(column), count);
+                    this.totalCount += count;
+                }
+            }
+        }
+    }
+
     /**
      * Set the dataset
-     * Create the matrix and the totals from the dataset
+     * Create the matrix and the totals from the dataset, counting every observation with its weight
      * @param dataset the dataset
      */
     public void setDataset(Dataset dataset) {
-        for (Instance observation : dataset.getObservations()) {
+        addObservations(dataset.getObservations(), 0, dataset.getObservations().size());
+    }
+
+    /**
+     * Add a range of observations to the matrix and the totals, counting every observation with its weight
+     * @param observations the observations
+     * @param from the index of the first observation to be added
+     * @param to the index after the last observation to be added
+     */
+    public void addObservations(List<Instance> observations, int from, int to) {
+        for (Instance observation : observations.subList(from, to)) {
             String rowValue = observation.getAttributeByName(rowLabel).getAttributeValue();
             String columnValue = observation.getAttributeByName(columnLabel).getAttributeValue();
+            int weight = observation.getWeight();
 
-            this.addValueToMatrix(rowValue, columnValue);
-            this.addValueToRowTotal(rowValue);
-            this.addValueToColumnTotal(columnValue);
+            this.addValueToMatrix(rowValue, columnValue, weight);
+            this.addValueToRowTotal(rowValue, weight);
+            this.addValueToColumnTotal(columnValue, weight);
+            this.totalCount += weight;
         }
-
-        this.totalCount = dataset.getObservationsCount();
     }
 
     /**
@@ -104,6 +142,23 @@ public class ConfusionMatrix {
         matrix.put(key, value);
     }
 
+    /**
+     * Add count to the matrix
+     * Same as adding the value count times
+     * @param rowValue the row value
+     * @param columnValue the column value
+     * @param count the count to be added
+     */
+    public void addValueToMatrix(String rowValue, String columnValue, int count) {
+        Pair<String, String> key = new Pair<>(rowValue, columnValue);
+
+        Integer value = matrix.get(key);
+        value = (value == null ? 0 : value);
+        value += count;
+
+        matrix.put(key, value);
+    }
+
     /**
      * Add value to the row total
      * If the value doesn't exist for the given row value, then add it now
@@ -119,6 +174,21 @@ public class ConfusionMatrix {
         rowTotal.put(rowValue, value);
     }
 
+    /**
+     * Add count to the row total
+     * Same as adding the value count times
+     * @param rowValue the row value
+     * @param count the count to be added
+     */
+    public void addValueToRowTotal(String rowValue, int count) {
+        Integer value = rowTotal.get(rowValue);
+
+        value = (value == null ? 0 : value);
+        value += count;
+
+        rowTotal.put(rowValue, value);
+    }
+
     /**
      * Add value to the column total
      * If the value doesn't exist for the given column value, then add it now
@@ -134,6 +204,21 @@ public class ConfusionMatrix {
         columnTotal.put(columnValue, value);
     }
 
+    /**
+     * Add count to the column total
+     * Same as adding the value count times
+     * @param columnValue the column value
+     * @param count the count to be added
+     */
+    public void addValueToColumnTotal(String columnValue, int count) {
+        Integer value = columnTotal.get(columnValue);
+
+        value = (value == null ? 0 : value);
+        value += count;
+
+        columnTotal.put(columnValue, value);
+    }
+
     /**
      * Get the column total
      * @param column the name of the column for which the total is asked
@@ -224,6 +309,35 @@ public class ConfusionMatrix {
         return columnValues;
     }
 
+    /**
+     * Get the non zero counts of the matrix
+     * @return the counts, by (row value, column value), as a read-only view
+     */
+    public Map<Pair<String, String>, Integer> getCounts() {
+        return Collections.unmodifiableMap(matrix);
+    }
+
+    /**
+     * Get the counts of the matrix as a primitive array, to be given to PurityFunction.calculate(int[][])
+     * The rows and the columns are in no particular order, which does not change the value of a purity function
+     * @return the counts, as counts[row][column]
+     */
+    public int[][] toCounts() {
+        Map<String, Integer> rowIndexes = new HashMap<>();
+        Map<String, Integer> columnIndexes = new HashMap<>();
+        for (Pair<String, String> key : matrix.keySet()) {
+            if (!rowIndexes.containsKey(key.getFirst()))
+                rowIndexes.put(key.getFirst(), rowIndexes.size());
+            if (!columnIndexes.containsKey(key.getSecond()))
+                columnIndexes.put(key.getSecond(), columnIndexes.size());
+        }
+
+        int[][] counts = new int[rowIndexes.size()][columnIndexes.size()];
+        for (Map.Entry<Pair<String, String>, Integer> cell : matrix.entrySet())
+            counts[rowIndexes.get(cell.getKey().getFirst())][columnIndexes.get(cell.getKey().getSecond())] = cell.getValue();
+        return counts;
+    }
+
     /**
      * Get the value at (row, column) from the matrix
      * @param row the row
@@ -2,20 +2,37 @@ package ml.classifier.decisiontree.tree;
 
 import ml.classifier.decisiontree.instance.Attribute;
 import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.DiscretizationModel;
 import ml.classifier.decisiontree.instance.Discretizer;
 import ml.classifier.decisiontree.instance.Instance;
 import ml.classifier.decisiontree.purityfunction.PurityFunction;
 import ml.utils.Pair;
+import ml.utils.monitoring.NodeProbe;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * This class models an Extended ID3 decision tree
  * It extends the Tree class
+ * Without outputClasses, the continuous valued attributes are discretized at every node with the MDL method of the Discretizer,
+ * so any number of classes is handled and a continuous attribute can split a node in any number of intervals
+ * With outputClasses, every continuous attribute is split in two, at the point that best maps its values to the output classes
+ *
+ * Once the tree is created, the split points of all its nodes are gathered in a DiscretizationModel (for every attribute, the union of the split points of its nodes)
+ * At scoring time every continuous value is parsed and binned once, with a binary search, and every node maps the bin to its decision through a table
+ * A batch of observations is binned column by column before the traversal
  * Created by virgil on 05.11.2015.
  */
 public class ExtendedID3 extends Tree {
 
+    private static final long serialVersionUID = 1L;
+
     private List<String> outputClasses;
+    private double prePruningThreshold;
+    private DiscretizationModel discretizationModel;
 
     /**
      * The ID3 Constructor
@@ -24,8 +41,7 @@ public class ExtendedID3 extends Tree {
      * @param purityFunction the purity function used to separate the values
      */
     public ExtendedID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction) {
-        setPurityFunction(purityFunction);
-        createTree(dataset, outcomeAttributeName);
+        this(dataset, outcomeAttributeName, purityFunction, null, new TrainingMonitor());
     }
 
     /**
@@ -33,9 +49,26 @@ public class ExtendedID3 extends Tree {
      * @param dataset the dataset from which the tree is created
      * @param outcomeAttributeName the outcome attribute name
      * @param purityFunction the purity function used to separate the values
+     * @param outputClasses the output classes used to discretize the continuous valued attributes
+     * @throws IllegalArgumentException if the dataset has continuous valued attributes and weighted rows (see Discretizer.discretize(List))
      */
     public ExtendedID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, List<String> outputClasses) {
+        this(dataset, outcomeAttributeName, purityFunction, outputClasses, new TrainingMonitor());
+    }
+
+    /**
+     * The ID3 Constructor
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     * @param outputClasses the output classes used to discretize the continuous valued attributes
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     * @throws IllegalArgumentException if the dataset has continuous valued attributes and weighted rows (see Discretizer.discretize(List))
+     */
+    public ExtendedID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, List<String> outputClasses, TrainingMonitor trainingMonitor) {
         setPurityFunction(purityFunction);
+        setTrainingMonitor(trainingMonitor);
         this.outputClasses = outputClasses;
         createTree(dataset, outcomeAttributeName);
     }
@@ -46,18 +79,98 @@ public class ExtendedID3 extends Tree {
      * @param outcomeAttributeName the outcome attribute
      */
     private void createTree(Dataset dataset, String outcomeAttributeName) {
-        Node root = createNode(dataset, outcomeAttributeName);
+        //The hard pre-pruning threshold is .5 for two classes, and grows with the maximum entropy for more classes
+        int classesCount = dataset.getAllDistinctValuesForAttribute(outcomeAttributeName).size();
+        this.prePruningThreshold = outputClasses != null ? .5 : .5 * Math.max(1.0, Math.log(classesCount) / Math.log(2));
+
+        getTrainingMonitor().start(dataset.getObservations().size());
+        Node root = createNode(dataset, outcomeAttributeName, 1);
         this.setRoot(root);
+        createDiscretizationModel();
+        getTrainingMonitor().finish();
+    }
+
+    /**
+     * Get the model that bins the continuous values before the traversal
+     * @return the discretization model of the tree
+     */
+    public DiscretizationModel getDiscretizationModel() {
+        return discretizationModel;
+    }
+
+    /**
+     * Gather the split points of all the nodes in the DiscretizationModel, and map the bins of the model to the decisions of every node
+     * The split points of a node are a subset of the split points of the model, so every bin of the model falls in a single interval of the node
+     */
+    private void createDiscretizationModel() {
+        List<InnerNode> intervalNodes = new ArrayList<>();
+        collectIntervalNodes(getRoot(), intervalNodes);
+
+        Map<String, TreeSet<Double>> allSplitPoints = new HashMap<>();
+        for (InnerNode node : intervalNodes) {
+            TreeSet<Double> attributeSplitPoints = allSplitPoints.get(node.getLabel());
+            if (attributeSplitPoints == null) {
+                attributeSplitPoints = new TreeSet<>();
+                allSplitPoints.put(node.getLabel(), attributeSplitPoints);
+            }
+            for (double splitPoint : node.getSplitPoints())
+                attributeSplitPoints.add(splitPoint);
+        }
+
+        discretizationModel = new DiscretizationModel();
+        for (Map.Entry<String, TreeSet<Double>> entry : allSplitPoints.entrySet()) {
+            double[] cutPoints = new double[entry.getValue().size()];
+            int index = 0;
+            for (Double splitPoint : entry.getValue())
+                cutPoints[index++] = splitPoint;
+            discretizationModel.addAttribute(entry.getKey(), cutPoints);
+        }
+
+        for (InnerNode node : intervalNodes) {
+            int attributeIndex = discretizationModel.getAttributeIndex(node.getLabel());
+            double[] cutPoints = discretizationModel.getCutPoints(attributeIndex);
+            int[] decisionOfBin = new int[cutPoints.length + 1];
+            for (int bin = 0; bin < decisionOfBin.length; ++bin) {
+                //Any value of the bin is in the same interval of the node as the lower bound of the bin
+                int interval = bin == 0 ? 0 : Discretizer.getInterval(node.getSplitPoints(), cutPoints[bin - 1]);
+                String intervalLabel = Discretizer.getIntervalLabel(node.getSplitPoints(), interval);
+                decisionOfBin[bin] = -1;
+                List<Pair<Attribute, Node>> decisions = node.getDecisions();
+                for (int decisionIndex = 0; decisionIndex < decisions.size(); ++decisionIndex) {
+                    if (decisions.get(decisionIndex).getFirst().getAttributeValue().equals(intervalLabel)) {
+                        decisionOfBin[bin] = decisionIndex;
+                        break;
+                    }
+                }
+            }
+            node.setDecisionOfBin(decisionOfBin);
+        }
+    }
+
+    /**
+     * Find all the nodes that split a continuous attribute in intervals
+     * @param node the root of the subtree
+     * @param intervalNodes the list that receives the nodes
+     */
+    private static void collectIntervalNodes(Node node, List<InnerNode> intervalNodes) {
+        if (node.isTerminal())
+            return;
+        if (((InnerNode) node).getSplitPoints() != null)
+            intervalNodes.add((InnerNode) node);
+        for (Pair<Attribute, Node> decision : ((InnerNode) node).getDecisions())
+            collectIntervalNodes(decision.getSecond(), intervalNodes);
     }
 
     /**
      * Create a new node in the tree
      * @param dataset the simplified dataset (with respect to the attribute)
      * @param labelName the label
+     * @param depth the depth of the new node (the root is at depth 1)
      * @return the new node
      */
-    private Node createNode(Dataset dataset, String labelName){
+    private Node createNode(Dataset dataset, String labelName, int depth){
         Node node;
+        NodeProbe probe = NodeProbe.start("ExtendedID3", depth);
 
         //System.out.println(labelName + " " + dataset.toString());
 
@@ -67,19 +180,27 @@ public class ExtendedID3 extends Tree {
         boolean singleLabel = false;
 
         //Discretize the dataset
-        Discretizer discretizer = new Discretizer(dataset, dataset.getContinuousValuedAttributes());
-        //TODO: Find another way such that not only binary classification is possible
-        Dataset discretizedDataset = discretizer.discretize(this.outputClasses);
+        long discretizeMark = probe.mark();
+        List<String> continuousValuedAttributes = dataset.getContinuousValuedAttributes() != null ? dataset.getContinuousValuedAttributes() : new ArrayList<String>();
+        Discretizer discretizer = new Discretizer(dataset, continuousValuedAttributes);
+        Dataset discretizedDataset = this.outputClasses != null ? discretizer.discretize(this.outputClasses) : discretizer.discretize();
         List<Double> splitPoints = discretizer.getBestSplit();
+        probe.addDiscretizeTime(discretizeMark);
 
         Instance instance = discretizedDataset.getObservations().get(0); //this is just to gain access to the list of attributes
         for (Attribute attribute : instance.getAttributes()) {
             if (labelName.equals(attribute.getAttributeName()))
                 continue;
+            getTrainingMonitor().check();
+            long mark = probe.mark();
             ConfusionMatrix confusionMatrix = new ConfusionMatrix(discretizedDataset, attribute.getAttributeName(), labelName);
+            probe.addConfusionMatrixTime(mark);
             if (confusionMatrix.isUseless())
                 continue;
+            mark = probe.mark();
             Double currentEntropy = getPurityFunction().calculate(confusionMatrix);
+            probe.addPurityTime(mark);
+            probe.attributeScored();
             foundAttribute = true;
 
             //TODO: Edit to use any purity function, not only Entropy
@@ -89,6 +210,9 @@ public class ExtendedID3 extends Tree {
                 singleLabel = confusionMatrix.isSameLabel();
             }
         }
+        probe.finish(dataset.getObservations().size());
+        //The node is split only if the hard pre-pruning below lets it
+        getTrainingMonitor().nodeCreated(depth, dataset.getObservations().size(), foundAttribute == false || singleLabel == true || minimumEntropy >= prePruningThreshold);
         if (foundAttribute == false || singleLabel == true) {
             //Get the value that has the biggest count for the attribute
             //TODO: Get also the value of the split threshold in order to update the label to something like: Attribute < threshold (Edits needed in Discretizer)
@@ -99,9 +223,12 @@ public class ExtendedID3 extends Tree {
         }
         else {
             //Hard Pre-pruning done in order to have a small tree
-            if (minimumEntropy < .5) {
+            if (minimumEntropy < prePruningThreshold) {
 
                 node = new InnerNode();
+                boolean continuous = continuousValuedAttributes.contains(attributeName);
+                if (continuous && this.outputClasses == null)
+                    ((InnerNode) node).setSplitPoints(discretizer.getSplitPoints(attributeName));
                 //Get all the possible values for the attribute and create decisions (new Nodes)
                 List<String> allAttributeValues = discretizedDataset.getAllDistinctValuesForAttribute(attributeName);
 
@@ -112,7 +239,11 @@ public class ExtendedID3 extends Tree {
                     //Split by discretizedDataset, but send the original database to the next node such that it will chose its best split point in the continuous data
                     Dataset splitDataset = Dataset.splitDiscretizedDatasetByAttribute(discretizedDataset, dataset, attribute);
 
-                    if (splitDataset.getContinuousValuedAttributes().contains(attribute.getAttributeName())) {
+                    if (continuous && this.outputClasses == null) {
+                        //The value is already the label of the interval
+                        attribute.setIsContinuous(true);
+                    }
+                    else if (continuous) {
                         attribute.setAttributeValue(splitPoints.get(0).toString());
                         attribute.setIsContinuous(true);
                     }
@@ -120,11 +251,12 @@ public class ExtendedID3 extends Tree {
                         attribute.setIsContinuous(false);
                     }
 
-                    Node decisionNode = createNode(splitDataset, labelName);
+                    Node decisionNode = createNode(splitDataset, labelName, depth + 1);
 
                     ((InnerNode) node).addDecision(new Pair<Attribute, Node>(attribute, decisionNode));
                 }
                 node.setLabel(attributeName);
+                ((InnerNode) node).setDefaultLabel(discretizedDataset.getMajorityValueForAttribute(labelName));
                 node.setDataset(dataset);
                 node.setPurityFunctionValue(minimumEntropy);
             }
@@ -148,12 +280,54 @@ public class ExtendedID3 extends Tree {
      */
     @Override
     public String evaluate(Instance observation) {
-        System.out.println("ExtendedID3.evaluate");
+        int[] rowBins = discretizationModel.transformRow(observation);
+        int[][] bins = new int[rowBins.length][];
+        for (int attributeIndex = 0; attributeIndex < rowBins.length; ++attributeIndex)
+            bins[attributeIndex] = new int[]{rowBins[attributeIndex]};
+        return evaluate(observation, bins, 0);
+    }
+
+    /**
+     * Evaluate a batch of new instances using this tree
+     * The continuous values of the whole batch are binned column by column before the traversal
+     * @param observations the new observations
+     * @return the values of the evaluation (the predicted classes), in the order of the observations
+     */
+    @Override
+    public List<String> evaluateBatch(List<Instance> observations) {
+        int[][] bins = discretizationModel.transformColumns(observations);
+        List<String> predictions = new ArrayList<>(observations.size());
+        for (int row = 0; row < observations.size(); ++row)
+            predictions.add(evaluate(observations.get(row), bins, row));
+        return predictions;
+    }
+
+    /**
+     * Evaluate an observation whose continuous values are already binned
+     * @param observation the new observation
+     * @param bins the bins of the batch, as bins[attribute of the DiscretizationModel][row]
+     * @param row the row of the observation in the batch
+     * @return the value of the evaluation (the predicted class)
+     */
+    private String evaluate(Instance observation, int[][] bins, int row) {
         Node node = getRoot();
         while( node.isTerminal() == false ) {
             //System.out.println("ExtendedID3.evaluate: node = " + node);
+            Node currentNode = node;
 
             List<Pair<Attribute, Node>> decisions = ((InnerNode)node).getDecisions();
+
+            //A multi-way split of a continuous attribute: the bin of the value gives the decision
+            int[] decisionOfBin = ((InnerNode) node).getDecisionOfBin();
+            if (decisionOfBin != null) {
+                int bin = bins[discretizationModel.getAttributeIndex(node.getLabel())][row];
+                int decisionIndex = bin >= 0 ? decisionOfBin[bin] : -1;
+                if (decisionIndex < 0)
+                    return ((InnerNode) node).getDefaultLabel();
+                node = decisions.get(decisionIndex).getSecond();
+                continue;
+            }
+
             for( int decisionIndex = 0; decisionIndex < decisions.size(); ++decisionIndex) {
                 Pair<Attribute, Node> pair = decisions.get(decisionIndex);
 
@@ -190,12 +364,15 @@ public class ExtendedID3 extends Tree {
                     }
                 }
                 else {
-                    if (attribute.equals(observationAttribute)) {
+                    if (attribute.matches(observationAttribute)) {
                         node = pair.getSecond();
                         break;
                     }
                 }
             }
+            //The value of the observation was not seen in training
+            if (node == currentNode)
+                return ((InnerNode) node).getDefaultLabel();
         }
         return node.getLabel();
     }
@@ -0,0 +1,123 @@
+package ml.classifier.decisiontree.tree;
+
+import java.io.Serializable;
+
+/**
+ * This class models the budget of a tree that is grown best-first
+ * The tree stops growing as soon as one of the limits is reached
+ * Every limit is disabled by default (the tree is grown until no node can be split, as in ID3)
+ */
+public class GrowthBudget implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int maximumLeaves;
+    private int maximumDepth;
+    private int minimumSamplesPerLeaf;
+    private long maximumBuildTimeMillis;
+    private long maximumMemoryBytes;
+
+    /**
+     * The GrowthBudget default constructor
+     * Creates a budget without limits
+     */
+    public GrowthBudget() {
+        this.maximumLeaves = Integer.MAX_VALUE;
+        this.maximumDepth = Integer.MAX_VALUE;
+        this.minimumSamplesPerLeaf = 1;
+        this.maximumBuildTimeMillis = Long.MAX_VALUE;
+        this.maximumMemoryBytes = Long.MAX_VALUE;
+    }
+
+    /**
+     * Get the maximum number of leaves (TerminalNodes) of the tree
+     * @return the maximum number of leaves
+     */
+    public int getMaximumLeaves() {
+        return maximumLeaves;
+    }
+
+    /**
+     * Set the maximum number of leaves (TerminalNodes) of the tree
+     * @param maximumLeaves the new maximum number of leaves
+     */
+    public void setMaximumLeaves(int maximumLeaves) {
+        this.maximumLeaves = maximumLeaves;
+    }
+
+    /**
+     * Get the maximum depth of the tree (the root is at depth 1)
+     * @return the maximum depth
+     */
+    public int getMaximumDepth() {
+        return maximumDepth;
+    }
+
+    /**
+     * Set the maximum depth of the tree (the root is at depth 1)
+     * @param maximumDepth the new maximum depth
+     */
+    public void setMaximumDepth(int maximumDepth) {
+        this.maximumDepth = maximumDepth;
+    }
+
+    /**
+     * Get the minimum number of rows that every leaf must have
+     * @return the minimum number of rows per leaf
+     */
+    public int getMinimumSamplesPerLeaf() {
+        return minimumSamplesPerLeaf;
+    }
+
+    /**
+     * Set the minimum number of rows that every leaf must have
+     * A node is not split if one of its children would have fewer rows
+     * @param minimumSamplesPerLeaf the new minimum number of rows per leaf
+     */
+    public void setMinimumSamplesPerLeaf(int minimumSamplesPerLeaf) {
+        this.minimumSamplesPerLeaf = minimumSamplesPerLeaf;
+    }
+
+    /**
+     * Get the maximum time spent growing the tree
+     * @return the maximum build time, in milliseconds
+     */
+    public long getMaximumBuildTimeMillis() {
+        return maximumBuildTimeMillis;
+    }
+
+    /**
+     * Set the maximum time spent growing the tree
+     * @param maximumBuildTimeMillis the new maximum build time, in milliseconds
+     */
+    public void setMaximumBuildTimeMillis(long maximumBuildTimeMillis) {
+        this.maximumBuildTimeMillis = maximumBuildTimeMillis;
+    }
+
+    /**
+     * Get the maximum memory held by the builder (the row indexes of the open leaves and the created nodes)
+     * @return the maximum memory, in bytes
+     */
+    public long getMaximumMemoryBytes() {
+        return maximumMemoryBytes;
+    }
+
+    /**
+     * Set the maximum memory held by the builder (the row indexes of the open leaves and the created nodes)
+     * @param maximumMemoryBytes the new maximum memory, in bytes
+     */
+    public void setMaximumMemoryBytes(long maximumMemoryBytes) {
+        this.maximumMemoryBytes = maximumMemoryBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "GrowthBudget{" +
+                "maximumLeaves=" + maximumLeaves +
+                ", maximumDepth=" + maximumDepth +
+                ", minimumSamplesPerLeaf=" + minimumSamplesPerLeaf +
+                ", maximumBuildTimeMillis=" + maximumBuildTimeMillis +
+                ", maximumMemoryBytes=" + maximumMemoryBytes +
+                '}';
+    }
+}
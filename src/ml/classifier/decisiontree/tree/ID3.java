@@ -1,21 +1,53 @@
 package ml.classifier.decisiontree.tree;
 
 import ml.classifier.decisiontree.instance.Attribute;
+import ml.classifier.decisiontree.instance.AttributeSubset;
+import ml.classifier.decisiontree.instance.ColumnStatistics;
 import ml.classifier.decisiontree.instance.Dataset;
 import ml.classifier.decisiontree.instance.Instance;
+import ml.classifier.decisiontree.purityfunction.BoundedPurityFunction;
 import ml.classifier.decisiontree.purityfunction.Entropy;
 import ml.classifier.decisiontree.purityfunction.PurityFunction;
 import ml.utils.Pair;
+import ml.utils.monitoring.NodeProbe;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * This class models an ID3 decision tree
  * It extends the Tree class
+ * By default a node has one child per value of its attribute; with the BINARY_SUBSET split mode it has two children,
+ * the best subset of the values and all the other values (see SplitSearch.findBestSubset)
+ * With a BoundedPurityFunction (such as Entropy), an attribute is counted in parts and abandoned as soon as the lower bound
+ * of its purity function shows that it cannot beat the best attribute found so far; the tree is the same as without the pruning
+ * An observation is routed through a node with a single lookup of its value (see InnerNode.findDecision), whatever the number of decisions
  * Created by virgil on 30.10.2015.
  */
 public class ID3 extends Tree {
 
+    private static final long serialVersionUID = 1L;
+
+    //The lower bound is checked after every sixteenth of the rows of the node
+    private static final int PRUNING_CHECKPOINTS = 16;
+    //The nodes with less rows are counted at once
+    private static final int PRUNING_MINIMUM_ROWS = 128;
+    //An attribute is abandoned only if its bound is bigger than the best value by more than the rounding errors
+    private static final double PRUNING_TOLERANCE = 1e-9;
+
+    //The candidate pruning of the trees created without an explicit choice (turned off with the system property ml.candidatePruning=false)
+    public static final boolean DEFAULT_CANDIDATE_PRUNING = !"false".equals(System.getProperty("ml.candidatePruning"));
+
+    private SplitMode splitMode = SplitMode.MULTIWAY;
+    private boolean candidatePruning = DEFAULT_CANDIDATE_PRUNING;
+
+    /**
+     * The ID3 default constructor
+     * Used by the subclasses that create the tree in their own way
+     */
+    protected ID3() {
+    }
+
     /**
      * The ID3 Constructor
      * @param dataset the dataset from which the tree is created
@@ -24,51 +56,172 @@ public class ID3 extends Tree {
      *
      */
     public ID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction) {
+        this(dataset, outcomeAttributeName, purityFunction, new TrainingMonitor());
+    }
+
+    /**
+     * The ID3 Constructor
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     */
+    public ID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, TrainingMonitor trainingMonitor) {
+        this(dataset, outcomeAttributeName, purityFunction, SplitMode.MULTIWAY, trainingMonitor);
+    }
+
+    /**
+     * The ID3 Constructor
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     * @param splitMode the way the nodes split their attribute
+     */
+    public ID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, SplitMode splitMode) {
+        this(dataset, outcomeAttributeName, purityFunction, splitMode, new TrainingMonitor());
+    }
+
+    /**
+     * The ID3 Constructor
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     * @param splitMode the way the nodes split their attribute
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     */
+    public ID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, SplitMode splitMode, TrainingMonitor trainingMonitor) {
+        this(dataset, outcomeAttributeName, purityFunction, splitMode, DEFAULT_CANDIDATE_PRUNING, trainingMonitor);
+    }
+
+    /**
+     * The ID3 Constructor
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     * @param splitMode the way the nodes split their attribute
+     * @param candidatePruning true to abandon the attributes that cannot be chosen before they are completely counted,
+     *                         false to count all the attributes completely (the pruning only applies to the BoundedPurityFunctions)
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     */
+    public ID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, SplitMode splitMode, boolean candidatePruning,
+               TrainingMonitor trainingMonitor) {
         setPurityFunction(purityFunction);
+        setTrainingMonitor(trainingMonitor);
+        setSplitMode(splitMode);
+        setCandidatePruning(candidatePruning);
         createTree(dataset, outcomeAttributeName);
     }
 
+    /**
+     * Check if the attributes that cannot be chosen are abandoned before they are completely counted
+     * @return true if the candidate pruning is on
+     */
+    public boolean isCandidatePruning() {
+        return candidatePruning;
+    }
+
+    /**
+     * Turn the candidate pruning on or off
+     * Used before the tree is created; the pruning does not change the tree
+     * @param candidatePruning true to abandon the attributes that cannot be chosen, false to count all the attributes completely
+     */
+    protected void setCandidatePruning(boolean candidatePruning) {
+        this.candidatePruning = candidatePruning;
+    }
+
+    /**
+     * Get the way the nodes split their attribute
+     * @return the split mode
+     */
+    public SplitMode getSplitMode() {
+        return splitMode;
+    }
+
+    /**
+     * Set the way the nodes split their attribute
+     * Used before the tree is created
+     * @param splitMode the new split mode
+     */
+    protected void setSplitMode(SplitMode splitMode) {
+        this.splitMode = splitMode;
+    }
+
     /**
      * Create the tree knowing the dataset and the outcome attribute
      * @param dataset the set of observations
      * @param outcomeAttributeName the outcome attribute
      */
     private void createTree(Dataset dataset, String outcomeAttributeName) {
-        Node root = createNode(dataset, outcomeAttributeName);
+        getTrainingMonitor().start(dataset.getObservations().size());
+        Node root = createNode(dataset, outcomeAttributeName, 1);
         this.setRoot(root);
+        getTrainingMonitor().finish();
     }
 
     /**
      * Create a new node in the tree
      * @param dataset the simplified dataset (with respect to the attribute)
      * @param labelName the label
+     * @param depth the depth of the new node (the root is at depth 1)
      * @return the new node
      */
-    private Node createNode(Dataset dataset, String labelName){
+    private Node createNode(Dataset dataset, String labelName, int depth){
         Node node;
+        NodeProbe probe = NodeProbe.start("ID3", depth);
 
         //System.out.println(labelName + " " + dataset.toString());
 
         Double minimumEntropy = Double.MAX_VALUE;
         String attributeName = "";
+        List<String> subsetValues = null;
         boolean foundAttribute = false;
         boolean singleLabel = false;
 
+        long totalWeight = dataset.getTotalWeight();
         Instance instance = dataset.getObservations().get(0); //this is just to gain access to the list of attributes
         for (Attribute attribute : instance.getAttributes()) {
             if (labelName.equals(attribute.getAttributeName()))
                 continue;
-            ConfusionMatrix confusionMatrix = new ConfusionMatrix(dataset, attribute.getAttributeName(), labelName);
+            getTrainingMonitor().check();
+            //The statistics inherited from the parent (see Dataset.splitDatasetByAttribute) may already show that the attribute is constant here,
+            //as the attribute of a multiway parent is in every child; a constant attribute cannot split the node, so it is not counted
+            ColumnStatistics statistics = dataset.getCachedColumnStatistics(attribute.getAttributeName());
+            if (statistics != null && statistics.isConstant())
+                continue;
+            long mark = probe.mark();
+            ConfusionMatrix confusionMatrix = createConfusionMatrix(dataset, attribute.getAttributeName(), labelName, minimumEntropy, totalWeight);
+            probe.addConfusionMatrixTime(mark);
+            if (confusionMatrix == null) {
+                probe.attributeAbandoned();
+                continue;
+            }
             if (confusionMatrix.isUseless())
                 continue;
-            Double currentEntropy = getPurityFunction().calculate(confusionMatrix);
+            mark = probe.mark();
+            Double currentEntropy;
+            List<String> currentSubsetValues = null;
+            if (splitMode == SplitMode.BINARY_SUBSET) {
+                currentSubsetValues = new ArrayList<>();
+                currentEntropy = findBestSubset(confusionMatrix, currentSubsetValues);
+            }
+            else {
+                currentEntropy = getPurityFunction().calculate(confusionMatrix);
+            }
+            probe.addPurityTime(mark);
+            probe.attributeScored();
             foundAttribute = true;
             if (currentEntropy < minimumEntropy) {
                 minimumEntropy = currentEntropy;
                 attributeName = attribute.getAttributeName();
+                subsetValues = currentSubsetValues;
                 singleLabel = confusionMatrix.isSameLabel();
             }
         }
+        probe.finish(dataset.getObservations().size());
+        getTrainingMonitor().nodeCreated(depth, dataset.getObservations().size(), foundAttribute == false || singleLabel == true);
         if (foundAttribute == false || singleLabel == true) {
             //Get the value that has the biggest count for the attribute
             String label = dataset.getMajorityValueForAttribute(labelName);
@@ -78,20 +231,27 @@ public class ID3 extends Tree {
         }
         else {
             node = new InnerNode();
-            //Get all the possible values for the attribute and create decisions (new Nodes)
-            List<String> allAttributeValues = dataset.getAllDistinctValuesForAttribute(attributeName);
-
-            for (String attributeValue : allAttributeValues) {
-                Attribute attribute = new Attribute(attributeName, attributeValue);
+            //Get all the possible values for the attribute (or the two subsets of values) and create decisions (new Nodes)
+            List<Attribute> decisionAttributes = new ArrayList<>();
+            if (subsetValues != null) {
+                decisionAttributes.add(new AttributeSubset(attributeName, subsetValues, false));
+                decisionAttributes.add(new AttributeSubset(attributeName, subsetValues, true));
+            }
+            else {
+                for (String attributeValue : dataset.getAllDistinctValuesForAttribute(attributeName))
+                    decisionAttributes.add(new Attribute(attributeName, attributeValue));
+            }
+            for (Attribute attribute : decisionAttributes) {
 
                 //We need to split the data to select only those instances that have the attribute
                 Dataset splitDataset = Dataset.splitDatasetByAttribute(dataset, attribute);
 
-                Node decisionNode = createNode(splitDataset, labelName);
+                Node decisionNode = createNode(splitDataset, labelName, depth + 1);
 
                 ((InnerNode)node).addDecision(new Pair<Attribute, Node>(attribute, decisionNode));
             }
             node.setLabel(attributeName);
+            ((InnerNode) node).setDefaultLabel(dataset.getMajorityValueForAttribute(labelName));
             node.setDataset(dataset);
             node.setPurityFunctionValue(minimumEntropy);
         }
@@ -99,6 +259,60 @@ public class ID3 extends Tree {
         return node;
     }
 
+    /**
+     * Create the ConfusionMatrix of an attribute, unless the attribute cannot beat the best attribute found so far
+     * With a BoundedPurityFunction the rows are counted by sixteenths, and the counting stops when the lower bound of the purity function
+     * is bigger than the best value: the complete matrix could only give a bigger value, so the attribute would not be chosen
+     * The bound holds for the binary subsets too, as merging values never decreases the conditional entropy
+     * @param dataset the dataset of the node
+     * @param attributeName the attribute
+     * @param labelName the outcome attribute
+     * @param minimumEntropy the best value of the purity function found so far
+     * @param totalWeight the (weighted) number of rows of the node
+     * @return the ConfusionMatrix, null if the attribute was abandoned
+     */
+    private ConfusionMatrix createConfusionMatrix(Dataset dataset, String attributeName, String labelName, double minimumEntropy, long totalWeight) {
+        List<Instance> observations = dataset.getObservations();
+        int observationsCount = observations.size();
+        if (!candidatePruning || !(getPurityFunction() instanceof BoundedPurityFunction) || minimumEntropy == Double.MAX_VALUE
+                || observationsCount < PRUNING_MINIMUM_ROWS)
+            return new ConfusionMatrix(dataset, attributeName, labelName);
+
+        BoundedPurityFunction purityFunction = (BoundedPurityFunction) getPurityFunction();
+        ConfusionMatrix confusionMatrix = new ConfusionMatrix(attributeName, labelName);
+        int from = 0;
+        for (int checkpoint = 1; checkpoint < PRUNING_CHECKPOINTS; ++checkpoint) {
+            int to = (int) ((long) observationsCount * checkpoint / PRUNING_CHECKPOINTS);
+            confusionMatrix.addObservations(observations, from, to);
+            from = to;
+            if (purityFunction.lowerBound(confusionMatrix, totalWeight) > minimumEntropy + PRUNING_TOLERANCE)
+                return null;
+        }
+        confusionMatrix.addObservations(observations, from, observationsCount);
+        return confusionMatrix;
+    }
+
+    /**
+     * Find the best binary partition of the values of an attribute, from its ConfusionMatrix
+     * @param confusionMatrix the ConfusionMatrix of the attribute
+     * @param subsetValues the list that receives the values of the first subset
+     * @return the value of the purity function for the best partition
+     */
+    private double findBestSubset(ConfusionMatrix confusionMatrix, List<String> subsetValues) {
+        List<String> rowValues = confusionMatrix.getRowValues();
+        List<String> columnValues = confusionMatrix.getColumnValues();
+        int[][] counts = new int[rowValues.size()][columnValues.size()];
+        for (int row = 0; row < counts.length; ++row)
+            for (int column = 0; column < counts[row].length; ++column)
+                counts[row][column] = confusionMatrix.getCountAt(rowValues.get(row), columnValues.get(column));
+
+        SplitSearch.Subset subset = SplitSearch.findBestSubset(confusionMatrix.getColumnLabel(), columnValues, counts, getPurityFunction(), 1);
+        for (int row = 0; row < counts.length; ++row)
+            if (subset.getValues()[row])
+                subsetValues.add(rowValues.get(row));
+        return subset.getPurityFunctionValue();
+    }
+
     /**
      * Evaluate the new instance using this tree
      * @param observation the new observation
@@ -108,14 +322,11 @@ public class ID3 extends Tree {
     public String evaluate(Instance observation) {
         Node node = getRoot();
         while( node.isTerminal() == false ) {
-            for( Pair<Attribute, Node> pair: ((InnerNode)node).getDecisions() ) {
-                Attribute attribute = pair.getFirst();
-                Attribute observationAttribute = observation.getAttributeByName( attribute.getAttributeName() );
-                if( attribute.equals( observationAttribute ) ) {
-                    node = pair.getSecond();
-                    break;
-                }
-            }
+            int decisionIndex = ((InnerNode)node).findDecision( observation );
+            //The value of the observation was not seen in training
+            if( decisionIndex < 0 )
+                return ((InnerNode)node).getDefaultLabel();
+            node = ((InnerNode)node).getDecisions().get( decisionIndex ).getSecond();
         }
 
         return node.getLabel();
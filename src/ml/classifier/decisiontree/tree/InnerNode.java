@@ -2,22 +2,38 @@ package ml.classifier.decisiontree.tree;
 
 import ml.classifier.decisiontree.instance.Attribute;
 import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.Instance;
 import ml.utils.Pair;
 import org.w3c.dom.Attr;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class models an InnerNode
  * An InnerNode is a Node that is not a terminal one (which means it splits the dataset for a chosen Attribute)
  * It contains the decisions for the chosen split attribute
  * A decision is a pair Attribute Node; an Attribute splits the data by its value, creating a new node (which is either a terminal one, or an inner one, continuing the split)
+ * When all the decisions are plain Attributes of the same attribute, the decision of a value is found with a map from the values,
+ * built the first time it is needed (see findDecision); the decisions should then be changed only with addDecision and setDecisions
  * Created by virgil on 29.10.2015.
  */
 public class InnerNode extends Node {
 
+    private static final long serialVersionUID = 1L;
+
     private List<Pair<Attribute, Node>> decisions;
+    private String defaultLabel;
+    private double[] splitPoints;
+    private int[] decisionOfBin;
+
+    //The decisions cannot be looked up by value (some of them are not plain Attributes, or they name different attributes)
+    private static final Map<String, Integer> NO_DECISION_MAP = Collections.emptyMap();
+    //The index of the decision of every value, NO_DECISION_MAP if the decisions are matched in order, null if it is not built yet
+    private transient volatile Map<String, Integer> decisionOfValue;
 
     /**
      * The InnerNode default constructor
@@ -52,6 +68,57 @@ public class InnerNode extends Node {
      */
     public void setDecisions(List<Pair<Attribute, Node>> decisions) {
         this.decisions = decisions;
+        this.decisionOfValue = null;
+    }
+
+    /**
+     * Get the default label of the node (the majority value of its rows)
+     * It is the decision taken for an observation whose value matches none of the decisions
+     * @return the default label, null if it is not known
+     */
+    public String getDefaultLabel() {
+        return defaultLabel;
+    }
+
+    /**
+     * Set the default label of the node (the majority value of its rows)
+     * @param defaultLabel the new default label
+     */
+    public void setDefaultLabel(String defaultLabel) {
+        this.defaultLabel = defaultLabel;
+    }
+
+    /**
+     * Get the split points of the node, if it splits a continuous attribute in intervals
+     * The decisions are labeled with the intervals (see Discretizer.getIntervalLabel)
+     * @return the sorted split points, null if the node splits by the values of the attribute
+     */
+    public double[] getSplitPoints() {
+        return splitPoints;
+    }
+
+    /**
+     * Set the split points of the node, if it splits a continuous attribute in intervals
+     * @param splitPoints the new sorted split points, null if the node splits by the values of the attribute
+     */
+    public void setSplitPoints(double[] splitPoints) {
+        this.splitPoints = splitPoints;
+    }
+
+    /**
+     * Get the decision taken for every bin of the tree's DiscretizationModel, if the node splits a continuous attribute in intervals
+     * @return the index of the decision for every bin (-1 if no decision matches the bin), null if it is not known
+     */
+    public int[] getDecisionOfBin() {
+        return decisionOfBin;
+    }
+
+    /**
+     * Set the decision taken for every bin of the tree's DiscretizationModel
+     * @param decisionOfBin the new index of the decision for every bin (-1 if no decision matches the bin)
+     */
+    public void setDecisionOfBin(int[] decisionOfBin) {
+        this.decisionOfBin = decisionOfBin;
     }
 
     /**
@@ -60,6 +127,7 @@ public class InnerNode extends Node {
      */
     public void addDecision(Pair<Attribute, Node> decision) {
         this.decisions.add(decision);
+        this.decisionOfValue = null;
     }
 
     /**
@@ -69,6 +137,83 @@ public class InnerNode extends Node {
      */
     public void addDecision(Attribute attribute, Node node) {
         this.decisions.add(new Pair<Attribute, Node>(attribute, node));
+        this.decisionOfValue = null;
+    }
+
+    /**
+     * Get the name of the attribute tested by all the decisions of the node
+     * @return the name of the attribute, null if the node has no decision or its decisions test different attributes
+     */
+    public String getDecisionAttributeName() {
+        if (decisions.isEmpty())
+            return null;
+        String attributeName = decisions.get(0).getFirst().getAttributeName();
+        for (Pair<Attribute, Node> decision : decisions)
+            if (!attributeName.equals(decision.getFirst().getAttributeName()))
+                return null;
+        return attributeName;
+    }
+
+    /**
+     * Find the decision that matches an observation
+     * When all the decisions test the same attribute, the attribute of the observation is looked up only once
+     * @param observation the observation
+     * @return the index of the first matching decision, -1 if no decision matches
+     */
+    public int findDecision(Instance observation) {
+        if (getDecisionOfValue() != NO_DECISION_MAP || getDecisionAttributeName() != null)
+            return findDecision(observation.getAttributeByName(decisions.get(0).getFirst().getAttributeName()));
+
+        for (int decisionIndex = 0; decisionIndex < decisions.size(); ++decisionIndex) {
+            Attribute attribute = decisions.get(decisionIndex).getFirst();
+            if (attribute.matches(observation.getAttributeByName(attribute.getAttributeName())))
+                return decisionIndex;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the decision that matches an attribute of an observation
+     * The result is the same as checking the decisions in order with Attribute.matches, but when all the decisions are
+     * plain Attributes of the same attribute the value is looked up in a map instead
+     * @param observationAttribute the attribute of the observation, null if the observation does not have it
+     * @return the index of the first matching decision, -1 if no decision matches
+     */
+    public int findDecision(Attribute observationAttribute) {
+        Map<String, Integer> decisionOfValue = getDecisionOfValue();
+        if (decisionOfValue != NO_DECISION_MAP) {
+            //All the decisions have the same name, so an attribute of another name matches none of them
+            if (observationAttribute == null || !decisions.get(0).getFirst().getAttributeName().equals(observationAttribute.getAttributeName()))
+                return -1;
+            Integer decisionIndex = decisionOfValue.get(observationAttribute.getAttributeValue());
+            return decisionIndex != null ? decisionIndex : -1;
+        }
+
+        for (int decisionIndex = 0; decisionIndex < decisions.size(); ++decisionIndex)
+            if (decisions.get(decisionIndex).getFirst().matches(observationAttribute))
+                return decisionIndex;
+        return -1;
+    }
+
+    /**
+     * Get the map from the values to the decisions, building it the first time
+     * Two threads may build it at the same time; they build the same map
+     * @return the index of the decision of every value, NO_DECISION_MAP if the decisions have to be matched in order
+     */
+    private Map<String, Integer> getDecisionOfValue() {
+        Map<String, Integer> result = decisionOfValue;
+        if (result == null) {
+            result = getDecisionAttributeName() != null ? new HashMap<String, Integer>() : NO_DECISION_MAP;
+            for (int decisionIndex = 0; decisionIndex < decisions.size() && result != NO_DECISION_MAP; ++decisionIndex) {
+                Attribute attribute = decisions.get(decisionIndex).getFirst();
+                if (attribute.getClass() != Attribute.class)
+                    result = NO_DECISION_MAP;
+                else if (!result.containsKey(attribute.getAttributeValue()))
+                    result.put(attribute.getAttributeValue(), decisionIndex);
+            }
+            decisionOfValue = result;
+        }
+        return result;
     }
 
     /**
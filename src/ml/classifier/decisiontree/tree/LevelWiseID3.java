@@ -0,0 +1,478 @@
+package ml.classifier.decisiontree.tree;
+
+import ml.classifier.decisiontree.instance.Attribute;
+import ml.classifier.decisiontree.instance.AttributeSubset;
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.EncodedDataset;
+import ml.classifier.decisiontree.instance.SparseColumn;
+import ml.classifier.decisiontree.purityfunction.PurityFunction;
+import ml.utils.monitoring.NodeProbe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class models an ID3 decision tree that is grown level by level (breadth-first)
+ * It chooses the same attributes as ID3, but instead of recursing into every node it keeps the nodes of the current level in a queue (the frontier)
+ * For every level the data is scanned only once: each row updates the counts of the frontier node it belongs to
+ * The rows are never copied, every row only remembers the index of the frontier node that holds it
+ * The counts are held for a slice of the frontier at a time (at most MAXIMUM_COUNT_CELLS cells), in buffers reused by the next slices and levels,
+ * and with MULTIWAY splits a node does not count the attributes already used on its path
+ * Built from a Dataset, the identical rows are collapsed first (see EncodedDataset.collapseDuplicates), so a level costs one pass over the distinct rows
+ * With the BINARY_SUBSET split mode, every node has two children, the best subset of the values of its attribute and the other values
+ * The sparse columns of the EncodedDataset (see SparseColumn) are counted by their non-default rows only, the default value getting what remains
+ * of the class counts of every node; built from a Dataset, the mostly-default columns (such as one-hot columns) are stored sparse
+ */
+public class LevelWiseID3 extends ID3 {
+
+    private static final long serialVersionUID = 1L;
+
+    //The monitor is checked every 65536 rows of a counting pass
+    private static final int CHECK_INTERVAL_MASK = (1 << 16) - 1;
+
+    //The maximum number of count cells (node, attribute, value, class) held at once; a bigger frontier is counted by slices of nodes
+    private static final long MAXIMUM_COUNT_CELLS = 1L << 22;
+
+    private transient EncodedDataset encodedDataset;
+    private int depth;
+
+    /**
+     * This class models a node of the frontier, whose attribute is not chosen yet
+     * It knows where the node will be attached in the tree
+     */
+    private static class FrontierNode {
+
+        private InnerNode parent;
+        private Attribute decision;
+        private boolean[] usedAttributes;
+
+        /**
+         * The FrontierNode constructor
+         * @param parent the parent node, null for the root
+         * @param decision the decision that leads from the parent to this node, null for the root
+         * @param usedAttributes usedAttributes[attribute] is true if the attribute is constant in the node, because a MULTIWAY ancestor split by it
+         */
+        FrontierNode(InnerNode parent, Attribute decision, boolean[] usedAttributes) {
+            this.parent = parent;
+            this.decision = decision;
+            this.usedAttributes = usedAttributes;
+        }
+    }
+
+    /**
+     * The LevelWiseID3 constructor
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     */
+    public LevelWiseID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction) {
+        this(dataset, outcomeAttributeName, purityFunction, new TrainingMonitor());
+    }
+
+    /**
+     * The LevelWiseID3 constructor
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     */
+    public LevelWiseID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, TrainingMonitor trainingMonitor) {
+        this(dataset, outcomeAttributeName, purityFunction, SplitMode.MULTIWAY, trainingMonitor);
+    }
+
+    /**
+     * The LevelWiseID3 constructor
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     * @param splitMode the way the nodes split their attribute
+     */
+    public LevelWiseID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, SplitMode splitMode) {
+        this(dataset, outcomeAttributeName, purityFunction, splitMode, new TrainingMonitor());
+    }
+
+    /**
+     * The LevelWiseID3 constructor
+     * @param dataset the dataset from which the tree is created
+     * @param outcomeAttributeName the outcome attribute name
+     * @param purityFunction the purity function used to separate the values
+     * @param splitMode the way the nodes split their attribute
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     */
+    public LevelWiseID3(Dataset dataset, String outcomeAttributeName, PurityFunction purityFunction, SplitMode splitMode, TrainingMonitor trainingMonitor) {
+        dataset.setOutcomeAttributeName(outcomeAttributeName);
+        setPurityFunction(purityFunction);
+        setTrainingMonitor(trainingMonitor);
+        setSplitMode(splitMode);
+        this.encodedDataset = new EncodedDataset(dataset).collapseDuplicates().toSparse(EncodedDataset.DEFAULT_MAXIMUM_DENSITY);
+        createTree(encodedDataset.getAllRows());
+    }
+
+    /**
+     * The LevelWiseID3 constructor
+     * Creates the tree only from the given rows of an already encoded dataset
+     * @param encodedDataset the encoded dataset
+     * @param rows the indexes of the rows used to create the tree
+     * @param purityFunction the purity function used to separate the values
+     */
+    public LevelWiseID3(EncodedDataset encodedDataset, int[] rows, PurityFunction purityFunction) {
+        this(encodedDataset, rows, purityFunction, new TrainingMonitor());
+    }
+
+    /**
+     * The LevelWiseID3 constructor
+     * Creates the tree only from the given rows of an already encoded dataset
+     * @param encodedDataset the encoded dataset
+     * @param rows the indexes of the rows used to create the tree
+     * @param purityFunction the purity function used to separate the values
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     */
+    public LevelWiseID3(EncodedDataset encodedDataset, int[] rows, PurityFunction purityFunction, TrainingMonitor trainingMonitor) {
+        this(encodedDataset, rows, purityFunction, SplitMode.MULTIWAY, trainingMonitor);
+    }
+
+    /**
+     * The LevelWiseID3 constructor
+     * Creates the tree only from the given rows of an already encoded dataset
+     * @param encodedDataset the encoded dataset
+     * @param rows the indexes of the rows used to create the tree
+     * @param purityFunction the purity function used to separate the values
+     * @param splitMode the way the nodes split their attribute
+     * @param trainingMonitor the monitor that follows (and may stop) the build
+     * @throws TrainingCancelledException if the monitor is cancelled or its deadline passes before the tree is complete
+     */
+    public LevelWiseID3(EncodedDataset encodedDataset, int[] rows, PurityFunction purityFunction, SplitMode splitMode, TrainingMonitor trainingMonitor) {
+        setPurityFunction(purityFunction);
+        setTrainingMonitor(trainingMonitor);
+        setSplitMode(splitMode);
+        this.encodedDataset = encodedDataset;
+        createTree(rows);
+    }
+
+    /**
+     * Get the number of levels of the tree
+     * @return the depth of the tree
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Create the tree level by level
+     * @param rows the indexes of the rows used to create the tree
+     */
+    private void createTree(int[] rows) {
+        int attributesCount = encodedDataset.getAttributesCount();
+        int classesCount = encodedDataset.getClassesCount();
+        int[] outcomes = encodedDataset.getOutcomes();
+        int[] weights = encodedDataset.getWeights();
+
+        //nodeOfRow[row] is the index of the frontier node that holds the row, -1 if the row is not used or reached a TerminalNode
+        int[] nodeOfRow = new int[encodedDataset.getObservationsCount()];
+        Arrays.fill(nodeOfRow, -1);
+        for (int row : rows)
+            nodeOfRow[row] = 0;
+        int[] activeRows = rows.clone();
+
+        //The dense columns are counted row by row, the sparse columns by their non-default rows
+        int denseCount = 0;
+        int[] denseAttributes = new int[attributesCount];
+        int[][] denseColumns = new int[attributesCount][];
+        long cellsPerNode = 0;
+        for (int attributeIndex = 0; attributeIndex < attributesCount; ++attributeIndex) {
+            cellsPerNode += (long) encodedDataset.getCardinality(attributeIndex) * classesCount;
+            if (!encodedDataset.isSparse(attributeIndex)) {
+                denseAttributes[denseCount] = attributeIndex;
+                denseColumns[denseCount] = encodedDataset.getColumn(attributeIndex);
+                ++denseCount;
+            }
+        }
+        //The counts of a slice of the frontier must fit in MAXIMUM_COUNT_CELLS, the buffers of the slice are reused by the next slices and levels
+        int maximumSliceSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE, MAXIMUM_COUNT_CELLS / Math.max(1, cellsPerNode)));
+        int[][][][] sliceCounts = new int[0][][][];
+
+        TrainingMonitor trainingMonitor = getTrainingMonitor();
+        //The nodes are reported with their weighted row counts, so the progress is measured in weighted rows too
+        long totalWeight = 0;
+        for (int row : rows)
+            totalWeight += weights[row];
+        trainingMonitor.start(totalWeight);
+
+        List<FrontierNode> frontier = new ArrayList<>();
+        frontier.add(new FrontierNode(null, null, new boolean[attributesCount]));
+        depth = 0;
+        long countedRows = 0;
+
+        while (!frontier.isEmpty()) {
+            ++depth;
+            int frontierSize = frontier.size();
+            int[] nodeStarts = groupRowsByNode(activeRows, nodeOfRow, frontierSize);
+            int[][] classCounts = new int[frontierSize][classesCount];
+            boolean[][] usedAttributes = new boolean[frontierSize][];
+            for (int nodeIndex = 0; nodeIndex < frontierSize; ++nodeIndex)
+                usedAttributes[nodeIndex] = frontier.get(nodeIndex).usedAttributes;
+
+            int sliceSize = Math.min(frontierSize, maximumSliceSize);
+            if (sliceCounts.length < sliceSize) {
+                int allocatedCount = sliceCounts.length;
+                sliceCounts = Arrays.copyOf(sliceCounts, sliceSize);
+                for (int sliceIndex = allocatedCount; sliceIndex < sliceSize; ++sliceIndex)
+                    sliceCounts[sliceIndex] = SplitSearch.newCounts(encodedDataset);
+            }
+
+            List<FrontierNode> nextFrontier = new ArrayList<>();
+            int[] splitAttributes = new int[frontierSize];
+            int[][] childOfValue = new int[frontierSize][];
+
+            for (int sliceStart = 0; sliceStart < frontierSize; sliceStart += sliceSize) {
+                int sliceEnd = Math.min(frontierSize, sliceStart + sliceSize);
+
+                //Count the values of the frontier nodes of the slice in a single pass over their rows, skipping the attributes used on their path
+                for (int nodeIndex = sliceStart; nodeIndex < sliceEnd; ++nodeIndex) {
+                    int[][][] nodeCounts = sliceCounts[nodeIndex - sliceStart];
+                    int[] nodeClassCounts = classCounts[nodeIndex];
+                    boolean[] used = usedAttributes[nodeIndex];
+                    for (int activeIndex = nodeStarts[nodeIndex]; activeIndex < nodeStarts[nodeIndex + 1]; ++activeIndex) {
+                        //A level can take long on a big dataset, so the monitor is checked while counting too
+                        if ((++countedRows & CHECK_INTERVAL_MASK) == 0)
+                            trainingMonitor.check();
+                        int row = activeRows[activeIndex];
+                        int outcome = outcomes[row];
+                        int weight = weights[row];
+                        nodeClassCounts[outcome] += weight;
+                        for (int denseIndex = 0; denseIndex < denseCount; ++denseIndex)
+                            if (!used[denseAttributes[denseIndex]])
+                                nodeCounts[denseAttributes[denseIndex]][denseColumns[denseIndex][row]][outcome] += weight;
+                    }
+                }
+                for (int attributeIndex = 0; attributeIndex < attributesCount; ++attributeIndex)
+                    if (encodedDataset.isSparse(attributeIndex))
+                        countSparse(encodedDataset.getSparseColumn(attributeIndex), attributeIndex, nodeOfRow, sliceStart, sliceEnd, usedAttributes, sliceCounts, classCounts);
+
+                //Choose the attribute of every frontier node of the slice and create the next level
+                for (int nodeIndex = sliceStart; nodeIndex < sliceEnd; ++nodeIndex) {
+                    FrontierNode frontierNode = frontier.get(nodeIndex);
+                    int[][][] nodeCounts = sliceCounts[nodeIndex - sliceStart];
+                    NodeProbe probe = NodeProbe.start("LevelWiseID3", depth);
+                    SplitSearch.Split split = SplitSearch.findBestSplit(encodedDataset, nodeCounts, classCounts[nodeIndex], getPurityFunction(), 1, getSplitMode(), probe);
+                    probe.finish(sum(classCounts[nodeIndex]));
+                    trainingMonitor.nodeCreated(depth, sum(classCounts[nodeIndex]), split.isTerminal());
+                    Node node;
+
+                    if (split.isTerminal()) {
+                        String label = encodedDataset.getOutcomeValues().get(SplitSearch.majorityClass(classCounts[nodeIndex]));
+                        node = new TerminalNode(label);
+                        splitAttributes[nodeIndex] = -1;
+                    }
+                    else {
+                        int attributeIndex = split.getAttributeIndex();
+                        String attributeName = encodedDataset.getAttributeName(attributeIndex);
+                        node = new InnerNode(attributeName);
+                        ((InnerNode) node).setDefaultLabel(encodedDataset.getOutcomeValues().get(SplitSearch.majorityClass(classCounts[nodeIndex])));
+                        splitAttributes[nodeIndex] = attributeIndex;
+
+                        //With one child per value, the attribute is constant in the children, so they do not count it again
+                        boolean[] childUsedAttributes = frontierNode.usedAttributes;
+                        if (getSplitMode() == SplitMode.MULTIWAY) {
+                            childUsedAttributes = childUsedAttributes.clone();
+                            childUsedAttributes[attributeIndex] = true;
+                        }
+
+                        int[][] attributeCounts = nodeCounts[attributeIndex];
+                        childOfValue[nodeIndex] = new int[attributeCounts.length];
+                        boolean[] subset = split.getSubset();
+                        if (subset != null) {
+                            //Two children: the values of the subset, then all the other values
+                            List<String> subsetValues = new ArrayList<>();
+                            for (int value = 0; value < subset.length; ++value)
+                                if (subset[value])
+                                    subsetValues.add(encodedDataset.getAttributeValues(attributeIndex).get(value));
+                            int firstChild = nextFrontier.size();
+                            nextFrontier.add(new FrontierNode((InnerNode) node, new AttributeSubset(attributeName, subsetValues, false), childUsedAttributes));
+                            nextFrontier.add(new FrontierNode((InnerNode) node, new AttributeSubset(attributeName, subsetValues, true), childUsedAttributes));
+                            for (int value = 0; value < subset.length; ++value)
+                                childOfValue[nodeIndex][value] = subset[value] ? firstChild : firstChild + 1;
+                        }
+                        else {
+                            for (int value = 0; value < attributeCounts.length; ++value) {
+                                childOfValue[nodeIndex][value] = -1;
+                                for (int count : attributeCounts[value]) {
+                                    if (count > 0) {
+                                        childOfValue[nodeIndex][value] = nextFrontier.size();
+                                        Attribute decision = new Attribute(attributeName, encodedDataset.getAttributeValues(attributeIndex).get(value));
+                                        nextFrontier.add(new FrontierNode((InnerNode) node, decision, childUsedAttributes));
+                                        break;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    node.setPurityFunctionValue(split.getPurityFunctionValue());
+
+                    if (frontierNode.parent == null)
+                        setRoot(node);
+                    else
+                        frontierNode.parent.addDecision(frontierNode.decision, node);
+
+                    clearCounts(nodeCounts, usedAttributes[nodeIndex]);
+                }
+            }
+
+            //The non-default rows of the sparse split attributes are found first, while nodeOfRow still holds the current level
+            int[][] sparseMoves = findSparseMoves(nodeOfRow, splitAttributes, childOfValue);
+
+            //Move the rows to the nodes of the next level, dropping the rows that reached a TerminalNode
+            //The rows of a sparse split attribute go to the child of its default value, then sparseMoves moves its non-default rows
+            int nextActiveCount = 0;
+            for (int row : activeRows) {
+                int nodeIndex = nodeOfRow[row];
+                int attributeIndex = splitAttributes[nodeIndex];
+                if (attributeIndex >= 0) {
+                    SparseColumn sparseColumn = encodedDataset.getSparseColumn(attributeIndex);
+                    int code = sparseColumn != null ? sparseColumn.getDefaultCode() : encodedDataset.getColumn(attributeIndex)[row];
+                    nodeOfRow[row] = childOfValue[nodeIndex][code];
+                    activeRows[nextActiveCount++] = row;
+                }
+                else {
+                    nodeOfRow[row] = -1;
+                }
+            }
+            activeRows = Arrays.copyOf(activeRows, nextActiveCount);
+            for (int moveIndex = 0; moveIndex < sparseMoves[0].length; ++moveIndex)
+                nodeOfRow[sparseMoves[0][moveIndex]] = sparseMoves[1][moveIndex];
+
+            frontier = nextFrontier;
+        }
+
+        trainingMonitor.finish();
+    }
+
+    /**
+     * Sort the active rows by their frontier node (a stable counting sort), so the rows of every node are contiguous
+     * @param activeRows the active rows, sorted in place
+     * @param nodeOfRow the frontier node of every row
+     * @param frontierSize the number of frontier nodes
+     * @return the index of the first row of every node in activeRows, followed by the number of active rows
+     */
+    private static int[] groupRowsByNode(int[] activeRows, int[] nodeOfRow, int frontierSize) {
+        int[] nodeStarts = new int[frontierSize + 1];
+        for (int row : activeRows)
+            ++nodeStarts[nodeOfRow[row] + 1];
+        for (int nodeIndex = 0; nodeIndex < frontierSize; ++nodeIndex)
+            nodeStarts[nodeIndex + 1] += nodeStarts[nodeIndex];
+
+        int[] nextIndex = Arrays.copyOf(nodeStarts, frontierSize);
+        int[] groupedRows = new int[activeRows.length];
+        for (int row : activeRows)
+            groupedRows[nextIndex[nodeOfRow[row]]++] = row;
+        System.arraycopy(groupedRows, 0, activeRows, 0, activeRows.length);
+        return nodeStarts;
+    }
+
+    /**
+     * Count a sparse attribute for the frontier nodes of a slice, with one pass over its non-default rows
+     * The default value of every node gets what remains of the class counts of the node
+     * The nodes that used the attribute on their path do not count it
+     * @param sparseColumn the sparse column of the attribute
+     * @param attributeIndex the index of the attribute
+     * @param nodeOfRow the frontier node of every row, -1 for the rows that are not active
+     * @param sliceStart the first frontier node of the slice
+     * @param sliceEnd the frontier node after the last one of the slice
+     * @param usedAttributes the attributes used on the path of every frontier node
+     * @param sliceCounts the counts of the nodes of the slice, as sliceCounts[node - sliceStart][attribute][value][class]
+     * @param classCounts the class counts of the frontier nodes
+     */
+    private void countSparse(SparseColumn sparseColumn, int attributeIndex, int[] nodeOfRow, int sliceStart, int sliceEnd, boolean[][] usedAttributes,
+                             int[][][][] sliceCounts, int[][] classCounts) {
+        int[] outcomes = encodedDataset.getOutcomes();
+        int[] weights = encodedDataset.getWeights();
+        int[] sparseRows = sparseColumn.getRows();
+        int[] sparseCodes = sparseColumn.getCodes();
+        int[][] nonDefaultCounts = new int[sliceEnd - sliceStart][encodedDataset.getClassesCount()];
+
+        for (int index = 0; index < sparseRows.length; ++index) {
+            int row = sparseRows[index];
+            int nodeIndex = nodeOfRow[row];
+            if (nodeIndex < sliceStart || nodeIndex >= sliceEnd || usedAttributes[nodeIndex][attributeIndex])
+                continue;
+            sliceCounts[nodeIndex - sliceStart][attributeIndex][sparseCodes[index]][outcomes[row]] += weights[row];
+            nonDefaultCounts[nodeIndex - sliceStart][outcomes[row]] += weights[row];
+        }
+
+        int defaultCode = sparseColumn.getDefaultCode();
+        for (int nodeIndex = sliceStart; nodeIndex < sliceEnd; ++nodeIndex) {
+            if (usedAttributes[nodeIndex][attributeIndex])
+                continue;
+            int[] defaultCounts = sliceCounts[nodeIndex - sliceStart][attributeIndex][defaultCode];
+            for (int outcome = 0; outcome < classCounts[nodeIndex].length; ++outcome)
+                defaultCounts[outcome] += classCounts[nodeIndex][outcome] - nonDefaultCounts[nodeIndex - sliceStart][outcome];
+        }
+    }
+
+    /**
+     * Clear the counts of a node, so its buffer can be reused by another node
+     * The attributes used on the path of the node were not counted and are still empty
+     * @param counts the counts of the node, as counts[attribute][value][class]
+     * @param usedAttributes the attributes used on the path of the node
+     */
+    private static void clearCounts(int[][][] counts, boolean[] usedAttributes) {
+        for (int attributeIndex = 0; attributeIndex < counts.length; ++attributeIndex)
+            if (!usedAttributes[attributeIndex])
+                for (int[] valueCounts : counts[attributeIndex])
+                    Arrays.fill(valueCounts, 0);
+    }
+
+    /**
+     * Find the non-default rows of the nodes that are split on a sparse attribute, and the child that each of them goes to
+     * @param nodeOfRow the frontier node of every row, -1 for the rows that are not active
+     * @param splitAttributes the split attribute of every frontier node, -1 for the TerminalNodes
+     * @param childOfValue the child of every value of the split attribute, for every frontier node
+     * @return the moved rows (first array) and their children (second array)
+     */
+    private int[][] findSparseMoves(int[] nodeOfRow, int[] splitAttributes, int[][] childOfValue) {
+        boolean[] sparseSplit = new boolean[encodedDataset.getAttributesCount()];
+        int movesCount = 0;
+        for (int attributeIndex : splitAttributes) {
+            if (attributeIndex >= 0 && encodedDataset.isSparse(attributeIndex) && !sparseSplit[attributeIndex]) {
+                sparseSplit[attributeIndex] = true;
+                movesCount += encodedDataset.getSparseColumn(attributeIndex).getNonDefaultCount();
+            }
+        }
+
+        int[] movedRows = new int[movesCount];
+        int[] movedChildren = new int[movesCount];
+        movesCount = 0;
+        for (int attributeIndex = 0; attributeIndex < sparseSplit.length; ++attributeIndex) {
+            if (!sparseSplit[attributeIndex])
+                continue;
+            SparseColumn sparseColumn = encodedDataset.getSparseColumn(attributeIndex);
+            int[] sparseRows = sparseColumn.getRows();
+            int[] sparseCodes = sparseColumn.getCodes();
+            for (int index = 0; index < sparseRows.length; ++index) {
+                int nodeIndex = nodeOfRow[sparseRows[index]];
+                if (nodeIndex >= 0 && splitAttributes[nodeIndex] == attributeIndex) {
+                    movedRows[movesCount] = sparseRows[index];
+                    movedChildren[movesCount] = childOfValue[nodeIndex][sparseCodes[index]];
+                    ++movesCount;
+                }
+            }
+        }
+        return new int[][]{Arrays.copyOf(movedRows, movesCount), Arrays.copyOf(movedChildren, movesCount)};
+    }
+
+    /**
+     * Get the number of rows of a node from its class counts
+     * @param classCounts the class counts of the node
+     * @return the number of rows
+     */
+    private static long sum(int[] classCounts) {
+        long sum = 0;
+        for (int count : classCounts)
+            sum += count;
+        return sum;
+    }
+}
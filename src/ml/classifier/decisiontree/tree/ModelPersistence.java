@@ -0,0 +1,76 @@
+package ml.classifier.decisiontree.tree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * This class saves trees to files (or streams) and loads them back
+ * A saved tree holds its nodes, its purity function and the state it needs for scoring (for example the DiscretizationModel of an ExtendedID3),
+ * but not the training data
+ */
+public class ModelPersistence {
+
+    /**
+     * Save a tree to a file
+     * @param tree the tree
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(Tree tree, File file) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            save(tree, outputStream);
+        }
+    }
+
+    /**
+     * Save a tree to a stream
+     * The stream is not closed
+     * @param tree the tree
+     * @param outputStream the stream
+     * @throws IOException if the stream cannot be written
+     */
+    public static void save(Tree tree, OutputStream outputStream) throws IOException {
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(new BufferedOutputStream(outputStream));
+        objectOutputStream.writeObject(tree);
+        objectOutputStream.flush();
+    }
+
+    /**
+     * Load a tree from a file
+     * @param file the file
+     * @return the tree
+     * @throws IOException if the file cannot be read or does not hold a tree
+     */
+    public static Tree load(File file) throws IOException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return load(inputStream);
+        }
+    }
+
+    /**
+     * Load a tree from a stream
+     * The stream is not closed
+     * @param inputStream the stream
+     * @return the tree
+     * @throws IOException if the stream cannot be read or does not hold a tree
+     */
+    public static Tree load(InputStream inputStream) throws IOException {
+        ObjectInputStream objectInputStream = new ObjectInputStream(new BufferedInputStream(inputStream));
+        try {
+            Object object = objectInputStream.readObject();
+            if (!(object instanceof Tree))
+                throw new IOException("The stream does not hold a tree, but a " + object.getClass().getName());
+            return (Tree) object;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("The stream holds an unknown class", e);
+        }
+    }
+}
@@ -2,15 +2,20 @@ package ml.classifier.decisiontree.tree;
 
 import ml.classifier.decisiontree.instance.Dataset;
 
+import java.io.Serializable;
+
 /**
  * This class models a Node from the decision tree
  * Created by virgil on 29.10.2015.
  */
-public abstract class Node {
+public abstract class Node implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String label;
-    private Dataset dataset;
-    private ConfusionMatrix confusionMatrix;
+    //The training data of the node is not saved with the tree
+    private transient Dataset dataset;
+    private transient ConfusionMatrix confusionMatrix;
 
     private Double purityFunctionValue;
 
@@ -0,0 +1,12 @@
+package ml.classifier.decisiontree.tree;
+
+/**
+ * This enum models the ways a node splits a categorical attribute
+ * MULTIWAY creates one child per value of the attribute (the classic ID3 split)
+ * BINARY_SUBSET creates two children: the values of the best subset and all the other values (see SplitSearch.findBestSubset);
+ * the trees are narrower, and an attribute can be split again deeper in the tree
+ */
+public enum SplitMode {
+    MULTIWAY,
+    BINARY_SUBSET
+}
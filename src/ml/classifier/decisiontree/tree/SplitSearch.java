@@ -0,0 +1,474 @@
+package ml.classifier.decisiontree.tree;
+
+import ml.classifier.decisiontree.instance.EncodedDataset;
+import ml.classifier.decisiontree.instance.SparseColumn;
+import ml.classifier.decisiontree.kernel.CountKernel;
+import ml.classifier.decisiontree.kernel.CountKernels;
+import ml.classifier.decisiontree.purityfunction.PurityFunction;
+import ml.utils.monitoring.NodeProbe;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class chooses the split attribute of a node from the counts of an EncodedDataset
+ * The counts of a node are stored as counts[attribute][value][class]; every row is counted with its weight
+ * It takes the same decisions as ID3.createNode, but without building a Dataset for the node
+ * The counts are given to the purity function as they are (see PurityFunction.calculate(int[][])), without a ConfusionMatrix
+ *
+ * With the BINARY_SUBSET split mode, an attribute with more than two values is scored by its best binary partition of values (findBestSubset)
+ */
+class SplitSearch {
+
+    /**
+     * This class models the result of a split search
+     */
+    static class Split {
+
+        private int attributeIndex;
+        private double purityFunctionValue;
+        private boolean singleLabel;
+        private boolean[] subset;
+
+        /**
+         * The Split constructor
+         * @param attributeIndex the index of the chosen attribute, -1 if no attribute can split the node
+         * @param purityFunctionValue the value of the purity function for the chosen attribute
+         * @param singleLabel true if all the rows of the node have the same label
+         */
+        Split(int attributeIndex, double purityFunctionValue, boolean singleLabel) {
+            this(attributeIndex, purityFunctionValue, singleLabel, null);
+        }
+
+        /**
+         * The Split constructor
+         * @param attributeIndex the index of the chosen attribute, -1 if no attribute can split the node
+         * @param purityFunctionValue the value of the purity function for the chosen attribute
+         * @param singleLabel true if all the rows of the node have the same label
+         * @param subset subset[value] is true if the value goes to the first child of a binary split, null for a multiway split
+         */
+        Split(int attributeIndex, double purityFunctionValue, boolean singleLabel, boolean[] subset) {
+            this.attributeIndex = attributeIndex;
+            this.purityFunctionValue = purityFunctionValue;
+            this.singleLabel = singleLabel;
+            this.subset = subset;
+        }
+
+        /**
+         * Get the values of the first child of a binary split
+         * @return subset[value] is true if the value goes to the first child, null for a multiway split
+         */
+        boolean[] getSubset() {
+            return subset;
+        }
+
+        /**
+         * Get the index of the chosen attribute
+         * @return the index of the chosen attribute, -1 if no attribute can split the node
+         */
+        int getAttributeIndex() {
+            return attributeIndex;
+        }
+
+        /**
+         * Get the value of the purity function for the chosen attribute
+         * @return the value of the purity function
+         */
+        double getPurityFunctionValue() {
+            return purityFunctionValue;
+        }
+
+        /**
+         * Check if the node has to become a TerminalNode
+         * @return true if there is no attribute to split by or all the rows have the same label
+         */
+        boolean isTerminal() {
+            return attributeIndex < 0 || singleLabel;
+        }
+    }
+
+    /**
+     * Choose the best attribute to split a node by
+     * An attribute with a single value for the node is useless and is skipped, as in ID3
+     * @param encodedDataset the encoded dataset
+     * @param counts the counts of the node, as counts[attribute][value][class]
+     * @param classCounts the class counts of the node
+     * @param purityFunction the purity function
+     * @return the best split
+     */
+    static Split findBestSplit(EncodedDataset encodedDataset, int[][][] counts, int[] classCounts, PurityFunction purityFunction) {
+        return findBestSplit(encodedDataset, counts, classCounts, purityFunction, 1, NodeProbe.disabled());
+    }
+
+    /**
+     * Choose the best attribute to split a node by
+     * An attribute with a single value for the node is useless and is skipped, as in ID3
+     * An attribute that would create a child with less than minimumRowsPerChild rows is skipped too
+     * @param encodedDataset the encoded dataset
+     * @param counts the counts of the node, as counts[attribute][value][class]
+     * @param classCounts the class counts of the node
+     * @param purityFunction the purity function
+     * @param minimumRowsPerChild the minimum number of rows of every child
+     * @param probe the probe that measures the node
+     * @return the best split
+     */
+    static Split findBestSplit(EncodedDataset encodedDataset, int[][][] counts, int[] classCounts, PurityFunction purityFunction, int minimumRowsPerChild, NodeProbe probe) {
+        return findBestSplit(encodedDataset, counts, classCounts, purityFunction, minimumRowsPerChild, SplitMode.MULTIWAY, probe);
+    }
+
+    /**
+     * Choose the best attribute to split a node by
+     * An attribute with a single value for the node is useless and is skipped, as in ID3
+     * An attribute that would create a child with less than minimumRowsPerChild rows is skipped too
+     * @param encodedDataset the encoded dataset
+     * @param counts the counts of the node, as counts[attribute][value][class]
+     * @param classCounts the class counts of the node
+     * @param purityFunction the purity function
+     * @param minimumRowsPerChild the minimum number of rows of every child
+     * @param splitMode MULTIWAY to score one child per value, BINARY_SUBSET to score the best binary partition of the values
+     * @param probe the probe that measures the node
+     * @return the best split
+     */
+    static Split findBestSplit(EncodedDataset encodedDataset, int[][][] counts, int[] classCounts, PurityFunction purityFunction, int minimumRowsPerChild,
+                               SplitMode splitMode, NodeProbe probe) {
+        double minimumEntropy = Double.MAX_VALUE;
+        int bestAttributeIndex = -1;
+        boolean[] bestSubset = null;
+
+        for (int attributeIndex = 0; attributeIndex < counts.length; ++attributeIndex) {
+            if (countNonEmpty(counts[attributeIndex]) <= 1)
+                continue;
+
+            if (splitMode == SplitMode.BINARY_SUBSET) {
+                long mark = probe.mark();
+                Subset subset = findBestSubset(encodedDataset.getOutcomeAttributeName(), encodedDataset.getOutcomeValues(), counts[attributeIndex],
+                        purityFunction, minimumRowsPerChild);
+                probe.addPurityTime(mark);
+                probe.attributeScored();
+                if (subset != null && subset.getPurityFunctionValue() < minimumEntropy) {
+                    minimumEntropy = subset.getPurityFunctionValue();
+                    bestAttributeIndex = attributeIndex;
+                    bestSubset = subset.getValues();
+                }
+                continue;
+            }
+
+            if (minimumRowsPerChild > 1 && smallestNonEmpty(counts[attributeIndex]) < minimumRowsPerChild)
+                continue;
+
+            long mark = probe.mark();
+            double currentEntropy = purityFunction.calculate(counts[attributeIndex]);
+            probe.addPurityTime(mark);
+            probe.attributeScored();
+
+            if (currentEntropy < minimumEntropy) {
+                minimumEntropy = currentEntropy;
+                bestAttributeIndex = attributeIndex;
+            }
+        }
+
+        int nonEmptyClasses = 0;
+        for (int count : classCounts)
+            if (count > 0)
+                ++nonEmptyClasses;
+
+        return new Split(bestAttributeIndex, minimumEntropy, nonEmptyClasses == 1, bestSubset);
+    }
+
+    /**
+     * This class models the best binary partition of the values of an attribute
+     */
+    static class Subset {
+
+        private boolean[] values;
+        private double purityFunctionValue;
+
+        /**
+         * The Subset constructor
+         * @param values values[value] is true if the value is in the subset (the first child)
+         * @param purityFunctionValue the value of the purity function for the partition
+         */
+        Subset(boolean[] values, double purityFunctionValue) {
+            this.values = values;
+            this.purityFunctionValue = purityFunctionValue;
+        }
+
+        /**
+         * Get the values of the subset
+         * @return values[value] is true if the value is in the subset
+         */
+        boolean[] getValues() {
+            return values;
+        }
+
+        /**
+         * Get the value of the purity function for the partition
+         * @return the value of the purity function
+         */
+        double getPurityFunctionValue() {
+            return purityFunctionValue;
+        }
+    }
+
+    /**
+     * Find the best partition of the values of an attribute in two subsets
+     * The values are sorted by the proportion of a class and only the 'prefix' partitions of that order are scored (Breiman et al., 1984):
+     * with two classes, the best partition is always a prefix of the order of the first class, so the search is exact;
+     * with more classes, every class gives an order (the class against all the others) and the best prefix of all the orders is kept,
+     * so the cost is O(classes * values * log(values)) instead of the 2^(values - 1) partitions
+     * @param outcomeAttributeName the name of the outcome attribute
+     * @param outcomeValues the outcome values
+     * @param attributeCounts the counts of the attribute, as attributeCounts[value][class]
+     * @param purityFunction the purity function
+     * @param minimumRowsPerChild the minimum number of rows of both subsets
+     * @return the best partition, null if the attribute has less than two values or no partition has big enough subsets
+     */
+    static Subset findBestSubset(String outcomeAttributeName, List<String> outcomeValues, int[][] attributeCounts, PurityFunction purityFunction, int minimumRowsPerChild) {
+        int classesCount = outcomeValues.size();
+        final int[] valueTotals = new int[attributeCounts.length];
+        int[] classTotals = new int[classesCount];
+        int nonEmptyCount = 0;
+        for (int value = 0; value < attributeCounts.length; ++value) {
+            for (int classIndex = 0; classIndex < classesCount; ++classIndex) {
+                valueTotals[value] += attributeCounts[value][classIndex];
+                classTotals[classIndex] += attributeCounts[value][classIndex];
+            }
+            if (valueTotals[value] > 0)
+                ++nonEmptyCount;
+        }
+        if (nonEmptyCount < 2)
+            return null;
+
+        Integer[] order = new Integer[nonEmptyCount];
+        nonEmptyCount = 0;
+        for (int value = 0; value < attributeCounts.length; ++value)
+            if (valueTotals[value] > 0)
+                order[nonEmptyCount++] = value;
+
+        //With two classes, the order of one class is the reverse of the order of the other one
+        int nonEmptyClasses = 0;
+        for (int classTotal : classTotals)
+            if (classTotal > 0)
+                ++nonEmptyClasses;
+
+        double bestPurity = Double.MAX_VALUE;
+        boolean[] bestSubset = null;
+        int[][] partitionCounts = new int[2][classesCount];
+
+        for (int orderedClass = 0; orderedClass < classesCount; ++orderedClass) {
+            if (classTotals[orderedClass] == 0)
+                continue;
+            final int[][] counts = attributeCounts;
+            final int classIndex = orderedClass;
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    //counts[o1][c] / total[o1] < counts[o2][c] / total[o2], without a division
+                    return Long.compare((long) counts[o1][classIndex] * valueTotals[o2], (long) counts[o2][classIndex] * valueTotals[o1]);
+                }
+            });
+
+            Arrays.fill(partitionCounts[0], 0);
+            System.arraycopy(classTotals, 0, partitionCounts[1], 0, classesCount);
+            int inRows = 0;
+            int totalRows = 0;
+            for (int classTotal : classTotals)
+                totalRows += classTotal;
+
+            for (int prefix = 0; prefix < order.length - 1; ++prefix) {
+                int value = order[prefix];
+                for (int countClass = 0; countClass < classesCount; ++countClass) {
+                    partitionCounts[0][countClass] += attributeCounts[value][countClass];
+                    partitionCounts[1][countClass] -= attributeCounts[value][countClass];
+                }
+                inRows += valueTotals[value];
+                if (inRows < minimumRowsPerChild || totalRows - inRows < minimumRowsPerChild)
+                    continue;
+
+                double purity = purityFunction.calculate(partitionCounts);
+                if (purity < bestPurity) {
+                    bestPurity = purity;
+                    bestSubset = new boolean[attributeCounts.length];
+                    for (int inPrefix = 0; inPrefix <= prefix; ++inPrefix)
+                        bestSubset[order[inPrefix]] = true;
+                }
+            }
+
+            if (nonEmptyClasses <= 2)
+                break;
+        }
+
+        return bestSubset != null ? new Subset(bestSubset, bestPurity) : null;
+    }
+
+    /**
+     * Count the values of an attribute that appear in the node
+     * @param attributeCounts the counts of the attribute, as attributeCounts[value][class]
+     * @return the number of values with at least one row
+     */
+    static int countNonEmpty(int[][] attributeCounts) {
+        int nonEmpty = 0;
+        for (int[] valueCounts : attributeCounts) {
+            for (int count : valueCounts) {
+                if (count > 0) {
+                    ++nonEmpty;
+                    break;
+                }
+            }
+        }
+        return nonEmpty;
+    }
+
+    /**
+     * Get the row count of the smallest value of an attribute that appears in the node
+     * @param attributeCounts the counts of the attribute, as attributeCounts[value][class]
+     * @return the smallest non zero row count
+     */
+    static int smallestNonEmpty(int[][] attributeCounts) {
+        int smallest = Integer.MAX_VALUE;
+        for (int[] valueCounts : attributeCounts) {
+            int total = 0;
+            for (int count : valueCounts)
+                total += count;
+            if (total > 0 && total < smallest)
+                smallest = total;
+        }
+        return smallest;
+    }
+
+    /**
+     * Calculate the purity function of a node before it is split
+     * The node is seen as a count matrix with a single row
+     * @param encodedDataset the encoded dataset
+     * @param classCounts the class counts of the node
+     * @param purityFunction the purity function
+     * @return the value of the purity function for the node
+     */
+    static double nodePurity(EncodedDataset encodedDataset, int[] classCounts, PurityFunction purityFunction) {
+        return purityFunction.calculate(new int[][]{classCounts});
+    }
+
+    /**
+     * Count the values of every attribute for the given rows
+     * The dense attributes are counted by the CountKernel of the process (see CountKernels), which may use SIMD instructions;
+     * the sparse attributes are counted by countSparse, so their default value is never scanned
+     * The rows are checked once for the sparse attributes; use the other count method if it is already known that they are sorted
+     * @param encodedDataset the encoded dataset
+     * @param rows the indexes of the rows
+     * @param counts the counts to be filled, as counts[attribute][value][class]
+     * @param classCounts the class counts to be filled
+     */
+    static void count(EncodedDataset encodedDataset, int[] rows, int[][][] counts, int[] classCounts) {
+        count(encodedDataset, rows, isSorted(rows), counts, classCounts);
+    }
+
+    /**
+     * Count the values of every attribute for the given rows
+     * The dense attributes are counted by the CountKernel of the process (see CountKernels), which may use SIMD instructions;
+     * the sparse attributes are counted by countSparse, so their default value is never scanned
+     * @param encodedDataset the encoded dataset
+     * @param rows the indexes of the rows
+     * @param rowsSorted true if the rows are sorted in increasing order
+     * @param counts the counts to be filled, as counts[attribute][value][class]
+     * @param classCounts the class counts to be filled
+     */
+    static void count(EncodedDataset encodedDataset, int[] rows, boolean rowsSorted, int[][][] counts, int[] classCounts) {
+        int[] outcomes = encodedDataset.getOutcomes();
+        int[] weights = encodedDataset.getWeights();
+        CountKernel countKernel = CountKernels.get();
+        int[] nodeClassCounts = new int[classCounts.length];
+        for (int row : rows)
+            nodeClassCounts[outcomes[row]] += weights[row];
+
+        for (int attributeIndex = 0; attributeIndex < counts.length; ++attributeIndex) {
+            if (encodedDataset.isSparse(attributeIndex)) {
+                countSparse(encodedDataset, encodedDataset.getSparseColumn(attributeIndex), rows, rowsSorted, counts[attributeIndex], nodeClassCounts);
+                continue;
+            }
+            countKernel.countClasses(encodedDataset.getColumn(attributeIndex), outcomes, weights, rows, counts[attributeIndex]);
+        }
+        for (int outcome = 0; outcome < classCounts.length; ++outcome)
+            classCounts[outcome] += nodeClassCounts[outcome];
+    }
+
+    /**
+     * Count the values of a sparse attribute for the given rows
+     * Only the rows with a non-default value are counted; the default value gets what remains of the class counts of the rows
+     * If the rows are sorted and more numerous than the non-default rows, the non-default rows are looked up in them,
+     * so the cost depends on the non-default rows; otherwise every row is looked up in the sparse column
+     * @param encodedDataset the encoded dataset
+     * @param sparseColumn the sparse column of the attribute
+     * @param rows the indexes of the rows
+     * @param rowsSorted true if the rows are sorted in increasing order
+     * @param attributeCounts the counts to be filled, as attributeCounts[value][class]
+     * @param classCounts the class counts of the rows
+     */
+    static void countSparse(EncodedDataset encodedDataset, SparseColumn sparseColumn, int[] rows, boolean rowsSorted, int[][] attributeCounts, int[] classCounts) {
+        int[] outcomes = encodedDataset.getOutcomes();
+        int[] weights = encodedDataset.getWeights();
+        int[] sparseRows = sparseColumn.getRows();
+        int[] sparseCodes = sparseColumn.getCodes();
+        int defaultCode = sparseColumn.getDefaultCode();
+        int[] nonDefaultCounts = new int[classCounts.length];
+
+        if (sparseRows.length < rows.length && rowsSorted) {
+            for (int index = 0; index < sparseRows.length; ++index) {
+                int row = sparseRows[index];
+                if (Arrays.binarySearch(rows, row) < 0)
+                    continue;
+                attributeCounts[sparseCodes[index]][outcomes[row]] += weights[row];
+                nonDefaultCounts[outcomes[row]] += weights[row];
+            }
+        }
+        else {
+            for (int row : rows) {
+                int index = Arrays.binarySearch(sparseRows, row);
+                if (index < 0)
+                    continue;
+                attributeCounts[sparseCodes[index]][outcomes[row]] += weights[row];
+                nonDefaultCounts[outcomes[row]] += weights[row];
+            }
+        }
+
+        for (int outcome = 0; outcome < classCounts.length; ++outcome)
+            attributeCounts[defaultCode][outcome] += classCounts[outcome] - nonDefaultCounts[outcome];
+    }
+
+    /**
+     * Check if some rows are sorted in increasing order
+     * @param rows the indexes of the rows
+     * @return true if the rows are sorted
+     */
+    static boolean isSorted(int[] rows) {
+        for (int index = 1; index < rows.length; ++index)
+            if (rows[index - 1] > rows[index])
+                return false;
+        return true;
+    }
+
+    /**
+     * Create the empty counts of a node
+     * @param encodedDataset the encoded dataset
+     * @return the counts, as counts[attribute][value][class]
+     */
+    static int[][][] newCounts(EncodedDataset encodedDataset) {
+        int[][][] counts = new int[encodedDataset.getAttributesCount()][][];
+        for (int attributeIndex = 0; attributeIndex < counts.length; ++attributeIndex)
+            counts[attributeIndex] = new int[encodedDataset.getCardinality(attributeIndex)][encodedDataset.getClassesCount()];
+        return counts;
+    }
+
+    /**
+     * Get the class with the biggest count
+     * @param classCounts the class counts
+     * @return the code of the majority class
+     */
+    static int majorityClass(int[] classCounts) {
+        int majority = 0;
+        for (int classIndex = 1; classIndex < classCounts.length; ++classIndex)
+            if (classCounts[classIndex] > classCounts[majority])
+                majority = classIndex;
+        return majority;
+    }
+}
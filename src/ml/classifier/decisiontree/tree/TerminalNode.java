@@ -10,6 +10,8 @@ import ml.utils.Pair;
  */
 public class TerminalNode extends Node {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * The TerminalNode default constructor
      */
@@ -0,0 +1,41 @@
+package ml.classifier.decisiontree.tree;
+
+/**
+ * This class models the exception thrown by a tree builder when its TrainingMonitor is cancelled or its deadline has passed
+ * The tree that was being built is left incomplete and must not be used
+ */
+public class TrainingCancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private boolean deadlineExceeded;
+    private TrainingProgress progress;
+
+    /**
+     * The TrainingCancelledException constructor
+     * @param message the detail message
+     * @param deadlineExceeded true if the training was stopped by its deadline, false if it was cancelled
+     * @param progress the progress of the training when it was stopped
+     */
+    public TrainingCancelledException(String message, boolean deadlineExceeded, TrainingProgress progress) {
+        super(message);
+        this.deadlineExceeded = deadlineExceeded;
+        this.progress = progress;
+    }
+
+    /**
+     * Check if the training was stopped by its deadline
+     * @return true if the deadline has passed, false if the training was cancelled
+     */
+    public boolean isDeadlineExceeded() {
+        return deadlineExceeded;
+    }
+
+    /**
+     * Get the progress of the training when it was stopped
+     * @return the progress
+     */
+    public TrainingProgress getProgress() {
+        return progress;
+    }
+}
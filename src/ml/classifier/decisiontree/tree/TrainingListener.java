@@ -0,0 +1,22 @@
+package ml.classifier.decisiontree.tree;
+
+/**
+ * This interface models a TrainingListener
+ * A TrainingListener receives the progress of a tree while it is built
+ * It is called on the thread that builds the tree, so it should return quickly
+ */
+public interface TrainingListener {
+
+    /**
+     * Called every time a node of the tree is created
+     * @param progress the progress of the training so far
+     */
+    void onNodeCreated(TrainingProgress progress);
+
+    /**
+     * Called once, when the tree is complete
+     * @param progress the final progress of the training
+     */
+    void onTrainingFinished(TrainingProgress progress);
+
+}
@@ -0,0 +1,163 @@
+package ml.classifier.decisiontree.tree;
+
+/**
+ * This class models a TrainingMonitor
+ * A TrainingMonitor follows a tree while it is built: the builder reports every created node to it,
+ * and it forwards the progress to its TrainingListener
+ * It is also the way to stop a build: cancel() can be called from any thread, and a timeout can be set before the build starts
+ * The builder checks the monitor at every node (and regularly while it counts), and throws a TrainingCancelledException
+ * once the monitor is cancelled or the deadline has passed
+ *
+ * A monitor follows one build at a time; it can be reused for another build once the previous one is over
+ */
+public class TrainingMonitor {
+
+    private TrainingListener trainingListener;
+    private long timeoutMillis;
+    private volatile boolean cancelled;
+
+    private long startNanos;
+    private long deadlineNanos;
+    private long totalRows;
+    private long nodesCount;
+    private int maximumDepth;
+    private long rowsProcessed;
+
+    /**
+     * The TrainingMonitor default constructor
+     * Creates a monitor without listener and without timeout
+     */
+    public TrainingMonitor() {
+        this(null);
+    }
+
+    /**
+     * The TrainingMonitor constructor
+     * @param trainingListener the listener that receives the progress, null for none
+     */
+    public TrainingMonitor(TrainingListener trainingListener) {
+        this.trainingListener = trainingListener;
+        this.timeoutMillis = 0;
+        this.cancelled = false;
+    }
+
+    /**
+     * Get the listener that receives the progress
+     * @return the listener, null if there is none
+     */
+    public TrainingListener getTrainingListener() {
+        return trainingListener;
+    }
+
+    /**
+     * Set the listener that receives the progress
+     * @param trainingListener the new listener, null for none
+     */
+    public void setTrainingListener(TrainingListener trainingListener) {
+        this.trainingListener = trainingListener;
+    }
+
+    /**
+     * Get the maximum duration of a build
+     * @return the timeout, in milliseconds, 0 if there is no timeout
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Set the maximum duration of a build, measured from the moment the build starts
+     * @param timeoutMillis the new timeout, in milliseconds, 0 for no timeout
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Ask the build to stop
+     * Can be called from any thread; the builder stops at its next check
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Check if the build was asked to stop
+     * @return true if cancel() was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Called by the builder when the build starts
+     * @param totalRows the number of rows used to build the tree
+     */
+    public void start(long totalRows) {
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = timeoutMillis > 0 ? startNanos + timeoutMillis * 1000000 : 0;
+        this.totalRows = totalRows;
+        this.nodesCount = 0;
+        this.maximumDepth = 0;
+        this.rowsProcessed = 0;
+        check();
+    }
+
+    /**
+     * Called by the builder every time it creates a node
+     * @param depth the depth of the node (the root is at depth 1)
+     * @param rows the number of rows of the node
+     * @param terminal true if the node will not be split (its rows are processed)
+     * @throws TrainingCancelledException if the build was cancelled or the deadline has passed
+     */
+    public void nodeCreated(int depth, long rows, boolean terminal) {
+        ++nodesCount;
+        if (depth > maximumDepth)
+            maximumDepth = depth;
+        if (terminal)
+            rowsProcessed += rows;
+
+        if (trainingListener != null)
+            trainingListener.onNodeCreated(getProgress(depth));
+        check();
+    }
+
+    /**
+     * Called by the builder when the tree is complete
+     * All the rows are processed at this point, even those of the leaves that were not split because of a budget
+     */
+    public void finish() {
+        rowsProcessed = totalRows;
+        if (trainingListener != null)
+            trainingListener.onTrainingFinished(getProgress(maximumDepth));
+    }
+
+    /**
+     * Check if the build has to stop
+     * Called by the builder between two units of work
+     * @throws TrainingCancelledException if the build was cancelled or the deadline has passed
+     */
+    public void check() {
+        if (cancelled)
+            throw new TrainingCancelledException("The training was cancelled", false, getProgress(maximumDepth));
+        if (deadlineNanos != 0 && System.nanoTime() - deadlineNanos > 0)
+            throw new TrainingCancelledException("The training did not finish in " + timeoutMillis + " ms", true, getProgress(maximumDepth));
+    }
+
+    /**
+     * Get the progress of the current build
+     * @return the progress
+     */
+    public TrainingProgress getProgress() {
+        return getProgress(maximumDepth);
+    }
+
+    /**
+     * Get the progress of the current build
+     * @param depth the depth of the last created node
+     * @return the progress
+     */
+    private TrainingProgress getProgress(int depth) {
+        return new TrainingProgress(nodesCount, depth, maximumDepth, rowsProcessed, totalRows, System.nanoTime() - startNanos);
+    }
+}
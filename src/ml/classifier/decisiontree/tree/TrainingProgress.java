@@ -0,0 +1,114 @@
+package ml.classifier.decisiontree.tree;
+
+/**
+ * This class models a TrainingProgress
+ * It is a snapshot of the state of a tree that is being built: the created nodes, the depth reached and the processed rows
+ * A row is processed when it reaches a node that will not be split, so the share of processed rows estimates the completion
+ */
+public class TrainingProgress {
+
+    private long nodesCount;
+    private int depth;
+    private int maximumDepth;
+    private long rowsProcessed;
+    private long totalRows;
+    private long elapsedNanos;
+
+    /**
+     * The TrainingProgress constructor
+     * @param nodesCount the number of created nodes
+     * @param depth the depth of the last created node (the root is at depth 1)
+     * @param maximumDepth the biggest depth reached so far
+     * @param rowsProcessed the number of rows that reached a node that will not be split
+     * @param totalRows the number of rows used to build the tree
+     * @param elapsedNanos the time since the training started, in nanoseconds
+     */
+    public TrainingProgress(long nodesCount, int depth, int maximumDepth, long rowsProcessed, long totalRows, long elapsedNanos) {
+        this.nodesCount = nodesCount;
+        this.depth = depth;
+        this.maximumDepth = maximumDepth;
+        this.rowsProcessed = rowsProcessed;
+        this.totalRows = totalRows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Get the number of created nodes
+     * @return the number of created nodes
+     */
+    public long getNodesCount() {
+        return nodesCount;
+    }
+
+    /**
+     * Get the depth of the last created node
+     * @return the depth of the last created node (the root is at depth 1)
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the biggest depth reached so far
+     * @return the maximum depth
+     */
+    public int getMaximumDepth() {
+        return maximumDepth;
+    }
+
+    /**
+     * Get the number of rows that reached a node that will not be split
+     * @return the number of processed rows
+     */
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    /**
+     * Get the number of rows used to build the tree
+     * @return the number of rows
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * Get the time since the training started
+     * @return the elapsed time, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the estimated completion of the training
+     * @return the share of processed rows, between 0 and 1
+     */
+    public double getEstimatedCompletion() {
+        return totalRows == 0 ? 1.0 : Math.min(1.0, (rowsProcessed + 0.0) / totalRows);
+    }
+
+    /**
+     * Get the estimated time until the training is complete, assuming the rows keep being processed at the same rate
+     * @return the estimated remaining time, in nanoseconds, -1 if no row was processed yet
+     */
+    public long getEstimatedRemainingNanos() {
+        if (rowsProcessed == 0)
+            return -1;
+        double completion = getEstimatedCompletion();
+        return (long) (elapsedNanos * (1.0 - completion) / completion);
+    }
+
+    @Override
+    public String toString() {
+        return "TrainingProgress{" +
+                "nodes=" + nodesCount +
+                ", depth=" + depth +
+                ", maximumDepth=" + maximumDepth +
+                ", rowsProcessed=" + rowsProcessed +
+                ", totalRows=" + totalRows +
+                ", completion=" + String.format("%.3f", getEstimatedCompletion()) +
+                ", elapsedMillis=" + elapsedNanos / 1000000 +
+                '}';
+    }
+}
@@ -3,16 +3,24 @@ package ml.classifier.decisiontree.tree;
 import ml.classifier.decisiontree.instance.Instance;
 import ml.classifier.decisiontree.purityfunction.PurityFunction;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * This class models a Tree
  * A tree is given by its root node
  * Once the tree is created, it can be used to evaluate a test instance
+ * A tree is Serializable, so it can be saved and loaded with ModelPersistence (the training data is not saved)
  * Created by virgil on 29.10.2015.
  */
-public abstract class Tree {
+public abstract class Tree implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private Node root;
     private PurityFunction purityFunction;
+    private transient TrainingMonitor trainingMonitor;
 
     /**
      * Evaluate the new instance using this tree
@@ -21,6 +29,19 @@ public abstract class Tree {
      */
     abstract public String evaluate(Instance observation);
 
+    /**
+     * Evaluate a batch of new instances using this tree
+     * The trees that can prepare a whole batch before the traversal (for example, discretize its columns) override this method
+     * @param observations the new observations
+     * @return the values of the evaluation (the predicted classes), in the order of the observations
+     */
+    public List<String> evaluateBatch(List<Instance> observations) {
+        List<String> predictions = new ArrayList<>(observations.size());
+        for (Instance observation : observations)
+            predictions.add(evaluate(observation));
+        return predictions;
+    }
+
     /**
      * Show the tree
      */
@@ -57,4 +78,20 @@ public abstract class Tree {
     public void setPurityFunction(PurityFunction purityFunction) {
         this.purityFunction = purityFunction;
     }
+
+    /**
+     * Get the monitor that follows the build of the tree
+     * @return the training monitor
+     */
+    public TrainingMonitor getTrainingMonitor() {
+        return trainingMonitor;
+    }
+
+    /**
+     * Set the monitor that follows the build of the tree
+     * @param trainingMonitor the new training monitor
+     */
+    public void setTrainingMonitor(TrainingMonitor trainingMonitor) {
+        this.trainingMonitor = trainingMonitor;
+    }
 }
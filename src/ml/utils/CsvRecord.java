@@ -0,0 +1,184 @@
+package ml.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * This class models a CsvRecord
+ * A CsvRecord is a view over the current line of a csv file, while the DataLoader parses it
+ * The line is only split into field boundaries; a value is created (as a String) only when it is asked for,
+ * so a row filter that reads a few columns does not pay for the others
+ *
+ * The same CsvRecord is reused for all the lines of a file, so it must not be kept after the filter returns
+ */
+public class CsvRecord {
+
+    private String[] columnNames;
+    private Map<String, Integer> columnIndexes;
+    private char delimiterChar;
+    private Pattern delimiterPattern;
+
+    private String line;
+    private long lineNumber;
+    private int fieldsCount;
+    private int[] fieldStarts;
+    private int[] fieldEnds;
+    private String[] splitValues;
+
+    /**
+     * The CsvRecord constructor
+     * A delimiter of a single character is scanned directly; a longer delimiter is used as a regular expression, as String.split does
+     * @param columnNames the names of the columns (the header of the file)
+     * @param delimiter the delimiter of the values
+     */
+    CsvRecord(String[] columnNames, String delimiter) {
+        this.columnNames = columnNames;
+        this.columnIndexes = new HashMap<>();
+        for (int columnIndex = 0; columnIndex < columnNames.length; ++columnIndex)
+            this.columnIndexes.put(columnNames[columnIndex], columnIndex);
+
+        if (isPlainCharacter(delimiter))
+            this.delimiterChar = delimiter.charAt(0);
+        else
+            this.delimiterPattern = Pattern.compile(delimiter);
+
+        this.fieldStarts = new int[columnNames.length];
+        this.fieldEnds = new int[columnNames.length];
+    }
+
+    /**
+     * Check if a delimiter can be scanned as a single character
+     * @param delimiter the delimiter
+     * @return true if the delimiter is a single character without a special meaning in a regular expression
+     */
+    static boolean isPlainCharacter(String delimiter) {
+        return delimiter.length() == 1 && ".$|()[{^?*+\\".indexOf(delimiter.charAt(0)) < 0;
+    }
+
+    /**
+     * Move the record to a new line
+     * Only the boundaries of the fields are found; no value is created
+     * @param line the line
+     * @param lineNumber the number of the line in the file (the header is line 1)
+     */
+    void setLine(String line, long lineNumber) {
+        this.line = line;
+        this.lineNumber = lineNumber;
+
+        if (delimiterPattern != null) {
+            splitValues = delimiterPattern.split(line);
+            fieldsCount = splitValues.length;
+            return;
+        }
+
+        fieldsCount = 0;
+        int start = 0;
+        while (true) {
+            int end = line.indexOf(delimiterChar, start);
+            if (fieldsCount == fieldStarts.length) {
+                fieldStarts = Arrays.copyOf(fieldStarts, fieldStarts.length * 2 + 1);
+                fieldEnds = Arrays.copyOf(fieldEnds, fieldEnds.length * 2 + 1);
+            }
+            fieldStarts[fieldsCount] = start;
+            fieldEnds[fieldsCount] = end < 0 ? line.length() : end;
+            ++fieldsCount;
+            if (end < 0)
+                break;
+            start = end + 1;
+        }
+
+        //As String.split, ignore the trailing empty fields
+        while (fieldsCount > 0 && fieldStarts[fieldsCount - 1] == fieldEnds[fieldsCount - 1])
+            --fieldsCount;
+    }
+
+    /**
+     * Get the names of the columns
+     * @return the header of the file
+     */
+    public List<String> getColumnNames() {
+        return Arrays.asList(columnNames);
+    }
+
+    /**
+     * Get the index of a column
+     * @param columnName the name of the column
+     * @return the index of the column, -1 if the file has no such column
+     */
+    public int getColumnIndex(String columnName) {
+        Integer columnIndex = columnIndexes.get(columnName);
+        return columnIndex != null ? columnIndex : -1;
+    }
+
+    /**
+     * Get the number of the current line in the file
+     * @return the line number (the header is line 1)
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Get the number of fields of the current line
+     * @return the number of fields
+     */
+    public int getFieldsCount() {
+        return fieldsCount;
+    }
+
+    /**
+     * Get the current line, as it was read
+     * @return the line
+     */
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * Get a value of the current line
+     * @param columnIndex the index of the column
+     * @return the value
+     * @throws IndexOutOfBoundsException if the line has no such field
+     */
+    public String getValue(int columnIndex) {
+        if (columnIndex < 0 || columnIndex >= fieldsCount)
+            throw new IndexOutOfBoundsException("Line " + lineNumber + " has " + fieldsCount + " fields, there is no field " + columnIndex);
+        if (delimiterPattern != null)
+            return splitValues[columnIndex];
+        return line.substring(fieldStarts[columnIndex], fieldEnds[columnIndex]);
+    }
+
+    /**
+     * Get a value of the current line
+     * @param columnName the name of the column
+     * @return the value
+     * @throws IllegalArgumentException if the file has no such column
+     */
+    public String getValue(String columnName) {
+        int columnIndex = getColumnIndex(columnName);
+        if (columnIndex < 0)
+            throw new IllegalArgumentException("Unknown column " + columnName);
+        return getValue(columnIndex);
+    }
+
+    /**
+     * Get a numeric value of the current line
+     * @param columnName the name of the column
+     * @return the value, as a double
+     * @throws NumberFormatException if the value is not a number
+     */
+    public double getDouble(String columnName) {
+        return Double.parseDouble(getValue(columnName));
+    }
+
+    @Override
+    public String toString() {
+        return "CsvRecord{" +
+                "lineNumber=" + lineNumber +
+                ", line='" + line + '\'' +
+                '}';
+    }
+}
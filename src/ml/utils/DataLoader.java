@@ -1,28 +1,69 @@
 package ml.utils;
 
 import ml.classifier.decisiontree.instance.Attribute;
+import ml.classifier.decisiontree.instance.ColumnType;
 import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.FeatureHasher;
 import ml.classifier.decisiontree.instance.Instance;
+import ml.classifier.decisiontree.instance.Schema;
+import ml.utils.monitoring.Metrics;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipInputStream;
 
 /**
  * This class models a DataLoader
  * A DataLoader is an object that is used to load data from different files (csv, xml, etc.)
+ * A csv file can be loaded with a column projection (only the listed columns become Attributes) and a row filter,
+ * both applied while the lines are parsed: the fields of the skipped columns and of the rejected rows are never created
+ *
+ * The Schema of the file is inferred from its first loaded rows (schemaSampleSize of them), unless inferSchema is false:
+ * the values of the NUMERIC columns are parsed once, when they are loaded, and kept in their Attributes
+ * The inferred type of a column is overridden with setColumnType
+ *
+ * A FeatureHasher (setFeatureHasher) hashes the values of the high-cardinality categorical columns while they are loaded,
+ * so the distinct values of such a column are never all kept in memory
+ *
+ * A compressed file is read directly, its codec is chosen by its extension: .gz (gzip), .zip (the first entry) and .deflate or .zz (zlib)
+ * A compressed file is read in a pipeline (see PipelinedLineReader): one thread decompresses, another one splits the lines
+ * and the calling thread parses them, so the decompression and the parsing overlap
  * Created by virgil on 29.10.2015.
  */
 public class DataLoader {
 
     private String filePath;
 
+    private boolean inferSchema;
+    private int schemaSampleSize;
+    private int maximumCategoricalCardinality;
+    private Map<String, ColumnType> columnTypes;
+
+    private FeatureHasher featureHasher;
+
+    private boolean pipelined;
+    private int queueCapacity;
+
     /**
      * The DataLoader default constructor
      */
     public DataLoader() {
-        this.filePath = "";
+        this("");
     }
 
     /**
@@ -31,6 +72,13 @@ public class DataLoader {
      */
     public DataLoader(String filePath) {
         this.filePath = filePath;
+        this.inferSchema = true;
+        this.schemaSampleSize = Schema.DEFAULT_SAMPLE_SIZE;
+        this.maximumCategoricalCardinality = Schema.DEFAULT_MAXIMUM_CATEGORICAL_CARDINALITY;
+        this.columnTypes = new HashMap<>();
+        this.featureHasher = null;
+        this.pipelined = true;
+        this.queueCapacity = PipelinedLineReader.DEFAULT_QUEUE_CAPACITY;
     }
 
     /**
@@ -49,46 +97,472 @@ public class DataLoader {
         this.filePath = filePath;
     }
 
+    /**
+     * Check if the schema of the loaded files is inferred
+     * @return true if the schema is inferred
+     */
+    public boolean isInferSchema() {
+        return inferSchema;
+    }
+
+    /**
+     * Set if the schema of the loaded files is inferred
+     * @param inferSchema true to infer the schema, false to load all the values as Strings only (the datasets have no schema)
+     */
+    public void setInferSchema(boolean inferSchema) {
+        this.inferSchema = inferSchema;
+    }
+
+    /**
+     * Get the number of rows from which the schema is inferred
+     * @return the size of the sample
+     */
+    public int getSchemaSampleSize() {
+        return schemaSampleSize;
+    }
+
+    /**
+     * Set the number of rows from which the schema is inferred
+     * @param schemaSampleSize the new size of the sample
+     */
+    public void setSchemaSampleSize(int schemaSampleSize) {
+        this.schemaSampleSize = schemaSampleSize;
+    }
+
+    /**
+     * Get the biggest number of distinct values of a CATEGORICAL column of numbers
+     * @return the maximum cardinality of a categorical column
+     */
+    public int getMaximumCategoricalCardinality() {
+        return maximumCategoricalCardinality;
+    }
+
+    /**
+     * Set the biggest number of distinct values of a CATEGORICAL column of numbers
+     * A column of numbers with more distinct values (in the sample) is NUMERIC
+     * @param maximumCategoricalCardinality the new maximum cardinality of a categorical column
+     */
+    public void setMaximumCategoricalCardinality(int maximumCategoricalCardinality) {
+        this.maximumCategoricalCardinality = maximumCategoricalCardinality;
+    }
+
+    /**
+     * Override the inferred type of a column
+     * The override is ignored for the files (or projections) without this column
+     * @param columnName the name of the column
+     * @param columnType the type of the column
+     */
+    public void setColumnType(String columnName, ColumnType columnType) {
+        columnTypes.put(columnName, columnType);
+    }
+
+    /**
+     * Get the overridden column types
+     * @return the overridden column types, by column name
+     */
+    public Map<String, ColumnType> getColumnTypes() {
+        return columnTypes;
+    }
+
+    /**
+     * Get the FeatureHasher of the high-cardinality columns
+     * @return the FeatureHasher, null if no column is hashed
+     */
+    public FeatureHasher getFeatureHasher() {
+        return featureHasher;
+    }
+
+    /**
+     * Set the FeatureHasher of the high-cardinality columns
+     * Its attributes are hashed, and so are the CATEGORICAL columns whose cardinality (in the schema sample) is above its maximumCardinality;
+     * the outcome column is never hashed. The same FeatureHasher must be used to load (or transform) the rows to be scored
+     * @param featureHasher the FeatureHasher, null to hash no column
+     */
+    public void setFeatureHasher(FeatureHasher featureHasher) {
+        this.featureHasher = featureHasher;
+    }
+
+    /**
+     * Check if the compressed files are read in a pipeline
+     * @return true if the decompression, the line splitting and the parsing run on different threads
+     */
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * Set if the compressed files are read in a pipeline
+     * The plain files are always read by the calling thread only
+     * @param pipelined true to decompress, split and parse on different threads, false to do everything on the calling thread
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Get the capacity of the queues between the stages of the pipeline
+     * @return the number of chunks (or of batches of lines) that can wait between two stages
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Set the capacity of the queues between the stages of the pipeline
+     * @param queueCapacity the new number of chunks (or of batches of lines) that can wait between two stages
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Check if a file is compressed with a codec that can be read
+     * @param filePath the path to the file
+     * @return true if the extension of the file is .gz, .gzip, .zip, .deflate or .zz
+     */
+    public static boolean isCompressed(String filePath) {
+        String lowerCasePath = filePath.toLowerCase();
+        return lowerCasePath.endsWith(".gz") || lowerCasePath.endsWith(".gzip") || lowerCasePath.endsWith(".zip")
+                || lowerCasePath.endsWith(".deflate") || lowerCasePath.endsWith(".zz");
+    }
+
+    /**
+     * Open a file, decompressing it if its extension is the one of a compressed file
+     * The JDK has no zstd, bzip2, xz or lz4 codec, so these files are rejected instead of being read as garbage
+     * @param filePath the path to the file
+     * @return the (decompressed) content of the file
+     * @throws IOException if the file cannot be opened, or if its codec is not supported
+     */
+    public static InputStream openInputStream(String filePath) throws IOException {
+        String lowerCasePath = filePath.toLowerCase();
+        for (String unsupportedExtension : new String[] { ".zst", ".zstd", ".bz2", ".xz", ".lz4" })
+            if (lowerCasePath.endsWith(unsupportedExtension))
+                throw new IOException("The codec of " + filePath + " is not available in the JDK, use gzip, zip or deflate instead");
+
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(filePath), PipelinedLineReader.CHUNK_SIZE);
+        try {
+            if (lowerCasePath.endsWith(".gz") || lowerCasePath.endsWith(".gzip"))
+                return new GZIPInputStream(inputStream, PipelinedLineReader.CHUNK_SIZE);
+            if (lowerCasePath.endsWith(".deflate") || lowerCasePath.endsWith(".zz"))
+                return new InflaterInputStream(inputStream);
+            if (lowerCasePath.endsWith(".zip")) {
+                ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+                if (zipInputStream.getNextEntry() == null)
+                    throw new IOException("The archive " + filePath + " is empty");
+                return zipInputStream;
+            }
+            return inputStream;
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open the lines of the file whose path is filePath
+     * @return the lines of the file, read in a pipeline if the file is compressed and pipelined is true
+     * @throws IOException if the file cannot be opened
+     */
+    private LineSource openLineSource() throws IOException {
+        InputStream inputStream = openInputStream(this.filePath);
+        if (pipelined && isCompressed(this.filePath)) {
+            final PipelinedLineReader pipelinedLineReader = new PipelinedLineReader(inputStream, Charset.defaultCharset(), queueCapacity);
+            return new LineSource() {
+                @Override
+                public String readLine() throws IOException {
+                    return pipelinedLineReader.readLine();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    pipelinedLineReader.close();
+                }
+            };
+        }
+
+        final BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, Charset.defaultCharset()));
+        return new LineSource() {
+            @Override
+            public String readLine() throws IOException {
+                return bufferedReader.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                bufferedReader.close();
+            }
+        };
+    }
+
+    /**
+     * This interface models the lines of a file, read one by one
+     */
+    private interface LineSource extends Closeable {
+
+        /**
+         * Read the next line
+         * @return the line, null at the end of the file
+         * @throws IOException if the file cannot be read
+         */
+        String readLine() throws IOException;
+    }
+
     /**
      * Load the dataset from the file whose path is filePath
      * @param delimiter the delimiter used in the .csv file
      * @return the dataset loaded from the file
      */
     public Dataset loadDatasetFromCsv(String delimiter) {
+        return loadDatasetFromCsv(delimiter, (List<String>) null, (Predicate<CsvRecord>) null);
+    }
+
+    /**
+     * Load the dataset from the file whose path is filePath, keeping only some columns and some rows
+     * The Attributes of an observation keep the order of the columns in the file
+     * @param delimiter the delimiter used in the .csv file
+     * @param columns the names of the columns to be loaded, null to load all of them
+     * @param rowFilter the filter of the rows; it sees every line of the file (as a CsvRecord) and may read any column,
+     *                  even one that is not loaded; null to load all the rows
+     * @return the dataset loaded from the file
+     * @throws IllegalArgumentException if a column of the projection is not in the header of the file
+     */
+    public Dataset loadDatasetFromCsv(String delimiter, List<String> columns, Predicate<CsvRecord> rowFilter) {
+        return loadCsv(delimiter, columns, rowFilter, null);
+    }
+
+    /**
+     * Load the dataset from the file whose path is filePath, keeping only some columns and some rows
+     * @param delimiter the delimiter used in the .csv file
+     * @param columns the names of the columns to be loaded, null to load all of them
+     * @param rowFilter the filter of the rows, null to load all the rows
+     * @param outcomeAttributeName the name of the outcome attribute, which is never hashed; null if it is not known
+     * @return the dataset loaded from the file
+     */
+    private Dataset loadCsv(String delimiter, List<String> columns, Predicate<CsvRecord> rowFilter, String outcomeAttributeName) {
         Dataset dataset = new Dataset();
+        boolean monitored = Metrics.isEnabled();
+        long start = monitored ? System.nanoTime() : 0;
+        long startAllocatedBytes = monitored ? Metrics.currentThreadAllocatedBytes() : 0;
 
         //TODO: read csv and create the dataset
         try {
-            BufferedReader bufferedReader = new BufferedReader(new FileReader(this.filePath));
+            LineSource lineSource = openLineSource();
 
             String[] header = null;
             String line = "";
+            CsvRecord record = null;
+            int[] projection = null;
+
+            //The first rows are kept as Strings until the schema is inferred, then the numeric values are parsed once
+            List<String[]> sample = inferSchema ? new ArrayList<String[]>() : null;
+            boolean[] numeric = null;
+            int[] hashed = null;
+            if (featureHasher != null)
+                featureHasher.startCounting();
 
             int linesCount = 0;
-            while ((line = bufferedReader.readLine()) != null) {
-                String[] values = line.split(delimiter);
-                if (linesCount == 0) {
-                    header = values;
-                }
-                else {
-                    Instance observation = new Instance();
-                    for (int i = 0; i < header.length; ++i) {
-                        observation.addAttribute(new Attribute(header[i], values[i]));
+            try {
+                while ((line = lineSource.readLine()) != null) {
+                    if (linesCount == 0) {
+                        header = line.split(delimiter);
+                        record = new CsvRecord(header, delimiter);
+                        projection = createProjection(record, columns);
+                        if (sample == null)
+                            hashed = createHashedColumns(header, projection, null, outcomeAttributeName);
+                    }
+                    else {
+                        record.setLine(line, linesCount + 1);
+                        if (rowFilter == null || rowFilter.test(record)) {
+                            if (sample != null) {
+                                String[] values = new String[projection.length];
+                                for (int projectionIndex = 0; projectionIndex < projection.length; ++projectionIndex)
+                                    values[projectionIndex] = record.getValue(projection[projectionIndex]);
+                                sample.add(values);
+                                if (sample.size() >= schemaSampleSize) {
+                                    Schema schema = createSchema(dataset, header, projection, sample);
+                                    numeric = getNumericColumns(schema, header, projection);
+                                    hashed = createHashedColumns(header, projection, schema, outcomeAttributeName);
+                                    for (String[] sampleValues : sample)
+                                        dataset.addObservation(createObservation(header, projection, sampleValues, numeric, hashed));
+                                    sample = null;
+                                }
+                            }
+                            else {
+                                Instance observation = new Instance(new ArrayList<Attribute>(projection.length));
+                                for (int projectionIndex = 0; projectionIndex < projection.length; ++projectionIndex) {
+                                    int columnIndex = projection[projectionIndex];
+                                    observation.addAttribute(createAttribute(header[columnIndex], record.getValue(columnIndex),
+                                            numeric != null && numeric[projectionIndex], hashed != null ? hashed[projectionIndex] : -1));
+                                }
+                                dataset.addObservation(observation);
+                            }
+                        }
                     }
-                    dataset.addObservation(observation);
+                    ++linesCount;
                 }
-                ++linesCount;
+            } finally {
+                //Stops the stages of the pipeline, even if the projection is wrong
+                lineSource.close();
             }
-            bufferedReader.close();
+
+            //A file shorter than the sample
+            if (sample != null && header != null) {
+                Schema schema = createSchema(dataset, header, projection, sample);
+                numeric = getNumericColumns(schema, header, projection);
+                hashed = createHashedColumns(header, projection, schema, outcomeAttributeName);
+                for (String[] sampleValues : sample)
+                    dataset.addObservation(createObservation(header, projection, sampleValues, numeric, hashed));
+            }
+
+            if (featureHasher != null)
+                featureHasher.reportCollisions();
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         } catch (IOException e) {
             e.printStackTrace();
         }
 
+        if (monitored) {
+            long allocatedBytes = startAllocatedBytes < 0 ? -1 : Metrics.currentThreadAllocatedBytes() - startAllocatedBytes;
+            Metrics.recordLoad(this.filePath, dataset.getObservations().size(), System.nanoTime() - start, allocatedBytes);
+        }
+
         return dataset;
     }
 
+    /**
+     * Infer the schema of the sample and apply the overrides
+     * @param dataset the dataset that receives the schema
+     * @param header the header of the file
+     * @param projection the indexes of the loaded columns
+     * @param sample the sampled rows, with the values of the loaded columns
+     * @return the schema of the loaded columns
+     */
+    private Schema createSchema(Dataset dataset, String[] header, int[] projection, List<String[]> sample) {
+        List<String> columnNames = new ArrayList<>(projection.length);
+        for (int columnIndex : projection)
+            columnNames.add(header[columnIndex]);
+
+        Schema schema = Schema.infer(columnNames, sample, maximumCategoricalCardinality);
+        for (Map.Entry<String, ColumnType> columnType : columnTypes.entrySet())
+            if (schema.contains(columnType.getKey()))
+                schema.setColumnType(columnType.getKey(), columnType.getValue());
+        dataset.setSchema(schema);
+        return schema;
+    }
+
+    /**
+     * Get the NUMERIC loaded columns
+     * @param schema the schema of the loaded columns
+     * @param header the header of the file
+     * @param projection the indexes of the loaded columns
+     * @return numeric[i] is true if the loaded column i is NUMERIC
+     */
+    private static boolean[] getNumericColumns(Schema schema, String[] header, int[] projection) {
+        boolean[] numeric = new boolean[projection.length];
+        for (int projectionIndex = 0; projectionIndex < projection.length; ++projectionIndex)
+            numeric[projectionIndex] = schema.isNumeric(header[projection[projectionIndex]]);
+        return numeric;
+    }
+
+    /**
+     * Get the hashed loaded columns
+     * The FeatureHasher selects the high-cardinality CATEGORICAL columns of the schema; a hashed column becomes CATEGORICAL
+     * @param header the header of the file
+     * @param projection the indexes of the loaded columns
+     * @param schema the schema of the loaded columns, null if it is not inferred
+     * @param outcomeAttributeName the name of the outcome attribute, which is never hashed; null if it is not known
+     * @return hashed[i] is the index of the loaded column i in the FeatureHasher, -1 if it is not hashed; null if there is no FeatureHasher
+     */
+    private int[] createHashedColumns(String[] header, int[] projection, Schema schema, String outcomeAttributeName) {
+        if (featureHasher == null)
+            return null;
+        if (schema != null)
+            featureHasher.selectAttributes(schema, outcomeAttributeName);
+
+        int[] hashed = new int[projection.length];
+        for (int projectionIndex = 0; projectionIndex < projection.length; ++projectionIndex) {
+            String columnName = header[projection[projectionIndex]];
+            hashed[projectionIndex] = columnName.equals(outcomeAttributeName) ? -1 : featureHasher.getAttributeIndex(columnName);
+            if (hashed[projectionIndex] >= 0 && schema != null)
+                schema.setColumnType(columnName, ColumnType.CATEGORICAL);
+        }
+        featureHasher.startCounting();
+        return hashed;
+    }
+
+    /**
+     * Create an observation from the values of a sampled row
+     * @param header the header of the file
+     * @param projection the indexes of the loaded columns
+     * @param values the values of the loaded columns
+     * @param numeric numeric[i] is true if the loaded column i is NUMERIC
+     * @param hashed hashed[i] is the index of the loaded column i in the FeatureHasher, -1 if it is not hashed (null if no column is hashed)
+     * @return the new observation
+     */
+    private Instance createObservation(String[] header, int[] projection, String[] values, boolean[] numeric, int[] hashed) {
+        Instance observation = new Instance(new ArrayList<Attribute>(projection.length));
+        for (int projectionIndex = 0; projectionIndex < projection.length; ++projectionIndex)
+            observation.addAttribute(createAttribute(header[projection[projectionIndex]], values[projectionIndex],
+                    numeric[projectionIndex], hashed != null ? hashed[projectionIndex] : -1));
+        return observation;
+    }
+
+    /**
+     * Create an Attribute, parsing its value if its column is NUMERIC or hashing it if its column is hashed
+     * @param attributeName the name of the attribute
+     * @param attributeValue the value of the attribute
+     * @param numeric true if the column of the attribute is NUMERIC
+     * @param hashedIndex the index of the attribute in the FeatureHasher, -1 if it is not hashed
+     * @return the new Attribute
+     */
+    private Attribute createAttribute(String attributeName, String attributeValue, boolean numeric, int hashedIndex) {
+        if (hashedIndex >= 0)
+            return new Attribute(attributeName, FeatureHasher.getBucketLabel(featureHasher.hash(hashedIndex, attributeValue)));
+        if (numeric) {
+            try {
+                return new Attribute(attributeName, attributeValue, Double.parseDouble(attributeValue));
+            } catch (NumberFormatException e) {
+                //A missing (or wrong) value stays a String; its numeric value is NaN
+            }
+        }
+        return new Attribute(attributeName, attributeValue);
+    }
+
+    /**
+     * Get the indexes of the columns to be loaded
+     * @param record the record of the file, that knows its header
+     * @param columns the names of the columns to be loaded, null to load all of them
+     * @return the indexes of the columns, in the order of the file
+     * @throws IllegalArgumentException if a column is not in the header of the file
+     */
+    private static int[] createProjection(CsvRecord record, List<String> columns) {
+        int columnsCount = record.getColumnNames().size();
+        boolean[] loaded = new boolean[columnsCount];
+        if (columns == null) {
+            Arrays.fill(loaded, true);
+        }
+        else {
+            for (String column : columns) {
+                int columnIndex = record.getColumnIndex(column);
+                if (columnIndex < 0)
+                    throw new IllegalArgumentException("The file has no column " + column + ", its columns are " + record.getColumnNames());
+                loaded[columnIndex] = true;
+            }
+        }
+
+        int projectionSize = 0;
+        for (boolean isLoaded : loaded)
+            if (isLoaded)
+                ++projectionSize;
+        int[] projection = new int[projectionSize];
+        projectionSize = 0;
+        for (int columnIndex = 0; columnIndex < columnsCount; ++columnIndex)
+            if (loaded[columnIndex])
+                projection[projectionSize++] = columnIndex;
+        return projection;
+    }
+
     /**
      * Load the dataset from the file whose path is filePath
      * @param filePath the path to the file from which the dataset is loaded
@@ -111,7 +585,31 @@ public class DataLoader {
     public Dataset loadDatasetFromCsv(String filePath, String delimiter, String outcomeAttributeName) {
         this.setFilePath(filePath);
 
-        Dataset dataset = this.loadDatasetFromCsv(delimiter);
+        Dataset dataset = this.loadCsv(delimiter, null, null, outcomeAttributeName);
+        dataset.setOutcomeAttributeName(outcomeAttributeName);
+        return dataset;
+    }
+
+    /**
+     * Load the dataset from the file whose path is filePath, keeping only some columns and some rows
+     * The outcome attribute is always loaded, even if it is not in the projection
+     * @param filePath the path to the file from which the dataset is loaded
+     * @param delimiter the csv file delimiter
+     * @param outcomeAttributeName the outcome attribute name
+     * @param columns the names of the columns to be loaded, null to load all of them
+     * @param rowFilter the filter of the rows, null to load all the rows
+     * @return the dataset loaded from the file
+     * @throws IllegalArgumentException if a column of the projection is not in the header of the file
+     */
+    public Dataset loadDatasetFromCsv(String filePath, String delimiter, String outcomeAttributeName, List<String> columns, Predicate<CsvRecord> rowFilter) {
+        this.setFilePath(filePath);
+
+        if (columns != null && !columns.contains(outcomeAttributeName)) {
+            columns = new ArrayList<>(columns);
+            columns.add(outcomeAttributeName);
+        }
+
+        Dataset dataset = this.loadCsv(delimiter, columns, rowFilter, outcomeAttributeName);
         dataset.setOutcomeAttributeName(outcomeAttributeName);
         return dataset;
     }
@@ -1,10 +1,14 @@
 package ml.utils;
 
+import java.io.Serializable;
+
 /**
  * This class models a Pair
  * Created by virgil on 29.10.2015.
  */
-public class Pair<F, S> {
+public class Pair<F, S> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private F first;
     private S second;
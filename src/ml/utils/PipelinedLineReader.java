@@ -0,0 +1,227 @@
+package ml.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class models a PipelinedLineReader
+ * A PipelinedLineReader reads the lines of a (possibly compressed) stream in three stages, on three threads:
+ * the first thread reads and decompresses the stream into chunks of bytes, the second one decodes the chunks and splits them into lines,
+ * and the calling thread takes the lines with readLine(), usually to parse them
+ * The stages are linked by bounded queues, so reading, decompressing and parsing overlap, but the memory stays bounded
+ *
+ * An error of a stage is thrown by readLine(); close() stops the stages that are still running
+ */
+public class PipelinedLineReader implements Closeable {
+
+    public static final int CHUNK_SIZE = 1 << 16;
+    public static final int LINES_PER_BATCH = 1024;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    //The markers of the end of the stream, compared by reference
+    private static final byte[] END_OF_CHUNKS = new byte[0];
+    private static final List<String> END_OF_LINES = new ArrayList<>();
+
+    private InputStream inputStream;
+    private BlockingQueue<byte[]> chunks;
+    private BlockingQueue<List<String>> lineBatches;
+    private Thread readerThread;
+    private Thread splitterThread;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    private List<String> currentBatch;
+    private int currentIndex;
+    private boolean finished;
+
+    /**
+     * The PipelinedLineReader constructor
+     * The stages start immediately
+     * @param inputStream the stream to be read (already wrapped in its decompressor)
+     * @param charset the charset of the lines
+     * @param queueCapacity the number of chunks (and of batches of lines) that can wait between two stages
+     */
+    public PipelinedLineReader(InputStream inputStream, Charset charset, int queueCapacity) {
+        this.inputStream = inputStream;
+        this.chunks = new ArrayBlockingQueue<>(queueCapacity);
+        this.lineBatches = new ArrayBlockingQueue<>(queueCapacity);
+        this.currentBatch = null;
+        this.currentIndex = 0;
+        this.finished = false;
+
+        this.readerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readChunks();
+            }
+        }, "ml-loader-read");
+        this.splitterThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                splitLines(charset);
+            }
+        }, "ml-loader-split");
+        this.readerThread.setDaemon(true);
+        this.splitterThread.setDaemon(true);
+        this.readerThread.start();
+        this.splitterThread.start();
+    }
+
+    /**
+     * The first stage: read (and decompress) the stream into chunks
+     */
+    private void readChunks() {
+        try {
+            while (!closed) {
+                byte[] buffer = new byte[CHUNK_SIZE];
+                int filled = 0;
+                int read;
+                while (filled < buffer.length && (read = inputStream.read(buffer, filled, buffer.length - filled)) > 0)
+                    filled += read;
+                if (filled == 0)
+                    break;
+                chunks.put(filled == buffer.length ? buffer : Arrays.copyOf(buffer, filled));
+                if (filled < buffer.length)
+                    break;
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable e) {
+            if (closed)
+                return;
+            failure = e;
+        }
+        putQuietly(chunks, END_OF_CHUNKS);
+    }
+
+    /**
+     * The second stage: decode the chunks and split them into batches of lines
+     * @param charset the charset of the lines
+     */
+    private void splitLines(Charset charset) {
+        try {
+            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new ChunksInputStream(), charset));
+            List<String> batch = new ArrayList<>(LINES_PER_BATCH);
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                batch.add(line);
+                if (batch.size() == LINES_PER_BATCH) {
+                    lineBatches.put(batch);
+                    batch = new ArrayList<>(LINES_PER_BATCH);
+                }
+            }
+            if (!batch.isEmpty())
+                lineBatches.put(batch);
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable e) {
+            //The interruption of close() may come as an InterruptedIOException
+            if (closed)
+                return;
+            if (failure == null)
+                failure = e;
+        }
+        putQuietly(lineBatches, END_OF_LINES);
+    }
+
+    /**
+     * Put the end marker in a queue, unless the reader is closed
+     * @param queue the queue
+     * @param marker the end marker
+     * @param <T> the type of the elements of the queue
+     */
+    private <T> void putQuietly(BlockingQueue<T> queue, T marker) {
+        try {
+            queue.put(marker);
+        } catch (InterruptedException e) {
+            //The reader was closed, nobody waits for the marker
+        }
+    }
+
+    /**
+     * Read the next line
+     * @return the line, without its line terminator, or null at the end of the stream
+     * @throws IOException if the stream cannot be read or decompressed
+     */
+    public String readLine() throws IOException {
+        while (!finished) {
+            if (currentBatch != null && currentIndex < currentBatch.size())
+                return currentBatch.get(currentIndex++);
+
+            try {
+                currentBatch = lineBatches.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the next lines", e);
+            }
+            currentIndex = 0;
+            if (currentBatch == END_OF_LINES) {
+                finished = true;
+                if (failure != null)
+                    throw failure instanceof IOException ? (IOException) failure : new IOException("The stream cannot be read", failure);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stop the stages and close the stream
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        readerThread.interrupt();
+        splitterThread.interrupt();
+        inputStream.close();
+    }
+
+    /**
+     * This class models the stream of the chunks read by the first stage, as seen by the second stage
+     */
+    private class ChunksInputStream extends InputStream {
+
+        private byte[] chunk;
+        private int position;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int read = read(one, 0, 1);
+            return read < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (chunk == END_OF_CHUNKS)
+                return -1;
+            if (chunk == null || position == chunk.length) {
+                try {
+                    chunk = chunks.take();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted while waiting for the next chunk");
+                }
+                position = 0;
+                //A failed read must not end the last (truncated) line as if the stream was complete
+                if (chunk == END_OF_CHUNKS && failure != null)
+                    throw new IOException("The stream cannot be read", failure);
+                if (chunk == END_OF_CHUNKS)
+                    return -1;
+            }
+            int read = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset, read);
+            position += read;
+            return read;
+        }
+    }
+}
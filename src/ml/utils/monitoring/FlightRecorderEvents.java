@@ -0,0 +1,51 @@
+package ml.utils.monitoring;
+
+/**
+ * This interface models the Java Flight Recorder events committed by Metrics
+ * The events extend jdk.jfr.Event, which is not in the Java SE 8 API, so they and JfrFlightRecorderEvents are compiled separately
+ * (see build.gradle) and loaded by reflection; on a JVM without the jdk.jfr module no event is committed, and only the counters are kept
+ */
+interface FlightRecorderEvents {
+
+    /**
+     * Commit the event of the creation of a node, if it is enabled
+     * @param builder the name of the tree class that created the node
+     * @param depth the depth of the node (the root is at depth 1)
+     * @param rows the number of rows of the node
+     * @param attributes the number of attributes scored for the node
+     * @param abandoned the number of attributes abandoned before they were completely counted
+     * @param discretize the time spent discretizing, in nanoseconds
+     * @param confusionMatrix the time spent counting, in nanoseconds
+     * @param purity the time spent evaluating the purity function, in nanoseconds
+     * @param allocatedBytes the bytes allocated by the thread while creating the node, -1 if not known
+     */
+    void commitNode(String builder, int depth, long rows, int attributes, int abandoned, long discretize, long confusionMatrix, long purity, long allocatedBytes);
+
+    /**
+     * Commit the event of the loading of a dataset, if it is enabled
+     * @param source the file from which the dataset was loaded
+     * @param rows the number of loaded rows
+     * @param nanos the time spent loading, in nanoseconds
+     * @param allocatedBytes the bytes allocated by the thread while loading, -1 if not known
+     */
+    void commitLoad(String source, long rows, long nanos, long allocatedBytes);
+
+    /**
+     * Commit the event of the evaluation of a batch of rows, if it is enabled
+     * @param tree the name of the tree class
+     * @param rows the number of evaluated rows
+     * @param correct the number of correct predictions
+     * @param nanos the time spent evaluating, in nanoseconds
+     */
+    void commitEvaluationBatch(String tree, long rows, long correct, long nanos);
+
+    /**
+     * Commit the event of the hashing of an attribute, if it is enabled
+     * @param attribute the name of the hashed attribute
+     * @param buckets the number of buckets of the attribute
+     * @param rows the number of hashed values
+     * @param collidingBuckets the number of buckets that received more than one value
+     * @param collidedRows the number of values that share their bucket with another value
+     */
+    void commitFeatureHashing(String attribute, int buckets, long rows, long collidingBuckets, long collidedRows);
+}
@@ -0,0 +1,211 @@
+package ml.utils.monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is the metrics surface of the project
+ * It holds process-wide counters for loading, feature hashing, tree building and scoring, and commits the matching Java Flight Recorder events
+ * when the JVM has the jdk.jfr module (see FlightRecorderEvents)
+ *
+ * The metrics are off by default; they are turned on with setEnabled(true) or with the system property ml.metrics=true
+ * When they are off, the instrumented code only reads a boolean; when they are on, the counters are LongAdders,
+ * so they can be updated from many threads without contention
+ */
+public class Metrics {
+
+    private static volatile boolean enabled = Boolean.getBoolean("ml.metrics");
+
+    private static final LongAdder nodesCreated = new LongAdder();
+    private static final LongAdder nodeRows = new LongAdder();
+    private static final LongAdder attributesScored = new LongAdder();
+    private static final LongAdder attributesAbandoned = new LongAdder();
+    private static final LongAdder discretizeNanos = new LongAdder();
+    private static final LongAdder confusionMatrixNanos = new LongAdder();
+    private static final LongAdder purityNanos = new LongAdder();
+    private static final LongAdder nodeAllocatedBytes = new LongAdder();
+    private static final LongAccumulator maximumDepth = new LongAccumulator(Math::max, 0);
+
+    private static final LongAdder loadedRows = new LongAdder();
+    private static final LongAdder loadNanos = new LongAdder();
+
+    private static final LongAdder evaluatedRows = new LongAdder();
+    private static final LongAdder evaluateNanos = new LongAdder();
+
+    private static final LongAdder hashedRows = new LongAdder();
+    private static final LongAdder hashCollidedRows = new LongAdder();
+    private static final LongAdder hashCollidingBuckets = new LongAdder();
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private static final boolean allocationSupported = isAllocationSupported();
+
+    private static final String FLIGHT_RECORDER_EVENTS_CLASS = "ml.utils.monitoring.JfrFlightRecorderEvents";
+    private static final FlightRecorderEvents flightRecorderEvents = loadFlightRecorderEvents();
+
+    /**
+     * Check if the metrics are on
+     * @return true if the metrics are on, false otherwise
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn the metrics on or off
+     * @param enabled true to turn the metrics on, false to turn them off
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Record the creation of a node of a tree
+     * @param builder the name of the tree class that created the node
+     * @param depth the depth of the node (the root is at depth 1)
+     * @param rows the number of rows of the node
+     * @param attributes the number of attributes scored for the node
+     * @param abandoned the number of attributes abandoned before they were completely counted
+     * @param discretize the time spent discretizing, in nanoseconds
+     * @param confusionMatrix the time spent counting (building the ConfusionMatrix or the counts), in nanoseconds
+     * @param purity the time spent evaluating the purity function, in nanoseconds
+     * @param allocatedBytes the bytes allocated by the thread while creating the node, -1 if not known
+     */
+    static void recordNode(String builder, int depth, long rows, int attributes, int abandoned, long discretize, long confusionMatrix, long purity, long allocatedBytes) {
+        nodesCreated.increment();
+        nodeRows.add(rows);
+        attributesScored.add(attributes);
+        attributesAbandoned.add(abandoned);
+        discretizeNanos.add(discretize);
+        confusionMatrixNanos.add(confusionMatrix);
+        purityNanos.add(purity);
+        if (allocatedBytes > 0)
+            nodeAllocatedBytes.add(allocatedBytes);
+        maximumDepth.accumulate(depth);
+
+        if (flightRecorderEvents != null)
+            flightRecorderEvents.commitNode(builder, depth, rows, attributes, abandoned, discretize, confusionMatrix, purity, allocatedBytes);
+    }
+
+    /**
+     * Record the loading of a dataset
+     * @param source the file from which the dataset was loaded
+     * @param rows the number of loaded rows
+     * @param nanos the time spent loading, in nanoseconds
+     * @param allocatedBytes the bytes allocated by the thread while loading, -1 if not known
+     */
+    public static void recordLoad(String source, long rows, long nanos, long allocatedBytes) {
+        loadedRows.add(rows);
+        loadNanos.add(nanos);
+
+        if (flightRecorderEvents != null)
+            flightRecorderEvents.commitLoad(source, rows, nanos, allocatedBytes);
+    }
+
+    /**
+     * Record the evaluation of a batch of rows
+     * @param tree the name of the tree class
+     * @param rows the number of evaluated rows
+     * @param correct the number of correct predictions
+     * @param nanos the time spent evaluating, in nanoseconds
+     */
+    public static void recordEvaluationBatch(String tree, long rows, long correct, long nanos) {
+        evaluatedRows.add(rows);
+        evaluateNanos.add(nanos);
+
+        if (flightRecorderEvents != null)
+            flightRecorderEvents.commitEvaluationBatch(tree, rows, correct, nanos);
+    }
+
+    /**
+     * Record the hashing of an attribute of a dataset (see FeatureHasher)
+     * @param attribute the name of the hashed attribute
+     * @param buckets the number of buckets of the attribute
+     * @param rows the number of hashed values
+     * @param collidingBuckets the number of buckets that received more than one value
+     * @param collidedRows the number of values that share their bucket with another value
+     */
+    public static void recordFeatureHashing(String attribute, int buckets, long rows, long collidingBuckets, long collidedRows) {
+        hashedRows.add(rows);
+        hashCollidingBuckets.add(collidingBuckets);
+        hashCollidedRows.add(collidedRows);
+
+        if (flightRecorderEvents != null)
+            flightRecorderEvents.commitFeatureHashing(attribute, buckets, rows, collidingBuckets, collidedRows);
+    }
+
+    /**
+     * Get the number of bytes allocated so far by the current thread
+     * @return the allocated bytes, -1 if the JVM does not support it
+     */
+    public static long currentThreadAllocatedBytes() {
+        if (!allocationSupported)
+            return -1;
+        return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Check if the JVM can measure the bytes allocated by a thread
+     * @return true if the allocated bytes can be measured
+     */
+    private static boolean isAllocationSupported() {
+        try {
+            return threadMXBean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+                    && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Load the Java Flight Recorder events
+     * @return the events, null if the class is missing or the JVM has no jdk.jfr module
+     */
+    private static FlightRecorderEvents loadFlightRecorderEvents() {
+        try {
+            return (FlightRecorderEvents) Class.forName(FLIGHT_RECORDER_EVENTS_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            //Before Java 8u262 there is no jdk.jfr, so only the counters are kept
+            return null;
+        }
+    }
+
+    /**
+     * Get the current value of all the counters
+     * @return the counters, by name
+     */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("nodesCreated", nodesCreated.sum());
+        snapshot.put("nodeRows", nodeRows.sum());
+        snapshot.put("attributesScored", attributesScored.sum());
+        snapshot.put("attributesAbandoned", attributesAbandoned.sum());
+        snapshot.put("discretizeNanos", discretizeNanos.sum());
+        snapshot.put("confusionMatrixNanos", confusionMatrixNanos.sum());
+        snapshot.put("purityNanos", purityNanos.sum());
+        snapshot.put("nodeAllocatedBytes", nodeAllocatedBytes.sum());
+        snapshot.put("maximumDepth", maximumDepth.get());
+        snapshot.put("loadedRows", loadedRows.sum());
+        snapshot.put("loadNanos", loadNanos.sum());
+        snapshot.put("evaluatedRows", evaluatedRows.sum());
+        snapshot.put("evaluateNanos", evaluateNanos.sum());
+        snapshot.put("hashedRows", hashedRows.sum());
+        snapshot.put("hashCollidingBuckets", hashCollidingBuckets.sum());
+        snapshot.put("hashCollidedRows", hashCollidedRows.sum());
+        return snapshot;
+    }
+
+    /**
+     * Set all the counters to 0
+     */
+    public static void reset() {
+        for (LongAdder counter : new LongAdder[]{nodesCreated, nodeRows, attributesScored, attributesAbandoned, discretizeNanos, confusionMatrixNanos,
+                purityNanos, nodeAllocatedBytes, loadedRows, loadNanos, evaluatedRows, evaluateNanos, hashedRows, hashCollidingBuckets, hashCollidedRows})
+            counter.reset();
+        maximumDepth.reset();
+    }
+}
@@ -0,0 +1,134 @@
+package ml.utils.monitoring;
+
+/**
+ * This class models a NodeProbe
+ * A NodeProbe measures the work of a tree builder for a single node: the rows, the attributes scored (or abandoned),
+ * the time spent discretizing, counting and evaluating the purity function, and the bytes allocated
+ * It is created with start() and reported to Metrics with finish(), before the builder recurses into the children,
+ * so the values of a node do not include the values of its children
+ *
+ * When the metrics are off, start() returns a shared probe that ignores all the calls
+ */
+public class NodeProbe {
+
+    private static final NodeProbe DISABLED = new NodeProbe(false, null, 0);
+
+    private final boolean enabled;
+    private final String builder;
+    private final int depth;
+    private final long startAllocatedBytes;
+
+    private int attributesScored;
+    private int attributesAbandoned;
+    private long discretizeNanos;
+    private long confusionMatrixNanos;
+    private long purityNanos;
+
+    /**
+     * The NodeProbe constructor
+     * @param enabled true if the probe measures, false if it ignores all the calls
+     * @param builder the name of the tree class that creates the node
+     * @param depth the depth of the node
+     */
+    private NodeProbe(boolean enabled, String builder, int depth) {
+        this.enabled = enabled;
+        this.builder = builder;
+        this.depth = depth;
+        this.startAllocatedBytes = enabled ? Metrics.currentThreadAllocatedBytes() : 0;
+        this.attributesScored = 0;
+        this.attributesAbandoned = 0;
+        this.discretizeNanos = 0;
+        this.confusionMatrixNanos = 0;
+        this.purityNanos = 0;
+    }
+
+    /**
+     * Start measuring the creation of a node
+     * @param builder the name of the tree class that creates the node
+     * @param depth the depth of the node (the root is at depth 1)
+     * @return a new probe if the metrics are on, the shared disabled probe otherwise
+     */
+    public static NodeProbe start(String builder, int depth) {
+        if (!Metrics.isEnabled())
+            return DISABLED;
+        return new NodeProbe(true, builder, depth);
+    }
+
+    /**
+     * Get the shared probe that ignores all the calls
+     * @return the disabled probe
+     */
+    public static NodeProbe disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Check if the probe measures
+     * @return true if the probe measures, false if it ignores all the calls
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the current time, to be passed to one of the add...Time methods
+     * @return the current time, in nanoseconds, 0 if the probe is disabled
+     */
+    public long mark() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Add the time passed since a mark to the discretize time
+     * @param mark the value returned by mark()
+     */
+    public void addDiscretizeTime(long mark) {
+        if (enabled)
+            discretizeNanos += System.nanoTime() - mark;
+    }
+
+    /**
+     * Add the time passed since a mark to the counting (ConfusionMatrix) time
+     * @param mark the value returned by mark()
+     */
+    public void addConfusionMatrixTime(long mark) {
+        if (enabled)
+            confusionMatrixNanos += System.nanoTime() - mark;
+    }
+
+    /**
+     * Add the time passed since a mark to the purity function time
+     * @param mark the value returned by mark()
+     */
+    public void addPurityTime(long mark) {
+        if (enabled)
+            purityNanos += System.nanoTime() - mark;
+    }
+
+    /**
+     * Count one more scored attribute
+     */
+    public void attributeScored() {
+        if (enabled)
+            ++attributesScored;
+    }
+
+    /**
+     * Count one more attribute abandoned before it was completely counted, as it could not be chosen
+     */
+    public void attributeAbandoned() {
+        if (enabled)
+            ++attributesAbandoned;
+    }
+
+    /**
+     * Report the node to Metrics
+     * @param rows the number of rows of the node
+     */
+    public void finish(long rows) {
+        if (!enabled)
+            return;
+        long allocatedBytes = startAllocatedBytes < 0 ? -1 : Metrics.currentThreadAllocatedBytes() - startAllocatedBytes;
+        Metrics.recordNode(builder, depth, rows, attributesScored, attributesAbandoned, discretizeNanos, confusionMatrixNanos, purityNanos, allocatedBytes);
+    }
+}
@@ -0,0 +1,102 @@
+package ml.classifier.decisiontree.instance;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the RowBitmap against a java.util.BitSet holding the same rows
+ * The rows span several groups of 65536 rows, with densities that give array containers, bitmap containers and empty groups
+ */
+public class RowBitmapTest {
+
+    private static final int ROWS_COUNT = 5 * (1 << 16) + 1234;
+    private static final double[] DENSITIES = {0.0005, 0.03, 0.2, 0.9};
+
+    /**
+     * Create random rows, every row being chosen with a probability
+     * @param random the random generator
+     * @param density the probability of a row
+     * @return the chosen rows
+     */
+    private static BitSet randomRows(Random random, double density) {
+        BitSet rows = new BitSet(ROWS_COUNT);
+        for (int row = 0; row < ROWS_COUNT; ++row)
+            if (random.nextDouble() < density)
+                rows.set(row);
+        //A group without any row
+        rows.clear(2 << 16, 3 << 16);
+        return rows;
+    }
+
+    /**
+     * Check that a RowBitmap holds exactly the rows of a BitSet
+     * @param expected the expected rows
+     * @param bitmap the bitmap
+     */
+    private static void assertSameRows(BitSet expected, RowBitmap bitmap) {
+        assertEquals(expected.cardinality(), bitmap.getCardinality());
+        assertEquals(expected.isEmpty(), bitmap.isEmpty());
+        assertArrayEquals(expected.stream().toArray(), bitmap.toArray());
+    }
+
+    @Test
+    public void createsTheSameRowsAsABitSet() {
+        Random random = new Random(43);
+        for (double density : DENSITIES) {
+            BitSet rows = randomRows(random, density);
+            RowBitmap bitmap = RowBitmap.of(rows.stream().toArray());
+            assertSameRows(rows, bitmap);
+            for (int row = 0; row < ROWS_COUNT; row += 7)
+                assertEquals(rows.get(row), bitmap.contains(row));
+        }
+        BitSet allRows = new BitSet();
+        allRows.set(0, ROWS_COUNT);
+        assertSameRows(allRows, RowBitmap.range(ROWS_COUNT));
+        assertSameRows(new BitSet(), RowBitmap.empty());
+    }
+
+    @Test
+    public void combinesLikeABitSet() {
+        Random random = new Random(44);
+        for (double density : DENSITIES) {
+            for (double otherDensity : DENSITIES) {
+                BitSet rows = randomRows(random, density);
+                BitSet otherRows = randomRows(random, otherDensity);
+                RowBitmap bitmap = RowBitmap.of(rows.stream().toArray());
+                RowBitmap otherBitmap = RowBitmap.of(otherRows.stream().toArray());
+
+                BitSet and = (BitSet) rows.clone();
+                and.and(otherRows);
+                assertSameRows(and, bitmap.and(otherBitmap));
+                assertEquals(and.cardinality(), bitmap.andCardinality(otherBitmap));
+
+                BitSet or = (BitSet) rows.clone();
+                or.or(otherRows);
+                assertSameRows(or, bitmap.or(otherBitmap));
+
+                BitSet andNot = (BitSet) rows.clone();
+                andNot.andNot(otherRows);
+                assertSameRows(andNot, bitmap.andNot(otherBitmap));
+            }
+        }
+    }
+
+    @Test
+    public void addsUpTheWeightsOfItsRows() {
+        Random random = new Random(45);
+        int[] weights = new int[ROWS_COUNT];
+        for (int row = 0; row < ROWS_COUNT; ++row)
+            weights[row] = 1 + random.nextInt(5);
+        BitSet rows = randomRows(random, 0.2);
+
+        long expected = 0;
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1))
+            expected += weights[row];
+        assertEquals(expected, RowBitmap.of(rows.stream().toArray()).getWeightedCardinality(weights));
+    }
+}
@@ -0,0 +1,102 @@
+package ml.classifier.decisiontree.kernel;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the SIMD kernel against the scalar kernel
+ * The build runs the tests with jdk.incubator.vector, so CountKernels.get() is the SIMD kernel
+ * The lengths are chosen around the vector sizes, so the vector loops and their scalar tails are both used
+ */
+public class CountKernelTest {
+
+    private static final int[] LENGTHS = {0, 1, 7, 15, 16, 17, 63, 64, 65, 1000, 10007};
+    private static final double TOLERANCE = 1e-12;
+
+    /**
+     * Create random codes
+     * @param random the random generator
+     * @param length the number of codes
+     * @param cardinality the number of distinct codes
+     * @return the codes
+     */
+    private static int[] randomCodes(Random random, int length, int cardinality) {
+        int[] codes = new int[length];
+        for (int index = 0; index < length; ++index)
+            codes[index] = random.nextInt(cardinality);
+        return codes;
+    }
+
+    /**
+     * Count a column with a kernel
+     * @param countKernel the kernel
+     * @param column the codes of the column
+     * @param outcomes the codes of the outcomes
+     * @param weights the weights of the rows
+     * @param rows the rows to count, null for all the rows
+     * @param cardinality the number of values of the column
+     * @param classesCount the number of classes
+     * @return the counts, as counts[value][class]
+     */
+    private static int[][] count(CountKernel countKernel, int[] column, int[] outcomes, int[] weights, int[] rows, int cardinality, int classesCount) {
+        int[][] attributeCounts = new int[cardinality][classesCount];
+        countKernel.countClasses(column, outcomes, weights, rows, attributeCounts);
+        return attributeCounts;
+    }
+
+    @Test
+    public void theSimdKernelIsUsed() {
+        assertTrue("the tests must run with --add-modules jdk.incubator.vector", CountKernels.get().isVectorized());
+        assertFalse(CountKernels.scalar().isVectorized());
+    }
+
+    @Test
+    public void simdCountsAreTheScalarCounts() {
+        CountKernel vector = CountKernels.get();
+        CountKernel scalar = CountKernels.scalar();
+        Random random = new Random(48);
+        for (int length : LENGTHS) {
+            for (int cardinality : new int[]{1, 2, 7, 300}) {
+                for (int classesCount : new int[]{2, 7}) {
+                    int[] column = randomCodes(random, length, cardinality);
+                    int[] outcomes = randomCodes(random, length, classesCount);
+                    int[] unitWeights = new int[length];
+                    Arrays.fill(unitWeights, 1);
+                    int[] weights = randomCodes(random, length, 9);
+                    //All the rows, then a subset of the rows in a random order
+                    int[] rows = randomCodes(random, length / 2, Math.max(1, length));
+                    if (length == 0)
+                        rows = new int[0];
+
+                    for (int[] rowWeights : new int[][]{unitWeights, weights}) {
+                        assertArrayEquals(count(scalar, column, outcomes, rowWeights, null, cardinality, classesCount),
+                                count(vector, column, outcomes, rowWeights, null, cardinality, classesCount));
+                        assertArrayEquals(count(scalar, column, outcomes, rowWeights, rows, cardinality, classesCount),
+                                count(vector, column, outcomes, rowWeights, rows, cardinality, classesCount));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void simdPuritiesAreTheScalarPurities() {
+        CountKernel vector = CountKernels.get();
+        CountKernel scalar = CountKernels.scalar();
+        Random random = new Random(49);
+        for (int length = 0; length <= 40; ++length) {
+            for (int repetition = 0; repetition < 20; ++repetition) {
+                int[] counts = randomCodes(random, length, repetition % 2 == 0 ? 100 : 100000);
+                assertEquals(scalar.entropy(counts), vector.entropy(counts), TOLERANCE);
+                assertEquals(scalar.gini(counts), vector.gini(counts), TOLERANCE);
+            }
+        }
+    }
+}
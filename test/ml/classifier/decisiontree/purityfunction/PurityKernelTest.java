@@ -0,0 +1,180 @@
+package ml.classifier.decisiontree.purityfunction;
+
+import ml.classifier.decisiontree.tree.ConfusionMatrix;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the purity kernels (the n * log2(n) forms of PurityKernel) against the direct formulas of the purity functions,
+ * written over a ConfusionMatrix as Entropy computed them before the kernels
+ * The count matrices are random, with small counts (read from the table), counts above PurityKernel.TABLE_SIZE and empty values
+ */
+public class PurityKernelTest {
+
+    private static final double TOLERANCE = 1e-12;
+    private static final int MATRICES_COUNT = 500;
+
+    /**
+     * Create a random count matrix
+     * @param random the random generator
+     * @return the counts, as counts[value][class]
+     */
+    private static int[][] randomCounts(Random random) {
+        int valuesCount = 1 + random.nextInt(12);
+        int classesCount = 2 + random.nextInt(6);
+        int maximumCount = random.nextBoolean() ? 50 : 4 * PurityKernel.TABLE_SIZE;
+        int[][] counts = new int[valuesCount][classesCount];
+        for (int[] valueCounts : counts) {
+            if (random.nextInt(8) == 0)
+                continue;
+            for (int classIndex = 0; classIndex < classesCount; ++classIndex)
+                if (random.nextInt(3) > 0)
+                    valueCounts[classIndex] = random.nextInt(maximumCount);
+        }
+        return counts;
+    }
+
+    /**
+     * Create the ConfusionMatrix of some counts
+     * @param counts the counts, as counts[value][class]
+     * @return the confusion matrix
+     */
+    private static ConfusionMatrix toConfusionMatrix(int[][] counts) {
+        List<String> rowValues = new ArrayList<>();
+        for (int value = 0; value < counts.length; ++value)
+            rowValues.add("v" + value);
+        List<String> columnValues = new ArrayList<>();
+        for (int classIndex = 0; classIndex < counts[0].length; ++classIndex)
+            columnValues.add("c" + classIndex);
+        return new ConfusionMatrix("A", "Y", rowValues, columnValues, counts);
+    }
+
+    /**
+     * Calculate the conditional entropy H(Y|A) with the formula of Entropy before the kernels
+     * @param confusionMatrix the confusion matrix
+     * @return the conditional entropy
+     */
+    private static double directEntropy(ConfusionMatrix confusionMatrix) {
+        double entropy = 0.0;
+        for (String row : confusionMatrix.getRowValues()) {
+            double rowEntropy = 0.0;
+            for (String column : confusionMatrix.getColumnValues()) {
+                if (confusionMatrix.getCountAt(row, column) != 0)
+                    rowEntropy += (confusionMatrix.getCountAt(row, column) + 0.0) / (confusionMatrix.getRowTotal(row) + 0.0)
+                            * (Math.log((confusionMatrix.getRowTotal(row) + 0.0) / (confusionMatrix.getCountAt(row, column) + 0.0)) / Math.log(2));
+            }
+            entropy += rowEntropy * (confusionMatrix.getRowTotal(row) + 0.0) / (confusionMatrix.getTotalCount() + 0.0);
+        }
+        return entropy;
+    }
+
+    /**
+     * Calculate the Gini impurity with its definition: Sum_i (rowTotal_i / total) * (1 - Sum_j (count_ij / rowTotal_i)^2)
+     * @param confusionMatrix the confusion matrix
+     * @return the Gini impurity
+     */
+    private static double directGini(ConfusionMatrix confusionMatrix) {
+        double gini = 0.0;
+        for (String row : confusionMatrix.getRowValues()) {
+            double rowTotal = confusionMatrix.getRowTotal(row);
+            double squares = 0.0;
+            for (String column : confusionMatrix.getColumnValues()) {
+                double proportion = confusionMatrix.getCountAt(row, column) / rowTotal;
+                squares += proportion * proportion;
+            }
+            gini += rowTotal / confusionMatrix.getTotalCount() * (1 - squares);
+        }
+        return gini;
+    }
+
+    /**
+     * Calculate the entropy of some totals with its definition: Sum_i -(total_i / total) * log2(total_i / total)
+     * @param totals the totals
+     * @return the entropy
+     */
+    private static double directEntropyOf(List<Integer> totals) {
+        double total = 0.0;
+        for (int count : totals)
+            total += count;
+        double entropy = 0.0;
+        for (int count : totals)
+            if (count > 0)
+                entropy -= count / total * (Math.log(count / total) / Math.log(2));
+        return entropy;
+    }
+
+    /**
+     * Calculate the gain ratio with its definition: (H(Y) - H(Y|A)) / SplitInformation(A)
+     * @param confusionMatrix the confusion matrix
+     * @return the gain ratio, 0 if the attribute has a single value
+     */
+    private static double directGainRatio(ConfusionMatrix confusionMatrix) {
+        List<Integer> rowTotals = new ArrayList<>();
+        for (String row : confusionMatrix.getRowValues())
+            rowTotals.add(confusionMatrix.getRowTotal(row));
+        List<Integer> columnTotals = new ArrayList<>();
+        for (String column : confusionMatrix.getColumnValues())
+            columnTotals.add(confusionMatrix.getColumnTotal(column));
+        double splitInformation = directEntropyOf(rowTotals);
+        if (splitInformation <= 0.0)
+            return 0.0;
+        return (directEntropyOf(columnTotals) - directEntropy(confusionMatrix)) / splitInformation;
+    }
+
+    @Test
+    public void kernelsGiveTheDirectFormulas() {
+        Random random = new Random(47);
+        for (int matrixIndex = 0; matrixIndex < MATRICES_COUNT; ++matrixIndex) {
+            int[][] counts = randomCounts(random);
+            if (PurityKernel.total(counts) == 0)
+                continue;
+            ConfusionMatrix confusionMatrix = toConfusionMatrix(counts);
+
+            double entropy = directEntropy(confusionMatrix);
+            assertEquals(entropy, PurityKernel.entropy(counts), TOLERANCE);
+            assertEquals(entropy, new Entropy().calculate(counts), TOLERANCE);
+            assertEquals(entropy, new Entropy().calculate(confusionMatrix), TOLERANCE);
+
+            double gini = directGini(confusionMatrix);
+            assertEquals(gini, PurityKernel.gini(counts), TOLERANCE);
+            assertEquals(gini, new Gini().calculate(confusionMatrix), TOLERANCE);
+
+            assertEquals(-directGainRatio(confusionMatrix), new GainRatio().calculate(counts), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void nLog2NIsTheSameInAndOutOfTheTable() {
+        assertEquals(0.0, PurityKernel.nLog2N(0), 0.0);
+        assertEquals(0.0, PurityKernel.nLog2N(1), 0.0);
+        for (long n : new long[]{2, 3, 1000, PurityKernel.TABLE_SIZE - 1, PurityKernel.TABLE_SIZE, 10L * PurityKernel.TABLE_SIZE})
+            assertEquals(n * Math.log(n) / Math.log(2), PurityKernel.nLog2N(n), 1e-9);
+    }
+
+    @Test
+    public void lowerBoundsDoNotExceedTheFinalValues() {
+        Random random = new Random(48);
+        for (int matrixIndex = 0; matrixIndex < MATRICES_COUNT; ++matrixIndex) {
+            int[][] counts = randomCounts(random);
+            long total = PurityKernel.total(counts);
+            if (total == 0)
+                continue;
+            //A part of the rows: every count is cut at random
+            int[][] partialCounts = new int[counts.length][];
+            for (int value = 0; value < counts.length; ++value) {
+                partialCounts[value] = counts[value].clone();
+                for (int classIndex = 0; classIndex < counts[value].length; ++classIndex)
+                    partialCounts[value][classIndex] = counts[value][classIndex] == 0 ? 0 : random.nextInt(counts[value][classIndex] + 1);
+            }
+            ConfusionMatrix partialConfusionMatrix = toConfusionMatrix(partialCounts);
+            assertTrue(new Entropy().lowerBound(partialConfusionMatrix, total) <= PurityKernel.entropy(counts) + TOLERANCE);
+            assertTrue(new Gini().lowerBound(partialConfusionMatrix, total) <= PurityKernel.gini(counts) + TOLERANCE);
+        }
+    }
+}
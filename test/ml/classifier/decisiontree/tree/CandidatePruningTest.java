@@ -0,0 +1,52 @@
+package ml.classifier.decisiontree.tree;
+
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.purityfunction.Entropy;
+import ml.classifier.decisiontree.purityfunction.Gini;
+import ml.classifier.decisiontree.purityfunction.PurityFunction;
+import ml.utils.monitoring.Metrics;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests that the candidate pruning of ID3 (the attributes abandoned on the lower bound of their purity) does not change the trees
+ */
+public class CandidatePruningTest {
+
+    /**
+     * Build an ID3 tree and describe it
+     * @param dataset the dataset
+     * @param purityFunction the purity function
+     * @param splitMode the split mode
+     * @param candidatePruning true to abandon the attributes that cannot be the best one
+     * @return the description of the tree
+     */
+    private static String buildTree(Dataset dataset, PurityFunction purityFunction, SplitMode splitMode, boolean candidatePruning) {
+        ID3 tree = new ID3(new Dataset(dataset), TestData.OUTCOME, purityFunction, splitMode, candidatePruning, new TrainingMonitor());
+        assertEquals(candidatePruning, tree.isCandidatePruning());
+        return TestData.describe(tree);
+    }
+
+    @Test
+    public void pruningBuildsTheSameTrees() {
+        Dataset dataset = TestData.createDataset(20000, 45);
+        boolean metricsEnabled = Metrics.isEnabled();
+        Metrics.setEnabled(true);
+        try {
+            for (PurityFunction purityFunction : new PurityFunction[]{new Entropy(), new Gini()}) {
+                for (SplitMode splitMode : SplitMode.values()) {
+                    String unprunedTree = buildTree(dataset, purityFunction, splitMode, false);
+                    long abandonedBefore = Metrics.snapshot().get("attributesAbandoned");
+                    assertEquals(unprunedTree, buildTree(dataset, purityFunction, splitMode, true));
+                    if (splitMode == SplitMode.MULTIWAY)
+                        assertTrue("no attribute was abandoned, so the pruning was not tested", Metrics.snapshot().get("attributesAbandoned") > abandonedBefore);
+                }
+            }
+        }
+        finally {
+            Metrics.setEnabled(metricsEnabled);
+        }
+    }
+}
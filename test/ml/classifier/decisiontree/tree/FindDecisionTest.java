@@ -0,0 +1,108 @@
+package ml.classifier.decisiontree.tree;
+
+import ml.classifier.decisiontree.instance.Attribute;
+import ml.classifier.decisiontree.instance.AttributeSubset;
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.Instance;
+import ml.classifier.decisiontree.purityfunction.Entropy;
+import ml.utils.Pair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests that the value map of the InnerNodes finds the same decisions as matching the decisions in order
+ */
+public class FindDecisionTest {
+
+    /**
+     * Evaluate an observation by matching the decisions of every node in order
+     * @param tree the tree
+     * @param observation the observation
+     * @return the predicted class
+     */
+    private static String evaluateInOrder(Tree tree, Instance observation) {
+        Node node = tree.getRoot();
+        while (!node.isTerminal()) {
+            Node nextNode = null;
+            for (Pair<Attribute, Node> decision : ((InnerNode) node).getDecisions()) {
+                if (decision.getFirst().matches(observation.getAttributeByName(decision.getFirst().getAttributeName()))) {
+                    nextNode = decision.getSecond();
+                    break;
+                }
+            }
+            if (nextNode == null)
+                return ((InnerNode) node).getDefaultLabel();
+            node = nextNode;
+        }
+        return node.getLabel();
+    }
+
+    @Test
+    public void valueMapFindsTheFirstMatchingDecision() {
+        InnerNode node = new InnerNode("A");
+        node.addDecision(new Attribute("A", "1"), new TerminalNode("x"));
+        node.addDecision(new Attribute("A", "2"), new TerminalNode("y"));
+        node.addDecision(new Attribute("A", "1"), new TerminalNode("z"));
+
+        assertEquals(0, node.findDecision(new Attribute("A", "1")));
+        assertEquals(1, node.findDecision(new Attribute("A", "2")));
+        assertEquals(-1, node.findDecision(new Attribute("A", "3")));
+        assertEquals(-1, node.findDecision(new Attribute("B", "1")));
+        assertEquals(-1, node.findDecision((Attribute) null));
+
+        //A new decision is seen by the next lookup
+        node.addDecision(new Attribute("A", "3"), new TerminalNode("w"));
+        assertEquals(3, node.findDecision(new Attribute("A", "3")));
+    }
+
+    @Test
+    public void subsetDecisionsAreMatchedInOrder() {
+        InnerNode node = new InnerNode("A");
+        node.addDecision(new AttributeSubset("A", Arrays.asList("1", "2"), false), new TerminalNode("x"));
+        node.addDecision(new AttributeSubset("A", Arrays.asList("1", "2"), true), new TerminalNode("y"));
+
+        assertEquals(0, node.findDecision(new Attribute("A", "2")));
+        assertEquals(1, node.findDecision(new Attribute("A", "7")));
+        assertEquals(-1, node.findDecision(new Attribute("B", "7")));
+    }
+
+    @Test
+    public void treesEvaluateAsInOrder() {
+        Dataset dataset = TestData.createDataset(5000, 49);
+
+        //The rows are scored with shuffled attributes, a missing attribute or a value not seen in training
+        Random random = new Random(49);
+        List<Instance> observations = new ArrayList<>();
+        for (Instance observation : dataset.getObservations()) {
+            List<Attribute> attributes = new ArrayList<>(observation.getAttributes());
+            int change = random.nextInt(4);
+            if (change == 0)
+                Collections.shuffle(attributes, random);
+            else if (change == 1)
+                attributes.remove(random.nextInt(attributes.size()));
+            else if (change == 2)
+                attributes.set(0, new Attribute(attributes.get(0).getAttributeName(), "unseen"));
+            observations.add(new Instance(attributes));
+        }
+
+        for (SplitMode splitMode : SplitMode.values()) {
+            List<Tree> trees = Arrays.<Tree>asList(
+                    new ID3(new Dataset(dataset), TestData.OUTCOME, new Entropy(), splitMode),
+                    new LevelWiseID3(new Dataset(dataset), TestData.OUTCOME, new Entropy(), splitMode));
+            for (Tree tree : trees) {
+                List<String> predictions = tree.evaluateBatch(observations);
+                for (int row = 0; row < observations.size(); ++row) {
+                    assertEquals(evaluateInOrder(tree, observations.get(row)), tree.evaluate(observations.get(row)));
+                    assertEquals(tree.evaluate(observations.get(row)), predictions.get(row));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ml.classifier.decisiontree.tree;
+
+import ml.classifier.decisiontree.instance.EncodedDataset;
+import ml.classifier.decisiontree.purityfunction.Entropy;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the counts of the sparse columns (SplitSearch.countSparse) against the counts of the same columns stored dense
+ */
+public class SplitSearchTest {
+
+    /**
+     * Count some rows of an encoded dataset
+     * @param encodedDataset the encoded dataset
+     * @param rows the rows
+     * @param rowsSorted true if the rows are sorted
+     * @return the counts, as counts[attribute][value][class], with the class counts last
+     */
+    private static int[][][] count(EncodedDataset encodedDataset, int[] rows, boolean rowsSorted) {
+        int[][][] counts = SplitSearch.newCounts(encodedDataset);
+        int[] classCounts = new int[encodedDataset.getClassesCount()];
+        SplitSearch.count(encodedDataset, rows, rowsSorted, counts, classCounts);
+        int[][][] result = Arrays.copyOf(counts, counts.length + 1);
+        result[counts.length] = new int[][]{classCounts};
+        return result;
+    }
+
+    /**
+     * Check that the sparse and the dense encodings give the same counts for some rows
+     * @param dense the dense encoding
+     * @param sparse the sparse encoding
+     * @param rows the rows
+     */
+    private static void assertSameCounts(EncodedDataset dense, EncodedDataset sparse, int[] rows) {
+        boolean rowsSorted = SplitSearch.isSorted(rows);
+        int[][][] denseCounts = count(dense, rows, rowsSorted);
+        assertArrayEquals(denseCounts, count(sparse, rows, rowsSorted));
+        //The rows are looked up one by one when they are not known to be sorted
+        assertArrayEquals(denseCounts, count(sparse, rows, false));
+    }
+
+    /**
+     * Choose some of the rows, in increasing order
+     * @param random the random generator
+     * @param rowsCount the number of rows
+     * @param fraction the probability of a row
+     * @return the chosen rows
+     */
+    private static int[] someRows(Random random, int rowsCount, double fraction) {
+        int[] rows = new int[rowsCount];
+        int chosenCount = 0;
+        for (int row = 0; row < rowsCount; ++row)
+            if (random.nextDouble() < fraction)
+                rows[chosenCount++] = row;
+        return Arrays.copyOf(rows, chosenCount);
+    }
+
+    /**
+     * Shuffle some rows
+     * @param random the random generator
+     * @param rows the rows
+     * @return the shuffled rows
+     */
+    private static int[] shuffle(Random random, int[] rows) {
+        int[] shuffled = rows.clone();
+        for (int index = shuffled.length - 1; index > 0; --index) {
+            int other = random.nextInt(index + 1);
+            int row = shuffled[index];
+            shuffled[index] = shuffled[other];
+            shuffled[other] = row;
+        }
+        return shuffled;
+    }
+
+    @Test
+    public void sparseColumnsCountLikeDenseColumns() {
+        EncodedDataset dense = new EncodedDataset(TestData.createDataset(5000, 44));
+        EncodedDataset sparse = dense.toSparse(EncodedDataset.DEFAULT_MAXIMUM_DENSITY);
+        int sparseCount = 0;
+        for (int attributeIndex = 0; attributeIndex < sparse.getAttributesCount(); ++attributeIndex)
+            if (sparse.isSparse(attributeIndex))
+                ++sparseCount;
+        assertEquals(20, sparseCount);
+
+        Random random = new Random(44);
+        assertSameCounts(dense, sparse, dense.getAllRows());
+        //A few rows (the non-default rows are more than the rows) and many rows, sorted or not
+        for (double fraction : new double[]{0.002, 0.05, 0.6}) {
+            int[] rows = someRows(random, dense.getObservationsCount(), fraction);
+            assertSameCounts(dense, sparse, rows);
+            assertSameCounts(dense, sparse, shuffle(random, rows));
+        }
+    }
+
+    @Test
+    public void weightedSparseColumnsCountLikeDenseColumns() {
+        EncodedDataset dense = new EncodedDataset(TestData.createDataset(8000, 45)).collapseDuplicates();
+        assertTrue(dense.getObservationsCount() < 8000);
+        EncodedDataset sparse = dense.toSparse(EncodedDataset.DEFAULT_MAXIMUM_DENSITY);
+
+        Random random = new Random(45);
+        assertSameCounts(dense, sparse, dense.getAllRows());
+        int[] rows = someRows(random, dense.getObservationsCount(), 0.3);
+        assertSameCounts(dense, sparse, rows);
+        assertSameCounts(dense, sparse, shuffle(random, rows));
+    }
+
+    @Test
+    public void sparseColumnsBuildTheSameTrees() {
+        EncodedDataset dense = new EncodedDataset(TestData.createDataset(5000, 46)).collapseDuplicates();
+        EncodedDataset sparse = dense.toSparse(EncodedDataset.DEFAULT_MAXIMUM_DENSITY);
+        for (SplitMode splitMode : SplitMode.values()) {
+            String denseTree = TestData.describe(new LevelWiseID3(dense, dense.getAllRows(), new Entropy(), splitMode, new TrainingMonitor()));
+            assertEquals(denseTree, TestData.describe(new LevelWiseID3(sparse, sparse.getAllRows(), new Entropy(), splitMode, new TrainingMonitor())));
+        }
+        GrowthBudget growthBudget = new GrowthBudget();
+        assertEquals(TestData.describe(new BestFirstID3(dense, dense.getAllRows(), new Entropy(), growthBudget)),
+                TestData.describe(new BestFirstID3(sparse, sparse.getAllRows(), new Entropy(), growthBudget)));
+    }
+}
@@ -0,0 +1,78 @@
+package ml.classifier.decisiontree.tree;
+
+import ml.classifier.decisiontree.instance.Attribute;
+import ml.classifier.decisiontree.instance.Dataset;
+import ml.classifier.decisiontree.instance.Instance;
+import ml.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class creates the datasets of the tree tests and describes the trees, so two trees can be compared
+ * A dataset has two dense categorical attributes (A0, A1), a one-hot group of 4 columns (W0..W3) and a sparse one-hot group of 20 columns
+ * (S0..S19); the outcome (4 classes) depends on A0, A1 and the S group, with 10% of noise, and many rows are repeated
+ */
+class TestData {
+
+    static final String OUTCOME = "Class";
+
+    /**
+     * Create a dataset
+     * @param rowsCount the number of rows
+     * @param seed the seed of the random generator
+     * @return the dataset
+     */
+    static Dataset createDataset(int rowsCount, long seed) {
+        Random random = new Random(seed);
+        List<Instance> observations = new ArrayList<>(rowsCount);
+        for (int row = 0; row < rowsCount; ++row) {
+            int a0 = random.nextInt(12);
+            int a1 = random.nextInt(5);
+            int w = random.nextInt(4);
+            int s = random.nextInt(20);
+            int outcome = random.nextInt(10) == 0 ? random.nextInt(4) : (a0 / 3 + (a1 == 0 ? 1 : 0) + (s < 3 ? 2 : 0)) % 4;
+
+            List<Attribute> attributes = new ArrayList<>();
+            attributes.add(new Attribute("A0", String.valueOf(a0)));
+            attributes.add(new Attribute("A1", String.valueOf(a1)));
+            for (int column = 0; column < 4; ++column)
+                attributes.add(new Attribute("W" + column, column == w ? "1" : "0"));
+            for (int column = 0; column < 20; ++column)
+                attributes.add(new Attribute("S" + column, column == s ? "1" : "0"));
+            attributes.add(new Attribute(OUTCOME, String.valueOf(outcome)));
+            observations.add(new Instance(attributes));
+        }
+        return new Dataset(observations, OUTCOME);
+    }
+
+    /**
+     * Describe a tree: the label, the purity function value and the decisions of every node
+     * @param tree the tree
+     * @return the description of the tree
+     */
+    static String describe(Tree tree) {
+        StringBuilder description = new StringBuilder();
+        describe(tree.getRoot(), description);
+        return description.toString();
+    }
+
+    /**
+     * Describe a node and its children
+     * @param node the node
+     * @param description the description, to be filled
+     */
+    private static void describe(Node node, StringBuilder description) {
+        description.append(node.getLabel()).append(" (").append(node.getPurityFunctionValue()).append(')');
+        if (node.isTerminal())
+            return;
+        description.append(" [");
+        for (Pair<Attribute, Node> decision : ((InnerNode) node).getDecisions()) {
+            description.append(decision.getFirst().getAttributeValue()).append(": ");
+            describe(decision.getSecond(), description);
+            description.append("; ");
+        }
+        description.append(']');
+    }
+}